@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.commons.base64.Base64;
+
+/**
+ * Benchmarks for {@link Base64}.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class Base64Benchmark
+{
+  /** Payload size in bytes */
+  @Param ({ "64", "4096", "262144" })
+  public int m_nSize;
+
+  private byte [] m_aBytes;
+  private String m_sEncoded;
+
+  @Setup
+  public void setup ()
+  {
+    m_aBytes = BenchmarkPayloads.createBytes (m_nSize);
+    m_sEncoded = Base64.encodeBytes (m_aBytes);
+  }
+
+  @Benchmark
+  public String encode ()
+  {
+    return Base64.encodeBytes (m_aBytes);
+  }
+
+  @Benchmark
+  @Threads (4)
+  public String encodeMultiThreaded ()
+  {
+    return Base64.encodeBytes (m_aBytes);
+  }
+
+  @Benchmark
+  public byte [] decode ()
+  {
+    return Base64.safeDecode (m_sEncoded);
+  }
+
+  @Benchmark
+  @Threads (4)
+  public byte [] decodeMultiThreaded ()
+  {
+    return Base64.safeDecode (m_sEncoded);
+  }
+}
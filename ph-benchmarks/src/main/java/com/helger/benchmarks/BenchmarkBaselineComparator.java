@@ -0,0 +1,248 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsTreeMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.StringParser;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.IJsonObject;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Compares a JMH result file (JSON format) with a baseline result file and
+ * fails if the throughput dropped or the allocation rate per operation grew
+ * by more than the configured percentage. The GC profiler (
+ * <code>-prof gc</code>) must be active to compare the allocation rates. If
+ * the baseline file does not exist, the current result becomes the baseline.
+ * <p>
+ * Usage:
+ * <code>BenchmarkBaselineComparator baseline.json result.json [maxThroughputLossPercent [maxAllocationGrowthPercent]]</code>
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class BenchmarkBaselineComparator
+{
+  private static final Logger s_aLogger = LoggerFactory.getLogger (BenchmarkBaselineComparator.class);
+
+  /** The normalized allocation rate of the JMH GC profiler */
+  private static final String ALLOC_RATE_NORM = "gc.alloc.rate.norm";
+  /** Allocation differences below this number of bytes per op are ignored */
+  private static final double ALLOC_TOLERANCE_BYTES = 16;
+
+  private static final class Result
+  {
+    private final String m_sMode;
+    private final double m_dScore;
+    private final String m_sUnit;
+    private final double m_dAllocPerOp;
+
+    Result (@Nonnull final String sMode, final double dScore, @Nonnull final String sUnit, final double dAllocPerOp)
+    {
+      m_sMode = sMode;
+      m_dScore = dScore;
+      m_sUnit = sUnit;
+      m_dAllocPerOp = dAllocPerOp;
+    }
+
+    boolean isHigherBetter ()
+    {
+      return "thrpt".equals (m_sMode);
+    }
+  }
+
+  private BenchmarkBaselineComparator ()
+  {}
+
+  @Nonnull
+  private static String _getID (@Nonnull final IJsonObject aBenchmark)
+  {
+    final StringBuilder aSB = new StringBuilder (aBenchmark.getAsValue ("benchmark").getAsString ());
+    final IJsonObject aParams = aBenchmark.getAsObject ("params");
+    if (aParams != null)
+    {
+      // Sort params for a stable ID
+      final ICommonsMap <String, String> aSorted = new CommonsTreeMap <> ();
+      aParams.forEach ( (k, v) -> aSorted.put (k, v.getAsValue ().getAsString ()));
+      aSorted.forEach ( (k, v) -> aSB.append (' ').append (k).append ('=').append (v));
+    }
+    aSB.append (" [").append (aBenchmark.getAsValue ("threads").getAsString ()).append (" threads]");
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  static ICommonsOrderedMap <String, Result> readResults (@Nonnull final File aFile)
+  {
+    final IJson aJson = JsonReader.readFromFile (aFile);
+    if (aJson == null || !aJson.isArray ())
+      throw new IllegalArgumentException ("The file '" + aFile.getAbsolutePath () + "' is not a JMH JSON result");
+
+    final ICommonsOrderedMap <String, Result> ret = new CommonsLinkedHashMap <> ();
+    for (final IJson aItem : (IJsonArray) aJson)
+    {
+      final IJsonObject aBenchmark = aItem.getAsObject ();
+      final IJsonObject aPrimary = aBenchmark.getAsObject ("primaryMetric");
+      double dAllocPerOp = Double.NaN;
+      final IJsonObject aSecondary = aBenchmark.getAsObject ("secondaryMetrics");
+      if (aSecondary != null)
+        for (final String sName : aSecondary.keySet ())
+          if (sName.endsWith (ALLOC_RATE_NORM))
+            dAllocPerOp = aSecondary.getAsObject (sName).getAsValue ("score").getAsDouble ();
+      ret.put (_getID (aBenchmark),
+               new Result (aBenchmark.getAsValue ("mode").getAsString (),
+                           aPrimary.getAsValue ("score").getAsDouble (),
+                           aPrimary.getAsValue ("scoreUnit").getAsString (),
+                           dAllocPerOp));
+    }
+    return ret;
+  }
+
+  /**
+   * Compare the results.
+   *
+   * @param aBaseline
+   *        Baseline results. May not be <code>null</code>.
+   * @param aCurrent
+   *        Current results. May not be <code>null</code>.
+   * @param dMaxThroughputLoss
+   *        Maximum tolerated loss in percent
+   * @param dMaxAllocationGrowth
+   *        Maximum tolerated growth of the allocations per operation in
+   *        percent
+   * @return The list of regression messages. Never <code>null</code> but maybe
+   *         empty.
+   */
+  @Nonnull
+  static ICommonsList <String> compare (@Nonnull final ICommonsOrderedMap <String, Result> aBaseline,
+                                        @Nonnull final ICommonsOrderedMap <String, Result> aCurrent,
+                                        final double dMaxThroughputLoss,
+                                        final double dMaxAllocationGrowth)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> ();
+    for (final Map.Entry <String, Result> aEntry : aCurrent.entrySet ())
+    {
+      final String sID = aEntry.getKey ();
+      final Result aCur = aEntry.getValue ();
+      final Result aBase = aBaseline.get (sID);
+      if (aBase == null)
+      {
+        s_aLogger.info ("New benchmark without baseline: " + sID);
+        continue;
+      }
+      if (!aBase.m_sUnit.equals (aCur.m_sUnit) || !aBase.m_sMode.equals (aCur.m_sMode))
+      {
+        s_aLogger.warn ("Benchmark " + sID + " has a different mode or unit than the baseline - not compared");
+        continue;
+      }
+
+      // Positive means worse
+      final double dChange = (aCur.isHigherBetter () ? aBase.m_dScore - aCur.m_dScore : aCur.m_dScore - aBase.m_dScore) *
+                             100 /
+                             aBase.m_dScore;
+      final String sScore = String.format ("%s: %.3f -> %.3f %s (%+.1f%%)",
+                                           sID,
+                                           Double.valueOf (aBase.m_dScore),
+                                           Double.valueOf (aCur.m_dScore),
+                                           aCur.m_sUnit,
+                                           Double.valueOf (-dChange));
+      if (dChange > dMaxThroughputLoss)
+        ret.add ("Throughput regression " + sScore);
+      else
+        s_aLogger.info (sScore);
+
+      if (!Double.isNaN (aBase.m_dAllocPerOp) && !Double.isNaN (aCur.m_dAllocPerOp))
+      {
+        final double dDiff = aCur.m_dAllocPerOp - aBase.m_dAllocPerOp;
+        if (dDiff > ALLOC_TOLERANCE_BYTES && dDiff * 100 > dMaxAllocationGrowth * aBase.m_dAllocPerOp)
+          ret.add (String.format ("Allocation regression %s: %.1f -> %.1f B/op",
+                                  sID,
+                                  Double.valueOf (aBase.m_dAllocPerOp),
+                                  Double.valueOf (aCur.m_dAllocPerOp)));
+      }
+    }
+    for (final String sID : aBaseline.keySet ())
+      if (!aCurrent.containsKey (sID))
+        s_aLogger.info ("Baseline benchmark not executed: " + sID);
+    return ret;
+  }
+
+  private static double _getPercentage (@Nonnull final String [] aArgs, final int nIndex, final double dDefault)
+  {
+    if (aArgs.length <= nIndex)
+      return dDefault;
+    final double ret = StringParser.parseDouble (aArgs[nIndex], Double.NaN);
+    if (Double.isNaN (ret) || ret < 0)
+      throw new IllegalArgumentException ("Invalid percentage '" + aArgs[nIndex] + "'");
+    return ret;
+  }
+
+  public static void main (@Nullable final String [] aArgs) throws IOException
+  {
+    if (aArgs == null || aArgs.length < 2)
+    {
+      s_aLogger.error ("Usage: BenchmarkBaselineComparator baseline.json result.json [maxThroughputLossPercent [maxAllocationGrowthPercent]]");
+      System.exit (2);
+      return;
+    }
+
+    final File aBaselineFile = new File (aArgs[0]);
+    final File aResultFile = new File (aArgs[1]);
+    final double dMaxThroughputLoss = _getPercentage (aArgs, 2, 10);
+    final double dMaxAllocationGrowth = _getPercentage (aArgs, 3, 10);
+
+    if (!aBaselineFile.exists ())
+    {
+      final File aParent = aBaselineFile.getAbsoluteFile ().getParentFile ();
+      if (aParent != null)
+        Files.createDirectories (aParent.toPath ());
+      Files.copy (aResultFile.toPath (), aBaselineFile.toPath (), StandardCopyOption.REPLACE_EXISTING);
+      s_aLogger.info ("No baseline present - created '" + aBaselineFile.getAbsolutePath () + "' from the current result");
+      return;
+    }
+
+    final ICommonsList <String> aRegressions = compare (readResults (aBaselineFile),
+                                                        readResults (aResultFile),
+                                                        dMaxThroughputLoss,
+                                                        dMaxAllocationGrowth);
+    if (aRegressions.isNotEmpty ())
+    {
+      for (final String sRegression : aRegressions)
+        s_aLogger.error (sRegression);
+      System.exit (1);
+    }
+    s_aLogger.info ("No regressions compared to the baseline");
+  }
+}
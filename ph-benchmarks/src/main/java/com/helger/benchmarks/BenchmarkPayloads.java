@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.util.Random;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.json.IJsonArray;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroDocument;
+
+/**
+ * Creates the deterministic payloads used by the benchmarks, so that the
+ * results of different runs are comparable.
+ *
+ * @author Philip Helger
+ */
+@Immutable
+public final class BenchmarkPayloads
+{
+  private static final String [] WORDS = { "order",
+                                           "invoice",
+                                           "customer",
+                                           "Müller",
+                                           "amount",
+                                           "EUR",
+                                           "2018-04-01",
+                                           "Straße 12",
+                                           "x",
+                                           "a somewhat longer description text" };
+
+  private BenchmarkPayloads ()
+  {}
+
+  @Nonnull
+  public static Random createRandom ()
+  {
+    // Fixed seed
+    return new Random (4711);
+  }
+
+  @Nonnull
+  public static byte [] createBytes (@Nonnegative final int nSize)
+  {
+    final byte [] ret = new byte [nSize];
+    createRandom ().nextBytes (ret);
+    return ret;
+  }
+
+  @Nonnull
+  public static ICommonsList <String> createWords (@Nonnegative final int nCount)
+  {
+    final Random aRandom = createRandom ();
+    final ICommonsList <String> ret = new CommonsArrayList <> (nCount);
+    for (int i = 0; i < nCount; ++i)
+      ret.add (WORDS[aRandom.nextInt (WORDS.length)]);
+    return ret;
+  }
+
+  /**
+   * @param nLength
+   *        Approximate length of the text
+   * @return Text with some XML special characters in it.
+   */
+  @Nonnull
+  public static String createText (@Nonnegative final int nLength)
+  {
+    final Random aRandom = createRandom ();
+    final StringBuilder aSB = new StringBuilder (nLength + 40);
+    while (aSB.length () < nLength)
+    {
+      aSB.append (WORDS[aRandom.nextInt (WORDS.length)]);
+      aSB.append (aRandom.nextInt (8) == 0 ? " <&> " : " ");
+    }
+    return aSB.toString ();
+  }
+
+  /**
+   * @param nColumns
+   *        Number of columns
+   * @param nLineIndex
+   *        Line index for variation
+   * @return One CSV line with quoted and unquoted fields.
+   */
+  @Nonnull
+  public static String createCSVLine (@Nonnegative final int nColumns, final int nLineIndex)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < nColumns; ++i)
+    {
+      if (i > 0)
+        aSB.append (',');
+      final String sWord = WORDS[(i + nLineIndex) % WORDS.length];
+      if ((i % 3) == 0)
+        aSB.append ('"').append (sWord).append (", \"\"quoted\"\"").append ('"');
+      else
+        aSB.append (sWord);
+    }
+    return aSB.toString ();
+  }
+
+  @Nonnull
+  public static String createCSV (@Nonnegative final int nColumns, @Nonnegative final int nLines)
+  {
+    final StringBuilder aSB = new StringBuilder ();
+    for (int i = 0; i < nLines; ++i)
+      aSB.append (createCSVLine (nColumns, i)).append ('\n');
+    return aSB.toString ();
+  }
+
+  /**
+   * @param nRecords
+   *        Number of records in the main array
+   * @return A JSON object similar to a typical REST response
+   */
+  @Nonnull
+  public static IJsonObject createJson (@Nonnegative final int nRecords)
+  {
+    final Random aRandom = createRandom ();
+    final IJsonArray aRecords = new JsonArray ();
+    for (int i = 0; i < nRecords; ++i)
+    {
+      final IJsonObject aRecord = new JsonObject ();
+      aRecord.add ("id", i);
+      aRecord.add ("name", WORDS[aRandom.nextInt (WORDS.length)]);
+      aRecord.add ("amount", aRandom.nextDouble () * 1000);
+      aRecord.add ("active", aRandom.nextBoolean ());
+      aRecord.add ("tags", new JsonArray ().add ("a").add ("b\"c").add ("äöü"));
+      aRecords.add (aRecord);
+    }
+    return new JsonObject ().add ("count", nRecords).add ("records", aRecords);
+  }
+
+  /**
+   * @param nElements
+   *        Number of child elements
+   * @return A MicroDOM document similar to a typical business document
+   */
+  @Nonnull
+  public static IMicroDocument createMicroDocument (@Nonnegative final int nElements)
+  {
+    final Random aRandom = createRandom ();
+    final IMicroDocument aDoc = new MicroDocument ();
+    final IMicroElement eRoot = aDoc.appendElement ("urn:benchmark", "root");
+    for (int i = 0; i < nElements; ++i)
+    {
+      final IMicroElement eItem = eRoot.appendElement ("urn:benchmark", "item");
+      eItem.setAttribute ("id", i);
+      eItem.setAttribute ("currency", "EUR");
+      eItem.appendElement ("urn:benchmark", "name").appendText (WORDS[aRandom.nextInt (WORDS.length)] + " <&>");
+      eItem.appendElement ("urn:benchmark", "amount").appendText (Integer.toString (aRandom.nextInt (100000)));
+    }
+    return aDoc;
+  }
+}
@@ -0,0 +1,90 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.csv.CSVParser;
+import com.helger.commons.csv.CSVReader;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+
+/**
+ * Benchmarks for {@link CSVParser} and {@link CSVReader}.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class CSVParserBenchmark
+{
+  private static final int COLUMNS = 12;
+
+  /** Number of lines of the document */
+  @Param ({ "10", "1000" })
+  public int m_nLines;
+
+  private String m_sLine;
+  private String m_sDocument;
+
+  @Setup
+  public void setup ()
+  {
+    m_sLine = BenchmarkPayloads.createCSVLine (COLUMNS, 0);
+    m_sDocument = BenchmarkPayloads.createCSV (COLUMNS, m_nLines);
+  }
+
+  @Benchmark
+  public ICommonsList <String> parseLine () throws IOException
+  {
+    return new CSVParser ().parseLine (m_sLine);
+  }
+
+  @Benchmark
+  public ICommonsList <ICommonsList <String>> readAll () throws IOException
+  {
+    try (final CSVReader aReader = new CSVReader (new NonBlockingStringReader (m_sDocument)))
+    {
+      return aReader.readAll ();
+    }
+  }
+
+  @Benchmark
+  @Threads (4)
+  public ICommonsList <ICommonsList <String>> readAllMultiThreaded () throws IOException
+  {
+    return readAll ();
+  }
+}
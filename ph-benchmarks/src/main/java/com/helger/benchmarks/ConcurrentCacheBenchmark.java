@@ -0,0 +1,105 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.commons.cache.ConcurrentCache;
+import com.helger.commons.cache.ECacheEvictionPolicy;
+
+/**
+ * Benchmarks for {@link ConcurrentCache} with a skewed key distribution, so
+ * that hits, misses and evictions occur.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class ConcurrentCacheBenchmark
+{
+  private static final int KEY_COUNT = 1 << 16;
+  private static final int DISTINCT_KEYS = 10000;
+  private static final int MAX_SIZE = 1000;
+
+  @Param ({ "LRU", "TINY_LFU" })
+  public ECacheEvictionPolicy m_eEvictionPolicy;
+
+  private ConcurrentCache <Integer, String> m_aCache;
+  private Integer [] m_aKeys;
+
+  /**
+   * The position in the key sequence of each thread
+   */
+  @State (Scope.Thread)
+  public static class KeyIndex
+  {
+    private int m_nIndex;
+
+    @Setup
+    public void setup ()
+    {
+      m_nIndex = (int) Thread.currentThread ().getId () * 7919;
+    }
+
+    int next ()
+    {
+      return m_nIndex++ & (KEY_COUNT - 1);
+    }
+  }
+
+  @Setup
+  public void setup ()
+  {
+    m_aCache = new ConcurrentCache <> (x -> "value" + x, MAX_SIZE, "benchmark", m_eEvictionPolicy);
+    // Approximately Zipf distributed keys
+    final Random aRandom = BenchmarkPayloads.createRandom ();
+    m_aKeys = new Integer [KEY_COUNT];
+    for (int i = 0; i < KEY_COUNT; ++i)
+      m_aKeys[i] = Integer.valueOf ((int) Math.pow (DISTINCT_KEYS, aRandom.nextDouble ()));
+  }
+
+  @Benchmark
+  public String getFromCache (final KeyIndex aIndex)
+  {
+    return m_aCache.getFromCache (m_aKeys[aIndex.next ()]);
+  }
+
+  @Benchmark
+  @Threads (8)
+  public String getFromCacheMultiThreaded (final KeyIndex aIndex)
+  {
+    return m_aCache.getFromCache (m_aKeys[aIndex.next ()]);
+  }
+}
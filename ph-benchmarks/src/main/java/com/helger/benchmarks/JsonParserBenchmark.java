@@ -0,0 +1,123 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.commons.state.ESuccess;
+import com.helger.json.IJson;
+import com.helger.json.IJsonObject;
+import com.helger.json.parser.JsonParser;
+import com.helger.json.parser.handler.CompactCollectingJsonParserHandler;
+import com.helger.json.parser.handler.DoNothingJsonParserHandler;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Benchmarks for {@link JsonParser} (via {@link JsonReader}) and JSON
+ * serialization. The parse benchmarks cover character input, UTF-8 byte input
+ * that is decoded by the parser itself, and parsing without building a tree
+ * with and without the original content (escaped strings, whitespaces and
+ * comments) being created.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class JsonParserBenchmark
+{
+  /** Number of records in the document */
+  @Param ({ "10", "1000" })
+  public int m_nRecords;
+
+  private IJsonObject m_aJson;
+  private String m_sJson;
+  private byte [] m_aJsonBytes;
+
+  @Setup
+  public void setup ()
+  {
+    m_aJson = BenchmarkPayloads.createJson (m_nRecords);
+    m_sJson = m_aJson.getAsJsonString ();
+    m_aJsonBytes = m_sJson.getBytes (StandardCharsets.UTF_8);
+  }
+
+  @Benchmark
+  public IJson read ()
+  {
+    return JsonReader.readFromString (m_sJson);
+  }
+
+  @Benchmark
+  public IJson readUTF8Bytes ()
+  {
+    return JsonReader.readFromStream (new NonBlockingByteArrayInputStream (m_aJsonBytes));
+  }
+
+  @Benchmark
+  public IJson readCompact ()
+  {
+    final CompactCollectingJsonParserHandler aHandler = new CompactCollectingJsonParserHandler ();
+    JsonReader.parseJson (new NonBlockingStringReader (m_sJson), aHandler);
+    return aHandler.getJson ();
+  }
+
+  @Benchmark
+  public boolean validate ()
+  {
+    return JsonReader.isValidJson (m_sJson);
+  }
+
+  @Benchmark
+  public ESuccess parseWithOriginalContent ()
+  {
+    // The default handler requests all original content
+    return JsonReader.parseJson (new NonBlockingStringReader (m_sJson), new DoNothingJsonParserHandler ());
+  }
+
+  @Benchmark
+  @Threads (4)
+  public IJson readMultiThreaded ()
+  {
+    return JsonReader.readFromString (m_sJson);
+  }
+
+  @Benchmark
+  public String write ()
+  {
+    return m_aJson.getAsJsonString ();
+  }
+}
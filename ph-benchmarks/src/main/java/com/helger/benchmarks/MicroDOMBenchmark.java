@@ -0,0 +1,84 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.microdom.serialize.MicroWriter;
+
+/**
+ * Benchmarks for the MicroDOM serializer ({@link MicroWriter}) and
+ * {@link MicroReader}.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class MicroDOMBenchmark
+{
+  /** Number of item elements in the document */
+  @Param ({ "10", "1000", "10000" })
+  public int m_nElements;
+
+  private IMicroDocument m_aDoc;
+  private String m_sXML;
+
+  @Setup
+  public void setup ()
+  {
+    m_aDoc = BenchmarkPayloads.createMicroDocument (m_nElements);
+    m_sXML = MicroWriter.getNodeAsString (m_aDoc);
+  }
+
+  @Benchmark
+  public String write ()
+  {
+    return MicroWriter.getNodeAsString (m_aDoc);
+  }
+
+  @Benchmark
+  @Threads (4)
+  public String writeMultiThreaded ()
+  {
+    return MicroWriter.getNodeAsString (m_aDoc);
+  }
+
+  @Benchmark
+  public IMicroDocument read ()
+  {
+    return MicroReader.readMicroXML (m_sXML);
+  }
+}
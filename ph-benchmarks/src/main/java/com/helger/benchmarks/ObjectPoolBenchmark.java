@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.commons.pool.ObjectPool;
+
+/**
+ * Benchmarks for {@link ObjectPool}. The multi threaded benchmarks use more
+ * threads than pooled objects to cover the hand-off between threads.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class ObjectPoolBenchmark
+{
+  private static final int POOL_SIZE = 4;
+
+  private ObjectPool <StringBuilder> m_aPool;
+
+  @Setup
+  public void setup ()
+  {
+    m_aPool = new ObjectPool <> (POOL_SIZE, () -> new StringBuilder (256));
+  }
+
+  private int _borrowAndReturn ()
+  {
+    final StringBuilder aSB = m_aPool.borrowObject ();
+    try
+    {
+      aSB.setLength (0);
+      return aSB.append ("pooled").length ();
+    }
+    finally
+    {
+      m_aPool.returnObject (aSB);
+    }
+  }
+
+  @Benchmark
+  public int borrowAndReturn ()
+  {
+    return _borrowAndReturn ();
+  }
+
+  @Benchmark
+  @Threads (POOL_SIZE)
+  public int borrowAndReturnNoContention ()
+  {
+    return _borrowAndReturn ();
+  }
+
+  @Benchmark
+  @Threads (4 * POOL_SIZE)
+  public int borrowAndReturnContended ()
+  {
+    return _borrowAndReturn ();
+  }
+}
@@ -0,0 +1,100 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.IMutableStatisticsHandlerKeyedTimer;
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
+
+/**
+ * Benchmarks for {@link StatisticsManager} and the default statistics
+ * handlers.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class StatisticsManagerBenchmark
+{
+  private static final String [] KEYS = { "a", "b", "c", "d", "e", "f", "g", "h" };
+
+  private IMutableStatisticsHandlerTimer m_aTimer;
+  private IMutableStatisticsHandlerKeyedTimer m_aKeyedTimer;
+  private IMutableStatisticsHandlerCounter m_aCounter;
+
+  @Setup
+  public void setup ()
+  {
+    m_aTimer = StatisticsManager.getTimerHandler ("benchmark.timer");
+    m_aKeyedTimer = StatisticsManager.getKeyedTimerHandler ("benchmark.keyedtimer");
+    m_aCounter = StatisticsManager.getCounterHandler ("benchmark.counter");
+  }
+
+  @Benchmark
+  public void timerAddTime ()
+  {
+    m_aTimer.addTime (17);
+  }
+
+  @Benchmark
+  @Threads (8)
+  public void timerAddTimeMultiThreaded ()
+  {
+    m_aTimer.addTime (17);
+  }
+
+  @Benchmark
+  @Threads (8)
+  public void keyedTimerAddTimeMultiThreaded ()
+  {
+    final long nTime = System.nanoTime ();
+    m_aKeyedTimer.addTime (KEYS[(int) (nTime & 7)], nTime & 1023);
+  }
+
+  @Benchmark
+  @Threads (8)
+  public void counterIncrementMultiThreaded ()
+  {
+    m_aCounter.increment ();
+  }
+
+  @Benchmark
+  @Threads (8)
+  public IMutableStatisticsHandlerTimer getTimerHandlerMultiThreaded ()
+  {
+    return StatisticsManager.getTimerHandler ("benchmark.timer");
+  }
+}
@@ -0,0 +1,101 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.StringHelper;
+
+/**
+ * Benchmarks for {@link StringHelper}.
+ *
+ * @author Philip Helger
+ */
+@BenchmarkMode (Mode.Throughput)
+@OutputTimeUnit (TimeUnit.MILLISECONDS)
+@Warmup (iterations = 3, time = 1)
+@Measurement (iterations = 5, time = 1)
+@Fork (1)
+@State (Scope.Benchmark)
+public class StringHelperBenchmark
+{
+  private static final char [] SEARCH_CHARS = { '<', '>', '&' };
+  private static final char [] [] REPLACEMENTS = { "&lt;".toCharArray (),
+                                                   "&gt;".toCharArray (),
+                                                   "&amp;".toCharArray () };
+
+  /** Number of tokens respectively approximate text length / 8 */
+  @Param ({ "16", "256", "4096" })
+  public int m_nSize;
+
+  private ICommonsList <String> m_aTokens;
+  private String m_sImploded;
+  private String m_sText;
+
+  @Setup
+  public void setup ()
+  {
+    m_aTokens = BenchmarkPayloads.createWords (m_nSize);
+    m_sImploded = StringHelper.getImploded (',', m_aTokens);
+    m_sText = BenchmarkPayloads.createText (m_nSize * 8);
+  }
+
+  @Benchmark
+  public ICommonsList <String> getExploded ()
+  {
+    return StringHelper.getExploded (',', m_sImploded);
+  }
+
+  @Benchmark
+  @Threads (4)
+  public ICommonsList <String> getExplodedMultiThreaded ()
+  {
+    return StringHelper.getExploded (',', m_sImploded);
+  }
+
+  @Benchmark
+  public String getImploded ()
+  {
+    return StringHelper.getImploded (',', m_aTokens);
+  }
+
+  @Benchmark
+  public String replaceAll ()
+  {
+    return StringHelper.replaceAll (m_sText, "<", "&lt;");
+  }
+
+  @Benchmark
+  public char [] replaceMultiple ()
+  {
+    return StringHelper.replaceMultiple (m_sText, SEARCH_CHARS, REPLACEMENTS);
+  }
+}
@@ -0,0 +1,54 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Abstract base implementation of {@link ICacheEvictionPolicy}.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The cache key type
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public abstract class AbstractCacheEvictionPolicy <KEYTYPE> implements ICacheEvictionPolicy <KEYTYPE>
+{
+  private final int m_nMaxSize;
+
+  protected AbstractCacheEvictionPolicy (@Nonnegative final int nMaxSize)
+  {
+    m_nMaxSize = ValueEnforcer.isGT0 (nMaxSize, "MaxSize");
+  }
+
+  @Nonnegative
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSize", m_nMaxSize).getToString ();
+  }
+}
@@ -189,6 +189,26 @@ public class Cache <KEYTYPE, VALUETYPE> implements IMutableCache <KEYTYPE, VALUE
   @Nullable
   @OverridingMethodsMustInvokeSuper
   public VALUETYPE getFromCache (final KEYTYPE aKey)
+  {
+    return getFromCache (aKey, m_aCacheValueProvider);
+  }
+
+  /**
+   * Get the value from the cache or create it with the provided value provider
+   * instead of the one passed in the constructor. This can e.g. be used by
+   * derived classes to pass values that were computed before.
+   *
+   * @param aKey
+   *        The cache key.
+   * @param aValueProvider
+   *        The value provider to use on a cache miss. May not be
+   *        <code>null</code>.
+   * @return The cached or newly created value.
+   * @since 9.1.0
+   */
+  @Nullable
+  protected final VALUETYPE getFromCache (final KEYTYPE aKey,
+                                          @Nonnull final IFunction <? super KEYTYPE, ? extends VALUETYPE> aValueProvider)
   {
     VALUETYPE aValue = getFromCacheNoStats (aKey);
     if (aValue == null)
@@ -204,7 +224,7 @@ public class Cache <KEYTYPE, VALUETYPE> implements IMutableCache <KEYTYPE, VALUE
         if (aValue == null)
         {
           // Call the abstract method to create the value to cache
-          aValue = m_aCacheValueProvider.apply (aKey);
+          aValue = aValueProvider.apply (aKey);
 
           // Just a consistency check
           if (aValue == null)
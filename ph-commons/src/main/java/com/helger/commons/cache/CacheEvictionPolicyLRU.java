@@ -0,0 +1,81 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Eviction policy that evicts the least recently used key first.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The cache key type
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class CacheEvictionPolicyLRU <KEYTYPE> extends AbstractCacheEvictionPolicy <KEYTYPE>
+{
+  private final ICommonsOrderedMap <KEYTYPE, Boolean> m_aKeys;
+
+  public CacheEvictionPolicyLRU (@Nonnegative final int nMaxSize)
+  {
+    super (nMaxSize);
+    m_aKeys = new CommonsLinkedHashMap <> (16, 0.75f, true);
+  }
+
+  public void recordAccess (@Nonnull final KEYTYPE aKey)
+  {
+    // Move to the end of the access order
+    m_aKeys.get (aKey);
+  }
+
+  public void recordInsert (@Nonnull final KEYTYPE aKey, @Nonnull final Consumer <? super KEYTYPE> aEvictionHandler)
+  {
+    // If the key is already present, this counts as an access
+    if (m_aKeys.putIfAbsent (aKey, Boolean.TRUE) == null)
+      while (m_aKeys.size () > getMaxSize ())
+      {
+        final KEYTYPE aEldest = m_aKeys.getFirstKey ();
+        m_aKeys.remove (aEldest);
+        aEvictionHandler.accept (aEldest);
+      }
+  }
+
+  public void recordRemove (@Nonnull final KEYTYPE aKey)
+  {
+    m_aKeys.remove (aKey);
+  }
+
+  public void clear ()
+  {
+    m_aKeys.clear ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ()).append ("Size", m_aKeys.size ()).getToString ();
+  }
+}
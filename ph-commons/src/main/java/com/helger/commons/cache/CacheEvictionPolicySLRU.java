@@ -0,0 +1,129 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Segmented LRU eviction policy. New keys enter a "probation" segment and are
+ * promoted to a "protected" segment when they are accessed again. Keys are
+ * evicted from the probation segment first, so that a single scan over many
+ * keys cannot flush the frequently used keys out of the cache.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The cache key type
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class CacheEvictionPolicySLRU <KEYTYPE> extends AbstractCacheEvictionPolicy <KEYTYPE>
+{
+  /** The percentage of the max size that is used for the protected segment */
+  public static final int PROTECTED_PERCENTAGE = 80;
+
+  private final int m_nProtectedMaxSize;
+  private final ICommonsOrderedMap <KEYTYPE, Boolean> m_aProbation = new CommonsLinkedHashMap <> (16, 0.75f, true);
+  private final ICommonsOrderedMap <KEYTYPE, Boolean> m_aProtected = new CommonsLinkedHashMap <> (16, 0.75f, true);
+
+  public CacheEvictionPolicySLRU (@Nonnegative final int nMaxSize)
+  {
+    super (nMaxSize);
+    m_nProtectedMaxSize = (int) ((long) nMaxSize * PROTECTED_PERCENTAGE / 100);
+  }
+
+  /**
+   * @return The number of keys currently tracked.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aProbation.size () + m_aProtected.size ();
+  }
+
+  private void _promote (@Nonnull final KEYTYPE aKey)
+  {
+    if (m_nProtectedMaxSize == 0)
+    {
+      // Too small for a protected segment
+      m_aProbation.put (aKey, Boolean.TRUE);
+      return;
+    }
+
+    m_aProtected.put (aKey, Boolean.TRUE);
+    while (m_aProtected.size () > m_nProtectedMaxSize)
+    {
+      // Demote the least recently used protected key
+      final KEYTYPE aDemoted = m_aProtected.getFirstKey ();
+      m_aProtected.remove (aDemoted);
+      m_aProbation.put (aDemoted, Boolean.TRUE);
+    }
+  }
+
+  public void recordAccess (@Nonnull final KEYTYPE aKey)
+  {
+    if (m_aProtected.get (aKey) == null && m_aProbation.remove (aKey) != null)
+      _promote (aKey);
+  }
+
+  public void recordInsert (@Nonnull final KEYTYPE aKey, @Nonnull final Consumer <? super KEYTYPE> aEvictionHandler)
+  {
+    if (m_aProtected.containsKey (aKey) || m_aProbation.containsKey (aKey))
+    {
+      recordAccess (aKey);
+      return;
+    }
+
+    m_aProbation.put (aKey, Boolean.TRUE);
+    while (size () > getMaxSize ())
+    {
+      final ICommonsOrderedMap <KEYTYPE, Boolean> aSegment = m_aProbation.isNotEmpty () ? m_aProbation : m_aProtected;
+      final KEYTYPE aVictim = aSegment.getFirstKey ();
+      aSegment.remove (aVictim);
+      aEvictionHandler.accept (aVictim);
+    }
+  }
+
+  public void recordRemove (@Nonnull final KEYTYPE aKey)
+  {
+    if (m_aProbation.remove (aKey) == null)
+      m_aProtected.remove (aKey);
+  }
+
+  public void clear ()
+  {
+    m_aProbation.clear ();
+    m_aProtected.clear ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("ProtectedMaxSize", m_nProtectedMaxSize)
+                            .append ("ProbationSize", m_aProbation.size ())
+                            .append ("ProtectedSize", m_aProtected.size ())
+                            .getToString ();
+  }
+}
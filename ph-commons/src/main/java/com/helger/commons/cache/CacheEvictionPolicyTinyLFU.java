@@ -0,0 +1,187 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * "Window TinyLFU" eviction policy. New keys enter a small LRU admission
+ * window. Keys leaving the window must compete with the eviction candidate of
+ * the main segmented LRU region, and only the one with the higher estimated
+ * access frequency stays. The frequencies are estimated with a count-min
+ * sketch. This gives high hit ratios both on frequency skewed and on scan
+ * heavy workloads.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The cache key type
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class CacheEvictionPolicyTinyLFU <KEYTYPE> extends AbstractCacheEvictionPolicy <KEYTYPE>
+{
+  /** The percentage of the max size that is used for the admission window */
+  public static final int WINDOW_PERCENTAGE = 1;
+  /** The percentage of the main region that is used for protected keys */
+  public static final int PROTECTED_PERCENTAGE = 80;
+
+  private final int m_nWindowMaxSize;
+  private final int m_nMainMaxSize;
+  private final int m_nProtectedMaxSize;
+  private final ICommonsOrderedMap <KEYTYPE, Boolean> m_aWindow = new CommonsLinkedHashMap <> (16, 0.75f, true);
+  private final ICommonsOrderedMap <KEYTYPE, Boolean> m_aProbation = new CommonsLinkedHashMap <> (16, 0.75f, true);
+  private final ICommonsOrderedMap <KEYTYPE, Boolean> m_aProtected = new CommonsLinkedHashMap <> (16, 0.75f, true);
+  private final FrequencySketch <KEYTYPE> m_aSketch;
+
+  public CacheEvictionPolicyTinyLFU (@Nonnegative final int nMaxSize)
+  {
+    super (nMaxSize);
+    m_nWindowMaxSize = Math.max (1, (int) ((long) nMaxSize * WINDOW_PERCENTAGE / 100));
+    m_nMainMaxSize = nMaxSize - m_nWindowMaxSize;
+    m_nProtectedMaxSize = (int) ((long) m_nMainMaxSize * PROTECTED_PERCENTAGE / 100);
+    m_aSketch = new FrequencySketch <> (nMaxSize);
+  }
+
+  /**
+   * @return The number of keys currently tracked.
+   */
+  @Nonnegative
+  public int size ()
+  {
+    return m_aWindow.size () + m_aProbation.size () + m_aProtected.size ();
+  }
+
+  /**
+   * @param aKey
+   *        The key to check. May not be <code>null</code>.
+   * @return The estimated access frequency of the key.
+   */
+  @Nonnegative
+  public int getEstimatedFrequency (@Nonnull final KEYTYPE aKey)
+  {
+    return m_aSketch.getFrequency (aKey);
+  }
+
+  private void _promote (@Nonnull final KEYTYPE aKey)
+  {
+    if (m_nProtectedMaxSize == 0)
+    {
+      m_aProbation.put (aKey, Boolean.TRUE);
+      return;
+    }
+
+    m_aProtected.put (aKey, Boolean.TRUE);
+    while (m_aProtected.size () > m_nProtectedMaxSize)
+    {
+      final KEYTYPE aDemoted = m_aProtected.getFirstKey ();
+      m_aProtected.remove (aDemoted);
+      m_aProbation.put (aDemoted, Boolean.TRUE);
+    }
+  }
+
+  public void recordAccess (@Nonnull final KEYTYPE aKey)
+  {
+    // Only touch the sketch for known keys
+    if (m_aWindow.get (aKey) != null || m_aProtected.get (aKey) != null)
+      m_aSketch.increment (aKey);
+    else
+      if (m_aProbation.remove (aKey) != null)
+      {
+        m_aSketch.increment (aKey);
+        _promote (aKey);
+      }
+  }
+
+  public void recordInsert (@Nonnull final KEYTYPE aKey, @Nonnull final Consumer <? super KEYTYPE> aEvictionHandler)
+  {
+    if (m_aWindow.containsKey (aKey) || m_aProbation.containsKey (aKey) || m_aProtected.containsKey (aKey))
+    {
+      recordAccess (aKey);
+      return;
+    }
+
+    m_aSketch.increment (aKey);
+    m_aWindow.put (aKey, Boolean.TRUE);
+    while (m_aWindow.size () > m_nWindowMaxSize)
+    {
+      final KEYTYPE aCandidate = m_aWindow.getFirstKey ();
+      m_aWindow.remove (aCandidate);
+
+      if (m_aProbation.size () + m_aProtected.size () < m_nMainMaxSize)
+      {
+        // Main region has space left
+        m_aProbation.put (aCandidate, Boolean.TRUE);
+        continue;
+      }
+
+      if (m_nMainMaxSize == 0)
+      {
+        // Too small for a main region
+        aEvictionHandler.accept (aCandidate);
+        continue;
+      }
+
+      // Main region is full - let candidate and victim compete
+      final ICommonsOrderedMap <KEYTYPE, Boolean> aVictimSegment = m_aProbation.isNotEmpty () ? m_aProbation
+                                                                                               : m_aProtected;
+      final KEYTYPE aVictim = aVictimSegment.getFirstKey ();
+      if (m_aSketch.getFrequency (aCandidate) > m_aSketch.getFrequency (aVictim))
+      {
+        aVictimSegment.remove (aVictim);
+        aEvictionHandler.accept (aVictim);
+        m_aProbation.put (aCandidate, Boolean.TRUE);
+      }
+      else
+        aEvictionHandler.accept (aCandidate);
+    }
+  }
+
+  public void recordRemove (@Nonnull final KEYTYPE aKey)
+  {
+    if (m_aWindow.remove (aKey) == null && m_aProbation.remove (aKey) == null)
+      m_aProtected.remove (aKey);
+  }
+
+  public void clear ()
+  {
+    m_aWindow.clear ();
+    m_aProbation.clear ();
+    m_aProtected.clear ();
+    m_aSketch.clear ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return ToStringGenerator.getDerived (super.toString ())
+                            .append ("WindowMaxSize", m_nWindowMaxSize)
+                            .append ("MainMaxSize", m_nMainMaxSize)
+                            .append ("ProtectedMaxSize", m_nProtectedMaxSize)
+                            .append ("WindowSize", m_aWindow.size ())
+                            .append ("ProbationSize", m_aProbation.size ())
+                            .append ("ProtectedSize", m_aProtected.size ())
+                            .getToString ();
+  }
+}
@@ -0,0 +1,69 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.lang.reflect.Array;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.lang.GenericReflection;
+
+/**
+ * Internal helper methods for the cache implementations of this package.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@Immutable
+final class CacheHelper
+{
+  @PresentForCodeCoverage
+  private static final CacheHelper s_aInstance = new CacheHelper ();
+
+  private CacheHelper ()
+  {}
+
+  /**
+   * Create an array of a generic element type where each element is created
+   * by the provided factory.
+   *
+   * @param aRawElementClass
+   *        The raw class of the elements, as the generic element type itself
+   *        is not available at runtime. May not be <code>null</code>.
+   * @param nSize
+   *        The array size. Must be &ge; 0.
+   * @param aFactory
+   *        The factory for each element. May not be <code>null</code>.
+   * @return The filled array. Never <code>null</code>.
+   * @param <ELEMENTTYPE>
+   *        The generic element type
+   */
+  @Nonnull
+  static <ELEMENTTYPE> ELEMENTTYPE [] newFilledArray (@Nonnull final Class <?> aRawElementClass,
+                                                      @Nonnegative final int nSize,
+                                                      @Nonnull final Supplier <? extends ELEMENTTYPE> aFactory)
+  {
+    final ELEMENTTYPE [] ret = GenericReflection.uncheckedCast (Array.newInstance (aRawElementClass, nSize));
+    for (int i = 0; i < nSize; ++i)
+      ret[i] = aFactory.get ();
+    return ret;
+  }
+}
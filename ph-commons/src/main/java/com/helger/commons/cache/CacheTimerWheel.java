@@ -0,0 +1,234 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.time.Duration;
+import java.util.Iterator;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A hashed timer wheel that is shared by all caches to run time based tasks
+ * like the expiration of entries. All timeouts are handled by a single daemon
+ * thread that advances the wheel once per tick, so the precision of a timeout
+ * is one tick. The scheduled tasks must be short running - long running work
+ * should be handed over to a separate executor.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@ThreadSafe
+public final class CacheTimerWheel
+{
+  /**
+   * A single scheduled task that can be cancelled.
+   *
+   * @author Philip Helger
+   */
+  public static final class Timeout
+  {
+    private final long m_nDeadlineTick;
+    private final Runnable m_aTask;
+    private volatile boolean m_bCancelled = false;
+
+    Timeout (final long nDeadlineTick, @Nonnull final Runnable aTask)
+    {
+      m_nDeadlineTick = nDeadlineTick;
+      m_aTask = aTask;
+    }
+
+    /**
+     * Cancel this timeout. The task is not executed afterwards.
+     */
+    public void cancel ()
+    {
+      m_bCancelled = true;
+    }
+
+    /**
+     * @return <code>true</code> if this timeout was cancelled.
+     */
+    public boolean isCancelled ()
+    {
+      return m_bCancelled;
+    }
+  }
+
+  /** The default duration of a single tick */
+  public static final Duration DEFAULT_TICK_DURATION = Duration.ofMillis (100);
+  /** The default number of buckets in the wheel */
+  public static final int DEFAULT_WHEEL_SIZE = 512;
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (CacheTimerWheel.class);
+
+  private static final class SingletonHolder
+  {
+    static final CacheTimerWheel s_aInstance = new CacheTimerWheel (DEFAULT_TICK_DURATION, DEFAULT_WHEEL_SIZE);
+  }
+
+  private final long m_nTickNanos;
+  private final ConcurrentLinkedQueue <Timeout> [] m_aWheel;
+  private final int m_nWheelMask;
+  private final long m_nStartNanos;
+  // The tick currently processed - only modified by the timer thread
+  private final AtomicLong m_aCurrentTick = new AtomicLong (0);
+  private final ScheduledExecutorService m_aES;
+
+  /**
+   * Constructor for a custom timer wheel.
+   *
+   * @param aTickDuration
+   *        The duration of a single tick. May not be <code>null</code> and must
+   *        be positive.
+   * @param nWheelSize
+   *        The number of buckets. Will be rounded up to the next power of two.
+   */
+  public CacheTimerWheel (@Nonnull final Duration aTickDuration, @Nonnegative final int nWheelSize)
+  {
+    ValueEnforcer.notNull (aTickDuration, "TickDuration");
+    ValueEnforcer.isTrue (!aTickDuration.isNegative () && !aTickDuration.isZero (), "TickDuration must be positive");
+    ValueEnforcer.isBetweenInclusive (nWheelSize, "WheelSize", 1, 1 << 20);
+
+    int nRealWheelSize = 1;
+    while (nRealWheelSize < nWheelSize)
+      nRealWheelSize <<= 1;
+
+    m_nTickNanos = aTickDuration.toNanos ();
+    m_aWheel = CacheHelper.newFilledArray (ConcurrentLinkedQueue.class, nRealWheelSize, ConcurrentLinkedQueue::new);
+    m_nWheelMask = nRealWheelSize - 1;
+    m_nStartNanos = System.nanoTime ();
+    m_aES = Executors.newSingleThreadScheduledExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("ph-cache-timer-%d")
+                                                                                          .setDaemon (true)
+                                                                                          .build ());
+    m_aES.scheduleAtFixedRate (this::_onTick, m_nTickNanos, m_nTickNanos, TimeUnit.NANOSECONDS);
+  }
+
+  /**
+   * @return The global timer wheel used by all caches. Never <code>null</code>.
+   */
+  @Nonnull
+  public static CacheTimerWheel getInstance ()
+  {
+    return SingletonHolder.s_aInstance;
+  }
+
+  /**
+   * @return The duration of a single tick. Never <code>null</code>.
+   */
+  @Nonnull
+  public Duration getTickDuration ()
+  {
+    return Duration.ofNanos (m_nTickNanos);
+  }
+
+  /**
+   * Schedule a new task.
+   *
+   * @param nDelayNanos
+   *        The minimum delay in nano seconds, after which the task should be
+   *        executed.
+   * @param aTask
+   *        The task to be executed on the timer thread. May not be
+   *        <code>null</code>.
+   * @return The created timeout that can be used to cancel the task. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public Timeout schedule (final long nDelayNanos, @Nonnull final Runnable aTask)
+  {
+    ValueEnforcer.notNull (aTask, "Task");
+
+    // Round up, so that the task is never executed too early
+    final long nDeadlineNanos = System.nanoTime () - m_nStartNanos + Math.max (0, nDelayNanos);
+    final long nDeadlineTick = Math.max ((nDeadlineNanos + m_nTickNanos - 1) / m_nTickNanos,
+                                         m_aCurrentTick.get () + 1);
+    final Timeout ret = new Timeout (nDeadlineTick, aTask);
+    m_aWheel[(int) (nDeadlineTick & m_nWheelMask)].add (ret);
+    return ret;
+  }
+
+  private void _onTick ()
+  {
+    // Derive the tick from the real time, as executions may be delayed
+    final long nTargetTick = (System.nanoTime () - m_nStartNanos) / m_nTickNanos;
+    long nTick = m_aCurrentTick.get ();
+    while (nTick < nTargetTick)
+    {
+      nTick++;
+      // Set before processing, so that new timeouts go to a later bucket
+      m_aCurrentTick.set (nTick);
+      _processBucket (nTick);
+    }
+  }
+
+  private void _processBucket (final long nTick)
+  {
+    final Iterator <Timeout> it = m_aWheel[(int) (nTick & m_nWheelMask)].iterator ();
+    while (it.hasNext ())
+    {
+      final Timeout aTimeout = it.next ();
+      if (aTimeout.m_bCancelled)
+        it.remove ();
+      else
+        if (aTimeout.m_nDeadlineTick <= nTick)
+        {
+          it.remove ();
+          try
+          {
+            aTimeout.m_aTask.run ();
+          }
+          catch (final RuntimeException ex)
+          {
+            s_aLogger.error ("Error running cache timer task " + aTimeout.m_aTask, ex);
+          }
+        }
+      // else: deadline is in one of the next rounds
+    }
+  }
+
+  /**
+   * Stop the timer thread. Only required for custom instances - scheduled
+   * tasks are not executed anymore.
+   */
+  public void shutdown ()
+  {
+    m_aES.shutdownNow ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("TickNanos", m_nTickNanos)
+                                       .append ("WheelSize", m_aWheel.length)
+                                       .append ("CurrentTick", m_aCurrentTick.get ())
+                                       .getToString ();
+  }
+}
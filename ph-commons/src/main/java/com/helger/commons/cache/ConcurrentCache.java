@@ -0,0 +1,1027 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.time.Duration;
+import java.util.Collection;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.function.Consumer;
+import java.util.function.Function;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ELockType;
+import com.helger.commons.annotation.MustBeLocked;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.functional.IFunction;
+import com.helger.commons.state.EChange;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCache;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A lock-free alternative to {@link Cache} with the same constructor and the
+ * same public API. Lookups never lock, and values are computed outside of any
+ * lock, so that a slow value provider only blocks the threads that are
+ * interested in the same key. Concurrent requests for the same missing key are
+ * coalesced into a single call of the value provider. Multiple missing values
+ * can be loaded with a single call of a bulk value provider.<br>
+ * If a maximum size is defined, entries are evicted according to an
+ * {@link ICacheEvictionPolicy} which can be chosen per instance. Read accesses
+ * are recorded for the policy in a lossy, striped buffer, so that hits never
+ * block. In contrast to {@link Cache} the values are strongly referenced and
+ * are therefore never removed by the garbage collector.<br>
+ * Optionally entries expire a certain time after they were written and/or last
+ * accessed, and they can be refreshed asynchronously once they reach a
+ * certain age, while the old value is still served. Expired entries are purged
+ * by the shared {@link CacheTimerWheel}.<br>
+ * Note: <code>null</code> keys are not supported by this implementation.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The cache key type
+ * @param <VALUETYPE>
+ *        The cache value type
+ * @since 9.1.0
+ */
+@ThreadSafe
+public class ConcurrentCache <KEYTYPE, VALUETYPE> implements IMutableCache <KEYTYPE, VALUETYPE>
+{
+  /**
+   * A single cache entry. While the value is being loaded, only the load
+   * future is present.
+   *
+   * @param <K>
+   *        key type
+   * @param <V>
+   *        value type
+   */
+  private static final class Entry <K, V>
+  {
+    @SuppressWarnings ("rawtypes")
+    private static final AtomicIntegerFieldUpdater <Entry> REFRESHING = AtomicIntegerFieldUpdater.newUpdater (Entry.class,
+                                                                                                           "m_nRefreshing");
+
+    private final K m_aKey;
+    private final CompletableFuture <V> m_aLoad;
+    private volatile Thread m_aLoadingThread;
+    private volatile V m_aValue;
+    // Is the key of this entry known to the eviction policy?
+    private boolean m_bTracked;
+    private volatile long m_nWriteNanos;
+    private volatile long m_nAccessNanos;
+    private volatile int m_nRefreshing = 0;
+    private volatile CacheTimerWheel.Timeout m_aExpiryTimeout;
+
+    Entry (@Nonnull final K aKey)
+    {
+      m_aKey = aKey;
+      m_aLoad = new CompletableFuture <> ();
+    }
+
+    Entry (@Nonnull final K aKey, @Nonnull final V aValue)
+    {
+      m_aKey = aKey;
+      m_aLoad = null;
+      setValue (aValue);
+    }
+
+    void setValue (@Nonnull final V aValue)
+    {
+      final long nNow = System.nanoTime ();
+      m_nWriteNanos = nNow;
+      m_nAccessNanos = nNow;
+      // Write the value last, so that the times are visible to all readers
+      m_aValue = aValue;
+    }
+
+    boolean tryStartRefresh ()
+    {
+      return REFRESHING.compareAndSet (this, 0, 1);
+    }
+
+    void endRefresh ()
+    {
+      m_nRefreshing = 0;
+    }
+
+    void cancelExpiry ()
+    {
+      final CacheTimerWheel.Timeout aTimeout = m_aExpiryTimeout;
+      if (aTimeout != null)
+        aTimeout.cancel ();
+    }
+  }
+
+  private static final class DefaultRefreshExecutorHolder
+  {
+    static final ExecutorService s_aInstance = Executors.newCachedThreadPool (new BasicThreadFactory.Builder ().setNamingPattern ("ph-cache-refresh-%d")
+                                                                                                               .setDaemon (true)
+                                                                                                               .build ());
+  }
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (ConcurrentCache.class);
+
+  private final IFunction <KEYTYPE, VALUETYPE> m_aCacheValueProvider;
+  private final int m_nMaxSize;
+  private final String m_sName;
+  private final IMutableStatisticsHandlerCache m_aCacheAccessStats;
+  private final IMutableStatisticsHandlerCounter m_aCacheRemoveStats;
+  private final IMutableStatisticsHandlerCounter m_aCacheClearStats;
+  private final IMutableStatisticsHandlerCounter m_aCacheExpireStats;
+  private final IMutableStatisticsHandlerCounter m_aCacheRefreshStats;
+  private final ConcurrentHashMap <KEYTYPE, Entry <KEYTYPE, VALUETYPE>> m_aMap = new ConcurrentHashMap <> ();
+  // Eviction handling - only present if a maximum size is present
+  private final ICacheEvictionPolicy <KEYTYPE> m_aEvictionPolicy;
+  private final SimpleLock m_aEvictionLock = new SimpleLock ();
+  private final StripedReadBuffer <KEYTYPE> m_aReadBuffer;
+  private final Consumer <KEYTYPE> m_aRecordAccess;
+  private final Consumer <KEYTYPE> m_aEvictionHandler;
+  // Time based settings - 0 means disabled
+  private volatile long m_nExpireAfterWriteNanos = 0;
+  private volatile long m_nExpireAfterAccessNanos = 0;
+  private volatile long m_nRefreshAfterWriteNanos = 0;
+  private volatile Executor m_aRefreshExecutor;
+  private volatile IFunction <ICommonsList <KEYTYPE>, ? extends Map <KEYTYPE, VALUETYPE>> m_aBulkValueProvider;
+
+  /**
+   * Constructor using the default eviction policy.
+   *
+   * @param aCacheValueProvider
+   *        The provider for values not yet in the cache. May not be
+   *        <code>null</code>.
+   * @param nMaxSize
+   *        The maximum number of entries. Values &le; 0 mean no limit.
+   * @param sCacheName
+   *        The name of the cache. May neither be <code>null</code> nor empty.
+   * @see ECacheEvictionPolicy#DEFAULT
+   */
+  public ConcurrentCache (@Nonnull final IFunction <KEYTYPE, VALUETYPE> aCacheValueProvider,
+                          final int nMaxSize,
+                          @Nonnull @Nonempty final String sCacheName)
+  {
+    this (aCacheValueProvider, nMaxSize, sCacheName, ECacheEvictionPolicy.DEFAULT);
+  }
+
+  /**
+   * Constructor with one of the predefined eviction policies.
+   *
+   * @param aCacheValueProvider
+   *        The provider for values not yet in the cache. May not be
+   *        <code>null</code>.
+   * @param nMaxSize
+   *        The maximum number of entries. Values &le; 0 mean no limit.
+   * @param sCacheName
+   *        The name of the cache. May neither be <code>null</code> nor empty.
+   * @param eEvictionPolicy
+   *        The eviction policy to use, if a maximum size is present. May not
+   *        be <code>null</code>.
+   */
+  public ConcurrentCache (@Nonnull final IFunction <KEYTYPE, VALUETYPE> aCacheValueProvider,
+                          final int nMaxSize,
+                          @Nonnull @Nonempty final String sCacheName,
+                          @Nonnull final ECacheEvictionPolicy eEvictionPolicy)
+  {
+    this (aCacheValueProvider,
+          nMaxSize,
+          sCacheName,
+          nMaxSize > 0 ? ValueEnforcer.notNull (eEvictionPolicy, "EvictionPolicy").createPolicy (nMaxSize) : null);
+  }
+
+  /**
+   * Constructor with a custom eviction policy.
+   *
+   * @param aCacheValueProvider
+   *        The provider for values not yet in the cache. May not be
+   *        <code>null</code>.
+   * @param aEvictionPolicy
+   *        The eviction policy to use. The maximum size of the cache is taken
+   *        from the policy. The policy instance may not be shared with other
+   *        caches. May not be <code>null</code>.
+   * @param sCacheName
+   *        The name of the cache. May neither be <code>null</code> nor empty.
+   */
+  public ConcurrentCache (@Nonnull final IFunction <KEYTYPE, VALUETYPE> aCacheValueProvider,
+                          @Nonnull final ICacheEvictionPolicy <KEYTYPE> aEvictionPolicy,
+                          @Nonnull @Nonempty final String sCacheName)
+  {
+    this (aCacheValueProvider,
+          ValueEnforcer.notNull (aEvictionPolicy, "EvictionPolicy").getMaxSize (),
+          sCacheName,
+          aEvictionPolicy);
+  }
+
+  private ConcurrentCache (@Nonnull final IFunction <KEYTYPE, VALUETYPE> aCacheValueProvider,
+                           final int nMaxSize,
+                           @Nonnull @Nonempty final String sCacheName,
+                           @Nullable final ICacheEvictionPolicy <KEYTYPE> aEvictionPolicy)
+  {
+    m_aCacheValueProvider = ValueEnforcer.notNull (aCacheValueProvider, "CacheValueProvider");
+    m_nMaxSize = nMaxSize;
+    m_aEvictionPolicy = aEvictionPolicy;
+    m_aReadBuffer = aEvictionPolicy == null ? null : new StripedReadBuffer <> ();
+    m_aRecordAccess = aEvictionPolicy == null ? null : aEvictionPolicy::recordAccess;
+    m_aEvictionHandler = this::_evict;
+    m_sName = ValueEnforcer.notEmpty (sCacheName, "CacheName");
+    m_aCacheAccessStats = StatisticsManager.getCacheHandler (Cache.STATISTICS_PREFIX + sCacheName + "$access");
+    m_aCacheRemoveStats = StatisticsManager.getCounterHandler (Cache.STATISTICS_PREFIX + sCacheName + "$remove");
+    m_aCacheClearStats = StatisticsManager.getCounterHandler (Cache.STATISTICS_PREFIX + sCacheName + "$clear");
+    m_aCacheExpireStats = StatisticsManager.getCounterHandler (Cache.STATISTICS_PREFIX + sCacheName + "$expire");
+    m_aCacheRefreshStats = StatisticsManager.getCounterHandler (Cache.STATISTICS_PREFIX + sCacheName + "$refresh");
+  }
+
+  /**
+   * @return The maximum number of entries allowed in this cache. Values &le; 0
+   *         indicate that the cache size is not limited at all.
+   * @see #hasMaxSize()
+   */
+  public final int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return <code>true</code> if this cache has a size limit,
+   *         <code>false</code> if not.
+   * @see #getMaxSize()
+   */
+  public final boolean hasMaxSize ()
+  {
+    return m_nMaxSize > 0;
+  }
+
+  @Nonnull
+  @Nonempty
+  public final String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * @return The eviction policy used. May be <code>null</code> if this cache
+   *         has no maximum size.
+   */
+  @Nullable
+  public final ICacheEvictionPolicy <KEYTYPE> getEvictionPolicy ()
+  {
+    return m_aEvictionPolicy;
+  }
+
+  /**
+   * @return The value provider that is used to load multiple values at once.
+   *         May be <code>null</code>.
+   */
+  @Nullable
+  public final IFunction <ICommonsList <KEYTYPE>, ? extends Map <KEYTYPE, VALUETYPE>> getBulkValueProvider ()
+  {
+    return m_aBulkValueProvider;
+  }
+
+  /**
+   * Set the value provider that is used by {@link #getAllFromCache(Collection)}
+   * to load all missing values at once, e.g. with a single backend call.
+   *
+   * @param aBulkValueProvider
+   *        The bulk value provider. It gets the list of missing keys and must
+   *        return a map with a non-<code>null</code> value for each of them.
+   *        May be <code>null</code> to load each missing value with the
+   *        regular value provider.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final ConcurrentCache <KEYTYPE, VALUETYPE> setBulkValueProvider (@Nullable final IFunction <ICommonsList <KEYTYPE>, ? extends Map <KEYTYPE, VALUETYPE>> aBulkValueProvider)
+  {
+    m_aBulkValueProvider = aBulkValueProvider;
+    return this;
+  }
+
+  @Nullable
+  private static Duration _getDuration (final long nNanos)
+  {
+    return nNanos > 0 ? Duration.ofNanos (nNanos) : null;
+  }
+
+  private static long _getNanos (@Nullable final Duration aDuration)
+  {
+    if (aDuration == null || aDuration.isZero ())
+      return 0;
+    ValueEnforcer.isFalse (aDuration.isNegative (), "Duration may not be negative");
+    return aDuration.toNanos ();
+  }
+
+  /**
+   * @return The duration after the last write, after which an entry expires.
+   *         <code>null</code> if this kind of expiration is disabled.
+   */
+  @Nullable
+  public final Duration getExpireAfterWrite ()
+  {
+    return _getDuration (m_nExpireAfterWriteNanos);
+  }
+
+  /**
+   * Let all entries expire after a fixed duration after they were written.
+   * This only affects entries written after this call.
+   *
+   * @param aDuration
+   *        The duration. May be <code>null</code> or zero to disable this kind
+   *        of expiration.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final ConcurrentCache <KEYTYPE, VALUETYPE> setExpireAfterWrite (@Nullable final Duration aDuration)
+  {
+    m_nExpireAfterWriteNanos = _getNanos (aDuration);
+    return this;
+  }
+
+  /**
+   * @return The duration after the last access, after which an entry expires.
+   *         <code>null</code> if this kind of expiration is disabled.
+   */
+  @Nullable
+  public final Duration getExpireAfterAccess ()
+  {
+    return _getDuration (m_nExpireAfterAccessNanos);
+  }
+
+  /**
+   * Let all entries expire after a fixed duration after the last read or
+   * write access. This only affects entries written after this call.
+   *
+   * @param aDuration
+   *        The duration. May be <code>null</code> or zero to disable this kind
+   *        of expiration.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final ConcurrentCache <KEYTYPE, VALUETYPE> setExpireAfterAccess (@Nullable final Duration aDuration)
+  {
+    m_nExpireAfterAccessNanos = _getNanos (aDuration);
+    return this;
+  }
+
+  /**
+   * @return The age of an entry, after which it is refreshed asynchronously
+   *         upon the next access. <code>null</code> if refreshing is disabled.
+   */
+  @Nullable
+  public final Duration getRefreshAfterWrite ()
+  {
+    return _getDuration (m_nRefreshAfterWriteNanos);
+  }
+
+  /**
+   * Refresh entries asynchronously once they reach the provided age. The
+   * refresh is triggered by the next access of the entry, and until the new
+   * value is present, the old value is returned. Only a single refresh per
+   * entry is executed at a time. To be effective the duration should be
+   * shorter than the expiration durations.
+   *
+   * @param aDuration
+   *        The duration. May be <code>null</code> or zero to disable
+   *        refreshing.
+   * @param aExecutor
+   *        The executor to run the refresh in. May be <code>null</code> to use
+   *        a shared default executor with daemon threads.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final ConcurrentCache <KEYTYPE, VALUETYPE> setRefreshAfterWrite (@Nullable final Duration aDuration,
+                                                                          @Nullable final Executor aExecutor)
+  {
+    m_aRefreshExecutor = aExecutor;
+    m_nRefreshAfterWriteNanos = _getNanos (aDuration);
+    return this;
+  }
+
+  private boolean _isExpiryEnabled ()
+  {
+    return m_nExpireAfterWriteNanos > 0 || m_nExpireAfterAccessNanos > 0;
+  }
+
+  /**
+   * @return The nano seconds until the entry expires. Values &le; 0 mean the
+   *         entry is expired. {@link Long#MAX_VALUE} if it never expires.
+   */
+  private long _getRemainingNanos (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry, final long nNow)
+  {
+    long ret = Long.MAX_VALUE;
+    final long nAfterWrite = m_nExpireAfterWriteNanos;
+    if (nAfterWrite > 0)
+      ret = Math.min (ret, aEntry.m_nWriteNanos + nAfterWrite - nNow);
+    final long nAfterAccess = m_nExpireAfterAccessNanos;
+    if (nAfterAccess > 0)
+      ret = Math.min (ret, aEntry.m_nAccessNanos + nAfterAccess - nNow);
+    return ret;
+  }
+
+  private void _scheduleExpiry (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry, final long nDelayNanos)
+  {
+    aEntry.m_aExpiryTimeout = CacheTimerWheel.getInstance ().schedule (nDelayNanos, () -> _onExpiryTimer (aEntry));
+  }
+
+  private void _onExpiryTimer (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    if (m_aMap.get (aEntry.m_aKey) != aEntry)
+    {
+      // Already removed or replaced
+      return;
+    }
+
+    final long nRemaining = _getRemainingNanos (aEntry, System.nanoTime ());
+    if (nRemaining <= 0)
+    {
+      if (_removeEntry (aEntry))
+        m_aCacheExpireStats.increment ();
+    }
+    else
+      if (nRemaining != Long.MAX_VALUE)
+      {
+        // Was accessed in the meantime
+        _scheduleExpiry (aEntry, nRemaining);
+      }
+  }
+
+  /**
+   * Remove exactly the provided entry from the cache.
+   *
+   * @return <code>true</code> if it was removed, <code>false</code> if it was
+   *         not contained (any more).
+   */
+  private boolean _removeEntry (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    final boolean bRemoved;
+    if (m_aEvictionPolicy == null)
+      bRemoved = m_aMap.remove (aEntry.m_aKey, aEntry);
+    else
+      bRemoved = m_aEvictionLock.locked ( () -> {
+        if (!m_aMap.remove (aEntry.m_aKey, aEntry))
+          return false;
+        if (aEntry.m_bTracked)
+          m_aEvictionPolicy.recordRemove (aEntry.m_aKey);
+        return true;
+      });
+    if (bRemoved)
+      aEntry.cancelExpiry ();
+    return bRemoved;
+  }
+
+  private void _refreshAsync (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    if (!aEntry.tryStartRefresh ())
+    {
+      // Another thread is already refreshing
+      return;
+    }
+
+    final KEYTYPE aKey = aEntry.m_aKey;
+    final Runnable aRefresh = () -> {
+      try
+      {
+        final VALUETYPE aValue = m_aCacheValueProvider.apply (aKey);
+        if (aValue == null)
+          throw new IllegalStateException ("The value to cache was null for key '" + aKey + "'");
+
+        final Entry <KEYTYPE, VALUETYPE> aNewEntry = new Entry <> (aKey, aValue);
+        if (m_aMap.replace (aKey, aEntry, aNewEntry))
+        {
+          aEntry.cancelExpiry ();
+          m_aCacheRefreshStats.increment ();
+          _afterWrite (aNewEntry);
+        }
+      }
+      catch (final RuntimeException ex)
+      {
+        // Keep the old value and try again upon the next access
+        s_aLogger.warn ("Failed to refresh key '" + aKey + "' in cache '" + m_sName + "'", ex);
+        aEntry.endRefresh ();
+      }
+    };
+
+    final Executor aExecutor = m_aRefreshExecutor;
+    try
+    {
+      (aExecutor != null ? aExecutor : DefaultRefreshExecutorHolder.s_aInstance).execute (aRefresh);
+    }
+    catch (final RejectedExecutionException ex)
+    {
+      s_aLogger.warn ("Failed to schedule refresh of key '" + aKey + "' in cache '" + m_sName + "'");
+      aEntry.endRefresh ();
+    }
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _evict (@Nonnull final KEYTYPE aKey)
+  {
+    // Only remove the entry known to the policy - a newer one is handled
+    // separately
+    final Entry <KEYTYPE, VALUETYPE> aEntry = m_aMap.get (aKey);
+    if (aEntry != null && aEntry.m_bTracked && m_aMap.remove (aKey, aEntry))
+    {
+      aEntry.cancelExpiry ();
+      m_aCacheAccessStats.cacheEviction ();
+    }
+  }
+
+  private void _afterRead (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry, final long nNow)
+  {
+    // nNow is 0 if no time based feature was enabled upon lookup
+    if (nNow != 0)
+    {
+      if (m_nExpireAfterAccessNanos > 0)
+        aEntry.m_nAccessNanos = nNow;
+
+      final long nRefreshAfter = m_nRefreshAfterWriteNanos;
+      if (nRefreshAfter > 0 && nNow - aEntry.m_nWriteNanos >= nRefreshAfter)
+        _refreshAsync (aEntry);
+    }
+
+    if (m_aEvictionPolicy != null && m_aReadBuffer.offer (aEntry.m_aKey))
+    {
+      // Buffer is full - drain if nobody else is doing it
+      if (m_aEvictionLock.tryLock ())
+        try
+        {
+          m_aReadBuffer.drainTo (m_aRecordAccess);
+        }
+        finally
+        {
+          m_aEvictionLock.unlock ();
+        }
+    }
+  }
+
+  private void _afterWrite (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    if (_isExpiryEnabled ())
+      _scheduleExpiry (aEntry, _getRemainingNanos (aEntry, aEntry.m_nWriteNanos));
+
+    if (m_aEvictionPolicy != null)
+      m_aEvictionLock.locked ( () -> {
+        m_aReadBuffer.drainTo (m_aRecordAccess);
+        // Only track, if it was not replaced or removed in the meantime
+        if (m_aMap.get (aEntry.m_aKey) == aEntry)
+        {
+          aEntry.m_bTracked = true;
+          m_aEvictionPolicy.recordInsert (aEntry.m_aKey, m_aEvictionHandler);
+        }
+      });
+  }
+
+  /**
+   * Put a new value into the cache. An eventually present value is
+   * overwritten.
+   *
+   * @param aKey
+   *        The cache key. May not be <code>null</code>.
+   * @param aValue
+   *        The cache value. May not be <code>null</code>.
+   */
+  protected final void putInCache (@Nonnull final KEYTYPE aKey, @Nonnull final VALUETYPE aValue)
+  {
+    ValueEnforcer.notNull (aKey, "cacheKey");
+    ValueEnforcer.notNull (aValue, "cacheValue");
+
+    final Entry <KEYTYPE, VALUETYPE> aEntry = new Entry <> (aKey, aValue);
+    final Entry <KEYTYPE, VALUETYPE> aOldEntry = m_aMap.put (aKey, aEntry);
+    if (aOldEntry != null)
+      aOldEntry.cancelExpiry ();
+    _afterWrite (aEntry);
+  }
+
+  /**
+   * Get the value from the cache without touching the statistics and without
+   * triggering a load. Values that are currently being loaded and expired
+   * values are not considered.
+   *
+   * @param aKey
+   *        The key to be looked up. May be <code>null</code>.
+   * @return <code>null</code> if no such value is in the cache.
+   */
+  @Nullable
+  @OverridingMethodsMustInvokeSuper
+  protected VALUETYPE getFromCacheNoStats (@Nullable final KEYTYPE aKey)
+  {
+    if (aKey == null)
+      return null;
+    final Entry <KEYTYPE, VALUETYPE> aEntry = m_aMap.get (aKey);
+    if (aEntry == null)
+      return null;
+    if (_isExpiryEnabled () && _getRemainingNanos (aEntry, System.nanoTime ()) <= 0)
+      return null;
+    return aEntry.m_aValue;
+  }
+
+  @Nonnull
+  private VALUETYPE _waitForLoad (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    if (aEntry.m_aLoadingThread == Thread.currentThread ())
+      throw new IllegalStateException ("Recursive load of key '" + aEntry.m_aKey + "' in cache '" + m_sName + "'");
+
+    try
+    {
+      return aEntry.m_aLoad.join ();
+    }
+    catch (final CompletionException ex)
+    {
+      // Rethrow the original exception of the value provider
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof RuntimeException)
+        throw (RuntimeException) aCause;
+      if (aCause instanceof Error)
+        throw (Error) aCause;
+      throw ex;
+    }
+  }
+
+  private void _failLoad (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry, @Nonnull final Throwable t)
+  {
+    // Don't cache failures - the next request tries again
+    m_aMap.remove (aEntry.m_aKey, aEntry);
+    aEntry.m_aLoadingThread = null;
+    aEntry.m_aLoad.completeExceptionally (t);
+  }
+
+  private void _completeLoad (@Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry, @Nonnull final VALUETYPE aValue)
+  {
+    aEntry.setValue (aValue);
+    aEntry.m_aLoadingThread = null;
+    aEntry.m_aLoad.complete (aValue);
+    m_aCacheAccessStats.cacheMiss ();
+    _afterWrite (aEntry);
+  }
+
+  @Nonnull
+  private VALUETYPE _load (@Nonnull final KEYTYPE aKey, @Nonnull final Entry <KEYTYPE, VALUETYPE> aEntry)
+  {
+    aEntry.m_aLoadingThread = Thread.currentThread ();
+
+    final VALUETYPE aValue;
+    try
+    {
+      // Call the provider to create the value to cache - outside of any lock
+      aValue = m_aCacheValueProvider.apply (aKey);
+
+      // Just a consistency check
+      if (aValue == null)
+        throw new IllegalStateException ("The value to cache was null for key '" + aKey + "'");
+    }
+    catch (final RuntimeException | Error ex)
+    {
+      _failLoad (aEntry, ex);
+      throw ex;
+    }
+
+    _completeLoad (aEntry, aValue);
+    return aValue;
+  }
+
+  private void _loadAll (@Nonnull final ICommonsOrderedMap <KEYTYPE, Entry <KEYTYPE, VALUETYPE>> aToLoad)
+  {
+    for (final Entry <KEYTYPE, VALUETYPE> aEntry : aToLoad.values ())
+      aEntry.m_aLoadingThread = Thread.currentThread ();
+
+    final IFunction <ICommonsList <KEYTYPE>, ? extends Map <KEYTYPE, VALUETYPE>> aBulkProvider = m_aBulkValueProvider;
+    final Map <KEYTYPE, VALUETYPE> aLoaded;
+    try
+    {
+      if (aBulkProvider != null)
+      {
+        // One call for all missing keys - outside of any lock
+        aLoaded = aBulkProvider.apply (new CommonsArrayList <> (aToLoad.keySet ()));
+        if (aLoaded == null)
+          throw new IllegalStateException ("The bulk value provider of cache '" + m_sName + "' returned null");
+      }
+      else
+      {
+        // Fallback to one call per key
+        aLoaded = new CommonsHashMap <> (aToLoad.size ());
+        for (final KEYTYPE aKey : aToLoad.keySet ())
+          aLoaded.put (aKey, m_aCacheValueProvider.apply (aKey));
+      }
+    }
+    catch (final RuntimeException | Error ex)
+    {
+      for (final Entry <KEYTYPE, VALUETYPE> aEntry : aToLoad.values ())
+        _failLoad (aEntry, ex);
+      throw ex;
+    }
+
+    // Complete all entries, even if one of them failed
+    IllegalStateException aFirstError = null;
+    for (final Entry <KEYTYPE, VALUETYPE> aEntry : aToLoad.values ())
+    {
+      final VALUETYPE aValue = aLoaded.get (aEntry.m_aKey);
+      if (aValue == null)
+      {
+        final IllegalStateException ex = new IllegalStateException ("The value to cache was null for key '" +
+                                                                    aEntry.m_aKey +
+                                                                    "'");
+        _failLoad (aEntry, ex);
+        if (aFirstError == null)
+          aFirstError = ex;
+      }
+      else
+        _completeLoad (aEntry, aValue);
+    }
+    if (aFirstError != null)
+      throw aFirstError;
+  }
+
+  private long _getLookupNanos ()
+  {
+    // Avoid the call to nanoTime if no time based feature is used
+    return _isExpiryEnabled () || m_nRefreshAfterWriteNanos > 0 ? System.nanoTime () : 0;
+  }
+
+  /**
+   * @return The entry for the passed key that is either loaded and not expired
+   *         or currently being loaded. <code>null</code> if there is no such
+   *         entry.
+   */
+  @Nullable
+  private Entry <KEYTYPE, VALUETYPE> _getValidEntry (@Nonnull final KEYTYPE aKey, final long nNow)
+  {
+    final Entry <KEYTYPE, VALUETYPE> aEntry = m_aMap.get (aKey);
+    if (aEntry != null && aEntry.m_aValue != null && _isExpiryEnabled () && _getRemainingNanos (aEntry, nNow) <= 0)
+    {
+      // Expired - the timer may not have been run yet
+      if (_removeEntry (aEntry))
+        m_aCacheExpireStats.increment ();
+      return null;
+    }
+    return aEntry;
+  }
+
+  @Nullable
+  @OverridingMethodsMustInvokeSuper
+  public VALUETYPE getFromCache (final KEYTYPE aKey)
+  {
+    ValueEnforcer.notNull (aKey, "cacheKey");
+
+    final long nNow = _getLookupNanos ();
+    Entry <KEYTYPE, VALUETYPE> aEntry = _getValidEntry (aKey, nNow);
+    if (aEntry == null)
+    {
+      // No old value in the cache - try to become the loading thread
+      final Entry <KEYTYPE, VALUETYPE> aNewEntry = new Entry <> (aKey);
+      aEntry = m_aMap.putIfAbsent (aKey, aNewEntry);
+      if (aEntry == null)
+        return _load (aKey, aNewEntry);
+    }
+
+    VALUETYPE aValue = aEntry.m_aValue;
+    if (aValue == null)
+    {
+      // Another thread is currently loading the value for this key
+      aValue = _waitForLoad (aEntry);
+    }
+    m_aCacheAccessStats.cacheHit ();
+    _afterRead (aEntry, nNow);
+    return aValue;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * All keys that are not yet in the cache are loaded with a single call of
+   * the bulk value provider, if one is set. Keys that are currently being
+   * loaded by other threads are not loaded again.
+   *
+   * @see #setBulkValueProvider(IFunction)
+   */
+  @Override
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <KEYTYPE, VALUETYPE> getAllFromCache (@Nonnull final Collection <? extends KEYTYPE> aKeys)
+  {
+    ValueEnforcer.notNullNoNullValue (aKeys, "Keys");
+
+    final long nNow = _getLookupNanos ();
+    final ICommonsMap <KEYTYPE, VALUETYPE> aFound = new CommonsHashMap <> (aKeys.size ());
+    final ICommonsOrderedMap <KEYTYPE, Entry <KEYTYPE, VALUETYPE>> aToLoad = new CommonsLinkedHashMap <> ();
+    final ICommonsOrderedMap <KEYTYPE, Entry <KEYTYPE, VALUETYPE>> aToWait = new CommonsLinkedHashMap <> ();
+    for (final KEYTYPE aKey : aKeys)
+    {
+      if (aFound.containsKey (aKey) || aToLoad.containsKey (aKey) || aToWait.containsKey (aKey))
+        continue;
+
+      Entry <KEYTYPE, VALUETYPE> aEntry = _getValidEntry (aKey, nNow);
+      if (aEntry == null)
+      {
+        final Entry <KEYTYPE, VALUETYPE> aNewEntry = new Entry <> (aKey);
+        aEntry = m_aMap.putIfAbsent (aKey, aNewEntry);
+        if (aEntry == null)
+        {
+          aToLoad.put (aKey, aNewEntry);
+          continue;
+        }
+      }
+
+      final VALUETYPE aValue = aEntry.m_aValue;
+      if (aValue != null)
+      {
+        aFound.put (aKey, aValue);
+        m_aCacheAccessStats.cacheHit ();
+        _afterRead (aEntry, nNow);
+      }
+      else
+        aToWait.put (aKey, aEntry);
+    }
+
+    if (aToLoad.isNotEmpty ())
+    {
+      _loadAll (aToLoad);
+      for (final Entry <KEYTYPE, VALUETYPE> aEntry : aToLoad.values ())
+        aFound.put (aEntry.m_aKey, aEntry.m_aValue);
+    }
+
+    // Values that are loaded by other threads
+    for (final Entry <KEYTYPE, VALUETYPE> aEntry : aToWait.values ())
+    {
+      aFound.put (aEntry.m_aKey, _waitForLoad (aEntry));
+      m_aCacheAccessStats.cacheHit ();
+    }
+
+    // Keep the order of the passed keys
+    final ICommonsOrderedMap <KEYTYPE, VALUETYPE> ret = new CommonsLinkedHashMap <> (aFound.size ());
+    for (final KEYTYPE aKey : aKeys)
+      ret.put (aKey, aFound.get (aKey));
+    return ret;
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * If the value is currently being loaded by another thread, the returned
+   * future is completed when that load is finished, so that each value is
+   * loaded only once.
+   */
+  @Override
+  @Nonnull
+  public CompletableFuture <VALUETYPE> getFromCacheAsync (@Nonnull final KEYTYPE aKey,
+                                                          @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aKey, "cacheKey");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    final long nNow = _getLookupNanos ();
+    Entry <KEYTYPE, VALUETYPE> aEntry = _getValidEntry (aKey, nNow);
+    if (aEntry == null)
+    {
+      final Entry <KEYTYPE, VALUETYPE> aNewEntry = new Entry <> (aKey);
+      aEntry = m_aMap.putIfAbsent (aKey, aNewEntry);
+      if (aEntry == null)
+      {
+        try
+        {
+          aExecutor.execute ( () -> {
+            try
+            {
+              _load (aKey, aNewEntry);
+            }
+            catch (final RuntimeException | Error ex)
+            {
+              // Is passed on via the future
+            }
+          });
+        }
+        catch (final RejectedExecutionException ex)
+        {
+          _failLoad (aNewEntry, ex);
+        }
+        // Don't let the caller complete the internal future
+        return aNewEntry.m_aLoad.thenApply (Function.identity ());
+      }
+    }
+
+    final VALUETYPE aValue = aEntry.m_aValue;
+    if (aValue != null)
+    {
+      m_aCacheAccessStats.cacheHit ();
+      _afterRead (aEntry, nNow);
+      return CompletableFuture.completedFuture (aValue);
+    }
+
+    // Another thread is currently loading the value for this key
+    return aEntry.m_aLoad.thenApply (x -> {
+      m_aCacheAccessStats.cacheHit ();
+      return x;
+    });
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange removeFromCache (final KEYTYPE aKey)
+  {
+    if (aKey == null)
+      return EChange.UNCHANGED;
+
+    final Entry <KEYTYPE, VALUETYPE> aRemoved;
+    if (m_aEvictionPolicy == null)
+      aRemoved = m_aMap.remove (aKey);
+    else
+      aRemoved = m_aEvictionLock.locked ( () -> {
+        final Entry <KEYTYPE, VALUETYPE> ret = m_aMap.remove (aKey);
+        if (ret != null)
+          m_aEvictionPolicy.recordRemove (aKey);
+        return ret;
+      });
+    if (aRemoved == null)
+      return EChange.UNCHANGED;
+    aRemoved.cancelExpiry ();
+    m_aCacheRemoveStats.increment ();
+    return EChange.CHANGED;
+  }
+
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange clearCache ()
+  {
+    if (m_aMap.isEmpty ())
+      return EChange.UNCHANGED;
+
+    // Pending timers are not needed anymore
+    for (final Entry <KEYTYPE, VALUETYPE> aEntry : m_aMap.values ())
+      aEntry.cancelExpiry ();
+
+    if (m_aEvictionPolicy == null)
+      m_aMap.clear ();
+    else
+      m_aEvictionLock.locked ( () -> {
+        // Recorded accesses are obsolete
+        m_aReadBuffer.drainTo (x -> {});
+        m_aMap.clear ();
+        m_aEvictionPolicy.clear ();
+      });
+    m_aCacheClearStats.increment ();
+
+    if (s_aLogger.isDebugEnabled ())
+      s_aLogger.debug ("Cache '" + m_sName + "' was cleared");
+    return EChange.CHANGED;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_aMap.size ();
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_aMap.isEmpty ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("CacheValueProvider", m_aCacheValueProvider)
+                                       .append ("Name", m_sName)
+                                       .append ("MaxSize", m_nMaxSize)
+                                       .append ("EvictionPolicy", m_aEvictionPolicy)
+                                       .append ("ExpireAfterWrite", getExpireAfterWrite ())
+                                       .append ("ExpireAfterAccess", getExpireAfterAccess ())
+                                       .append ("RefreshAfterWrite", getRefreshAfterWrite ())
+                                       .append ("Size", m_aMap.size ())
+                                       .getToString ();
+  }
+}
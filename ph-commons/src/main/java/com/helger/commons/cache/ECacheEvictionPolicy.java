@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+
+/**
+ * The predefined size based eviction policies for {@link ConcurrentCache}.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+public enum ECacheEvictionPolicy
+{
+  /** Evict in insertion order */
+  FIFO,
+  /** Evict the least recently used key */
+  LRU,
+  /** Segmented LRU - scan resistant */
+  SLRU,
+  /** Window TinyLFU - frequency and recency aware */
+  TINY_LFU;
+
+  /** The default policy */
+  public static final ECacheEvictionPolicy DEFAULT = LRU;
+
+  /**
+   * Create a new policy instance. Each cache needs its own instance.
+   *
+   * @param nMaxSize
+   *        The maximum number of keys to retain. Must be &gt; 0.
+   * @return A new policy instance and never <code>null</code>.
+   * @param <KEYTYPE>
+   *        The cache key type
+   */
+  @Nonnull
+  public <KEYTYPE> ICacheEvictionPolicy <KEYTYPE> createPolicy (@Nonnegative final int nMaxSize)
+  {
+    switch (this)
+    {
+      case FIFO:
+        return new CacheEvictionPolicyFIFO <> (nMaxSize);
+      case LRU:
+        return new CacheEvictionPolicyLRU <> (nMaxSize);
+      case SLRU:
+        return new CacheEvictionPolicySLRU <> (nMaxSize);
+      case TINY_LFU:
+        return new CacheEvictionPolicyTinyLFU <> (nMaxSize);
+      default:
+        throw new IllegalStateException ("Unsupported eviction policy " + this);
+    }
+  }
+}
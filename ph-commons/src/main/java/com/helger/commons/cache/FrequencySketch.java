@@ -0,0 +1,141 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * A count-min sketch that estimates the access frequency of keys with 4-bit
+ * counters. Each key maps to four counters in different table slots, and the
+ * estimate is the minimum of them. All counters are halved periodically, so
+ * that the frequencies age and the sketch adapts to a changing workload.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The key type
+ * @since 9.1.0
+ */
+@NotThreadSafe
+final class FrequencySketch <KEYTYPE>
+{
+  /** The maximum value of a single 4-bit counter */
+  static final int MAX_FREQUENCY = 15;
+
+  private static final long [] SEEDS = { 0xc3a5c85c97cb3127L,
+                                         0xb492b66fbe98f273L,
+                                         0x9ae16a3b2f90404fL,
+                                         0xcbf29ce484222325L };
+  private static final long RESET_MASK = 0x7777777777777777L;
+  private static final int MAX_TABLE_SIZE = 1 << 30;
+
+  private final long [] m_aTable;
+  private final int m_nTableMask;
+  private final int m_nSampleSize;
+  private int m_nAdditions = 0;
+
+  FrequencySketch (@Nonnegative final int nMaxSize)
+  {
+    int nTableSize = 16;
+    while (nTableSize < nMaxSize && nTableSize < MAX_TABLE_SIZE)
+      nTableSize <<= 1;
+    m_aTable = new long [nTableSize];
+    m_nTableMask = nTableSize - 1;
+    m_nSampleSize = nMaxSize >= Integer.MAX_VALUE / 10 ? Integer.MAX_VALUE : Math.max (10 * nMaxSize, 10);
+  }
+
+  private static int _spread (final int nHashCode)
+  {
+    int x = nHashCode;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    x = ((x >>> 16) ^ x) * 0x45d9f3b;
+    return (x >>> 16) ^ x;
+  }
+
+  private int _indexOf (final int nHash, final int nDepth)
+  {
+    long h = (nHash + SEEDS[nDepth]) * SEEDS[nDepth];
+    h += h >>> 32;
+    return ((int) h) & m_nTableMask;
+  }
+
+  /**
+   * @param aKey
+   *        The key to check. May not be <code>null</code>.
+   * @return The estimated frequency of the key. Always between 0 and
+   *         {@link #MAX_FREQUENCY}.
+   */
+  @Nonnegative
+  int getFrequency (@Nonnull final KEYTYPE aKey)
+  {
+    final int nHash = _spread (aKey.hashCode ());
+    // Each key uses one of four groups of 4 counters within a long
+    final int nStart = (nHash & 3) << 2;
+    int ret = MAX_FREQUENCY;
+    for (int i = 0; i < 4; i++)
+    {
+      final int nOffset = (nStart + i) << 2;
+      final int nCount = (int) ((m_aTable[_indexOf (nHash, i)] >>> nOffset) & 0xfL);
+      ret = Math.min (ret, nCount);
+    }
+    return ret;
+  }
+
+  /**
+   * Increment the estimated frequency of the passed key, if it is not already
+   * at the maximum.
+   *
+   * @param aKey
+   *        The key to increment. May not be <code>null</code>.
+   */
+  void increment (@Nonnull final KEYTYPE aKey)
+  {
+    final int nHash = _spread (aKey.hashCode ());
+    final int nStart = (nHash & 3) << 2;
+    boolean bAdded = false;
+    for (int i = 0; i < 4; i++)
+    {
+      final int nIndex = _indexOf (nHash, i);
+      final int nOffset = (nStart + i) << 2;
+      final long nMask = 0xfL << nOffset;
+      if ((m_aTable[nIndex] & nMask) != nMask)
+      {
+        m_aTable[nIndex] += 1L << nOffset;
+        bAdded = true;
+      }
+    }
+
+    if (bAdded && ++m_nAdditions == m_nSampleSize)
+      _reset ();
+  }
+
+  private void _reset ()
+  {
+    // Halve all counters
+    for (int i = 0; i < m_aTable.length; i++)
+      m_aTable[i] = (m_aTable[i] >>> 1) & RESET_MASK;
+    m_nAdditions >>>= 1;
+  }
+
+  void clear ()
+  {
+    for (int i = 0; i < m_aTable.length; i++)
+      m_aTable[i] = 0;
+    m_nAdditions = 0;
+  }
+}
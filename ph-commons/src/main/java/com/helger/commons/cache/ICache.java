@@ -16,8 +16,17 @@
  */
 package com.helger.commons.cache;
 
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.lang.IHasSize;
 import com.helger.commons.name.IHasName;
 
@@ -42,4 +51,50 @@ public interface ICache <KEYTYPE, VALUETYPE> extends IHasName, IHasSize
    */
   @Nullable
   VALUETYPE getFromCache (KEYTYPE aKey);
+
+  /**
+   * Get the cached values associated with all passed keys. The default
+   * implementation calls {@link #getFromCache(Object)} for each key.
+   * Implementations may load all missing values at once.
+   *
+   * @param aKeys
+   *        The keys to be looked up. May not be <code>null</code>.
+   * @return A map from each passed key to its value, in the order of the
+   *         passed keys. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  default ICommonsOrderedMap <KEYTYPE, VALUETYPE> getAllFromCache (@Nonnull final Collection <? extends KEYTYPE> aKeys)
+  {
+    ValueEnforcer.notNull (aKeys, "Keys");
+
+    final ICommonsOrderedMap <KEYTYPE, VALUETYPE> ret = new CommonsLinkedHashMap <> (aKeys.size ());
+    for (final KEYTYPE aKey : aKeys)
+      ret.put (aKey, getFromCache (aKey));
+    return ret;
+  }
+
+  /**
+   * Get the cached value associated with the passed key asynchronously. The
+   * default implementation calls {@link #getFromCache(Object)} in the passed
+   * executor.
+   *
+   * @param aKey
+   *        The key to be looked up. May be <code>null</code>able or not -
+   *        depends upon the implementation.
+   * @param aExecutor
+   *        The executor in which a missing value is loaded. May not be
+   *        <code>null</code>.
+   * @return The future that is completed with the value or with the
+   *         exception of the value provider. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  default CompletableFuture <VALUETYPE> getFromCacheAsync (@Nullable final KEYTYPE aKey,
+                                                           @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aExecutor, "Executor");
+    return CompletableFuture.supplyAsync ( () -> getFromCache (aKey), aExecutor);
+  }
 }
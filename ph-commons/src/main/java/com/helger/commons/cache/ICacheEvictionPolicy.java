@@ -0,0 +1,80 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * Base interface for size based eviction policies as used by
+ * {@link ConcurrentCache}. Implementations only track keys and decide which
+ * key(s) should leave the cache. They don't need to be thread-safe, because
+ * the owning cache calls them exclusively within a lock. Keys that are not
+ * known to the policy must be ignored gracefully, as access events are
+ * recorded asynchronously.
+ *
+ * @author Philip Helger
+ * @param <KEYTYPE>
+ *        The cache key type
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public interface ICacheEvictionPolicy <KEYTYPE>
+{
+  /**
+   * @return The maximum number of keys this policy retains. Always &gt; 0.
+   */
+  @Nonnegative
+  int getMaxSize ();
+
+  /**
+   * Record a read access of an existing key.
+   *
+   * @param aKey
+   *        The accessed key. Never <code>null</code>.
+   */
+  void recordAccess (@Nonnull KEYTYPE aKey);
+
+  /**
+   * Record that a new key was added to the cache. If the key is already known
+   * this must be handled like an access.
+   *
+   * @param aKey
+   *        The added key. Never <code>null</code>.
+   * @param aEvictionHandler
+   *        The handler to be invoked for each key that must be evicted from
+   *        the cache. This may also be the added key itself, if the policy
+   *        decides to not admit it. Never <code>null</code>.
+   */
+  void recordInsert (@Nonnull KEYTYPE aKey, @Nonnull Consumer <? super KEYTYPE> aEvictionHandler);
+
+  /**
+   * Record that a key was explicitly removed from the cache.
+   *
+   * @param aKey
+   *        The removed key. Never <code>null</code>.
+   */
+  void recordRemove (@Nonnull KEYTYPE aKey);
+
+  /**
+   * Forget about all keys.
+   */
+  void clear ();
+}
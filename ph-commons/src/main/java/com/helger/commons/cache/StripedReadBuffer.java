@@ -0,0 +1,134 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.annotation.ELockType;
+import com.helger.commons.annotation.MustBeLocked;
+
+/**
+ * A lossy, striped multi-producer/single-consumer buffer used to record read
+ * accesses without locking. Each thread writes into one of several stripes,
+ * and an element is simply dropped if its stripe is full or contended. The
+ * buffer is drained by the owner of the eviction lock.
+ *
+ * @author Philip Helger
+ * @param <ELEMENTTYPE>
+ *        The element type
+ * @since 9.1.0
+ */
+@ThreadSafe
+final class StripedReadBuffer <ELEMENTTYPE>
+{
+  private static final int BUFFER_SIZE = 16;
+  private static final int BUFFER_MASK = BUFFER_SIZE - 1;
+  private static final int STRIPE_COUNT;
+
+  static
+  {
+    final int nMax = Math.min (4 * Runtime.getRuntime ().availableProcessors (), 64);
+    int nCount = 1;
+    while (nCount < nMax)
+      nCount <<= 1;
+    STRIPE_COUNT = nCount;
+  }
+
+  private static final class Stripe <ELEMENTTYPE>
+  {
+    private final AtomicReferenceArray <ELEMENTTYPE> m_aBuffer = new AtomicReferenceArray <> (BUFFER_SIZE);
+    private final AtomicLong m_aWriteCounter = new AtomicLong (0);
+    // Only written by the draining thread
+    private volatile long m_nReadCounter = 0;
+  }
+
+  private final Stripe <ELEMENTTYPE> [] m_aStripes;
+
+  StripedReadBuffer ()
+  {
+    m_aStripes = CacheHelper.newFilledArray (Stripe.class, STRIPE_COUNT, Stripe::new);
+  }
+
+  @Nonnull
+  private Stripe <ELEMENTTYPE> _getStripe ()
+  {
+    int h = (int) Thread.currentThread ().getId ();
+    h ^= h >>> 16;
+    h *= 0x45d9f3b;
+    h ^= h >>> 16;
+    return m_aStripes[h & (STRIPE_COUNT - 1)];
+  }
+
+  /**
+   * Try to add an element. The element may be dropped silently.
+   *
+   * @param aElement
+   *        The element to add. May not be <code>null</code>.
+   * @return <code>true</code> if the stripe is full and the buffer should be
+   *         drained, <code>false</code> if not.
+   */
+  boolean offer (@Nonnull final ELEMENTTYPE aElement)
+  {
+    final Stripe <ELEMENTTYPE> aStripe = _getStripe ();
+    final long nRead = aStripe.m_nReadCounter;
+    final long nWrite = aStripe.m_aWriteCounter.get ();
+    if (nWrite - nRead >= BUFFER_SIZE)
+      return true;
+
+    if (aStripe.m_aWriteCounter.compareAndSet (nWrite, nWrite + 1))
+    {
+      aStripe.m_aBuffer.lazySet ((int) (nWrite & BUFFER_MASK), aElement);
+      return nWrite + 1 - nRead >= BUFFER_SIZE;
+    }
+    // Contended - drop the element
+    return false;
+  }
+
+  /**
+   * Pass all available elements to the provided consumer.
+   *
+   * @param aConsumer
+   *        The consumer to be invoked. May not be <code>null</code>.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  void drainTo (@Nonnull final Consumer <? super ELEMENTTYPE> aConsumer)
+  {
+    for (final Stripe <ELEMENTTYPE> aStripe : m_aStripes)
+    {
+      long nRead = aStripe.m_nReadCounter;
+      final long nWrite = aStripe.m_aWriteCounter.get ();
+      for (; nRead < nWrite; nRead++)
+      {
+        final int nIndex = (int) (nRead & BUFFER_MASK);
+        final ELEMENTTYPE aElement = aStripe.m_aBuffer.get (nIndex);
+        if (aElement == null)
+        {
+          // Not yet published by the writer
+          break;
+        }
+        aStripe.m_aBuffer.lazySet (nIndex, null);
+        aConsumer.accept (aElement);
+      }
+      aStripe.m_nReadCounter = nRead;
+    }
+  }
+}
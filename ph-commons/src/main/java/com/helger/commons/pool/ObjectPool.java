@@ -16,8 +16,17 @@
  */
 package com.helger.commons.pool;
 
-import java.util.Arrays;
-import java.util.concurrent.Semaphore;
+import java.lang.ref.WeakReference;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.SynchronousQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerFieldUpdater;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
@@ -28,13 +37,20 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.commons.ValueEnforcer;
-import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.functional.IConsumer;
+import com.helger.commons.functional.IPredicate;
 import com.helger.commons.functional.ISupplier;
-import com.helger.commons.lang.GenericReflection;
 import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.ToStringGenerator;
 
 /**
- * A simple generic object pool with a fixed size determined in the constructor.
+ * A generic object pool with a maximum size determined in the constructor.
+ * Objects are created lazily via the provided factory.<br>
+ * Borrowing and returning objects does not lock: each thread first tries the
+ * objects it returned recently, then all idle objects of the pool, and only if
+ * the pool is exhausted it waits until another thread hands over a returned
+ * object. Optionally objects are validated when they are borrowed and/or
+ * returned, and objects that were idle for too long are destroyed.
  *
  * @author Philip Helger
  * @param <DATATYPE>
@@ -43,23 +59,74 @@ import com.helger.commons.state.ESuccess;
 @ThreadSafe
 public final class ObjectPool <DATATYPE> implements IMutableObjectPool <DATATYPE>
 {
-  private static final Logger s_aLogger = LoggerFactory.getLogger (ObjectPool.class);
+  /**
+   * Wrapper around a single pooled object with its state.
+   *
+   * @param <T>
+   *        pooled data type
+   */
+  private static final class PoolEntry <T>
+  {
+    private static final int STATE_IDLE = 0;
+    private static final int STATE_BORROWED = 1;
+    private static final int STATE_REMOVED = -1;
+
+    @SuppressWarnings ("rawtypes")
+    private static final AtomicIntegerFieldUpdater <PoolEntry> STATE = AtomicIntegerFieldUpdater.newUpdater (PoolEntry.class,
+                                                                                                            "m_nState");
+
+    private final T m_aItem;
+    private volatile int m_nState = STATE_BORROWED;
+    private volatile long m_nLastReturnNanos;
+
+    PoolEntry (@Nonnull final T aItem)
+    {
+      m_aItem = aItem;
+    }
+
+    boolean changeState (final int nExpected, final int nNew)
+    {
+      return STATE.compareAndSet (this, nExpected, nNew);
+    }
+  }
 
-  // Lock for this object
-  private final SimpleLock m_aLock = new SimpleLock ();
+  /** The maximum number of recently used objects remembered per thread */
+  private static final int MAX_THREAD_LOCAL_ENTRIES = 16;
 
-  // Semaphore for the number of items
-  private final Semaphore m_aAvailable;
+  /** The maximum time a waiting thread sleeps before it re-checks the pool */
+  private static final long MAX_WAIT_SLICE_NANOS = TimeUnit.MILLISECONDS.toNanos (10);
 
-  // The items itself
-  private final Object [] m_aItems;
+  private static final Logger s_aLogger = LoggerFactory.getLogger (ObjectPool.class);
 
-  // Holds the "used/unused" state, because null items may be stored
-  private final boolean [] m_aUsed;
+  private final int m_nMaxSize;
 
   // The factory for creating objects
   private final ISupplier <? extends DATATYPE> m_aFactory;
 
+  // All existing entries (idle and borrowed) - modified rarely
+  private final CopyOnWriteArrayList <PoolEntry <DATATYPE>> m_aEntries = new CopyOnWriteArrayList <> ();
+
+  // The entries recently used by the current thread
+  private final ThreadLocal <List <WeakReference <PoolEntry <DATATYPE>>>> m_aThreadEntries = ThreadLocal.withInitial (ArrayList::new);
+
+  // For handing over returned entries to waiting threads
+  private final SynchronousQueue <PoolEntry <DATATYPE>> m_aHandoffQueue = new SynchronousQueue <> (true);
+
+  // The number of existing entries plus the ones being created
+  private final AtomicInteger m_aTotal = new AtomicInteger (0);
+  private final AtomicInteger m_aWaiters = new AtomicInteger (0);
+
+  private final AtomicLong m_aCreatedCount = new AtomicLong (0);
+  private final AtomicLong m_aDestroyedCount = new AtomicLong (0);
+  private final AtomicLong m_aBorrowTimeoutCount = new AtomicLong (0);
+  private final AtomicLong m_aLastIdleEvictionNanos = new AtomicLong (System.nanoTime ());
+
+  private volatile IPredicate <? super DATATYPE> m_aValidator;
+  private volatile boolean m_bValidateOnBorrow = true;
+  private volatile boolean m_bValidateOnReturn = false;
+  private volatile IConsumer <? super DATATYPE> m_aDestroyer;
+  private volatile long m_nMaxIdleNanos = 0;
+
   /**
    * Create a new object pool for a certain amount of items and a factory that
    * creates the objects on demand.
@@ -76,30 +143,413 @@ public final class ObjectPool <DATATYPE> implements IMutableObjectPool <DATATYPE
     ValueEnforcer.isGT0 (nItemCount, "ItemCount");
     ValueEnforcer.notNull (aFactory, "Factory");
 
-    m_aAvailable = new Semaphore (nItemCount);
-    m_aItems = new Object [nItemCount];
-    m_aUsed = new boolean [nItemCount];
-    Arrays.fill (m_aUsed, 0, nItemCount, false);
+    m_nMaxSize = nItemCount;
     m_aFactory = aFactory;
   }
 
-  public void clearUnusedItems ()
+  /**
+   * @return The maximum number of objects in this pool. Always &gt; 0.
+   */
+  @Nonnegative
+  public int getMaxSize ()
+  {
+    return m_nMaxSize;
+  }
+
+  /**
+   * @return The validator that is applied to borrowed and/or returned objects.
+   *         May be <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nullable
+  public IPredicate <? super DATATYPE> getValidator ()
+  {
+    return m_aValidator;
+  }
+
+  /**
+   * Set the validator for pooled objects. Objects that are not valid are
+   * destroyed and never handed out again.
+   *
+   * @param aValidator
+   *        The validator to use. May be <code>null</code> to disable
+   *        validation.
+   * @return this for chaining
+   * @see #setValidateOnBorrow(boolean)
+   * @see #setValidateOnReturn(boolean)
+   * @since 9.1.0
+   */
+  @Nonnull
+  public ObjectPool <DATATYPE> setValidator (@Nullable final IPredicate <? super DATATYPE> aValidator)
+  {
+    m_aValidator = aValidator;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if existing objects are validated before they
+   *         are borrowed. Default is <code>true</code>.
+   * @since 9.1.0
+   */
+  public boolean isValidateOnBorrow ()
+  {
+    return m_bValidateOnBorrow;
+  }
+
+  /**
+   * @param bValidateOnBorrow
+   *        <code>true</code> to validate existing objects before they are
+   *        borrowed.
+   * @return this for chaining
+   * @since 9.1.0
+   */
+  @Nonnull
+  public ObjectPool <DATATYPE> setValidateOnBorrow (final boolean bValidateOnBorrow)
+  {
+    m_bValidateOnBorrow = bValidateOnBorrow;
+    return this;
+  }
+
+  /**
+   * @return <code>true</code> if objects are validated when they are returned.
+   *         Default is <code>false</code>.
+   * @since 9.1.0
+   */
+  public boolean isValidateOnReturn ()
+  {
+    return m_bValidateOnReturn;
+  }
+
+  /**
+   * @param bValidateOnReturn
+   *        <code>true</code> to validate objects when they are returned.
+   * @return this for chaining
+   * @since 9.1.0
+   */
+  @Nonnull
+  public ObjectPool <DATATYPE> setValidateOnReturn (final boolean bValidateOnReturn)
+  {
+    m_bValidateOnReturn = bValidateOnReturn;
+    return this;
+  }
+
+  /**
+   * @return The callback that is invoked for each object that is removed from
+   *         the pool. May be <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nullable
+  public IConsumer <? super DATATYPE> getDestroyer ()
+  {
+    return m_aDestroyer;
+  }
+
+  /**
+   * Set a callback that is invoked for each object that is removed from the
+   * pool, because it is invalid, idle for too long or because the unused
+   * items are cleared. This can e.g. be used to close resources.
+   *
+   * @param aDestroyer
+   *        The callback to use. May be <code>null</code>.
+   * @return this for chaining
+   * @since 9.1.0
+   */
+  @Nonnull
+  public ObjectPool <DATATYPE> setDestroyer (@Nullable final IConsumer <? super DATATYPE> aDestroyer)
   {
-    // Reset all cached items
-    m_aLock.locked ( () -> {
-      for (int i = 0; i < m_aItems.length; ++i)
-        if (!m_aUsed[i])
-          m_aItems[i] = null;
-    });
+    m_aDestroyer = aDestroyer;
+    return this;
   }
 
+  /**
+   * @return The maximum time an object may be idle in the pool before it is
+   *         destroyed. <code>null</code> if idle objects are kept forever.
+   * @since 9.1.0
+   */
+  @Nullable
+  public Duration getMaxIdleTime ()
+  {
+    final long nNanos = m_nMaxIdleNanos;
+    return nNanos > 0 ? Duration.ofNanos (nNanos) : null;
+  }
+
+  /**
+   * Set the maximum time an object may be idle in the pool. Idle objects are
+   * checked when objects are returned, at most once per the provided duration,
+   * or explicitly via {@link #evictIdleObjects()}.
+   *
+   * @param aMaxIdleTime
+   *        The maximum idle time. May be <code>null</code> to keep idle
+   *        objects forever. Must be positive if provided.
+   * @return this for chaining
+   * @since 9.1.0
+   */
+  @Nonnull
+  public ObjectPool <DATATYPE> setMaxIdleTime (@Nullable final Duration aMaxIdleTime)
+  {
+    if (aMaxIdleTime != null)
+      ValueEnforcer.isFalse (aMaxIdleTime.isNegative () || aMaxIdleTime.isZero (), "MaxIdleTime must be positive");
+    m_nMaxIdleNanos = aMaxIdleTime == null ? 0 : aMaxIdleTime.toNanos ();
+    return this;
+  }
+
+  /**
+   * @return The number of objects currently existing in the pool, either idle
+   *         or borrowed. Always &le; {@link #getMaxSize()}.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getTotalCount ()
+  {
+    return m_aEntries.size ();
+  }
+
+  private int _getCount (final int nState)
+  {
+    int ret = 0;
+    for (final PoolEntry <DATATYPE> aEntry : m_aEntries)
+      if (aEntry.m_nState == nState)
+        ret++;
+    return ret;
+  }
+
+  /**
+   * @return The number of objects that are currently available in the pool.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getIdleCount ()
+  {
+    return _getCount (PoolEntry.STATE_IDLE);
+  }
+
+  /**
+   * @return The number of objects that are currently borrowed.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getBorrowedCount ()
+  {
+    return _getCount (PoolEntry.STATE_BORROWED);
+  }
+
+  /**
+   * @return The number of threads currently waiting for an object to be
+   *         returned.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getWaitingCount ()
+  {
+    return m_aWaiters.get ();
+  }
+
+  /**
+   * @return The total number of objects created by the factory.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public long getCreatedCount ()
+  {
+    return m_aCreatedCount.get ();
+  }
+
+  /**
+   * @return The total number of objects that were removed from the pool.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public long getDestroyedCount ()
+  {
+    return m_aDestroyedCount.get ();
+  }
+
+  /**
+   * @return The total number of borrow requests that timed out.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public long getBorrowTimeoutCount ()
+  {
+    return m_aBorrowTimeoutCount.get ();
+  }
+
+  private void _destroy (@Nonnull final PoolEntry <DATATYPE> aEntry)
+  {
+    // State was already set to removed by the caller
+    m_aEntries.remove (aEntry);
+    m_aTotal.decrementAndGet ();
+    m_aDestroyedCount.incrementAndGet ();
+
+    final IConsumer <? super DATATYPE> aDestroyer = m_aDestroyer;
+    if (aDestroyer != null)
+      try
+      {
+        aDestroyer.accept (aEntry.m_aItem);
+      }
+      catch (final RuntimeException ex)
+      {
+        s_aLogger.warn ("Failed to destroy pooled object " + aEntry.m_aItem, ex);
+      }
+  }
+
+  private boolean _isValid (@Nonnull final PoolEntry <DATATYPE> aEntry)
+  {
+    final IPredicate <? super DATATYPE> aValidator = m_aValidator;
+    if (aValidator == null)
+      return true;
+    try
+    {
+      return aValidator.test (aEntry.m_aItem);
+    }
+    catch (final RuntimeException ex)
+    {
+      s_aLogger.warn ("Failed to validate pooled object " + aEntry.m_aItem, ex);
+      return false;
+    }
+  }
+
+  private void _rememberInThread (@Nonnull final PoolEntry <DATATYPE> aEntry)
+  {
+    final List <WeakReference <PoolEntry <DATATYPE>>> aList = m_aThreadEntries.get ();
+    for (final WeakReference <PoolEntry <DATATYPE>> aRef : aList)
+      if (aRef.get () == aEntry)
+        return;
+    if (aList.size () >= MAX_THREAD_LOCAL_ENTRIES)
+      aList.remove (0);
+    aList.add (new WeakReference <> (aEntry));
+  }
+
+  /**
+   * Try to get an idle entry without waiting and without creating one.
+   */
+  @Nullable
+  private PoolEntry <DATATYPE> _tryAcquireIdle ()
+  {
+    // Try the entries most recently used by this thread first
+    final List <WeakReference <PoolEntry <DATATYPE>>> aList = m_aThreadEntries.get ();
+    for (int i = aList.size () - 1; i >= 0; --i)
+    {
+      final PoolEntry <DATATYPE> aEntry = aList.get (i).get ();
+      if (aEntry == null || aEntry.m_nState == PoolEntry.STATE_REMOVED)
+        aList.remove (i);
+      else
+        if (aEntry.changeState (PoolEntry.STATE_IDLE, PoolEntry.STATE_BORROWED))
+          return aEntry;
+    }
+
+    // Try all entries
+    for (final PoolEntry <DATATYPE> aEntry : m_aEntries)
+      if (aEntry.changeState (PoolEntry.STATE_IDLE, PoolEntry.STATE_BORROWED))
+        return aEntry;
+    return null;
+  }
+
+  /**
+   * Try to create a new entry if the maximum size was not yet reached.
+   */
+  @Nullable
+  private PoolEntry <DATATYPE> _tryCreate ()
+  {
+    while (true)
+    {
+      final int nTotal = m_aTotal.get ();
+      if (nTotal >= m_nMaxSize)
+        return null;
+      if (m_aTotal.compareAndSet (nTotal, nTotal + 1))
+        break;
+    }
+
+    final DATATYPE aItem;
+    try
+    {
+      // Create outside of any lock
+      aItem = m_aFactory.get ();
+      if (aItem == null)
+        throw new IllegalStateException ("The factory returned a null object!");
+    }
+    catch (final RuntimeException | Error ex)
+    {
+      m_aTotal.decrementAndGet ();
+      throw ex;
+    }
+
+    // Newly created entries are borrowed right away
+    final PoolEntry <DATATYPE> aEntry = new PoolEntry <> (aItem);
+    m_aEntries.add (aEntry);
+    m_aCreatedCount.incrementAndGet ();
+    return aEntry;
+  }
+
+  @Nullable
+  private DATATYPE _borrow (final long nTimeoutNanos) throws InterruptedException
+  {
+    final long nDeadline = System.nanoTime () + nTimeoutNanos;
+    while (true)
+    {
+      PoolEntry <DATATYPE> aEntry = _tryAcquireIdle ();
+      boolean bValidate = m_bValidateOnBorrow;
+      if (aEntry == null)
+      {
+        aEntry = _tryCreate ();
+        // No need to validate new objects
+        bValidate = false;
+      }
+      if (aEntry == null)
+      {
+        // Pool is exhausted - wait until another thread returns an object
+        final long nRemaining = nDeadline - System.nanoTime ();
+        if (nRemaining <= 0)
+        {
+          m_aBorrowTimeoutCount.incrementAndGet ();
+          return null;
+        }
+
+        m_aWaiters.incrementAndGet ();
+        try
+        {
+          // Check again, in case an object was returned before the waiter
+          // count was incremented
+          aEntry = _tryAcquireIdle ();
+          if (aEntry == null)
+          {
+            aEntry = m_aHandoffQueue.poll (Math.min (nRemaining, MAX_WAIT_SLICE_NANOS), TimeUnit.NANOSECONDS);
+            if (aEntry != null && !aEntry.changeState (PoolEntry.STATE_IDLE, PoolEntry.STATE_BORROWED))
+              aEntry = null;
+          }
+        }
+        finally
+        {
+          m_aWaiters.decrementAndGet ();
+        }
+        if (aEntry == null)
+          continue;
+        bValidate = m_bValidateOnBorrow;
+      }
+
+      if (bValidate && !_isValid (aEntry))
+      {
+        aEntry.m_nState = PoolEntry.STATE_REMOVED;
+        _destroy (aEntry);
+        continue;
+      }
+
+      _rememberInThread (aEntry);
+      return aEntry.m_aItem;
+    }
+  }
+
+  /**
+   * {@inheritDoc}<br>
+   * If the current thread is interrupted while waiting, <code>null</code> is
+   * returned.
+   */
   @Nullable
   public DATATYPE borrowObject ()
   {
-    // Wait for an object to be available
     try
     {
-      m_aAvailable.acquire ();
+      return _borrow (Long.MAX_VALUE / 2);
     }
     catch (final InterruptedException ex)
     {
@@ -107,42 +557,173 @@ public final class ObjectPool <DATATYPE> implements IMutableObjectPool <DATATYPE
       s_aLogger.error ("ObjectPool interrupted", ex);
       return null;
     }
+  }
 
-    return m_aLock.locked ( () -> {
-      // Find first unused item
-      for (int i = 0; i < m_aItems.length; ++i)
-        if (!m_aUsed[i])
-        {
-          if (m_aItems[i] == null)
-          {
-            // if the object is used for the first time, create a new object
-            // via the factory
-            m_aItems[i] = m_aFactory.get ();
-            if (m_aItems[i] == null)
-              throw new IllegalStateException ("The factory returned a null object!");
-          }
-          m_aUsed[i] = true;
-          return GenericReflection.uncheckedCast (m_aItems[i]);
-        }
-      throw new IllegalStateException ("Should never be reached!");
-    });
+  /**
+   * Borrow an object from the pool. This method blocks at most for the
+   * provided duration until an object is available.
+   *
+   * @param aTimeout
+   *        The maximum time to wait. May not be <code>null</code>.
+   * @return The borrowed object or <code>null</code> if no object became
+   *         available in time or if the current thread was interrupted.
+   * @since 9.1.0
+   */
+  @Nullable
+  public DATATYPE borrowObject (@Nonnull final Duration aTimeout)
+  {
+    ValueEnforcer.notNull (aTimeout, "Timeout");
+
+    try
+    {
+      return _borrow (aTimeout.toNanos ());
+    }
+    catch (final InterruptedException ex)
+    {
+      s_aLogger.error ("ObjectPool interrupted", ex);
+      Thread.currentThread ().interrupt ();
+      return null;
+    }
+  }
+
+  @Nullable
+  private PoolEntry <DATATYPE> _findBorrowed (@Nullable final DATATYPE aItem)
+  {
+    // The object is usually returned by the borrowing thread
+    for (final WeakReference <PoolEntry <DATATYPE>> aRef : m_aThreadEntries.get ())
+    {
+      final PoolEntry <DATATYPE> aEntry = aRef.get ();
+      if (aEntry != null && aEntry.m_aItem == aItem && aEntry.m_nState == PoolEntry.STATE_BORROWED)
+        return aEntry;
+    }
+    for (final PoolEntry <DATATYPE> aEntry : m_aEntries)
+      if (aEntry.m_aItem == aItem && aEntry.m_nState == PoolEntry.STATE_BORROWED)
+        return aEntry;
+    return null;
   }
 
   @Nonnull
   public ESuccess returnObject (@Nonnull final DATATYPE aItem)
   {
-    return m_aLock.locked ( () -> {
-      for (int i = 0; i < m_aItems.length; ++i)
-        if (m_aUsed[i] && aItem == m_aItems[i])
-        {
-          m_aUsed[i] = false;
-
-          // Okay, we have one more unused item
-          m_aAvailable.release ();
-          return ESuccess.SUCCESS;
-        }
+    final PoolEntry <DATATYPE> aEntry = _findBorrowed (aItem);
+    if (aEntry == null)
+    {
       s_aLogger.warn ("Object " + aItem + " is not pooled!");
       return ESuccess.FAILURE;
-    });
+    }
+
+    final long nNow = System.nanoTime ();
+    aEntry.m_nLastReturnNanos = nNow;
+
+    // Validate while the entry is still borrowed, so that no other thread can
+    // borrow it in the meantime
+    if (m_bValidateOnReturn && !_isValid (aEntry))
+    {
+      if (aEntry.changeState (PoolEntry.STATE_BORROWED, PoolEntry.STATE_REMOVED))
+        _destroy (aEntry);
+      return ESuccess.SUCCESS;
+    }
+
+    if (!aEntry.changeState (PoolEntry.STATE_BORROWED, PoolEntry.STATE_IDLE))
+    {
+      // Returned concurrently by another thread
+      s_aLogger.warn ("Object " + aItem + " is not borrowed!");
+      return ESuccess.FAILURE;
+    }
+
+    // Hand over to a waiting thread, as long as nobody else took it
+    for (int i = 0; m_aWaiters.get () > 0; ++i)
+    {
+      if (aEntry.m_nState != PoolEntry.STATE_IDLE || m_aHandoffQueue.offer (aEntry))
+        break;
+      if ((i & 0xff) == 0xff)
+        LockSupport.parkNanos (TimeUnit.MICROSECONDS.toNanos (10));
+      else
+        Thread.yield ();
+    }
+
+    final long nMaxIdleNanos = m_nMaxIdleNanos;
+    if (nMaxIdleNanos > 0)
+    {
+      final long nLastEviction = m_aLastIdleEvictionNanos.get ();
+      if (nNow - nLastEviction >= nMaxIdleNanos && m_aLastIdleEvictionNanos.compareAndSet (nLastEviction, nNow))
+        evictIdleObjects ();
+    }
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Remove a borrowed object from the pool instead of returning it, e.g.
+   * because it is known to be unusable. The object is destroyed and a new one
+   * may be created instead.
+   *
+   * @param aItem
+   *        The borrowed object to remove. May not be <code>null</code>.
+   * @return {@link ESuccess#FAILURE} if the object is not borrowed from this
+   *         pool.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public ESuccess invalidateObject (@Nonnull final DATATYPE aItem)
+  {
+    final PoolEntry <DATATYPE> aEntry = _findBorrowed (aItem);
+    if (aEntry == null || !aEntry.changeState (PoolEntry.STATE_BORROWED, PoolEntry.STATE_REMOVED))
+    {
+      s_aLogger.warn ("Object " + aItem + " is not borrowed!");
+      return ESuccess.FAILURE;
+    }
+    _destroy (aEntry);
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Destroy all objects that were idle for longer than the maximum idle time.
+   * This method is called automatically when objects are returned, but may
+   * also be called e.g. from a scheduled task.
+   *
+   * @return The number of destroyed objects. Always &ge; 0.
+   * @see #setMaxIdleTime(Duration)
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int evictIdleObjects ()
+  {
+    final long nMaxIdleNanos = m_nMaxIdleNanos;
+    if (nMaxIdleNanos <= 0)
+      return 0;
+
+    final long nNow = System.nanoTime ();
+    int ret = 0;
+    for (final PoolEntry <DATATYPE> aEntry : m_aEntries)
+      if (nNow - aEntry.m_nLastReturnNanos >= nMaxIdleNanos &&
+          aEntry.changeState (PoolEntry.STATE_IDLE, PoolEntry.STATE_REMOVED))
+      {
+        _destroy (aEntry);
+        ret++;
+      }
+    return ret;
+  }
+
+  /**
+   * Destroy all objects that are currently not borrowed.
+   */
+  public void clearUnusedItems ()
+  {
+    for (final PoolEntry <DATATYPE> aEntry : m_aEntries)
+      if (aEntry.changeState (PoolEntry.STATE_IDLE, PoolEntry.STATE_REMOVED))
+        _destroy (aEntry);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MaxSize", m_nMaxSize)
+                                       .append ("Total", m_aTotal.get ())
+                                       .append ("Waiters", m_aWaiters.get ())
+                                       .appendIfNotNull ("Validator", m_aValidator)
+                                       .append ("ValidateOnBorrow", m_bValidateOnBorrow)
+                                       .append ("ValidateOnReturn", m_bValidateOnReturn)
+                                       .append ("MaxIdleNanos", m_nMaxIdleNanos)
+                                       .getToString ();
   }
 }
@@ -25,17 +25,21 @@ import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.Singleton;
-import com.helger.commons.cache.Cache;
+import com.helger.commons.cache.ConcurrentCache;
+import com.helger.commons.cache.ECacheEvictionPolicy;
 
 /**
  * This class provides a cached for compiled regular expressions. It caches up
- * to a limited number of compiled {@link Pattern} objects.
+ * to a limited number of {@link RegExPattern} objects, each of which holds the
+ * compiled {@link Pattern} or the fast path if the regular expression engine is
+ * not needed. Key and value are the same object, so that the lazily determined
+ * state of the pattern is kept.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 @Singleton
-public final class RegExCache extends Cache <RegExPattern, Pattern>
+public final class RegExCache extends ConcurrentCache <RegExPattern, RegExPattern>
 {
   private static final class SingletonHolder
   {
@@ -49,7 +53,12 @@ public final class RegExCache extends Cache <RegExPattern, Pattern>
 
   private RegExCache ()
   {
-    super (RegExPattern::getAsPattern, MAX_CACHE_SIZE, RegExCache.class.getName ());
+    super (aPattern -> {
+      // Fail early on invalid regular expressions
+      if (!aPattern.isFastPath ())
+        aPattern.getAsPattern ();
+      return aPattern;
+    }, MAX_CACHE_SIZE, RegExCache.class.getName (), ECacheEvictionPolicy.TINY_LFU);
   }
 
   public static boolean isInstantiated ()
@@ -79,7 +88,7 @@ public final class RegExCache extends Cache <RegExPattern, Pattern>
   @Nonnull
   public static Pattern getPattern (@Nonnull @Nonempty @RegEx final String sRegEx)
   {
-    return getInstance ().getFromCache (new RegExPattern (sRegEx));
+    return getInstance ().getFromCache (new RegExPattern (sRegEx)).getAsPattern ();
   }
 
   /**
@@ -98,6 +107,47 @@ public final class RegExCache extends Cache <RegExPattern, Pattern>
    */
   @Nonnull
   public static Pattern getPattern (@Nonnull @Nonempty @RegEx final String sRegEx, @Nonnegative final int nOptions)
+  {
+    return getInstance ().getFromCache (new RegExPattern (sRegEx, nOptions)).getAsPattern ();
+  }
+
+  /**
+   * Get the cached regular expression pattern object. In contrast to
+   * {@link #getPattern(String)} the returned object knows whether the regular
+   * expression engine is needed at all, and can split, match and replace
+   * without it.
+   *
+   * @param sRegEx
+   *        The regular expression to retrieve. May neither be <code>null</code>
+   *        nor empty.
+   * @return The cached pattern and never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the passed regular expression has an illegal syntax
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static RegExPattern getRegExPattern (@Nonnull @Nonempty @RegEx final String sRegEx)
+  {
+    return getInstance ().getFromCache (new RegExPattern (sRegEx));
+  }
+
+  /**
+   * Get the cached regular expression pattern object.
+   *
+   * @param sRegEx
+   *        The regular expression to retrieve. May neither be <code>null</code>
+   *        nor empty.
+   * @param nOptions
+   *        The options used for Pattern.compile
+   * @return The cached pattern and never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the passed regular expression has an illegal syntax
+   * @see #getRegExPattern(String)
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static RegExPattern getRegExPattern (@Nonnull @Nonempty @RegEx final String sRegEx,
+                                              @Nonnegative final int nOptions)
   {
     return getInstance ().getFromCache (new RegExPattern (sRegEx, nOptions));
   }
@@ -0,0 +1,498 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.regex;
+
+import java.util.regex.Pattern;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The matching logic for regular expressions that don't need the regular
+ * expression engine. This is either a plain literal (like <code>"\\|"</code>)
+ * which is handled via {@link String#indexOf(String, int)} or a single
+ * character class consisting only of ASCII characters (like
+ * <code>"[,;]"</code>, <code>"\\s+"</code> or <code>"\\W"</code>) which is
+ * handled via a bitmap. All operations behave exactly like the respective
+ * methods of {@link Pattern} and {@link java.util.regex.Matcher}.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@Immutable
+final class RegExFastPath
+{
+  private static final String META_CHARS = "\\^$.|?*+()[]{}";
+
+  // Either a literal or a bitmap
+  private final String m_sLiteral;
+  private final long m_nBitsLow;
+  private final long m_nBitsHigh;
+  private final boolean m_bNegated;
+  private final boolean m_bRepeated;
+
+  private RegExFastPath (@Nullable final String sLiteral,
+                         @Nonnull final long [] aBits,
+                         final boolean bNegated,
+                         final boolean bRepeated)
+  {
+    m_sLiteral = sLiteral;
+    m_nBitsLow = aBits[0];
+    m_nBitsHigh = aBits[1];
+    m_bNegated = bNegated;
+    m_bRepeated = bRepeated;
+  }
+
+  @Nullable
+  public String getLiteral ()
+  {
+    return m_sLiteral;
+  }
+
+  public boolean isLiteral ()
+  {
+    return m_sLiteral != null;
+  }
+
+  private boolean _isInBitmap (final char c)
+  {
+    if (c < 64)
+      return (m_nBitsLow & (1L << c)) != 0;
+    if (c < 128)
+      return (m_nBitsHigh & (1L << (c - 64))) != 0;
+    return false;
+  }
+
+  /**
+   * @return The number of chars matched by the character class at the passed
+   *         index. 0 if the char class does not match.
+   */
+  private int _getCharMatchWidth (@Nonnull final String s, final int nIndex)
+  {
+    final char c = s.charAt (nIndex);
+    if (_isInBitmap (c) == m_bNegated)
+      return 0;
+    // A negated class matches a complete surrogate pair
+    if (m_bNegated &&
+        Character.isHighSurrogate (c) &&
+        nIndex + 1 < s.length () &&
+        Character.isLowSurrogate (s.charAt (nIndex + 1)))
+      return 2;
+    return 1;
+  }
+
+  private int _find (@Nonnull final String s, @Nonnegative final int nFrom)
+  {
+    if (m_sLiteral != null)
+      return s.indexOf (m_sLiteral, nFrom);
+
+    final int nLen = s.length ();
+    for (int i = nFrom; i < nLen; ++i)
+      if (_getCharMatchWidth (s, i) > 0)
+        return i;
+    return -1;
+  }
+
+  private int _getMatchEnd (@Nonnull final String s, @Nonnegative final int nStart)
+  {
+    if (m_sLiteral != null)
+      return nStart + m_sLiteral.length ();
+
+    int nEnd = nStart + _getCharMatchWidth (s, nStart);
+    if (m_bRepeated)
+    {
+      final int nLen = s.length ();
+      int nWidth;
+      while (nEnd < nLen && (nWidth = _getCharMatchWidth (s, nEnd)) > 0)
+        nEnd += nWidth;
+    }
+    return nEnd;
+  }
+
+  /**
+   * Same as {@link Pattern#split(CharSequence, int)}
+   *
+   * @param sText
+   *        Text to split. May not be <code>null</code>.
+   * @param nLimit
+   *        The split limit
+   * @return The split result. Never <code>null</code>.
+   */
+  @Nonnull
+  public String [] split (@Nonnull final String sText, final int nLimit)
+  {
+    final boolean bMatchLimited = nLimit > 0;
+    final ICommonsList <String> aList = new CommonsArrayList <> ();
+    int nIndex = 0;
+    int nStart = _find (sText, 0);
+    while (nStart >= 0)
+    {
+      final int nEnd = _getMatchEnd (sText, nStart);
+      if (!bMatchLimited || aList.size () < nLimit - 1)
+      {
+        aList.add (sText.substring (nIndex, nStart));
+        nIndex = nEnd;
+      }
+      else
+      {
+        // Last one
+        aList.add (sText.substring (nIndex));
+        nIndex = nEnd;
+        break;
+      }
+      nStart = _find (sText, nEnd);
+    }
+
+    // No match found
+    if (nIndex == 0)
+      return new String [] { sText };
+
+    // Add remaining segment
+    if (!bMatchLimited || aList.size () < nLimit)
+      aList.add (sText.substring (nIndex));
+
+    int nResultSize = aList.size ();
+    if (nLimit == 0)
+      while (nResultSize > 0 && aList.get (nResultSize - 1).isEmpty ())
+        nResultSize--;
+    return aList.subList (0, nResultSize).toArray (new String [nResultSize]);
+  }
+
+  /**
+   * Same as {@link java.util.regex.Matcher#matches()}
+   *
+   * @param sValue
+   *        The value to match. May not be <code>null</code>.
+   * @return <code>true</code> if the whole value is matched
+   */
+  public boolean matches (@Nonnull final String sValue)
+  {
+    if (m_sLiteral != null)
+      return m_sLiteral.equals (sValue);
+    return sValue.length () > 0 && _getCharMatchWidth (sValue, 0) > 0 && _getMatchEnd (sValue, 0) == sValue.length ();
+  }
+
+  /**
+   * @param sReplacement
+   *        The replacement string to check. May not be <code>null</code>.
+   * @return <code>true</code> if the replacement string contains no group
+   *         references and no escapes and can therefore be used with
+   *         {@link #replaceAll(String, String)}.
+   */
+  public static boolean isPlainReplacement (@Nonnull final String sReplacement)
+  {
+    return sReplacement.indexOf ('$') < 0 && sReplacement.indexOf ('\\') < 0;
+  }
+
+  /**
+   * Same as {@link java.util.regex.Matcher#replaceAll(String)} for a
+   * replacement without group references.
+   *
+   * @param sValue
+   *        The value to replace in. May not be <code>null</code>.
+   * @param sReplacement
+   *        The plain replacement. May not be <code>null</code>.
+   * @return The value with all matches replaced
+   * @see #isPlainReplacement(String)
+   */
+  @Nonnull
+  public String replaceAll (@Nonnull final String sValue, @Nonnull final String sReplacement)
+  {
+    int nStart = _find (sValue, 0);
+    if (nStart < 0)
+      return sValue;
+
+    final StringBuilder aSB = new StringBuilder (sValue.length () + 16);
+    int nIndex = 0;
+    while (nStart >= 0)
+    {
+      final int nEnd = _getMatchEnd (sValue, nStart);
+      aSB.append (sValue, nIndex, nStart).append (sReplacement);
+      nIndex = nEnd;
+      nStart = _find (sValue, nEnd);
+    }
+    aSB.append (sValue, nIndex, sValue.length ());
+    return aSB.toString ();
+  }
+
+  /**
+   * @return The character represented by the passed char following a
+   *         backslash, or -1 if the escape sequence is not a single character.
+   */
+  private static int _getEscapedChar (final char c)
+  {
+    switch (c)
+    {
+      case 't':
+        return '\t';
+      case 'n':
+        return '\n';
+      case 'r':
+        return '\r';
+      case 'f':
+        return '\f';
+      case 'a':
+        return '\u0007';
+      case 'e':
+        return '\u001B';
+      default:
+        // Backslashes may be used prior to a non-alphabetic character
+        if (c < 128 && !Character.isLetterOrDigit (c))
+          return c;
+        return -1;
+    }
+  }
+
+  @Nullable
+  private static String _parseLiteral (@Nonnull final String sRegEx)
+  {
+    final int nLen = sRegEx.length ();
+    final StringBuilder aSB = new StringBuilder (nLen);
+    int i = 0;
+    while (i < nLen)
+    {
+      final char c = sRegEx.charAt (i);
+      if (c == '\\')
+      {
+        if (i + 1 >= nLen)
+          return null;
+        final char cNext = sRegEx.charAt (i + 1);
+        if (cNext == 'Q')
+        {
+          // Quoted until "\E" or until the end
+          final int nQuoteEnd = sRegEx.indexOf ("\\E", i + 2);
+          if (nQuoteEnd < 0)
+          {
+            aSB.append (sRegEx, i + 2, nLen);
+            i = nLen;
+          }
+          else
+          {
+            aSB.append (sRegEx, i + 2, nQuoteEnd);
+            i = nQuoteEnd + 2;
+          }
+          continue;
+        }
+        final int nEscaped = _getEscapedChar (cNext);
+        if (nEscaped < 0)
+          return null;
+        aSB.append ((char) nEscaped);
+        i += 2;
+      }
+      else
+      {
+        if (META_CHARS.indexOf (c) >= 0)
+          return null;
+        aSB.append (c);
+        i++;
+      }
+    }
+    return aSB.toString ();
+  }
+
+  private static void _setBit (@Nonnull final long [] aBits, final int c)
+  {
+    aBits[c >> 6] |= 1L << (c & 63);
+  }
+
+  private static void _setRange (@Nonnull final long [] aBits, final int cLow, final int cHigh)
+  {
+    for (int c = cLow; c <= cHigh; ++c)
+      _setBit (aBits, c);
+  }
+
+  /**
+   * Add a predefined character class without the
+   * {@link Pattern#UNICODE_CHARACTER_CLASS} option.
+   *
+   * @return <code>false</code> if the passed char is not a supported predefined
+   *         class
+   */
+  private static boolean _addPredefinedClass (@Nonnull final long [] aBits, final char c)
+  {
+    switch (Character.toLowerCase (c))
+    {
+      case 's':
+        _setBit (aBits, ' ');
+        _setRange (aBits, '\t', '\r');
+        return true;
+      case 'd':
+        _setRange (aBits, '0', '9');
+        return true;
+      case 'w':
+        _setRange (aBits, 'a', 'z');
+        _setRange (aBits, 'A', 'Z');
+        _setRange (aBits, '0', '9');
+        _setBit (aBits, '_');
+        return true;
+      default:
+        return false;
+    }
+  }
+
+  /**
+   * Parse a single char inside a bracket expression.
+   *
+   * @return The char or -1 if it is not a plain ASCII char.
+   */
+  private static int _parseClassChar (@Nonnull final String sRegEx, final int nIndex, final int nEnd)
+  {
+    final char c = sRegEx.charAt (nIndex);
+    if (c == '\\')
+      return nIndex + 1 < nEnd ? _getEscapedChar (sRegEx.charAt (nIndex + 1)) : -1;
+    if (c >= 128 || c == '[' || c == ']' || c == '&')
+      return -1;
+    return c;
+  }
+
+  @Nullable
+  private static RegExFastPath _parseCharClass (@Nonnull final String sRegEx)
+  {
+    final int nLen = sRegEx.length ();
+    final boolean bRepeated = nLen > 1 && sRegEx.charAt (nLen - 1) == '+';
+    final int nEnd = bRepeated ? nLen - 1 : nLen;
+    final long [] aBits = new long [2];
+    boolean bNegated = false;
+
+    final char c0 = sRegEx.charAt (0);
+    if (c0 == '[')
+    {
+      if (nEnd < 3 || sRegEx.charAt (nEnd - 1) != ']')
+        return null;
+      int i = 1;
+      final int nClassEnd = nEnd - 1;
+      if (sRegEx.charAt (i) == '^')
+      {
+        bNegated = true;
+        i++;
+      }
+      if (i >= nClassEnd)
+        return null;
+      final int nClassStart = i;
+      while (i < nClassEnd)
+      {
+        // A plain '-' is only unambiguous at the beginning or the end
+        if (sRegEx.charAt (i) == '-' && i != nClassStart && i != nClassEnd - 1)
+          return null;
+        if (sRegEx.charAt (i) == '\\' && i + 1 < nClassEnd && _addPredefinedClass (aBits, sRegEx.charAt (i + 1)))
+        {
+          // Only the positive predefined classes are supported inside brackets
+          if (Character.isUpperCase (sRegEx.charAt (i + 1)))
+            return null;
+          i += 2;
+          if (i + 1 < nClassEnd && sRegEx.charAt (i) == '-')
+            return null;
+          continue;
+        }
+
+        final int cLow = _parseClassChar (sRegEx, i, nClassEnd);
+        if (cLow < 0)
+          return null;
+        i += sRegEx.charAt (i) == '\\' ? 2 : 1;
+
+        if (i + 1 < nClassEnd && sRegEx.charAt (i) == '-')
+        {
+          // A range
+          final int cHigh = _parseClassChar (sRegEx, i + 1, nClassEnd);
+          if (cHigh < 0 || cHigh < cLow)
+            return null;
+          i += sRegEx.charAt (i + 1) == '\\' ? 3 : 2;
+          _setRange (aBits, cLow, cHigh);
+        }
+        else
+          _setBit (aBits, cLow);
+      }
+    }
+    else
+      if (c0 == '\\')
+      {
+        if (nEnd != 2)
+          return null;
+        final char c1 = sRegEx.charAt (1);
+        if (_addPredefinedClass (aBits, c1))
+          bNegated = Character.isUpperCase (c1);
+        else
+        {
+          final int c = _getEscapedChar (c1);
+          if (c < 0 || !bRepeated)
+            return null;
+          _setBit (aBits, c);
+        }
+      }
+      else
+      {
+        // Single repeated char like " +"
+        if (nEnd != 1 || !bRepeated || c0 >= 128 || META_CHARS.indexOf (c0) >= 0)
+          return null;
+        _setBit (aBits, c0);
+      }
+    return new RegExFastPath (null, aBits, bNegated, bRepeated);
+  }
+
+  /**
+   * Check if the passed regular expression can be handled without the regular
+   * expression engine.
+   *
+   * @param sRegEx
+   *        The regular expression. May neither be <code>null</code> nor empty.
+   * @param nOptions
+   *        The pattern compilation options.
+   * @return <code>null</code> if the regular expression engine is needed.
+   */
+  @Nullable
+  public static RegExFastPath createOrNull (@Nonnull final String sRegEx, final int nOptions)
+  {
+    if (nOptions == Pattern.LITERAL)
+      return _createLiteralOrNull (sRegEx);
+    if (nOptions != 0)
+      return null;
+
+    final String sLiteral = _parseLiteral (sRegEx);
+    if (sLiteral != null)
+      return _createLiteralOrNull (sLiteral);
+    return _parseCharClass (sRegEx);
+  }
+
+  @Nullable
+  private static RegExFastPath _createLiteralOrNull (@Nonnull final String sLiteral)
+  {
+    if (sLiteral.isEmpty ())
+      return null;
+    // The regular expression engine never matches parts of a surrogate pair
+    for (final char c : sLiteral.toCharArray ())
+      if (Character.isSurrogate (c))
+        return null;
+    return new RegExFastPath (sLiteral, new long [2], false, false);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (null).append ("Literal", m_sLiteral)
+                                       .append ("BitsLow", m_nBitsLow)
+                                       .append ("BitsHigh", m_nBitsHigh)
+                                       .append ("Negated", m_bNegated)
+                                       .append ("Repeated", m_bRepeated)
+                                       .getToString ();
+  }
+}
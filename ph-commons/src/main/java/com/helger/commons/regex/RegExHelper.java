@@ -35,7 +35,9 @@ import com.helger.commons.string.StringHelper;
 
 /**
  * This class offers helper methods that work on cached regular expression
- * pattern as offered by {@link RegExCache}.
+ * pattern as offered by {@link RegExCache}. Splitting, matching and replacing
+ * with literals and simple character classes does not use the regular
+ * expression engine.
  *
  * @author Philip Helger
  */
@@ -68,7 +70,7 @@ public final class RegExHelper
   {
     if (sText == null)
       return ArrayHelper.EMPTY_STRING_ARRAY;
-    return RegExCache.getPattern (sRegEx).split (sText);
+    return RegExCache.getRegExPattern (sRegEx).split (sText, 0);
   }
 
   /**
@@ -97,7 +99,7 @@ public final class RegExHelper
     ValueEnforcer.notNull (sRegEx, "RegEx");
     if (sText == null)
       return ArrayHelper.EMPTY_STRING_ARRAY;
-    return RegExCache.getPattern (sRegEx).split (sText, nLimit);
+    return RegExCache.getRegExPattern (sRegEx).split (sText, nLimit);
   }
 
   /**
@@ -205,7 +207,9 @@ public final class RegExHelper
    */
   public static boolean stringMatchesPattern (@Nonnull @RegEx final String sRegEx, @Nonnull final String sValue)
   {
-    return getMatcher (sRegEx, sValue).matches ();
+    ValueEnforcer.notNull (sValue, "Value");
+
+    return RegExCache.getRegExPattern (sRegEx).matches (sValue);
   }
 
   /**
@@ -227,7 +231,9 @@ public final class RegExHelper
                                               @Nonnegative final int nOptions,
                                               @Nonnull final String sValue)
   {
-    return getMatcher (sRegEx, nOptions, sValue).matches ();
+    ValueEnforcer.notNull (sValue, "Value");
+
+    return RegExCache.getRegExPattern (sRegEx, nOptions).matches (sValue);
   }
 
   @Nonnull
@@ -235,8 +241,10 @@ public final class RegExHelper
                                              @Nonnull final String sValue,
                                              @Nullable final String sReplacement)
   {
+    ValueEnforcer.notNull (sValue, "Value");
+
     // Avoid NPE on invalid replacement parameter
-    return getMatcher (sRegEx, sValue).replaceAll (StringHelper.getNotNull (sReplacement));
+    return RegExCache.getRegExPattern (sRegEx).replaceAll (sValue, StringHelper.getNotNull (sReplacement));
   }
 
   @Nonnull
@@ -245,8 +253,10 @@ public final class RegExHelper
                                              @Nonnull final String sValue,
                                              @Nullable final String sReplacement)
   {
+    ValueEnforcer.notNull (sValue, "Value");
+
     // Avoid NPE on invalid replacement parameter
-    return getMatcher (sRegEx, nOptions, sValue).replaceAll (StringHelper.getNotNull (sReplacement));
+    return RegExCache.getRegExPattern (sRegEx, nOptions).replaceAll (sValue, StringHelper.getNotNull (sReplacement));
   }
 
   /**
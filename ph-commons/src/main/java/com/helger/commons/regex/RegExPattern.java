@@ -23,8 +23,9 @@ import java.util.regex.PatternSyntaxException;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.RegEx;
-import javax.annotation.concurrent.NotThreadSafe;
+import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
@@ -34,11 +35,13 @@ import com.helger.commons.string.ToStringGenerator;
 
 /**
  * This class encapsulates a String and a set of options to be used in Pattern
- * compilation
+ * compilation. The compiled pattern and the fast path are determined lazily
+ * and safely published, so that cached instances can be shared between
+ * threads.
  *
  * @author Philip Helger
  */
-@NotThreadSafe
+@ThreadSafe
 public final class RegExPattern implements Serializable
 {
   private static final AtomicBoolean s_aCheckConsistencyEnabled = new AtomicBoolean (false);
@@ -47,7 +50,9 @@ public final class RegExPattern implements Serializable
   private final int m_nOptions;
 
   // Status vars
-  private transient Pattern m_aPattern;
+  private transient volatile Pattern m_aPattern;
+  private transient volatile RegExFastPath m_aFastPath;
+  private transient volatile boolean m_bFastPathChecked;
   private transient int m_nHashCode = IHashCodeGenerator.ILLEGAL_HASHCODE;
 
   public static boolean areDebugConsistencyChecksEnabled ()
@@ -165,6 +170,105 @@ public final class RegExPattern implements Serializable
     return ret;
   }
 
+  @Nullable
+  private RegExFastPath _getFastPath ()
+  {
+    if (!m_bFastPathChecked)
+    {
+      // Lazily initialize - the fast path is immutable and the flag is only
+      // set after the field was written, so races are harmless
+      m_aFastPath = RegExFastPath.createOrNull (m_sRegEx, m_nOptions);
+      m_bFastPathChecked = true;
+    }
+    return m_aFastPath;
+  }
+
+  /**
+   * @return <code>true</code> if this pattern can be evaluated without the
+   *         regular expression engine. This is the case for literals like
+   *         <code>"\\|"</code> or <code>"\\Q...\\E"</code> and for single
+   *         character classes of ASCII characters like <code>"[,;]"</code>,
+   *         <code>"\\s+"</code> or <code>"\\W"</code>.
+   * @since 9.1.0
+   */
+  public boolean isFastPath ()
+  {
+    return _getFastPath () != null;
+  }
+
+  /**
+   * @return <code>true</code> if this pattern is a plain literal without any
+   *         regular expression semantics.
+   * @see #isFastPath()
+   * @since 9.1.0
+   */
+  public boolean isLiteral ()
+  {
+    final RegExFastPath aFastPath = _getFastPath ();
+    return aFastPath != null && aFastPath.isLiteral ();
+  }
+
+  /**
+   * Split the passed text like {@link Pattern#split(CharSequence, int)}. If
+   * possible the regular expression engine is not used.
+   *
+   * @param aText
+   *        The text to be split. May not be <code>null</code>.
+   * @param nLimit
+   *        The result threshold as in {@link Pattern#split(CharSequence, int)}
+   * @return The split result. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public String [] split (@Nonnull final CharSequence aText, final int nLimit)
+  {
+    final RegExFastPath aFastPath = _getFastPath ();
+    if (aFastPath != null)
+      return aFastPath.split (aText.toString (), nLimit);
+    return getAsPattern ().split (aText, nLimit);
+  }
+
+  /**
+   * Check if the passed value matches this pattern completely like
+   * {@link java.util.regex.Matcher#matches()}. If possible the regular
+   * expression engine is not used.
+   *
+   * @param sValue
+   *        The value to be checked. May not be <code>null</code>.
+   * @return <code>true</code> if the value matches, <code>false</code>
+   *         otherwise.
+   * @since 9.1.0
+   */
+  public boolean matches (@Nonnull final String sValue)
+  {
+    final RegExFastPath aFastPath = _getFastPath ();
+    if (aFastPath != null)
+      return aFastPath.matches (sValue);
+    return getAsPattern ().matcher (sValue).matches ();
+  }
+
+  /**
+   * Replace all occurrences of this pattern in the passed value like
+   * {@link java.util.regex.Matcher#replaceAll(String)}. If possible the
+   * regular expression engine is not used.
+   *
+   * @param sValue
+   *        The value to replace in. May not be <code>null</code>.
+   * @param sReplacement
+   *        The replacement string. May contain group references. May not be
+   *        <code>null</code>.
+   * @return The resulting string. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public String replaceAll (@Nonnull final String sValue, @Nonnull final String sReplacement)
+  {
+    final RegExFastPath aFastPath = _getFastPath ();
+    if (aFastPath != null && RegExFastPath.isPlainReplacement (sReplacement))
+      return aFastPath.replaceAll (sValue, sReplacement);
+    return getAsPattern ().matcher (sValue).replaceAll (sReplacement);
+  }
+
   @Override
   public boolean equals (final Object o)
   {
@@ -16,180 +16,205 @@
  */
 package com.helger.commons.statistics;
 
-import java.io.Serializable;
 import java.math.BigInteger;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.Arrays;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.CGlobal;
 import com.helger.commons.annotation.ReturnsMutableCopy;
-import com.helger.commons.collection.impl.CommonsHashMap;
-import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsSet;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
-import com.helger.commons.string.ToStringGenerator;
 
 /**
- * Abstract base class for a keyed numeric statistic handler
+ * Abstract base class for a keyed numeric statistic handler. Adding values
+ * does not lock.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public abstract class AbstractStatisticsHandlerKeyedNumeric implements IStatisticsHandlerKeyedNumeric
 {
-  private static final class Value implements Serializable
-  {
-    private int m_nInvocationCount;
-    private long m_nMin;
-    private long m_nMax;
-    private BigInteger m_aSum;
-
-    public Value (final long nValue)
-    {
-      m_nInvocationCount = 1;
-      m_nMin = nValue;
-      m_nMax = nValue;
-      m_aSum = BigInteger.valueOf (nValue);
-    }
-
-    public void add (final long nValue)
-    {
-      m_nInvocationCount++;
-      if (nValue < m_nMin)
-        m_nMin = nValue;
-      if (nValue > m_nMax)
-        m_nMax = nValue;
-      m_aSum = m_aSum.add (BigInteger.valueOf (nValue));
-    }
-
-    @Nonnegative
-    public int getInvocationCount ()
-    {
-      return m_nInvocationCount;
-    }
-
-    @CheckForSigned
-    public long getMin ()
-    {
-      return m_nMin;
-    }
-
-    @CheckForSigned
-    public long getMax ()
-    {
-      return m_nMax;
-    }
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final ConcurrentHashMap <String, StatisticsNumericValue> m_aMap = new ConcurrentHashMap <> ();
+  // ConcurrentHashMap does not support null keys
+  private final AtomicReference <StatisticsNumericValue> m_aNullKeyValue = new AtomicReference <> ();
+  private final boolean m_bTrackInterval;
 
-    @Nonnull
-    public BigInteger getSum ()
-    {
-      return m_aSum;
-    }
-
-    @CheckForSigned
-    public long getAverage ()
-    {
-      return m_aSum.divide (BigInteger.valueOf (m_nInvocationCount)).longValue ();
-    }
-
-    @Override
-    public String toString ()
-    {
-      // No object ID needed for toString
-      return new ToStringGenerator (null).append ("invocations", m_nInvocationCount)
-                                         .append ("min", m_nMin)
-                                         .append ("max", m_nMax)
-                                         .append ("sum", m_aSum)
-                                         .getToString ();
-    }
+  public AbstractStatisticsHandlerKeyedNumeric ()
+  {
+    this (false);
   }
 
-  private final transient SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
-  private final AtomicInteger m_aInvocationCount = new AtomicInteger (0);
-  @GuardedBy ("m_aRWLock")
-  private final ICommonsMap <String, Value> m_aMap = new CommonsHashMap <> ();
+  /**
+   * Constructor
+   *
+   * @param bTrackInterval
+   *        <code>true</code> to additionally record all values per key in a
+   *        histogram that is reset upon reading.
+   * @since 9.1.0
+   */
+  protected AbstractStatisticsHandlerKeyedNumeric (final boolean bTrackInterval)
+  {
+    m_bTrackInterval = bTrackInterval;
+  }
 
   @Nonnegative
   public final int getInvocationCount ()
   {
-    return m_aInvocationCount.get ();
+    return m_aInvocationCount.intValue ();
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsSet <String> getAllKeys ()
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.copyOfKeySet ());
+    final ICommonsSet <String> ret = new CommonsHashSet <> (m_aMap.keySet ());
+    if (m_aNullKeyValue.get () != null)
+      ret.add (null);
+    return ret;
   }
 
-  protected final void addValue (@Nullable final String sKey, final long nValue)
+  @Override
+  public void forEachKey (@Nonnull final Consumer <? super String> aConsumer)
   {
-    m_aInvocationCount.incrementAndGet ();
+    m_aMap.keySet ().forEach (aConsumer);
+    if (m_aNullKeyValue.get () != null)
+      aConsumer.accept (null);
+  }
 
-    // Better performance when done manually
-    m_aRWLock.writeLock ().lock ();
-    try
-    {
-      final Value aValue = m_aMap.get (sKey);
-      if (aValue == null)
-        m_aMap.put (sKey, new Value (nValue));
-      else
-        aValue.add (nValue);
-    }
-    finally
+  @Nullable
+  private StatisticsNumericValue _get (@Nullable final String sKey)
+  {
+    return sKey == null ? m_aNullKeyValue.get () : m_aMap.get (sKey);
+  }
+
+  @Nonnull
+  private StatisticsNumericValue _getOrCreate (@Nullable final String sKey)
+  {
+    if (sKey == null)
     {
-      m_aRWLock.writeLock ().unlock ();
+      final StatisticsNumericValue aValue = m_aNullKeyValue.get ();
+      if (aValue != null)
+        return aValue;
+      m_aNullKeyValue.compareAndSet (null, new StatisticsNumericValue (m_bTrackInterval));
+      return m_aNullKeyValue.get ();
     }
+
+    // Avoid the locking of computeIfAbsent for existing keys
+    final StatisticsNumericValue aValue = m_aMap.get (sKey);
+    return aValue != null ? aValue : m_aMap.computeIfAbsent (sKey, k -> new StatisticsNumericValue (m_bTrackInterval));
+  }
+
+  protected final void addValue (@Nullable final String sKey, final long nValue)
+  {
+    m_aInvocationCount.increment ();
+    _getOrCreate (sKey).add (nValue);
   }
 
   @CheckForSigned
   public final int getInvocationCount (@Nullable final String sKey)
   {
-    return m_aRWLock.readLocked ( () -> {
-      final Value aValue = m_aMap.get (sKey);
-      return aValue == null ? CGlobal.ILLEGAL_UINT : aValue.getInvocationCount ();
-    });
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_UINT : aValue.getInvocationCount ();
   }
 
   @Nullable
   public final BigInteger getSum (@Nullable final String sKey)
   {
-    return m_aRWLock.readLocked ( () -> {
-      final Value aValue = m_aMap.get (sKey);
-      return aValue == null ? null : aValue.getSum ();
-    });
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? null : aValue.getSum ();
+  }
+
+  @Override
+  @CheckForSigned
+  public final long getSumAsLong (@Nullable final String sKey)
+  {
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getSumAsLong ();
   }
 
   @CheckForSigned
   public final long getMin (@Nullable final String sKey)
   {
-    return m_aRWLock.readLocked ( () -> {
-      final Value aValue = m_aMap.get (sKey);
-      return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMin ();
-    });
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMin ();
   }
 
   @CheckForSigned
   public final long getAverage (@Nullable final String sKey)
   {
-    return m_aRWLock.readLocked ( () -> {
-      final Value aValue = m_aMap.get (sKey);
-      return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getAverage ();
-    });
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getAverage ();
   }
 
   @CheckForSigned
   public long getMax (@Nullable final String sKey)
   {
-    return m_aRWLock.readLocked ( () -> {
-      final Value aValue = m_aMap.get (sKey);
-      return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMax ();
-    });
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getMax ();
+  }
+
+  @Override
+  @CheckForSigned
+  public final long getPercentile (@Nullable final String sKey, final double dPercentile)
+  {
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? CGlobal.ILLEGAL_ULONG : aValue.getPercentile (dPercentile);
+  }
+
+  @Override
+  public final void getPercentiles (@Nullable final String sKey,
+                                    @Nonnull final double [] aPercentiles,
+                                    @Nonnull final long [] aTarget)
+  {
+    final StatisticsNumericValue aValue = _get (sKey);
+    if (aValue == null)
+      Arrays.fill (aTarget, 0, aPercentiles.length, CGlobal.ILLEGAL_ULONG);
+    else
+      aValue.getPercentiles (aPercentiles, aTarget);
+  }
+
+  /**
+   * @param sKey
+   *        The key to be queried.
+   * @return A copy of the histogram of all values added for the provided key
+   *         or <code>null</code> if no such key exists.
+   * @since 9.1.0
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public final StatisticsHistogram getHistogram (@Nullable final String sKey)
+  {
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? null : aValue.getHistogram ();
+  }
+
+  /**
+   * Get the histogram of all values added for the provided key since the last
+   * call of this method for that key, and start a new interval.
+   *
+   * @param sKey
+   *        The key to be queried.
+   * @return The histogram of the last interval or <code>null</code> if no
+   *         such key exists.
+   * @throws IllegalStateException
+   *         If this handler does not track intervals
+   * @since 9.1.0
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  protected final StatisticsHistogram getIntervalHistogramAndReset (@Nullable final String sKey)
+  {
+    final StatisticsNumericValue aValue = _get (sKey);
+    return aValue == null ? null : aValue.getIntervalHistogramAndReset ();
   }
 }
@@ -23,73 +23,82 @@ import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
-import com.helger.commons.CGlobal;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
+import com.helger.commons.annotation.ReturnsMutableCopy;
 
 /**
- * Abstract base class for numeric statistic handler
+ * Abstract base class for numeric statistic handler. Adding values does not
+ * lock.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public abstract class AbstractStatisticsHandlerNumeric implements IStatisticsHandlerNumeric
 {
-  private final transient SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
-  private int m_nInvocationCount = 0;
-  private long m_nMin = CGlobal.ILLEGAL_ULONG;
-  private long m_nMax = CGlobal.ILLEGAL_ULONG;
-  private BigInteger m_aSum = BigInteger.ZERO;
+  private final StatisticsNumericValue m_aValue = new StatisticsNumericValue (false);
 
   @Nonnegative
   public final int getInvocationCount ()
   {
-    return m_aRWLock.readLocked ( () -> m_nInvocationCount);
+    return m_aValue.getInvocationCount ();
   }
 
   protected final void addValue (final long nValue)
   {
-    // Better performance when done manually
-    m_aRWLock.writeLock ().lock ();
-    try
-    {
-      m_nInvocationCount++;
-      if (m_nMin == CGlobal.ILLEGAL_ULONG || nValue < m_nMin)
-        m_nMin = nValue;
-      if (m_nMax == CGlobal.ILLEGAL_ULONG || nValue > m_nMax)
-        m_nMax = nValue;
-      m_aSum = m_aSum.add (BigInteger.valueOf (nValue));
-    }
-    finally
-    {
-      m_aRWLock.writeLock ().unlock ();
-    }
+    m_aValue.add (nValue);
   }
 
   @Nonnull
   public final BigInteger getSum ()
   {
-    return m_aRWLock.readLocked ( () -> m_aSum);
+    return m_aValue.getSum ();
+  }
+
+  @Override
+  public final long getSumAsLong ()
+  {
+    return m_aValue.getSumAsLong ();
   }
 
   @CheckForSigned
   public final long getMin ()
   {
-    return m_aRWLock.readLocked ( () -> m_nMin);
+    return m_aValue.getMin ();
   }
 
   @CheckForSigned
   public final long getAverage ()
   {
-    return m_aRWLock.readLocked ( () -> {
-      if (m_nInvocationCount == 0)
-        return CGlobal.ILLEGAL_ULONG;
-      return m_aSum.divide (BigInteger.valueOf (m_nInvocationCount)).longValue ();
-    });
+    return m_aValue.getAverage ();
   }
 
   @CheckForSigned
   public long getMax ()
   {
-    return m_aRWLock.readLocked ( () -> m_nMax);
+    return m_aValue.getMax ();
+  }
+
+  @Override
+  @CheckForSigned
+  public final long getPercentile (final double dPercentile)
+  {
+    return m_aValue.getPercentile (dPercentile);
+  }
+
+  @Override
+  public final void getPercentiles (@Nonnull final double [] aPercentiles, @Nonnull final long [] aTarget)
+  {
+    m_aValue.getPercentiles (aPercentiles, aTarget);
+  }
+
+  /**
+   * @return A copy of the histogram of all values added so far. Never
+   *         <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final StatisticsHistogram getHistogram ()
+  {
+    return m_aValue.getHistogram ();
   }
 }
@@ -17,7 +17,7 @@
 package com.helger.commons.statistics;
 
 /**
- * Statistics handler for cache hit/miss
+ * Statistics handler for cache hit/miss/eviction
  *
  * @author Philip Helger
  */
@@ -32,4 +32,13 @@ public interface IMutableStatisticsHandlerCache extends IStatisticsHandlerCache
    * Called when a cache miss occurred.
    */
   void cacheMiss ();
+
+  /**
+   * Called when an entry was evicted from the cache because of size
+   * constraints. By default evictions are not tracked.
+   *
+   * @since 9.1.0
+   */
+  default void cacheEviction ()
+  {}
 }
@@ -19,7 +19,7 @@ package com.helger.commons.statistics;
 import javax.annotation.Nonnegative;
 
 /**
- * Read-only statistics handler for cache hit/miss
+ * Read-only statistics handler for cache hit/miss/eviction
  *
  * @author Philip Helger
  */
@@ -30,4 +30,16 @@ public interface IStatisticsHandlerCache extends IStatisticsHandler
 
   @Nonnegative
   int getMisses ();
+
+  /**
+   * @return The number of entries that were evicted from the cache because of
+   *         size constraints. Always 0 for implementations that do not track
+   *         evictions.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  default int getEvictions ()
+  {
+    return 0;
+  }
 }
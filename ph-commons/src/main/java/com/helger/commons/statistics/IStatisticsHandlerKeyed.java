@@ -16,6 +16,8 @@
  */
 package com.helger.commons.statistics;
 
+import java.util.function.Consumer;
+
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -49,4 +51,17 @@ public interface IStatisticsHandlerKeyed extends IStatisticsHandler
    */
   @CheckForSigned
   int getInvocationCount (@Nullable String sKey);
+
+  /**
+   * Invoke the provided consumer for all keys that have a value assigned.
+   * Implementations may do this without copying the keys.
+   *
+   * @param aConsumer
+   *        The consumer to invoke. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  default void forEachKey (@Nonnull final Consumer <? super String> aConsumer)
+  {
+    getAllKeys ().forEach (aConsumer);
+  }
 }
@@ -19,8 +19,11 @@ package com.helger.commons.statistics;
 import java.math.BigInteger;
 
 import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
+import com.helger.commons.CGlobal;
+
 /**
  * Base interface for size and timer handler.
  *
@@ -37,6 +40,23 @@ public interface IStatisticsHandlerKeyedNumeric extends IStatisticsHandlerKeyed
   @Nullable
   BigInteger getSum (@Nullable String sKey);
 
+  /**
+   * @param sKey
+   *        The key to be queried.
+   * @return The sum of aggregated values as a <code>long</code> without
+   *         creating an object. If the sum exceeds the range of a
+   *         <code>long</code>, {@link Long#MAX_VALUE} or {@link Long#MIN_VALUE}
+   *         is returned. Returns {@link com.helger.commons.CGlobal#ILLEGAL_ULONG}
+   *         if no such key exists.
+   * @since 9.1.0
+   */
+  @CheckForSigned
+  default long getSumAsLong (@Nullable final String sKey)
+  {
+    final BigInteger aSum = getSum (sKey);
+    return aSum == null ? CGlobal.ILLEGAL_ULONG : StatisticsNumericValue.getSaturatedLong (aSum);
+  }
+
   /**
    * @param sKey
    *        The key to be queried.
@@ -66,4 +86,45 @@ public interface IStatisticsHandlerKeyedNumeric extends IStatisticsHandlerKeyed
    */
   @CheckForSigned
   long getMax (@Nullable String sKey);
+
+  /**
+   * Get an approximation of a percentile of all values of a key, e.g. 99 for
+   * the value that 99% of all values are less or equal to.
+   *
+   * @param sKey
+   *        The key to be queried.
+   * @param dPercentile
+   *        The percentile to query. Must be between 0 and 100.
+   * @return The value at the provided percentile. Returns
+   *         {@link com.helger.commons.CGlobal#ILLEGAL_ULONG} if no such key
+   *         exists or if percentiles are not supported.
+   * @since 9.1.0
+   */
+  @CheckForSigned
+  default long getPercentile (@Nullable final String sKey, final double dPercentile)
+  {
+    return CGlobal.ILLEGAL_ULONG;
+  }
+
+  /**
+   * Get multiple percentiles of a key at once.
+   *
+   * @param sKey
+   *        The key to be queried.
+   * @param aPercentiles
+   *        The percentiles to query in ascending order. May not be
+   *        <code>null</code>.
+   * @param aTarget
+   *        The array to write the values to, at the same index as the
+   *        percentile. Must be at least as long as the percentile array.
+   * @see #getPercentile(String, double)
+   * @since 9.1.0
+   */
+  default void getPercentiles (@Nullable final String sKey,
+                               @Nonnull final double [] aPercentiles,
+                               @Nonnull final long [] aTarget)
+  {
+    for (int i = 0; i < aPercentiles.length; ++i)
+      aTarget[i] = getPercentile (sKey, aPercentiles[i]);
+  }
 }
@@ -21,6 +21,8 @@ import java.math.BigInteger;
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnull;
 
+import com.helger.commons.CGlobal;
+
 /**
  * Base interface for size and timer handler.
  *
@@ -34,6 +36,18 @@ public interface IStatisticsHandlerNumeric extends IStatisticsHandler
   @Nonnull
   BigInteger getSum ();
 
+  /**
+   * @return The sum of aggregated values as a <code>long</code> without
+   *         creating an object. If the sum exceeds the range of a
+   *         <code>long</code>, {@link Long#MAX_VALUE} or {@link Long#MIN_VALUE}
+   *         is returned.
+   * @since 9.1.0
+   */
+  default long getSumAsLong ()
+  {
+    return StatisticsNumericValue.getSaturatedLong (getSum ());
+  }
+
   /**
    * @return The smallest value. Returns
    *         {@link com.helger.commons.CGlobal#ILLEGAL_ULONG} if the invocation
@@ -57,4 +71,39 @@ public interface IStatisticsHandlerNumeric extends IStatisticsHandler
    */
   @CheckForSigned
   long getMax ();
+
+  /**
+   * Get an approximation of a percentile of all values, e.g. 99 for the value
+   * that 99% of all values are less or equal to.
+   *
+   * @param dPercentile
+   *        The percentile to query. Must be between 0 and 100.
+   * @return The value at the provided percentile. Returns
+   *         {@link com.helger.commons.CGlobal#ILLEGAL_ULONG} if the invocation
+   *         count is 0 or if percentiles are not supported.
+   * @since 9.1.0
+   */
+  @CheckForSigned
+  default long getPercentile (final double dPercentile)
+  {
+    return CGlobal.ILLEGAL_ULONG;
+  }
+
+  /**
+   * Get multiple percentiles at once.
+   *
+   * @param aPercentiles
+   *        The percentiles to query in ascending order. May not be
+   *        <code>null</code>.
+   * @param aTarget
+   *        The array to write the values to, at the same index as the
+   *        percentile. Must be at least as long as the percentile array.
+   * @see #getPercentile(double)
+   * @since 9.1.0
+   */
+  default void getPercentiles (@Nonnull final double [] aPercentiles, @Nonnull final long [] aTarget)
+  {
+    for (int i = 0; i < aPercentiles.length; ++i)
+      aTarget[i] = getPercentile (aPercentiles[i]);
+  }
 }
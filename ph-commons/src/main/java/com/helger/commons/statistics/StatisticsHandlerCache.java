@@ -16,21 +16,23 @@
  */
 package com.helger.commons.statistics;
 
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * Default implementation of {@link IMutableStatisticsHandlerCache}
+ * Default implementation of {@link IMutableStatisticsHandlerCache}. The values
+ * are striped, so that concurrent cache accesses don't contend.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public class StatisticsHandlerCache implements IMutableStatisticsHandlerCache
 {
-  private final AtomicInteger m_aHits = new AtomicInteger ();
-  private final AtomicInteger m_aMisses = new AtomicInteger ();
+  private final LongAdder m_aHits = new LongAdder ();
+  private final LongAdder m_aMisses = new LongAdder ();
+  private final LongAdder m_aEvictions = new LongAdder ();
 
   @Nonnegative
   public int getInvocationCount ()
@@ -40,12 +42,18 @@ public class StatisticsHandlerCache implements IMutableStatisticsHandlerCache
 
   public void cacheHit ()
   {
-    m_aHits.incrementAndGet ();
+    m_aHits.increment ();
   }
 
   public void cacheMiss ()
   {
-    m_aMisses.incrementAndGet ();
+    m_aMisses.increment ();
+  }
+
+  @Override
+  public void cacheEviction ()
+  {
+    m_aEvictions.increment ();
   }
 
   @Nonnegative
@@ -59,4 +67,11 @@ public class StatisticsHandlerCache implements IMutableStatisticsHandlerCache
   {
     return m_aMisses.intValue ();
   }
+
+  @Override
+  @Nonnegative
+  public int getEvictions ()
+  {
+    return m_aEvictions.intValue ();
+  }
 }
@@ -16,23 +16,23 @@
  */
 package com.helger.commons.statistics;
 
-import java.util.concurrent.atomic.AtomicInteger;
-import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
 
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnegative;
 import javax.annotation.concurrent.ThreadSafe;
 
 /**
- * Default implementation of {@link IMutableStatisticsHandlerCounter}
+ * Default implementation of {@link IMutableStatisticsHandlerCounter}. The
+ * values are striped, so that concurrent updates don't contend.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public class StatisticsHandlerCounter implements IMutableStatisticsHandlerCounter
 {
-  private final AtomicInteger m_aInvocationCount = new AtomicInteger ();
-  private final AtomicLong m_aCount = new AtomicLong ();
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final LongAdder m_aCount = new LongAdder ();
 
   @Nonnegative
   public int getInvocationCount ()
@@ -43,18 +43,18 @@ public class StatisticsHandlerCounter implements IMutableStatisticsHandlerCounte
   @CheckForSigned
   public long getCount ()
   {
-    return m_aCount.longValue ();
+    return m_aCount.sum ();
   }
 
   public void increment ()
   {
-    m_aInvocationCount.incrementAndGet ();
-    m_aCount.incrementAndGet ();
+    m_aInvocationCount.increment ();
+    m_aCount.increment ();
   }
 
   public void increment (final long nByHowMany)
   {
-    m_aInvocationCount.incrementAndGet ();
-    m_aCount.addAndGet (nByHowMany);
+    m_aInvocationCount.increment ();
+    m_aCount.add (nByHowMany);
   }
 }
@@ -17,73 +17,69 @@
 package com.helger.commons.statistics;
 
 import java.io.Serializable;
-import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Consumer;
 
 import javax.annotation.CheckForSigned;
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
-import javax.annotation.concurrent.NotThreadSafe;
 import javax.annotation.concurrent.ThreadSafe;
 
 import com.helger.commons.CGlobal;
 import com.helger.commons.annotation.ReturnsMutableCopy;
-import com.helger.commons.collection.impl.CommonsHashMap;
-import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsSet;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.string.ToStringGenerator;
 
 /**
- * Default implementation of {@link IMutableStatisticsHandlerKeyedCounter}
+ * Default implementation of {@link IMutableStatisticsHandlerKeyedCounter}.
+ * Incrementing does not lock.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public class StatisticsHandlerKeyedCounter implements IMutableStatisticsHandlerKeyedCounter
 {
-  @NotThreadSafe
+  @ThreadSafe
   private static final class Value implements Serializable
   {
-    private int m_nInvocationCount;
-    private long m_nCount;
-
-    public Value (final long nInitialValue)
-    {
-      m_nInvocationCount = 1;
-      m_nCount = nInitialValue;
-    }
+    private final LongAdder m_aInvocationCount = new LongAdder ();
+    private final LongAdder m_aCount = new LongAdder ();
 
     public void increment (final long nByHowMany)
     {
-      m_nInvocationCount++;
-      m_nCount += nByHowMany;
+      m_aCount.add (nByHowMany);
+      m_aInvocationCount.increment ();
     }
 
     @Nonnegative
     public int getInvocationCount ()
     {
-      return m_nInvocationCount;
+      return m_aInvocationCount.intValue ();
     }
 
     public long getCount ()
     {
-      return m_nCount;
+      return m_aCount.sum ();
     }
 
     @Override
     public String toString ()
     {
       // No object needed for ctor
-      return new ToStringGenerator (null).append ("invocations", m_nInvocationCount)
-                                         .append ("count", m_nCount)
+      return new ToStringGenerator (null).append ("invocations", getInvocationCount ())
+                                         .append ("count", getCount ())
                                          .getToString ();
     }
   }
 
-  private final transient SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
-  private final AtomicInteger m_aInvocationCount = new AtomicInteger ();
-  private final ICommonsMap <String, Value> m_aMap = new CommonsHashMap<> ();
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final ConcurrentHashMap <String, Value> m_aMap = new ConcurrentHashMap <> ();
+  // ConcurrentHashMap does not support null keys
+  private final AtomicReference <Value> m_aNullKeyValue = new AtomicReference <> ();
 
   @Nonnegative
   public int getInvocationCount ()
@@ -91,6 +87,37 @@ public class StatisticsHandlerKeyedCounter implements IMutableStatisticsHandlerK
     return m_aInvocationCount.intValue ();
   }
 
+  @Override
+  public void forEachKey (@Nonnull final Consumer <? super String> aConsumer)
+  {
+    m_aMap.keySet ().forEach (aConsumer);
+    if (m_aNullKeyValue.get () != null)
+      aConsumer.accept (null);
+  }
+
+  @Nullable
+  private Value _get (@Nullable final String sKey)
+  {
+    return sKey == null ? m_aNullKeyValue.get () : m_aMap.get (sKey);
+  }
+
+  @Nonnull
+  private Value _getOrCreate (@Nullable final String sKey)
+  {
+    if (sKey == null)
+    {
+      final Value aValue = m_aNullKeyValue.get ();
+      if (aValue != null)
+        return aValue;
+      m_aNullKeyValue.compareAndSet (null, new Value ());
+      return m_aNullKeyValue.get ();
+    }
+
+    // Avoid the locking of computeIfAbsent for existing keys
+    final Value aValue = m_aMap.get (sKey);
+    return aValue != null ? aValue : m_aMap.computeIfAbsent (sKey, k -> new Value ());
+  }
+
   public void increment (@Nullable final String sKey)
   {
     increment (sKey, 1L);
@@ -98,38 +125,31 @@ public class StatisticsHandlerKeyedCounter implements IMutableStatisticsHandlerK
 
   public void increment (@Nullable final String sKey, final long nByHowMany)
   {
-    m_aInvocationCount.incrementAndGet ();
-    m_aRWLock.writeLocked ( () -> {
-      final Value aPerKey = m_aMap.get (sKey);
-      if (aPerKey == null)
-        m_aMap.put (sKey, new Value (nByHowMany));
-      else
-        aPerKey.increment (nByHowMany);
-    });
+    m_aInvocationCount.increment ();
+    _getOrCreate (sKey).increment (nByHowMany);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public ICommonsSet <String> getAllKeys ()
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.copyOfKeySet ());
+    final ICommonsSet <String> ret = new CommonsHashSet <> (m_aMap.keySet ());
+    if (m_aNullKeyValue.get () != null)
+      ret.add (null);
+    return ret;
   }
 
   @CheckForSigned
   public long getCount (@Nullable final String sKey)
   {
-    return m_aRWLock.readLocked ( () -> {
-      final Value aCount = m_aMap.get (sKey);
-      return aCount == null ? CGlobal.ILLEGAL_ULONG : aCount.getCount ();
-    });
+    final Value aCount = _get (sKey);
+    return aCount == null ? CGlobal.ILLEGAL_ULONG : aCount.getCount ();
   }
 
   @CheckForSigned
   public int getInvocationCount (@Nullable final String sKey)
   {
-    return m_aRWLock.readLocked ( () -> {
-      final Value aCount = m_aMap.get (sKey);
-      return aCount == null ? CGlobal.ILLEGAL_UINT : aCount.getInvocationCount ();
-    });
+    final Value aCount = _get (sKey);
+    return aCount == null ? CGlobal.ILLEGAL_UINT : aCount.getInvocationCount ();
   }
 }
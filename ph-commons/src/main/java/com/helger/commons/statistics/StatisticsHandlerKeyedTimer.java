@@ -17,14 +17,21 @@
 package com.helger.commons.statistics;
 
 import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+
 /**
- * Default implementation of {@link IMutableStatisticsHandlerKeyedTimer}
+ * Default implementation of {@link IMutableStatisticsHandlerKeyedTimer}.
+ * Optionally the times of each key are additionally recorded per interval, and
+ * the interval is restarted each time it is read.
  *
  * @author Philip Helger
  */
@@ -34,6 +41,24 @@ public class StatisticsHandlerKeyedTimer extends AbstractStatisticsHandlerKeyedN
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (StatisticsHandlerKeyedTimer.class);
 
+  public StatisticsHandlerKeyedTimer ()
+  {
+    this (false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param bTrackInterval
+   *        <code>true</code> to additionally record the times per key and
+   *        interval, so that {@link #getIntervalSnapshot(String)} can be used.
+   * @since 9.1.0
+   */
+  public StatisticsHandlerKeyedTimer (final boolean bTrackInterval)
+  {
+    super (bTrackInterval);
+  }
+
   public void addTime (@Nullable final String sKey, @Nonnegative final long nMillis)
   {
     if (nMillis < 0)
@@ -45,4 +70,43 @@ public class StatisticsHandlerKeyedTimer extends AbstractStatisticsHandlerKeyedN
                       getClass ().getName ());
     addValue (sKey, nMillis);
   }
+
+  /**
+   * Get the times of the provided key since the last snapshot of this key and
+   * start a new interval for this key.
+   *
+   * @param sKey
+   *        The key to be queried.
+   * @return The histogram of the last interval or <code>null</code> if no
+   *         such key exists.
+   * @throws IllegalStateException
+   *         If this handler was created without interval tracking.
+   * @since 9.1.0
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public StatisticsHistogram getIntervalSnapshot (@Nullable final String sKey)
+  {
+    return getIntervalHistogramAndReset (sKey);
+  }
+
+  /**
+   * Get the times of all keys since their last snapshot and start a new
+   * interval for all keys.
+   *
+   * @return A map from key to the histogram of the last interval. Never
+   *         <code>null</code>.
+   * @throws IllegalStateException
+   *         If this handler was created without interval tracking.
+   * @since 9.1.0
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsMap <String, StatisticsHistogram> getAllIntervalSnapshots ()
+  {
+    final ICommonsMap <String, StatisticsHistogram> ret = new CommonsHashMap <> ();
+    for (final String sKey : getAllKeys ())
+      ret.put (sKey, getIntervalHistogramAndReset (sKey));
+    return ret;
+  }
 }
@@ -0,0 +1,270 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.io.Serializable;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A histogram with log-linear buckets, similar to an HdrHistogram: each power
+ * of two range is split into {@value #SUB_BUCKET_COUNT} linear sub-buckets, so
+ * that the relative error of a reported value is at most 6.25%, independent of
+ * its magnitude. The buckets of a power of two range are only allocated when the
+ * first value of that range is recorded, so that an unused histogram only
+ * occupies a few hundred bytes. Apart from that, recording a value is a single
+ * atomic increment.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@ThreadSafe
+public final class StatisticsHistogram implements Serializable
+{
+  /** The percentiles that are usually of interest */
+  public static final double [] DEFAULT_PERCENTILES = new double [] { 50, 90, 99, 99.9 };
+
+  private static final int SUB_BUCKET_BITS = 4;
+  /** The number of linear sub-buckets per power of two */
+  public static final int SUB_BUCKET_COUNT = 1 << SUB_BUCKET_BITS;
+  private static final int GROUP_COUNT = Long.SIZE - SUB_BUCKET_BITS;
+  private static final int BUCKET_COUNT = GROUP_COUNT * SUB_BUCKET_COUNT;
+
+  // One group of sub-buckets per power of two, allocated upon first use
+  private final AtomicReferenceArray <AtomicLongArray> m_aGroups = new AtomicReferenceArray <> (GROUP_COUNT);
+
+  public StatisticsHistogram ()
+  {}
+
+  static int getBucketIndex (final long nValue)
+  {
+    if (nValue < SUB_BUCKET_COUNT)
+      return (int) nValue;
+    final int nShift = Long.SIZE - 1 - Long.numberOfLeadingZeros (nValue) - SUB_BUCKET_BITS;
+    final int nSubBucket = (int) (nValue >>> nShift) - SUB_BUCKET_COUNT;
+    return (nShift + 1) * SUB_BUCKET_COUNT + nSubBucket;
+  }
+
+  static long getLowestValueOfBucket (final int nIndex)
+  {
+    if (nIndex < SUB_BUCKET_COUNT)
+      return nIndex;
+    final int nShift = nIndex / SUB_BUCKET_COUNT - 1;
+    final long nSubBucket = nIndex % SUB_BUCKET_COUNT + SUB_BUCKET_COUNT;
+    return nSubBucket << nShift;
+  }
+
+  static long getHighestValueOfBucket (final int nIndex)
+  {
+    if (nIndex == BUCKET_COUNT - 1)
+      return Long.MAX_VALUE;
+    return getLowestValueOfBucket (nIndex + 1) - 1;
+  }
+
+  @Nonnull
+  private AtomicLongArray _getOrCreateGroup (final int nGroup)
+  {
+    final AtomicLongArray aGroup = m_aGroups.get (nGroup);
+    if (aGroup != null)
+      return aGroup;
+    m_aGroups.compareAndSet (nGroup, null, new AtomicLongArray (SUB_BUCKET_COUNT));
+    return m_aGroups.get (nGroup);
+  }
+
+  private long _getCount (final int nIndex)
+  {
+    final AtomicLongArray aGroup = m_aGroups.get (nIndex / SUB_BUCKET_COUNT);
+    return aGroup == null ? 0 : aGroup.get (nIndex % SUB_BUCKET_COUNT);
+  }
+
+  /**
+   * Record a single value.
+   *
+   * @param nValue
+   *        The value to record. Negative values are recorded as 0.
+   */
+  public void record (final long nValue)
+  {
+    final int nIndex = getBucketIndex (Math.max (nValue, 0));
+    _getOrCreateGroup (nIndex / SUB_BUCKET_COUNT).incrementAndGet (nIndex % SUB_BUCKET_COUNT);
+  }
+
+  /**
+   * @return The number of recorded values. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getTotalCount ()
+  {
+    long ret = 0;
+    for (int nGroup = 0; nGroup < GROUP_COUNT; ++nGroup)
+    {
+      final AtomicLongArray aGroup = m_aGroups.get (nGroup);
+      if (aGroup != null)
+        for (int i = 0; i < SUB_BUCKET_COUNT; ++i)
+          ret += aGroup.get (i);
+    }
+    return ret;
+  }
+
+  /**
+   * Get the value at the provided percentile. The returned value is the
+   * highest value that is equivalent to the real value within the precision of
+   * this histogram.
+   *
+   * @param dPercentile
+   *        The percentile to query. Must be between 0 and 100.
+   * @return The value at the provided percentile or
+   *         {@link CGlobal#ILLEGAL_ULONG} if no value was recorded.
+   */
+  @CheckForSigned
+  public long getValueAtPercentile (final double dPercentile)
+  {
+    final long [] aResult = new long [1];
+    getValuesAtPercentiles (new double [] { dPercentile }, aResult);
+    return aResult[0];
+  }
+
+  /**
+   * Get the values at multiple percentiles at once, without allocating
+   * memory.
+   *
+   * @param aPercentiles
+   *        The percentiles to query in ascending order. Each must be between 0
+   *        and 100. May not be <code>null</code>.
+   * @param aTarget
+   *        The array to write the values to, at the same index as the
+   *        percentile. Each value is {@link CGlobal#ILLEGAL_ULONG} if no value
+   *        was recorded. Must be at least as long as the percentile array.
+   * @see #getValueAtPercentile(double)
+   */
+  public void getValuesAtPercentiles (@Nonnull final double [] aPercentiles, @Nonnull final long [] aTarget)
+  {
+    ValueEnforcer.notNull (aPercentiles, "Percentiles");
+    ValueEnforcer.notNull (aTarget, "Target");
+    ValueEnforcer.isTrue (aTarget.length >= aPercentiles.length, "Target array is too small");
+
+    final long nTotal = getTotalCount ();
+    int nPercentileIndex = 0;
+    if (nTotal > 0)
+    {
+      // Values recorded in the meantime are only considered in parts
+      long nSum = 0;
+      int nLastNonEmpty = -1;
+      for (int i = 0; i < BUCKET_COUNT && nPercentileIndex < aPercentiles.length; ++i)
+      {
+        final long nCount = _getCount (i);
+        if (nCount == 0)
+          continue;
+        nSum += nCount;
+        nLastNonEmpty = i;
+        while (nPercentileIndex < aPercentiles.length && nSum >= _getRank (aPercentiles[nPercentileIndex], nTotal))
+          aTarget[nPercentileIndex++] = getHighestValueOfBucket (i);
+      }
+
+      // Can only happen if the histogram was reset concurrently
+      while (nPercentileIndex < aPercentiles.length && nLastNonEmpty >= 0)
+        aTarget[nPercentileIndex++] = getHighestValueOfBucket (nLastNonEmpty);
+    }
+    while (nPercentileIndex < aPercentiles.length)
+      aTarget[nPercentileIndex++] = CGlobal.ILLEGAL_ULONG;
+  }
+
+  private static long _getRank (final double dPercentile, final long nTotal)
+  {
+    ValueEnforcer.isBetweenInclusive (dPercentile, "Percentile", 0, 100);
+    return Math.max (1, (long) Math.ceil (dPercentile / 100 * nTotal));
+  }
+
+  /**
+   * @return A copy of this histogram. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public StatisticsHistogram getClone ()
+  {
+    final StatisticsHistogram ret = new StatisticsHistogram ();
+    for (int nGroup = 0; nGroup < GROUP_COUNT; ++nGroup)
+    {
+      final AtomicLongArray aGroup = m_aGroups.get (nGroup);
+      if (aGroup != null)
+      {
+        final AtomicLongArray aTargetGroup = new AtomicLongArray (SUB_BUCKET_COUNT);
+        for (int i = 0; i < SUB_BUCKET_COUNT; ++i)
+          aTargetGroup.set (i, aGroup.get (i));
+        ret.m_aGroups.set (nGroup, aTargetGroup);
+      }
+    }
+    return ret;
+  }
+
+  /**
+   * Get a copy of this histogram and reset this histogram in one step. Values
+   * recorded concurrently are either contained in the result or remain in this
+   * histogram, so that no value is lost.
+   *
+   * @return A copy of this histogram. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public StatisticsHistogram getCloneAndReset ()
+  {
+    final StatisticsHistogram ret = new StatisticsHistogram ();
+    for (int nGroup = 0; nGroup < GROUP_COUNT; ++nGroup)
+    {
+      // Groups stay allocated, as the range is likely to be used again
+      final AtomicLongArray aGroup = m_aGroups.get (nGroup);
+      if (aGroup != null)
+        for (int i = 0; i < SUB_BUCKET_COUNT; ++i)
+          if (aGroup.get (i) != 0)
+            ret._getOrCreateGroup (nGroup).set (i, aGroup.getAndSet (i, 0));
+    }
+    return ret;
+  }
+
+  /**
+   * Remove all recorded values.
+   */
+  public void reset ()
+  {
+    for (int nGroup = 0; nGroup < GROUP_COUNT; ++nGroup)
+    {
+      final AtomicLongArray aGroup = m_aGroups.get (nGroup);
+      if (aGroup != null)
+        for (int i = 0; i < SUB_BUCKET_COUNT; ++i)
+          aGroup.set (i, 0);
+    }
+  }
+
+  @Override
+  public String toString ()
+  {
+    final ToStringGenerator aTSG = new ToStringGenerator (this).append ("TotalCount", getTotalCount ());
+    for (final double dPercentile : DEFAULT_PERCENTILES)
+      aTSG.append ("p" + dPercentile, getValueAtPercentile (dPercentile));
+    return aTSG.getToString ();
+  }
+}
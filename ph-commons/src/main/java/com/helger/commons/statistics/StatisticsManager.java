@@ -16,6 +16,9 @@
  */
 package com.helger.commons.statistics;
 
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.ThreadSafe;
 
@@ -26,33 +29,25 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.annotation.ReturnsMutableCopy;
-import com.helger.commons.collection.impl.CommonsHashMap;
-import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsSet;
-import com.helger.commons.concurrent.SimpleReadWriteLock;
 
 /**
- * Provides a central manager for the internal statistics.
+ * Provides a central manager for the internal statistics. Looking up existing
+ * handlers does not lock.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public final class StatisticsManager
 {
-  private static final SimpleReadWriteLock s_aRWLockCache = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockTimer = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockKeyedTimer = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockSize = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockKeyedSize = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockCounter = new SimpleReadWriteLock ();
-  private static final SimpleReadWriteLock s_aRWLockKeyedCounter = new SimpleReadWriteLock ();
-  private static final ICommonsMap <String, StatisticsHandlerCache> s_aHdlCache = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerTimer> s_aHdlTimer = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedTimer> s_aHdlKeyedTimer = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerSize> s_aHdlSize = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedSize> s_aHdlKeyedSize = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerCounter> s_aHdlCounter = new CommonsHashMap <> ();
-  private static final ICommonsMap <String, StatisticsHandlerKeyedCounter> s_aHdlKeyedCounter = new CommonsHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerCache> s_aHdlCache = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerTimer> s_aHdlTimer = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerKeyedTimer> s_aHdlKeyedTimer = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerSize> s_aHdlSize = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerKeyedSize> s_aHdlKeyedSize = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerCounter> s_aHdlCounter = new ConcurrentHashMap <> ();
+  private static final ConcurrentHashMap <String, StatisticsHandlerKeyedCounter> s_aHdlKeyedCounter = new ConcurrentHashMap <> ();
 
   private static final Logger s_aLogger = LoggerFactory.getLogger (StatisticsManager.class);
 
@@ -62,6 +57,16 @@ public final class StatisticsManager
   private StatisticsManager ()
   {}
 
+  @Nonnull
+  private static <T> T _getOrCreate (@Nonnull final ConcurrentHashMap <String, T> aMap,
+                                     @Nonnull final String sName,
+                                     @Nonnull final Supplier <T> aFactory)
+  {
+    // Avoid the locking of computeIfAbsent for existing handlers
+    final T aHdl = aMap.get (sName);
+    return aHdl != null ? aHdl : aMap.computeIfAbsent (sName, k -> aFactory.get ());
+  }
+
   @Nonnull
   public static IMutableStatisticsHandlerCache getCacheHandler (@Nonnull final Class <?> aClass)
   {
@@ -75,24 +80,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCache aHdl = s_aRWLockCache.readLocked ( () -> s_aHdlCache.get (sName));
-
-    if (aHdl == null)
-    {
-      // Try again in write lock
-      aHdl = s_aRWLockCache.writeLocked ( () -> s_aHdlCache.computeIfAbsent (sName,
-                                                                             k -> new StatisticsHandlerCache ()));
-    }
-
-    return aHdl;
-
+    return _getOrCreate (s_aHdlCache, sName, StatisticsHandlerCache::new);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllCacheHandler ()
   {
-    return s_aRWLockCache.readLocked ( () -> s_aHdlCache.copyOfKeySet ());
+    return new CommonsHashSet <> (s_aHdlCache.keySet ());
   }
 
   @Nonnull
@@ -108,21 +103,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerTimer aHdl = s_aRWLockTimer.readLocked ( () -> s_aHdlTimer.get (sName));
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockTimer.writeLocked ( () -> s_aHdlTimer.computeIfAbsent (sName,
-                                                                             k -> new StatisticsHandlerTimer ()));
-    }
-
-    return aHdl;
+    return _getOrCreate (s_aHdlTimer, sName, StatisticsHandlerTimer::new);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllTimerHandler ()
   {
-    return s_aRWLockTimer.readLocked ( () -> s_aHdlTimer.copyOfKeySet ());
+    return new CommonsHashSet <> (s_aHdlTimer.keySet ());
   }
 
   @Nonnull
@@ -138,21 +126,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedTimer aHdl = s_aRWLockKeyedTimer.readLocked ( () -> s_aHdlKeyedTimer.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockKeyedTimer.writeLocked ( () -> s_aHdlKeyedTimer.computeIfAbsent (sName,
-                                                                                       k -> new StatisticsHandlerKeyedTimer ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlKeyedTimer, sName, StatisticsHandlerKeyedTimer::new);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedTimerHandler ()
   {
-    return s_aRWLockKeyedTimer.readLocked ( () -> s_aHdlKeyedTimer.copyOfKeySet ());
+    return new CommonsHashSet <> (s_aHdlKeyedTimer.keySet ());
   }
 
   @Nonnull
@@ -168,20 +149,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerSize aHdl = s_aRWLockSize.readLocked ( () -> s_aHdlSize.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockSize.writeLocked ( () -> s_aHdlSize.computeIfAbsent (sName, k -> new StatisticsHandlerSize ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlSize, sName, StatisticsHandlerSize::new);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllSizeHandler ()
   {
-    return s_aRWLockSize.readLocked ( () -> s_aHdlSize.copyOfKeySet ());
+    return new CommonsHashSet <> (s_aHdlSize.keySet ());
   }
 
   @Nonnull
@@ -197,21 +172,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedSize aHdl = s_aRWLockKeyedSize.readLocked ( () -> s_aHdlKeyedSize.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockKeyedSize.writeLocked ( () -> s_aHdlKeyedSize.computeIfAbsent (sName,
-                                                                                     k -> new StatisticsHandlerKeyedSize ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlKeyedSize, sName, StatisticsHandlerKeyedSize::new);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedSizeHandler ()
   {
-    return s_aRWLockKeyedSize.readLocked ( () -> s_aHdlKeyedSize.copyOfKeySet ());
+    return new CommonsHashSet <> (s_aHdlKeyedSize.keySet ());
   }
 
   @Nonnull
@@ -227,21 +195,14 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerCounter aHdl = s_aRWLockCounter.readLocked ( () -> s_aHdlCounter.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockCounter.writeLocked ( () -> s_aHdlCounter.computeIfAbsent (sName,
-                                                                                 k -> new StatisticsHandlerCounter ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlCounter, sName, StatisticsHandlerCounter::new);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllCounterHandler ()
   {
-    return s_aRWLockCounter.readLocked ( () -> s_aHdlCounter.copyOfKeySet ());
+    return new CommonsHashSet <> (s_aHdlCounter.keySet ());
   }
 
   @Nonnull
@@ -257,32 +218,25 @@ public final class StatisticsManager
   {
     ValueEnforcer.notEmpty (sName, "Name");
 
-    StatisticsHandlerKeyedCounter aHdl = s_aRWLockKeyedCounter.readLocked ( () -> s_aHdlKeyedCounter.get (sName));
-
-    if (aHdl == null)
-    {
-      aHdl = s_aRWLockKeyedCounter.writeLocked ( () -> s_aHdlKeyedCounter.computeIfAbsent (sName,
-                                                                                           k -> new StatisticsHandlerKeyedCounter ()));
-    }
-    return aHdl;
+    return _getOrCreate (s_aHdlKeyedCounter, sName, StatisticsHandlerKeyedCounter::new);
   }
 
   @Nonnull
   @ReturnsMutableCopy
   public static ICommonsSet <String> getAllKeyedCounterHandler ()
   {
-    return s_aRWLockKeyedCounter.readLocked ( () -> s_aHdlKeyedCounter.copyOfKeySet ());
+    return new CommonsHashSet <> (s_aHdlKeyedCounter.keySet ());
   }
 
   public static void clearCache ()
   {
-    s_aRWLockCache.writeLocked ( () -> s_aHdlCache.clear ());
-    s_aRWLockTimer.writeLocked ( () -> s_aHdlTimer.clear ());
-    s_aRWLockKeyedTimer.writeLocked ( () -> s_aHdlKeyedTimer.clear ());
-    s_aRWLockSize.writeLocked ( () -> s_aHdlSize.clear ());
-    s_aRWLockKeyedSize.writeLocked ( () -> s_aHdlKeyedSize.clear ());
-    s_aRWLockCounter.writeLocked ( () -> s_aHdlCounter.clear ());
-    s_aRWLockKeyedCounter.writeLocked ( () -> s_aHdlKeyedCounter.clear ());
+    s_aHdlCache.clear ();
+    s_aHdlTimer.clear ();
+    s_aHdlKeyedTimer.clear ();
+    s_aHdlSize.clear ();
+    s_aHdlKeyedSize.clear ();
+    s_aHdlCounter.clear ();
+    s_aHdlKeyedCounter.clear ();
 
     if (s_aLogger.isDebugEnabled ())
       s_aLogger.debug ("Cache was cleared: " + StatisticsManager.class.getName ());
@@ -0,0 +1,176 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import java.io.Serializable;
+import java.math.BigInteger;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Lock-free aggregation of numeric values used by the numeric statistics
+ * handlers. All values are striped (see {@link LongAdder}), so that
+ * concurrent updates don't contend. The sum is kept as the separate sums of the
+ * lower and the upper 32 bits of all values, so that it is exact for up to
+ * 2<sup>31</sup> values, even if it exceeds the range of a <code>long</code>.
+ * Percentiles are derived from a
+ * {@link StatisticsHistogram}, optionally with a second histogram for the
+ * current interval.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@ThreadSafe
+final class StatisticsNumericValue implements Serializable
+{
+  private final LongAdder m_aInvocationCount = new LongAdder ();
+  private final LongAccumulator m_aMin = new LongAccumulator (Math::min, Long.MAX_VALUE);
+  private final LongAccumulator m_aMax = new LongAccumulator (Math::max, Long.MIN_VALUE);
+  // Unsigned lower 32 bits of all values
+  private final LongAdder m_aSumLow = new LongAdder ();
+  // Signed upper 32 bits of all values
+  private final LongAdder m_aSumHigh = new LongAdder ();
+  private final StatisticsHistogram m_aHistogram = new StatisticsHistogram ();
+  private final StatisticsHistogram m_aIntervalHistogram;
+
+  public StatisticsNumericValue (final boolean bTrackInterval)
+  {
+    m_aIntervalHistogram = bTrackInterval ? new StatisticsHistogram () : null;
+  }
+
+  public void add (final long nValue)
+  {
+    m_aMin.accumulate (nValue);
+    m_aMax.accumulate (nValue);
+    m_aSumLow.add (nValue & 0xffffffffL);
+    m_aSumHigh.add (nValue >> 32);
+    m_aHistogram.record (nValue);
+    if (m_aIntervalHistogram != null)
+      m_aIntervalHistogram.record (nValue);
+    // Increment last, so that min and max are set if the count is > 0
+    m_aInvocationCount.increment ();
+  }
+
+  @Nonnegative
+  public int getInvocationCount ()
+  {
+    return m_aInvocationCount.intValue ();
+  }
+
+  @CheckForSigned
+  public long getMin ()
+  {
+    return getInvocationCount () == 0 ? CGlobal.ILLEGAL_ULONG : m_aMin.get ();
+  }
+
+  @CheckForSigned
+  public long getMax ()
+  {
+    return getInvocationCount () == 0 ? CGlobal.ILLEGAL_ULONG : m_aMax.get ();
+  }
+
+  @Nonnull
+  public BigInteger getSum ()
+  {
+    return BigInteger.valueOf (m_aSumHigh.sum ()).shiftLeft (32).add (BigInteger.valueOf (m_aSumLow.sum ()));
+  }
+
+  public long getSumAsLong ()
+  {
+    final long nLow = m_aSumLow.sum ();
+    // Carry the overflow of the lower 32 bits into the upper part
+    final long nHigh = m_aSumHigh.sum () + (nLow >>> 32);
+    if (nHigh > Integer.MAX_VALUE)
+      return Long.MAX_VALUE;
+    if (nHigh < Integer.MIN_VALUE)
+      return Long.MIN_VALUE;
+    return (nHigh << 32) | (nLow & 0xffffffffL);
+  }
+
+  static long getSaturatedLong (@Nonnull final BigInteger aValue)
+  {
+    if (aValue.bitLength () < Long.SIZE)
+      return aValue.longValue ();
+    return aValue.signum () > 0 ? Long.MAX_VALUE : Long.MIN_VALUE;
+  }
+
+  @CheckForSigned
+  public long getAverage ()
+  {
+    // Read the count first, so that the sum contains at least these values
+    final long nCount = m_aInvocationCount.sum ();
+    if (nCount == 0)
+      return CGlobal.ILLEGAL_ULONG;
+    final long nSum = getSumAsLong ();
+    if (nSum != Long.MAX_VALUE && nSum != Long.MIN_VALUE)
+      return nSum / nCount;
+    return getSum ().divide (BigInteger.valueOf (nCount)).longValue ();
+  }
+
+  @CheckForSigned
+  public long getPercentile (final double dPercentile)
+  {
+    return m_aHistogram.getValueAtPercentile (dPercentile);
+  }
+
+  public void getPercentiles (@Nonnull final double [] aPercentiles, @Nonnull final long [] aTarget)
+  {
+    m_aHistogram.getValuesAtPercentiles (aPercentiles, aTarget);
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public StatisticsHistogram getHistogram ()
+  {
+    return m_aHistogram.getClone ();
+  }
+
+  /**
+   * @return The values recorded since the last call of this method. Never
+   *         <code>null</code>.
+   * @throws IllegalStateException
+   *         If intervals are not tracked
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public StatisticsHistogram getIntervalHistogramAndReset ()
+  {
+    if (m_aIntervalHistogram == null)
+      throw new IllegalStateException ("Intervals are not tracked");
+    return m_aIntervalHistogram.getCloneAndReset ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    // No object ID needed for toString
+    return new ToStringGenerator (null).append ("invocations", getInvocationCount ())
+                                       .append ("min", getMin ())
+                                       .append ("max", getMax ())
+                                       .append ("sum", getSum ())
+                                       .getToString ();
+  }
+}
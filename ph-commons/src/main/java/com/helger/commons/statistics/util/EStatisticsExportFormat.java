@@ -0,0 +1,53 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics.util;
+
+import javax.annotation.Nonnull;
+
+import com.helger.commons.annotation.Nonempty;
+
+/**
+ * The formats supported by {@link StatisticsMetricsExporter}.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+public enum EStatisticsExportFormat
+{
+  /** Prometheus text exposition format 0.0.4 */
+  PROMETHEUS ("text/plain; version=0.0.4; charset=utf-8"),
+  /** JSON */
+  JSON ("application/json; charset=utf-8");
+
+  private final String m_sContentType;
+
+  private EStatisticsExportFormat (@Nonnull @Nonempty final String sContentType)
+  {
+    m_sContentType = sContentType;
+  }
+
+  /**
+   * @return The HTTP content type to be used when serving this format. Neither
+   *         <code>null</code> nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getContentType ()
+  {
+    return m_sContentType;
+  }
+}
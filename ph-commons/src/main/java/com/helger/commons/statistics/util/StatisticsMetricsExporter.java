@@ -0,0 +1,730 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics.util;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.functional.IConsumer;
+import com.helger.commons.statistics.IStatisticsHandlerCache;
+import com.helger.commons.statistics.IStatisticsHandlerCounter;
+import com.helger.commons.statistics.IStatisticsHandlerKeyedCounter;
+import com.helger.commons.statistics.IStatisticsHandlerKeyedNumeric;
+import com.helger.commons.statistics.IStatisticsHandlerNumeric;
+import com.helger.commons.statistics.StatisticsHistogram;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Export all statistics handlers of {@link StatisticsManager} in the
+ * Prometheus text format or as JSON, e.g. to be served by a HTTP endpoint or
+ * to be pushed periodically to a metrics gateway.<br>
+ * The output is rendered into a single {@link StringBuilder} without
+ * allocating objects per keyed entry, so that the costs stay low even with a
+ * large number of keys. All handlers are exported with their name (and key)
+ * as labels, e.g.
+ * <code>ph_timer_milliseconds{name="xyz",quantile="0.99"} 17</code>.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@ThreadSafe
+public class StatisticsMetricsExporter
+{
+  /** The default prefix of all metric names */
+  public static final String DEFAULT_METRIC_PREFIX = "ph_";
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (StatisticsMetricsExporter.class);
+
+  private static final class PushSchedulerHolder
+  {
+    static final ScheduledExecutorService INSTANCE = Executors.newSingleThreadScheduledExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("ph-statistics-push-%d")
+                                                                                                                                  .setDaemon (true)
+                                                                                                                                  .build ());
+  }
+
+  /**
+   * The percentiles to export, incl. their pre-rendered names.
+   */
+  private static final class Percentiles
+  {
+    private final double [] m_aPercentiles;
+    private final String [] m_aQuantileLabels;
+    private final String [] m_aJsonNames;
+
+    Percentiles (@Nonnull final double [] aPercentiles)
+    {
+      m_aPercentiles = aPercentiles.clone ();
+      Arrays.sort (m_aPercentiles);
+      m_aQuantileLabels = new String [m_aPercentiles.length];
+      m_aJsonNames = new String [m_aPercentiles.length];
+      for (int i = 0; i < m_aPercentiles.length; ++i)
+      {
+        final BigDecimal aPercentile = BigDecimal.valueOf (ValueEnforcer.isBetweenInclusive (m_aPercentiles[i],
+                                                                                             "Percentile",
+                                                                                             0,
+                                                                                             100));
+        m_aQuantileLabels[i] = aPercentile.movePointLeft (2).stripTrailingZeros ().toPlainString ();
+        m_aJsonNames[i] = "p" + aPercentile.stripTrailingZeros ().toPlainString ();
+      }
+    }
+  }
+
+  private volatile String m_sMetricPrefix = DEFAULT_METRIC_PREFIX;
+  private volatile Percentiles m_aPercentiles = new Percentiles (StatisticsHistogram.DEFAULT_PERCENTILES);
+
+  public StatisticsMetricsExporter ()
+  {}
+
+  /**
+   * @return The prefix of all metric names in the Prometheus format. Never
+   *         <code>null</code>. Default is {@value #DEFAULT_METRIC_PREFIX}.
+   */
+  @Nonnull
+  public final String getMetricPrefix ()
+  {
+    return m_sMetricPrefix;
+  }
+
+  /**
+   * @param sMetricPrefix
+   *        The prefix of all metric names in the Prometheus format. May not be
+   *        <code>null</code> and may only contain the characters allowed in
+   *        metric names.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final StatisticsMetricsExporter setMetricPrefix (@Nonnull final String sMetricPrefix)
+  {
+    ValueEnforcer.notNull (sMetricPrefix, "MetricPrefix");
+    ValueEnforcer.isTrue (sMetricPrefix.isEmpty () || sMetricPrefix.matches ("[a-zA-Z_:][a-zA-Z0-9_:]*"),
+                          "MetricPrefix contains invalid chars");
+    m_sMetricPrefix = sMetricPrefix;
+    return this;
+  }
+
+  /**
+   * @return A copy of the percentiles that are exported for timer and size
+   *         handlers. Never <code>null</code>.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public final double [] getPercentiles ()
+  {
+    return m_aPercentiles.m_aPercentiles.clone ();
+  }
+
+  /**
+   * @param aPercentiles
+   *        The percentiles to be exported for timer and size handlers. Each
+   *        must be between 0 and 100. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public final StatisticsMetricsExporter setPercentiles (@Nonnull final double... aPercentiles)
+  {
+    ValueEnforcer.notNull (aPercentiles, "Percentiles");
+    m_aPercentiles = new Percentiles (aPercentiles);
+    return this;
+  }
+
+  @Nonnull
+  private static ICommonsList <String> _sorted (@Nonnull final Iterable <String> aNames)
+  {
+    final ICommonsList <String> ret = new CommonsArrayList <> (aNames);
+    ret.sort (Comparator.naturalOrder ());
+    return ret;
+  }
+
+  // --- Prometheus ---
+
+  private static void _appendLabelValue (@Nonnull final StringBuilder aSB, @Nullable final String sValue)
+  {
+    aSB.append ('"');
+    if (sValue != null)
+      for (int i = 0; i < sValue.length (); ++i)
+      {
+        final char c = sValue.charAt (i);
+        if (c == '\\' || c == '"')
+          aSB.append ('\\').append (c);
+        else
+          if (c == '\n')
+            aSB.append ("\\n");
+          else
+            aSB.append (c);
+      }
+    aSB.append ('"');
+  }
+
+  private static void _appendSampleStart (@Nonnull final StringBuilder aSB,
+                                          @Nonnull final String sPrefix,
+                                          @Nonnull final String sMetric,
+                                          @Nullable final String sSuffix,
+                                          @Nonnull final String sName,
+                                          final boolean bKeyed,
+                                          @Nullable final String sKey,
+                                          @Nullable final String sQuantile)
+  {
+    aSB.append (sPrefix).append (sMetric);
+    if (sSuffix != null)
+      aSB.append (sSuffix);
+    aSB.append ("{name=");
+    _appendLabelValue (aSB, sName);
+    if (bKeyed)
+    {
+      aSB.append (",key=");
+      _appendLabelValue (aSB, sKey);
+    }
+    if (sQuantile != null)
+      aSB.append (",quantile=\"").append (sQuantile).append ('"');
+    aSB.append ("} ");
+  }
+
+  private static void _appendHeader (@Nonnull final StringBuilder aSB,
+                                     @Nonnull final String sPrefix,
+                                     @Nonnull final String sMetric,
+                                     @Nonnull final String sHelp,
+                                     @Nonnull final String sType)
+  {
+    aSB.append ("# HELP ").append (sPrefix).append (sMetric).append (' ').append (sHelp).append ('\n');
+    aSB.append ("# TYPE ").append (sPrefix).append (sMetric).append (' ').append (sType).append ('\n');
+  }
+
+  private static void _appendCacheFamily (@Nonnull final StringBuilder aSB,
+                                          @Nonnull final String sPrefix,
+                                          @Nonnull final ICommonsList <String> aNames,
+                                          @Nonnull final String sMetric,
+                                          @Nonnull final String sHelp,
+                                          @Nonnull final Function <IStatisticsHandlerCache, Integer> aValue)
+  {
+    _appendHeader (aSB, sPrefix, sMetric, sHelp, "counter");
+    for (final String sName : aNames)
+    {
+      _appendSampleStart (aSB, sPrefix, sMetric, null, sName, false, null, null);
+      aSB.append (aValue.apply (StatisticsManager.getCacheHandler (sName)).intValue ()).append ('\n');
+    }
+  }
+
+  private static void _appendNumericSamples (@Nonnull final StringBuilder aSB,
+                                             @Nonnull final String sPrefix,
+                                             @Nonnull final String sMetric,
+                                             @Nonnull final Percentiles aPercentiles,
+                                             @Nonnull final long [] aValues,
+                                             @Nonnull final String sName,
+                                             final boolean bKeyed,
+                                             @Nullable final String sKey,
+                                             final long nCount,
+                                             final long nSum)
+  {
+    for (int i = 0; i < aPercentiles.m_aPercentiles.length; ++i)
+    {
+      _appendSampleStart (aSB, sPrefix, sMetric, null, sName, bKeyed, sKey, aPercentiles.m_aQuantileLabels[i]);
+      if (aValues[i] == CGlobal.ILLEGAL_ULONG)
+        aSB.append ("NaN");
+      else
+        aSB.append (aValues[i]);
+      aSB.append ('\n');
+    }
+    _appendSampleStart (aSB, sPrefix, sMetric, "_sum", sName, bKeyed, sKey, null);
+    aSB.append (nSum).append ('\n');
+    _appendSampleStart (aSB, sPrefix, sMetric, "_count", sName, bKeyed, sKey, null);
+    aSB.append (nCount).append ('\n');
+  }
+
+  private static void _appendNumericFamily (@Nonnull final StringBuilder aSB,
+                                            @Nonnull final String sPrefix,
+                                            @Nonnull final String sMetric,
+                                            @Nonnull final String sHelp,
+                                            @Nonnull final Percentiles aPercentiles,
+                                            @Nonnull final ICommonsList <String> aNames,
+                                            @Nonnull final Function <String, ? extends IStatisticsHandlerNumeric> aResolver,
+                                            @Nonnull final ICommonsList <String> aKeyedNames,
+                                            @Nonnull final Function <String, ? extends IStatisticsHandlerKeyedNumeric> aKeyedResolver)
+  {
+    final long [] aValues = new long [aPercentiles.m_aPercentiles.length];
+
+    // Summary with quantiles, sum and count
+    _appendHeader (aSB, sPrefix, sMetric, sHelp, "summary");
+    for (final String sName : aNames)
+    {
+      final IStatisticsHandlerNumeric aHandler = aResolver.apply (sName);
+      aHandler.getPercentiles (aPercentiles.m_aPercentiles, aValues);
+      _appendNumericSamples (aSB,
+                             sPrefix,
+                             sMetric,
+                             aPercentiles,
+                             aValues,
+                             sName,
+                             false,
+                             null,
+                             aHandler.getInvocationCount (),
+                             aHandler.getSumAsLong ());
+    }
+    for (final String sName : aKeyedNames)
+    {
+      final IStatisticsHandlerKeyedNumeric aHandler = aKeyedResolver.apply (sName);
+      aHandler.forEachKey (sKey -> {
+        aHandler.getPercentiles (sKey, aPercentiles.m_aPercentiles, aValues);
+        _appendNumericSamples (aSB,
+                               sPrefix,
+                               sMetric,
+                               aPercentiles,
+                               aValues,
+                               sName,
+                               true,
+                               sKey,
+                               aHandler.getInvocationCount (sKey),
+                               aHandler.getSumAsLong (sKey));
+      });
+    }
+
+    // Min and max as separate gauges
+    for (final boolean bMax : new boolean [] { false, true })
+    {
+      final String sSuffix = bMax ? "_max" : "_min";
+      _appendHeader (aSB, sPrefix, sMetric + sSuffix, bMax ? "Biggest value" : "Smallest value", "gauge");
+      for (final String sName : aNames)
+      {
+        final IStatisticsHandlerNumeric aHandler = aResolver.apply (sName);
+        if (aHandler.getInvocationCount () > 0)
+        {
+          _appendSampleStart (aSB, sPrefix, sMetric, sSuffix, sName, false, null, null);
+          aSB.append (bMax ? aHandler.getMax () : aHandler.getMin ()).append ('\n');
+        }
+      }
+      for (final String sName : aKeyedNames)
+      {
+        final IStatisticsHandlerKeyedNumeric aHandler = aKeyedResolver.apply (sName);
+        aHandler.forEachKey (sKey -> {
+          final long nValue = bMax ? aHandler.getMax (sKey) : aHandler.getMin (sKey);
+          if (nValue != CGlobal.ILLEGAL_ULONG)
+          {
+            _appendSampleStart (aSB, sPrefix, sMetric, sSuffix, sName, true, sKey, null);
+            aSB.append (nValue).append ('\n');
+          }
+        });
+      }
+    }
+  }
+
+  /**
+   * Append all statistics in the Prometheus text format 0.0.4.
+   *
+   * @param aSB
+   *        The string builder to append to. May not be <code>null</code>.
+   */
+  public void appendPrometheus (@Nonnull final StringBuilder aSB)
+  {
+    ValueEnforcer.notNull (aSB, "StringBuilder");
+
+    final String sPrefix = m_sMetricPrefix;
+    final Percentiles aPercentiles = m_aPercentiles;
+
+    final ICommonsList <String> aCaches = _sorted (StatisticsManager.getAllCacheHandler ());
+    _appendCacheFamily (aSB, sPrefix, aCaches, "cache_hits_total", "Number of cache hits", IStatisticsHandlerCache::getHits);
+    _appendCacheFamily (aSB,
+                        sPrefix,
+                        aCaches,
+                        "cache_misses_total",
+                        "Number of cache misses",
+                        IStatisticsHandlerCache::getMisses);
+    _appendCacheFamily (aSB,
+                        sPrefix,
+                        aCaches,
+                        "cache_evictions_total",
+                        "Number of cache evictions",
+                        IStatisticsHandlerCache::getEvictions);
+
+    _appendNumericFamily (aSB,
+                          sPrefix,
+                          "timer_milliseconds",
+                          "Execution times",
+                          aPercentiles,
+                          _sorted (StatisticsManager.getAllTimerHandler ()),
+                          StatisticsManager::getTimerHandler,
+                          _sorted (StatisticsManager.getAllKeyedTimerHandler ()),
+                          StatisticsManager::getKeyedTimerHandler);
+    _appendNumericFamily (aSB,
+                          sPrefix,
+                          "size",
+                          "Sizes",
+                          aPercentiles,
+                          _sorted (StatisticsManager.getAllSizeHandler ()),
+                          StatisticsManager::getSizeHandler,
+                          _sorted (StatisticsManager.getAllKeyedSizeHandler ()),
+                          StatisticsManager::getKeyedSizeHandler);
+
+    final ICommonsList <String> aCounters = _sorted (StatisticsManager.getAllCounterHandler ());
+    final ICommonsList <String> aKeyedCounters = _sorted (StatisticsManager.getAllKeyedCounterHandler ());
+    _appendHeader (aSB, sPrefix, "counter_total", "Counter values", "counter");
+    for (final String sName : aCounters)
+    {
+      _appendSampleStart (aSB, sPrefix, "counter_total", null, sName, false, null, null);
+      aSB.append (StatisticsManager.getCounterHandler (sName).getCount ()).append ('\n');
+    }
+    for (final String sName : aKeyedCounters)
+    {
+      final IStatisticsHandlerKeyedCounter aHandler = StatisticsManager.getKeyedCounterHandler (sName);
+      aHandler.forEachKey (sKey -> {
+        _appendSampleStart (aSB, sPrefix, "counter_total", null, sName, true, sKey, null);
+        aSB.append (aHandler.getCount (sKey)).append ('\n');
+      });
+    }
+  }
+
+  // --- JSON ---
+
+  private static void _appendJsonString (@Nonnull final StringBuilder aSB, @Nullable final String s)
+  {
+    if (s == null)
+    {
+      aSB.append ("null");
+      return;
+    }
+    aSB.append ('"');
+    for (int i = 0; i < s.length (); ++i)
+    {
+      final char c = s.charAt (i);
+      switch (c)
+      {
+        case '"':
+        case '\\':
+          aSB.append ('\\').append (c);
+          break;
+        case '\n':
+          aSB.append ("\\n");
+          break;
+        case '\r':
+          aSB.append ("\\r");
+          break;
+        case '\t':
+          aSB.append ("\\t");
+          break;
+        default:
+          if (c < 0x20)
+          {
+            aSB.append ("\\u00");
+            aSB.append (Character.forDigit (c >> 4, 16)).append (Character.forDigit (c & 0xf, 16));
+          }
+          else
+            aSB.append (c);
+      }
+    }
+    aSB.append ('"');
+  }
+
+  private static void _appendJsonNumber (@Nonnull final StringBuilder aSB,
+                                         @Nonnull final String sName,
+                                         final long nValue,
+                                         final boolean bNullIfIllegal)
+  {
+    aSB.append (",\"").append (sName).append ("\":");
+    if (bNullIfIllegal && nValue == CGlobal.ILLEGAL_ULONG)
+      aSB.append ("null");
+    else
+      aSB.append (nValue);
+  }
+
+  private static void _appendJsonNumeric (@Nonnull final StringBuilder aSB,
+                                          @Nonnull final Percentiles aPercentiles,
+                                          @Nonnull final long [] aValues,
+                                          final long nInvocationCount,
+                                          final long nSum,
+                                          final long nMin,
+                                          final long nMax,
+                                          final long nAverage)
+  {
+    _appendJsonNumber (aSB, "invocations", nInvocationCount, false);
+    _appendJsonNumber (aSB, "sum", nSum, false);
+    _appendJsonNumber (aSB, "min", nMin, true);
+    _appendJsonNumber (aSB, "max", nMax, true);
+    _appendJsonNumber (aSB, "average", nAverage, true);
+    aSB.append (",\"percentiles\":{");
+    for (int i = 0; i < aPercentiles.m_aPercentiles.length; ++i)
+    {
+      if (i > 0)
+        aSB.append (',');
+      aSB.append ('"').append (aPercentiles.m_aJsonNames[i]).append ("\":");
+      if (aValues[i] == CGlobal.ILLEGAL_ULONG)
+        aSB.append ("null");
+      else
+        aSB.append (aValues[i]);
+    }
+    aSB.append ('}');
+  }
+
+  private static void _appendJsonNumericHandlers (@Nonnull final StringBuilder aSB,
+                                                  @Nonnull final String sProperty,
+                                                  @Nonnull final Percentiles aPercentiles,
+                                                  @Nonnull final ICommonsList <String> aNames,
+                                                  @Nonnull final Function <String, ? extends IStatisticsHandlerNumeric> aResolver,
+                                                  @Nonnull final String sKeyedProperty,
+                                                  @Nonnull final ICommonsList <String> aKeyedNames,
+                                                  @Nonnull final Function <String, ? extends IStatisticsHandlerKeyedNumeric> aKeyedResolver)
+  {
+    final long [] aValues = new long [aPercentiles.m_aPercentiles.length];
+    aSB.append (",\"").append (sProperty).append ("\":[");
+    boolean bFirst = true;
+    for (final String sName : aNames)
+    {
+      final IStatisticsHandlerNumeric aHandler = aResolver.apply (sName);
+      aHandler.getPercentiles (aPercentiles.m_aPercentiles, aValues);
+      if (!bFirst)
+        aSB.append (',');
+      bFirst = false;
+      aSB.append ("{\"name\":");
+      _appendJsonString (aSB, sName);
+      _appendJsonNumeric (aSB,
+                          aPercentiles,
+                          aValues,
+                          aHandler.getInvocationCount (),
+                          aHandler.getSumAsLong (),
+                          aHandler.getMin (),
+                          aHandler.getMax (),
+                          aHandler.getAverage ());
+      aSB.append ('}');
+    }
+    aSB.append (']');
+
+    aSB.append (",\"").append (sKeyedProperty).append ("\":[");
+    bFirst = true;
+    for (final String sName : aKeyedNames)
+    {
+      final IStatisticsHandlerKeyedNumeric aHandler = aKeyedResolver.apply (sName);
+      if (!bFirst)
+        aSB.append (',');
+      bFirst = false;
+      aSB.append ("{\"name\":");
+      _appendJsonString (aSB, sName);
+      aSB.append (",\"keys\":[");
+      // Remember the position to detect the first key
+      final int nKeysStart = aSB.length ();
+      aHandler.forEachKey (sKey -> {
+        final int nInvocationCount = aHandler.getInvocationCount (sKey);
+        if (nInvocationCount == CGlobal.ILLEGAL_UINT)
+          return;
+        if (aSB.length () > nKeysStart)
+          aSB.append (',');
+        aHandler.getPercentiles (sKey, aPercentiles.m_aPercentiles, aValues);
+        aSB.append ("{\"key\":");
+        _appendJsonString (aSB, sKey);
+        _appendJsonNumeric (aSB,
+                            aPercentiles,
+                            aValues,
+                            nInvocationCount,
+                            aHandler.getSumAsLong (sKey),
+                            aHandler.getMin (sKey),
+                            aHandler.getMax (sKey),
+                            aHandler.getAverage (sKey));
+        aSB.append ('}');
+      });
+      aSB.append ("]}");
+    }
+    aSB.append (']');
+  }
+
+  /**
+   * Append all statistics as a single JSON object.
+   *
+   * @param aSB
+   *        The string builder to append to. May not be <code>null</code>.
+   */
+  public void appendJson (@Nonnull final StringBuilder aSB)
+  {
+    ValueEnforcer.notNull (aSB, "StringBuilder");
+
+    final Percentiles aPercentiles = m_aPercentiles;
+
+    aSB.append ("{\"cache\":[");
+    boolean bFirst = true;
+    for (final String sName : _sorted (StatisticsManager.getAllCacheHandler ()))
+    {
+      final IStatisticsHandlerCache aHandler = StatisticsManager.getCacheHandler (sName);
+      if (!bFirst)
+        aSB.append (',');
+      bFirst = false;
+      aSB.append ("{\"name\":");
+      _appendJsonString (aSB, sName);
+      _appendJsonNumber (aSB, "hits", aHandler.getHits (), false);
+      _appendJsonNumber (aSB, "misses", aHandler.getMisses (), false);
+      _appendJsonNumber (aSB, "evictions", aHandler.getEvictions (), false);
+      aSB.append ('}');
+    }
+    aSB.append (']');
+
+    _appendJsonNumericHandlers (aSB,
+                                "timer",
+                                aPercentiles,
+                                _sorted (StatisticsManager.getAllTimerHandler ()),
+                                StatisticsManager::getTimerHandler,
+                                "keyedTimer",
+                                _sorted (StatisticsManager.getAllKeyedTimerHandler ()),
+                                StatisticsManager::getKeyedTimerHandler);
+    _appendJsonNumericHandlers (aSB,
+                                "size",
+                                aPercentiles,
+                                _sorted (StatisticsManager.getAllSizeHandler ()),
+                                StatisticsManager::getSizeHandler,
+                                "keyedSize",
+                                _sorted (StatisticsManager.getAllKeyedSizeHandler ()),
+                                StatisticsManager::getKeyedSizeHandler);
+
+    aSB.append (",\"counter\":[");
+    bFirst = true;
+    for (final String sName : _sorted (StatisticsManager.getAllCounterHandler ()))
+    {
+      final IStatisticsHandlerCounter aHandler = StatisticsManager.getCounterHandler (sName);
+      if (!bFirst)
+        aSB.append (',');
+      bFirst = false;
+      aSB.append ("{\"name\":");
+      _appendJsonString (aSB, sName);
+      _appendJsonNumber (aSB, "invocations", aHandler.getInvocationCount (), false);
+      _appendJsonNumber (aSB, "count", aHandler.getCount (), false);
+      aSB.append ('}');
+    }
+    aSB.append ("],\"keyedCounter\":[");
+    bFirst = true;
+    for (final String sName : _sorted (StatisticsManager.getAllKeyedCounterHandler ()))
+    {
+      final IStatisticsHandlerKeyedCounter aHandler = StatisticsManager.getKeyedCounterHandler (sName);
+      if (!bFirst)
+        aSB.append (',');
+      bFirst = false;
+      aSB.append ("{\"name\":");
+      _appendJsonString (aSB, sName);
+      aSB.append (",\"keys\":[");
+      final int nKeysStart = aSB.length ();
+      aHandler.forEachKey (sKey -> {
+        if (aSB.length () > nKeysStart)
+          aSB.append (',');
+        aSB.append ("{\"key\":");
+        _appendJsonString (aSB, sKey);
+        _appendJsonNumber (aSB, "invocations", aHandler.getInvocationCount (sKey), false);
+        _appendJsonNumber (aSB, "count", aHandler.getCount (sKey), false);
+        aSB.append ('}');
+      });
+      aSB.append ("]}");
+    }
+    aSB.append ("]}");
+  }
+
+  /**
+   * Append all statistics in the provided format.
+   *
+   * @param eFormat
+   *        The format to use. May not be <code>null</code>.
+   * @param aSB
+   *        The string builder to append to. May not be <code>null</code>.
+   */
+  public void append (@Nonnull final EStatisticsExportFormat eFormat, @Nonnull final StringBuilder aSB)
+  {
+    ValueEnforcer.notNull (eFormat, "Format");
+    switch (eFormat)
+    {
+      case PROMETHEUS:
+        appendPrometheus (aSB);
+        break;
+      case JSON:
+        appendJson (aSB);
+        break;
+      default:
+        throw new IllegalArgumentException ("Unsupported format " + eFormat);
+    }
+  }
+
+  /**
+   * Get all statistics in the provided format.
+   *
+   * @param eFormat
+   *        The format to use. May not be <code>null</code>.
+   * @return The rendered statistics. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getAsString (@Nonnull final EStatisticsExportFormat eFormat)
+  {
+    final StringBuilder aSB = new StringBuilder (4096);
+    append (eFormat, aSB);
+    return aSB.toString ();
+  }
+
+  /**
+   * Periodically render all statistics and pass them to the provided target,
+   * e.g. to push them to a metrics gateway. Exceptions of the target are
+   * logged and don't stop the schedule.
+   *
+   * @param aPeriod
+   *        The period between two pushes. Must be positive.
+   * @param eFormat
+   *        The format to use. May not be <code>null</code>.
+   * @param aTarget
+   *        The push target that receives the rendered statistics. May not be
+   *        <code>null</code>.
+   * @return The future that can be used to cancel the periodic push. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public ScheduledFuture <?> schedulePush (@Nonnull final Duration aPeriod,
+                                           @Nonnull final EStatisticsExportFormat eFormat,
+                                           @Nonnull final IConsumer <? super String> aTarget)
+  {
+    ValueEnforcer.notNull (aPeriod, "Period");
+    ValueEnforcer.isFalse (aPeriod.isNegative () || aPeriod.isZero (), "Period must be positive");
+    ValueEnforcer.notNull (eFormat, "Format");
+    ValueEnforcer.notNull (aTarget, "Target");
+
+    final long nPeriodNanos = aPeriod.toNanos ();
+    return PushSchedulerHolder.INSTANCE.scheduleAtFixedRate ( () -> {
+      try
+      {
+        aTarget.accept (getAsString (eFormat));
+      }
+      catch (final RuntimeException ex)
+      {
+        s_aLogger.error ("Failed to push statistics", ex);
+      }
+    }, nPeriodNanos, nPeriodNanos, TimeUnit.NANOSECONDS);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("MetricPrefix", m_sMetricPrefix)
+                                       .append ("Percentiles", m_aPercentiles.m_aPercentiles)
+                                       .getToString ();
+  }
+}
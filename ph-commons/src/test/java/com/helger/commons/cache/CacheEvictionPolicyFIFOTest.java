@@ -0,0 +1,55 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+
+/**
+ * Test class for class {@link CacheEvictionPolicyFIFO}.
+ *
+ * @author Philip Helger
+ */
+public final class CacheEvictionPolicyFIFOTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final ICommonsList <String> aEvicted = new CommonsArrayList <> ();
+    final CacheEvictionPolicyFIFO <String> p = new CacheEvictionPolicyFIFO <> (3);
+    assertEquals (3, p.getMaxSize ());
+    p.recordInsert ("a", aEvicted::add);
+    p.recordInsert ("b", aEvicted::add);
+    p.recordInsert ("c", aEvicted::add);
+    // Access is ignored
+    p.recordAccess ("a");
+    assertEquals (0, aEvicted.size ());
+
+    p.recordInsert ("d", aEvicted::add);
+    assertEquals (new CommonsArrayList <> ("a"), aEvicted);
+
+    p.recordRemove ("b");
+    p.recordInsert ("e", aEvicted::add);
+    assertEquals (new CommonsArrayList <> ("a"), aEvicted);
+    p.recordInsert ("f", aEvicted::add);
+    assertEquals (new CommonsArrayList <> ("a", "c"), aEvicted);
+  }
+}
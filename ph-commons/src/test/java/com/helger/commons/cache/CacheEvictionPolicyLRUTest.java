@@ -0,0 +1,58 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+
+/**
+ * Test class for class {@link CacheEvictionPolicyLRU}.
+ *
+ * @author Philip Helger
+ */
+public final class CacheEvictionPolicyLRUTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final ICommonsList <String> aEvicted = new CommonsArrayList <> ();
+    final CacheEvictionPolicyLRU <String> p = new CacheEvictionPolicyLRU <> (3);
+    p.recordInsert ("a", aEvicted::add);
+    p.recordInsert ("b", aEvicted::add);
+    p.recordInsert ("c", aEvicted::add);
+    p.recordAccess ("a");
+    // Unknown keys are ignored
+    p.recordAccess ("x");
+    p.recordRemove ("y");
+    assertEquals (0, aEvicted.size ());
+
+    p.recordInsert ("d", aEvicted::add);
+    assertEquals (new CommonsArrayList <> ("b"), aEvicted);
+    // Insert of an existing key is an access
+    p.recordInsert ("c", aEvicted::add);
+    p.recordInsert ("e", aEvicted::add);
+    assertEquals (new CommonsArrayList <> ("b", "a"), aEvicted);
+
+    p.clear ();
+    p.recordInsert ("f", aEvicted::add);
+    assertEquals (2, aEvicted.size ());
+  }
+}
@@ -0,0 +1,66 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+
+/**
+ * Test class for class {@link CacheEvictionPolicySLRU}.
+ *
+ * @author Philip Helger
+ */
+public final class CacheEvictionPolicySLRUTest
+{
+  @Test
+  public void testScanResistance ()
+  {
+    final ICommonsList <String> aEvicted = new CommonsArrayList <> ();
+    final CacheEvictionPolicySLRU <String> p = new CacheEvictionPolicySLRU <> (10);
+    for (int i = 0; i < 5; ++i)
+    {
+      p.recordInsert ("hot" + i, aEvicted::add);
+      p.recordAccess ("hot" + i);
+    }
+
+    // A long scan must not flush the protected keys
+    for (int i = 0; i < 1000; ++i)
+      p.recordInsert ("scan" + i, aEvicted::add);
+    assertEquals (10, p.size ());
+    assertEquals (1000 - 5, aEvicted.size ());
+    for (int i = 0; i < 5; ++i)
+      assertFalse (aEvicted.contains ("hot" + i));
+  }
+
+  @Test
+  public void testMinimumSize ()
+  {
+    final ICommonsList <String> aEvicted = new CommonsArrayList <> ();
+    final CacheEvictionPolicySLRU <String> p = new CacheEvictionPolicySLRU <> (1);
+    p.recordInsert ("a", aEvicted::add);
+    p.recordAccess ("a");
+    p.recordInsert ("b", aEvicted::add);
+    assertEquals (new CommonsArrayList <> ("a"), aEvicted);
+    p.recordRemove ("b");
+    assertEquals (0, p.size ());
+  }
+}
@@ -0,0 +1,110 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Random;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsSet;
+
+/**
+ * Test class for class {@link CacheEvictionPolicyTinyLFU}.
+ *
+ * @author Philip Helger
+ */
+public final class CacheEvictionPolicyTinyLFUTest
+{
+  @Test
+  public void testFrequentKeysSurviveScan ()
+  {
+    final ICommonsList <String> aEvicted = new CommonsArrayList <> ();
+    final CacheEvictionPolicyTinyLFU <String> p = new CacheEvictionPolicyTinyLFU <> (100);
+    for (int i = 0; i < 50; ++i)
+      p.recordInsert ("hot" + i, aEvicted::add);
+    for (int n = 0; n < 5; ++n)
+      for (int i = 0; i < 50; ++i)
+        p.recordAccess ("hot" + i);
+    assertTrue (p.getEstimatedFrequency ("hot0") > 1);
+
+    // Keep the scan below the sample size of the sketch, so that the
+    // frequencies don't age
+    for (int i = 0; i < 500; ++i)
+      p.recordInsert ("scan" + i, aEvicted::add);
+    assertEquals (100, p.size ());
+    for (int i = 0; i < 50; ++i)
+      assertFalse (aEvicted.contains ("hot" + i));
+  }
+
+  @Test
+  public void testHitRatioOnSkewedWorkload ()
+  {
+    // Simulate a skewed access pattern mixed with keys that are used only
+    // once
+    final int nMaxSize = 50;
+    final CacheEvictionPolicyTinyLFU <Integer> aTinyLFU = new CacheEvictionPolicyTinyLFU <> (nMaxSize);
+    final CacheEvictionPolicyLRU <Integer> aLRU = new CacheEvictionPolicyLRU <> (nMaxSize);
+    final int nHitsTinyLFU = _simulate (aTinyLFU);
+    final int nHitsLRU = _simulate (aLRU);
+    assertTrue (nHitsTinyLFU + " vs " + nHitsLRU, nHitsTinyLFU > nHitsLRU);
+  }
+
+  private static int _simulate (final ICacheEvictionPolicy <Integer> aPolicy)
+  {
+    final Random aRandom = new Random (42);
+    final ICommonsSet <Integer> aContent = new CommonsHashSet <> ();
+    int nHits = 0;
+    int nOneTime = 1_000_000;
+    for (int i = 0; i < 20000; ++i)
+    {
+      // Every second access is a key that is never used again
+      final Integer aKey = (i % 2) == 0 ? Integer.valueOf (nOneTime++)
+                                        : Integer.valueOf ((int) (Math.pow (aRandom.nextDouble (), 3) * 200));
+      if (aContent.contains (aKey))
+      {
+        nHits++;
+        aPolicy.recordAccess (aKey);
+      }
+      else
+      {
+        aContent.add (aKey);
+        aPolicy.recordInsert (aKey, aContent::remove);
+      }
+    }
+    return nHits;
+  }
+
+  @Test
+  public void testMinimumSize ()
+  {
+    final ICommonsList <String> aEvicted = new CommonsArrayList <> ();
+    final CacheEvictionPolicyTinyLFU <String> p = new CacheEvictionPolicyTinyLFU <> (1);
+    p.recordInsert ("a", aEvicted::add);
+    p.recordInsert ("b", aEvicted::add);
+    assertEquals (new CommonsArrayList <> ("a"), aEvicted);
+    assertEquals (1, p.size ());
+    p.clear ();
+    assertEquals (0, p.size ());
+  }
+}
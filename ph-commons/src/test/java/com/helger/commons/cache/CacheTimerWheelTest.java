@@ -0,0 +1,65 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+/**
+ * Test class for class {@link CacheTimerWheel}.
+ *
+ * @author Philip Helger
+ */
+public final class CacheTimerWheelTest
+{
+  @Test
+  public void testBasic () throws Exception
+  {
+    // Small wheel, so that several rounds are needed
+    final CacheTimerWheel aWheel = new CacheTimerWheel (Duration.ofMillis (10), 4);
+    try
+    {
+      assertEquals (Duration.ofMillis (10), aWheel.getTickDuration ());
+
+      final CountDownLatch aLatch = new CountDownLatch (2);
+      final long nStart = System.nanoTime ();
+      aWheel.schedule (TimeUnit.MILLISECONDS.toNanos (5), aLatch::countDown);
+      aWheel.schedule (TimeUnit.MILLISECONDS.toNanos (100), aLatch::countDown);
+
+      final AtomicInteger aCancelled = new AtomicInteger (0);
+      final CacheTimerWheel.Timeout aTimeout = aWheel.schedule (TimeUnit.MILLISECONDS.toNanos (20),
+                                                                aCancelled::incrementAndGet);
+      aTimeout.cancel ();
+      assertTrue (aTimeout.isCancelled ());
+
+      assertTrue (aLatch.await (5, TimeUnit.SECONDS));
+      assertTrue (System.nanoTime () - nStart >= TimeUnit.MILLISECONDS.toNanos (100));
+      assertEquals (0, aCancelled.get ());
+    }
+    finally
+    {
+      aWheel.shutdown ();
+    }
+  }
+}
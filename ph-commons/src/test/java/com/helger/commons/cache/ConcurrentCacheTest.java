@@ -0,0 +1,373 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.cache;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.state.EChange;
+import com.helger.commons.statistics.IStatisticsHandlerCache;
+import com.helger.commons.statistics.StatisticsManager;
+
+/**
+ * Test class for class {@link ConcurrentCache}.
+ *
+ * @author Philip Helger
+ */
+public final class ConcurrentCacheTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> {
+      aCalls.incrementAndGet ();
+      return k + "x";
+    }, 0, "MockConcurrent");
+    assertFalse (c.hasMaxSize ());
+    assertTrue (c.isEmpty ());
+
+    assertEquals ("ax", c.getFromCache ("a"));
+    assertEquals ("ax", c.getFromCache ("a"));
+    assertEquals (1, aCalls.get ());
+    assertEquals (1, c.size ());
+
+    assertEquals (EChange.CHANGED, c.removeFromCache ("a"));
+    assertEquals (EChange.UNCHANGED, c.removeFromCache ("a"));
+    assertEquals ("ax", c.getFromCache ("a"));
+    assertEquals (2, aCalls.get ());
+
+    assertEquals (EChange.CHANGED, c.clearCache ());
+    assertEquals (EChange.UNCHANGED, c.clearCache ());
+    assertTrue (c.isEmpty ());
+  }
+
+  @Test
+  public void testMaxSize ()
+  {
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> k, 5, "MockConcurrent");
+    assertEquals (5, c.getMaxSize ());
+
+    for (int i = 0; i < 100; ++i)
+      c.getFromCache ("key" + i);
+    assertEquals (5, c.size ());
+  }
+
+  @Test
+  public void testEvictionPolicies ()
+  {
+    for (final ECacheEvictionPolicy ePolicy : ECacheEvictionPolicy.values ())
+    {
+      final String sName = "MockConcurrent-" + ePolicy.name ();
+      final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> k, 5, sName, ePolicy);
+      for (int i = 0; i < 100; ++i)
+      {
+        c.getFromCache ("key" + i);
+        c.getFromCache ("key0");
+      }
+      assertTrue (c.size () <= 5);
+
+      final IStatisticsHandlerCache aStats = StatisticsManager.getCacheHandler (Cache.STATISTICS_PREFIX +
+                                                                                 sName +
+                                                                                 "$access");
+      assertEquals (c.size (), aStats.getMisses () - aStats.getEvictions ());
+    }
+  }
+
+  @Test
+  public void testExpireAfterWrite () throws Exception
+  {
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> k + aCalls.incrementAndGet (),
+                                                                       10,
+                                                                       "MockConcurrent");
+    // Generous lifetime, so that a slow test machine does not expire the
+    // value between the first two accesses
+    c.setExpireAfterWrite (Duration.ofMillis (500));
+    assertEquals (Duration.ofMillis (500), c.getExpireAfterWrite ());
+    assertNull (c.getExpireAfterAccess ());
+
+    assertEquals ("a1", c.getFromCache ("a"));
+    assertEquals ("a1", c.getFromCache ("a"));
+    TimeUnit.MILLISECONDS.sleep (600);
+    // Expired upon access
+    assertEquals ("a2", c.getFromCache ("a"));
+
+    // Expired by the timer without access - wait at most 10 seconds
+    for (int i = 0; i < 1000 && !c.isEmpty (); ++i)
+      TimeUnit.MILLISECONDS.sleep (10);
+    assertTrue (c.isEmpty ());
+  }
+
+  @Test
+  public void testExpireAfterAccess () throws Exception
+  {
+    final ConcurrentCache <String, Object> c = new ConcurrentCache <> (k -> new Object (), 10, "MockConcurrent");
+    c.setExpireAfterAccess (Duration.ofMillis (200));
+
+    final Object aValue = c.getFromCache ("a");
+    for (int i = 0; i < 5; ++i)
+    {
+      TimeUnit.MILLISECONDS.sleep (50);
+      // Each access prolongs the lifetime
+      assertSame (aValue, c.getFromCache ("a"));
+    }
+    TimeUnit.MILLISECONDS.sleep (250);
+    assertNull (c.getFromCacheNoStats ("a"));
+    assertNotSame (aValue, c.getFromCache ("a"));
+  }
+
+  @Test
+  public void testRefreshAfterWrite () throws Exception
+  {
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> k + aCalls.incrementAndGet (),
+                                                                       10,
+                                                                       "MockConcurrent");
+    // Refresh synchronously in the calling thread
+    c.setRefreshAfterWrite (Duration.ofMillis (50), Runnable::run);
+
+    assertEquals ("a1", c.getFromCache ("a"));
+    TimeUnit.MILLISECONDS.sleep (100);
+    // The stale value is returned, and the refresh is triggered
+    assertEquals ("a1", c.getFromCache ("a"));
+    assertEquals ("a2", c.getFromCache ("a"));
+    assertEquals (2, aCalls.get ());
+  }
+
+  @Test
+  public void testFailureIsNotCached ()
+  {
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> {
+      if (aCalls.incrementAndGet () == 1)
+        throw new IllegalArgumentException ("first");
+      return k;
+    }, 10, "MockConcurrent");
+
+    try
+    {
+      c.getFromCache ("a");
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+    assertTrue (c.isEmpty ());
+    assertEquals ("a", c.getFromCache ("a"));
+    assertEquals (2, aCalls.get ());
+  }
+
+  @Test
+  public void testRecursiveLoad ()
+  {
+    final ConcurrentCache <String, String> [] aCache = new ConcurrentCache [1];
+    aCache[0] = new ConcurrentCache <> (k -> aCache[0].getFromCache (k), 10, "MockConcurrent");
+    try
+    {
+      aCache[0].getFromCache ("a");
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testConcurrentLoadIsCoalesced () throws Exception
+  {
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final CountDownLatch aStart = new CountDownLatch (1);
+    final ConcurrentCache <String, Object> c = new ConcurrentCache <> (k -> {
+      if (!"key".equals (k))
+        return k;
+      aCalls.incrementAndGet ();
+      try
+      {
+        aStart.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      return new Object ();
+    }, 10, "MockConcurrent");
+
+    final int nThreads = 8;
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    final ICommonsList <Object> aResults = new CommonsArrayList <> ();
+    for (int i = 0; i < nThreads; ++i)
+      aES.submit ( () -> {
+        final Object aValue = c.getFromCache ("key");
+        synchronized (aResults)
+        {
+          aResults.add (aValue);
+        }
+      });
+
+    // Unrelated keys are not blocked by the pending load
+    assertEquals ("other", c.getFromCache ("other"));
+
+    TimeUnit.MILLISECONDS.sleep (50);
+    aStart.countDown ();
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (1, aCalls.get ());
+    assertEquals (nThreads, aResults.size ());
+    for (final Object aValue : aResults)
+      assertSame (aResults.getFirst (), aValue);
+  }
+
+  @Test
+  public void testGetAllFromCache ()
+  {
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final AtomicInteger aBulkCalls = new AtomicInteger (0);
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> {
+      aCalls.incrementAndGet ();
+      return k + "x";
+    }, 10, "MockConcurrent");
+
+    // Without bulk provider
+    ICommonsOrderedMap <String, String> aMap = c.getAllFromCache (new CommonsArrayList <> ("b", "a", "b"));
+    assertEquals (new CommonsArrayList <> ("b", "a"), aMap.copyOfKeySet ().getCopyAsList ());
+    assertEquals ("ax", aMap.get ("a"));
+    assertEquals (2, aCalls.get ());
+
+    c.setBulkValueProvider (aKeys -> {
+      aBulkCalls.incrementAndGet ();
+      final ICommonsMap <String, String> ret = new CommonsHashMap <> ();
+      for (final String sKey : aKeys)
+        ret.put (sKey, sKey + "y");
+      return ret;
+    });
+    aMap = c.getAllFromCache (new CommonsArrayList <> ("c", "a", "d", "e"));
+    assertEquals (new CommonsArrayList <> ("c", "a", "d", "e"), aMap.copyOfKeySet ().getCopyAsList ());
+    assertEquals ("ax", aMap.get ("a"));
+    assertEquals ("dy", aMap.get ("d"));
+    assertEquals (2, aCalls.get ());
+    assertEquals (1, aBulkCalls.get ());
+    assertEquals (5, c.size ());
+
+    // All present
+    c.getAllFromCache (new CommonsArrayList <> ("c", "d"));
+    assertEquals (1, aBulkCalls.get ());
+  }
+
+  @Test
+  public void testGetAllFromCacheMissingValue ()
+  {
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> k, 10, "MockConcurrent");
+    c.setBulkValueProvider (aKeys -> {
+      final ICommonsMap <String, String> ret = new CommonsHashMap <> ();
+      for (final String sKey : aKeys)
+        if (!"bad".equals (sKey))
+          ret.put (sKey, sKey);
+      return ret;
+    });
+    try
+    {
+      c.getAllFromCache (new CommonsArrayList <> ("a", "bad"));
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+    // The successfully loaded values are cached
+    assertEquals (1, c.size ());
+    assertEquals ("a", c.getFromCacheNoStats ("a"));
+  }
+
+  @Test
+  public void testGetFromCacheAsync () throws Exception
+  {
+    final AtomicInteger aCalls = new AtomicInteger (0);
+    final CountDownLatch aStart = new CountDownLatch (1);
+    final ConcurrentCache <String, String> c = new ConcurrentCache <> (k -> {
+      aCalls.incrementAndGet ();
+      try
+      {
+        aStart.await ();
+      }
+      catch (final InterruptedException ex)
+      {
+        Thread.currentThread ().interrupt ();
+      }
+      if ("bad".equals (k))
+        throw new IllegalArgumentException (k);
+      return k + "x";
+    }, 10, "MockConcurrent");
+
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    try
+    {
+      final CompletableFuture <String> f1 = c.getFromCacheAsync ("a", aES);
+      final CompletableFuture <String> f2 = c.getFromCacheAsync ("a", aES);
+      final CompletableFuture <String> f3 = c.getFromCacheAsync ("bad", aES);
+      assertFalse (f1.isDone ());
+      aStart.countDown ();
+      assertEquals ("ax", f1.get ());
+      assertEquals ("ax", f2.get ());
+      try
+      {
+        f3.join ();
+        fail ();
+      }
+      catch (final CompletionException ex)
+      {
+        assertTrue (ex.getCause () instanceof IllegalArgumentException);
+      }
+      // Loaded only once
+      assertEquals (2, aCalls.get ());
+
+      // Already present
+      final CompletableFuture <String> f4 = c.getFromCacheAsync ("a", aES);
+      assertTrue (f4.isDone ());
+      assertEquals ("ax", f4.get ());
+      assertEquals (1, c.size ());
+    }
+    finally
+    {
+      ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    }
+  }
+}
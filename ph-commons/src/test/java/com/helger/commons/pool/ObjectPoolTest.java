@@ -18,13 +18,23 @@ package com.helger.commons.pool;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
+import java.time.Duration;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
 import org.junit.Test;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.commons.concurrent.ExecutorServiceHelper;
 import com.helger.commons.concurrent.ThreadHelper;
 
 /**
@@ -73,4 +83,166 @@ public final class ObjectPoolTest
     aThread.interrupt ();
     aThread.join ();
   }
+
+  @Test
+  public void testBorrowTimeout ()
+  {
+    final ObjectPool <Object> aOP = new ObjectPool <> (2, Object::new);
+    final Object o1 = aOP.borrowObject ();
+    final Object o2 = aOP.borrowObject (Duration.ZERO);
+    assertNotNull (o2);
+    assertNotSame (o1, o2);
+    assertEquals (2, aOP.getBorrowedCount ());
+
+    assertNull (aOP.borrowObject (Duration.ofMillis (20)));
+    assertEquals (1, aOP.getBorrowTimeoutCount ());
+
+    assertTrue (aOP.returnObject (o2).isSuccess ());
+    assertEquals (1, aOP.getIdleCount ());
+    // The same thread gets the same object again
+    assertSame (o2, aOP.borrowObject (Duration.ZERO));
+    assertEquals (2, aOP.getCreatedCount ());
+  }
+
+  @Test
+  public void testValidation ()
+  {
+    final AtomicInteger aDestroyed = new AtomicInteger (0);
+    final ObjectPool <StringBuilder> aOP = new ObjectPool <> (1, StringBuilder::new);
+    aOP.setValidator (x -> x.length () == 0).setValidateOnReturn (true).setDestroyer (x -> aDestroyed.incrementAndGet ());
+
+    final StringBuilder aSB = aOP.borrowObject ();
+    aSB.append ("dirty");
+    assertTrue (aOP.returnObject (aSB).isSuccess ());
+    // Destroyed upon return
+    assertEquals (0, aOP.getTotalCount ());
+    assertEquals (1, aDestroyed.get ());
+
+    final StringBuilder aSB2 = aOP.borrowObject ();
+    assertNotSame (aSB, aSB2);
+    assertTrue (aOP.returnObject (aSB2).isSuccess ());
+
+    // Invalidated while idle - destroyed upon borrow
+    aSB2.append ("x");
+    aOP.setValidateOnReturn (false);
+    final StringBuilder aSB3 = aOP.borrowObject ();
+    assertNotSame (aSB2, aSB3);
+    assertEquals (2, aDestroyed.get ());
+    assertEquals (3, aOP.getCreatedCount ());
+  }
+
+  @Test
+  public void testIdleEviction () throws InterruptedException
+  {
+    final ObjectPool <Object> aOP = new ObjectPool <> (3, Object::new);
+    aOP.setMaxIdleTime (Duration.ofMillis (20));
+    final Object o1 = aOP.borrowObject ();
+    final Object o2 = aOP.borrowObject ();
+    aOP.returnObject (o1);
+    aOP.returnObject (o2);
+    assertEquals (2, aOP.getIdleCount ());
+    assertEquals (0, aOP.evictIdleObjects ());
+
+    TimeUnit.MILLISECONDS.sleep (50);
+    assertEquals (2, aOP.evictIdleObjects ());
+    assertEquals (0, aOP.getTotalCount ());
+    assertEquals (2, aOP.getDestroyedCount ());
+  }
+
+  @Test
+  public void testConcurrentHandoff () throws InterruptedException
+  {
+    final int nItems = 3;
+    final ObjectPool <AtomicInteger> aOP = new ObjectPool <> (nItems, AtomicInteger::new);
+    final AtomicInteger aInUse = new AtomicInteger (0);
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 8; ++i)
+      aES.submit ( () -> {
+        for (int j = 0; j < 2000; ++j)
+        {
+          final AtomicInteger aItem = aOP.borrowObject ();
+          // Each object may only be used by one thread at a time
+          if (aItem.incrementAndGet () != 1 || aInUse.incrementAndGet () > nItems)
+            aErrors.incrementAndGet ();
+          aInUse.decrementAndGet ();
+          aItem.decrementAndGet ();
+          if (aOP.returnObject (aItem).isFailure ())
+            aErrors.incrementAndGet ();
+        }
+      });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (0, aErrors.get ());
+    assertTrue (aOP.getCreatedCount () <= nItems);
+    assertEquals (0, aOP.getBorrowedCount ());
+    assertEquals (0, aOP.getWaitingCount ());
+  }
+
+  @Test
+  public void testConcurrentValidateOnReturn () throws InterruptedException
+  {
+    final int nItems = 2;
+    final AtomicInteger aValidations = new AtomicInteger (0);
+    // The validator resets the object and rejects every 7th
+    final ObjectPool <AtomicInteger> aOP = new ObjectPool <> (nItems, AtomicInteger::new);
+    aOP.setValidator (x -> {
+      // Give other threads the chance to interfere
+      Thread.yield ();
+      x.set (0);
+      if (aValidations.incrementAndGet () % 7 == 0)
+      {
+        x.set (-1);
+        return false;
+      }
+      return true;
+    }).setValidateOnBorrow (false).setValidateOnReturn (true);
+
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 8; ++i)
+    {
+      final int nThreadID = i + 1;
+      aES.submit ( () -> {
+        for (int j = 0; j < 2000; ++j)
+        {
+          final AtomicInteger aItem = aOP.borrowObject ();
+          // Never get an invalid object
+          if (aItem.get () != 0)
+            aErrors.incrementAndGet ();
+          aItem.set (nThreadID);
+          Thread.yield ();
+          // Nobody else may modify the object while it is borrowed
+          if (aItem.get () != nThreadID)
+            aErrors.incrementAndGet ();
+          if (aOP.returnObject (aItem).isFailure ())
+            aErrors.incrementAndGet ();
+        }
+      });
+    }
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (0, aErrors.get ());
+    assertEquals (0, aOP.getBorrowedCount ());
+    assertEquals (aOP.getCreatedCount () - aOP.getDestroyedCount (), aOP.getTotalCount ());
+    assertTrue (aOP.getDestroyedCount () > 0);
+  }
+
+  @Test
+  public void testInvalidate ()
+  {
+    final ObjectPool <AtomicInteger> aOP = new ObjectPool <> (1, AtomicInteger::new);
+    final AtomicInteger aItem = aOP.borrowObject ();
+    assertTrue (aOP.invalidateObject (aItem).isSuccess ());
+    assertEquals (0, aOP.getTotalCount ());
+    assertEquals (1, aOP.getDestroyedCount ());
+    // Neither borrowed nor pooled anymore
+    assertTrue (aOP.invalidateObject (aItem).isFailure ());
+    assertTrue (aOP.returnObject (aItem).isFailure ());
+
+    final AtomicInteger aItem2 = aOP.borrowObject ();
+    assertNotSame (aItem, aItem2);
+    assertTrue (aOP.returnObject (aItem2).isSuccess ());
+    assertTrue (aOP.invalidateObject (aItem2).isFailure ());
+  }
 }
@@ -16,8 +16,14 @@
  */
 package com.helger.commons.regex;
 
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.regex.Pattern;
+
 import org.junit.Test;
 
 /**
@@ -46,4 +52,91 @@ public final class RegExPatternTest
     catch (final IllegalArgumentException ex)
     {}
   }
+
+  @Test
+  public void testFastPathClassification ()
+  {
+    assertTrue (new RegExPattern ("abc").isLiteral ());
+    assertTrue (new RegExPattern ("\\|").isLiteral ());
+    assertTrue (new RegExPattern ("a\\.b\\t").isLiteral ());
+    assertTrue (new RegExPattern ("\\Qa.b*\\E").isLiteral ());
+    assertTrue (new RegExPattern ("a.b*", Pattern.LITERAL).isLiteral ());
+    assertTrue (new RegExPattern ("[,;]").isFastPath ());
+    assertTrue (new RegExPattern ("[^a-z_]+").isFastPath ());
+    assertTrue (new RegExPattern ("\\s+").isFastPath ());
+    assertTrue (new RegExPattern ("\\W").isFastPath ());
+    assertTrue (new RegExPattern (" +").isFastPath ());
+    assertFalse (new RegExPattern ("[,;]").isLiteral ());
+
+    assertFalse (new RegExPattern ("a.b").isFastPath ());
+    assertFalse (new RegExPattern ("a|b").isFastPath ());
+    assertFalse (new RegExPattern ("\\d{2}").isFastPath ());
+    assertFalse (new RegExPattern ("[a-z&&[^b]]").isFastPath ());
+    assertFalse (new RegExPattern ("[äö]").isFastPath ());
+    assertFalse (new RegExPattern ("\\1").isFastPath ());
+    assertFalse (new RegExPattern ("abc", Pattern.CASE_INSENSITIVE).isFastPath ());
+  }
+
+  @Test
+  public void testFastPathSameAsRegEx ()
+  {
+    final String [] aRegExs = { "a",
+                                "ab",
+                                ",",
+                                "\\|",
+                                "\\.\\.",
+                                "\\Q$.\\E",
+                                "[,;]",
+                                "[,;]+",
+                                "[^,;]",
+                                "[^a-c]+",
+                                "[-a]",
+                                "[a\\-z]",
+                                "[\\s,]+",
+                                "\\s",
+                                "\\s+",
+                                "\\S+",
+                                "\\d",
+                                "\\D+",
+                                "\\w+",
+                                "\\W",
+                                " +",
+                                "\\.+" };
+    final String [] aTexts = { "",
+                               "a",
+                               "ab",
+                               "abab",
+                               ",",
+                               ",,a,,b,,",
+                               "a;b,c;;",
+                               ";a",
+                               "a|b||c|",
+                               "..a...b",
+                               "$.x$.",
+                               " a  b\tc\n d ",
+                               "x-y-z",
+                               "123abc 456",
+                               "äöü a_b",
+                               "a😀b😀😀" };
+    for (final String sRegEx : aRegExs)
+    {
+      final RegExPattern aPattern = new RegExPattern (sRegEx);
+      assertTrue (sRegEx, aPattern.isFastPath ());
+      final Pattern aRegEx = Pattern.compile (sRegEx);
+      for (final String sText : aTexts)
+      {
+        final String sMsg = "'" + sRegEx + "' on '" + sText + "'";
+        for (final int nLimit : new int [] { -1, 0, 1, 2, 3 })
+          assertArrayEquals (sMsg + " limit " + nLimit, aRegEx.split (sText, nLimit), aPattern.split (sText, nLimit));
+        assertEquals (sMsg, Boolean.valueOf (aRegEx.matcher (sText).matches ()), Boolean.valueOf (aPattern.matches (sText)));
+        assertEquals (sMsg, aRegEx.matcher (sText).replaceAll ("#"), aPattern.replaceAll (sText, "#"));
+        assertEquals (sMsg, aRegEx.matcher (sText).replaceAll ("[$0]"), aPattern.replaceAll (sText, "[$0]"));
+      }
+    }
+
+    // Single matches
+    assertTrue (new RegExPattern ("[^a]").matches ("😀"));
+    assertTrue (new RegExPattern ("\\d+").matches ("0123"));
+    assertFalse (new RegExPattern ("\\d").matches ("01"));
+  }
 }
@@ -42,5 +42,9 @@ public final class StatisticsHandlerCacheTest
     assertEquals (2, sh.getInvocationCount ());
     assertEquals (1, sh.getHits ());
     assertEquals (1, sh.getMisses ());
+    assertEquals (0, sh.getEvictions ());
+    sh.cacheEviction ();
+    assertEquals (2, sh.getInvocationCount ());
+    assertEquals (1, sh.getEvictions ());
   }
 }
@@ -17,10 +17,15 @@
 package com.helger.commons.statistics;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
 import com.helger.commons.CGlobal;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
 
 /**
  * Test class for class {@link StatisticsHandlerKeyedCounter}.
@@ -50,4 +55,34 @@ public final class StatisticsHandlerKeyedCounterTest
     assertEquals (1L, sh.getCount ("key2"));
     assertEquals (2, sh.getAllKeys ().size ());
   }
+
+  @Test
+  public void testNullKey ()
+  {
+    final StatisticsHandlerKeyedCounter sh = new StatisticsHandlerKeyedCounter ();
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getCount (null));
+    sh.increment (null, 5);
+    sh.increment (null);
+    assertEquals (6L, sh.getCount (null));
+    assertEquals (2, sh.getInvocationCount (null));
+    assertTrue (sh.getAllKeys ().contains (null));
+  }
+
+  @Test
+  public void testConcurrent ()
+  {
+    final StatisticsHandlerKeyedCounter sh = new StatisticsHandlerKeyedCounter ();
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 8; ++i)
+      aES.submit ( () -> {
+        for (int j = 0; j < 10000; ++j)
+          sh.increment ("key" + (j % 10));
+      });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (80000, sh.getInvocationCount ());
+    assertEquals (10, sh.getAllKeys ().size ());
+    for (int i = 0; i < 10; ++i)
+      assertEquals (8000L, sh.getCount ("key" + i));
+  }
 }
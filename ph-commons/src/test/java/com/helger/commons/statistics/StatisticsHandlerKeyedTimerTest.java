@@ -18,12 +18,14 @@ package com.helger.commons.statistics;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
 
 import java.math.BigInteger;
 
 import org.junit.Test;
 
 import com.helger.commons.CGlobal;
+import com.helger.commons.collection.impl.ICommonsMap;
 
 /**
  * Test class for class {@link StatisticsHandlerKeyedTimer}.
@@ -77,4 +79,52 @@ public final class StatisticsHandlerKeyedTimerTest
 
     assertEquals (2, sh.getAllKeys ().size ());
   }
+
+  @Test
+  public void testPercentilesAndIntervals ()
+  {
+    final StatisticsHandlerKeyedTimer sh = new StatisticsHandlerKeyedTimer (true);
+    assertEquals (CGlobal.ILLEGAL_ULONG, sh.getPercentile ("key1", 50));
+    assertNull (sh.getIntervalSnapshot ("key1"));
+
+    for (int i = 1; i <= 10; ++i)
+      sh.addTime ("key1", i);
+    assertEquals (5L, sh.getPercentile ("key1", 50));
+    assertEquals (10L, sh.getPercentile ("key1", 99));
+
+    // First interval contains all values
+    StatisticsHistogram aInterval = sh.getIntervalSnapshot ("key1");
+    assertEquals (10, aInterval.getTotalCount ());
+
+    // Next interval is empty
+    assertEquals (0, sh.getIntervalSnapshot ("key1").getTotalCount ());
+    sh.addTime ("key1", 15);
+    sh.addTime ("key2", 3);
+    final ICommonsMap <String, StatisticsHistogram> aAll = sh.getAllIntervalSnapshots ();
+    assertEquals (2, aAll.size ());
+    aInterval = aAll.get ("key1");
+    assertEquals (1, aInterval.getTotalCount ());
+    assertEquals (15L, aInterval.getValueAtPercentile (50));
+
+    // Overall values are not affected
+    assertEquals (11, sh.getInvocationCount ("key1"));
+    assertEquals (11, sh.getHistogram ("key1").getTotalCount ());
+  }
+
+  @Test
+  public void testIntervalsNotTracked ()
+  {
+    final StatisticsHandlerKeyedTimer sh = new StatisticsHandlerKeyedTimer ();
+    sh.addTime ("key1", 5);
+    assertEquals (5L, sh.getPercentile ("key1", 50));
+    try
+    {
+      sh.getIntervalSnapshot ("key1");
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+  }
 }
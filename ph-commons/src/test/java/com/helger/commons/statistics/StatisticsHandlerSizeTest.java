@@ -62,5 +62,18 @@ public final class StatisticsHandlerSizeTest
     assertEquals (45, sh.getMax ());
     assertEquals (BigInteger.valueOf (75), sh.getSum ());
     sh.addSize (-1);
+    assertEquals (BigInteger.valueOf (74), sh.getSum ());
+    assertEquals (74, sh.getSumAsLong ());
+  }
+
+  @Test
+  public void testSumExceedsLong ()
+  {
+    final StatisticsHandlerSize sh = new StatisticsHandlerSize ();
+    for (int i = 0; i < 4; ++i)
+      sh.addSize (Long.MAX_VALUE);
+    assertEquals (BigInteger.valueOf (Long.MAX_VALUE).multiply (BigInteger.valueOf (4)), sh.getSum ());
+    assertEquals (Long.MAX_VALUE, sh.getAverage ());
+    assertEquals (Long.MAX_VALUE, sh.getSumAsLong ());
   }
 }
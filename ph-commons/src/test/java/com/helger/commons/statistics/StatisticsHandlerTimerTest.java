@@ -17,12 +17,16 @@
 package com.helger.commons.statistics;
 
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
 
 import java.math.BigInteger;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 import org.junit.Test;
 
 import com.helger.commons.CGlobal;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 
@@ -63,4 +67,26 @@ public final class StatisticsHandlerTimerTest
     assertEquals (BigInteger.valueOf (75), sh.getSum ());
     sh.addTime (-1);
   }
+
+  @Test
+  public void testConcurrent ()
+  {
+    final StatisticsHandlerTimer sh = new StatisticsHandlerTimer ();
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 8; ++i)
+      aES.submit ( () -> {
+        for (int j = 1; j <= 1000; ++j)
+          sh.addTime (j);
+      });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+
+    assertEquals (8000, sh.getInvocationCount ());
+    assertEquals (1, sh.getMin ());
+    assertEquals (1000, sh.getMax ());
+    assertEquals (BigInteger.valueOf (8 * 500500), sh.getSum ());
+    assertEquals (500, sh.getAverage ());
+    assertEquals (8000, sh.getHistogram ().getTotalCount ());
+    final long nP99 = sh.getPercentile (99);
+    assertTrue (nP99 >= 990 && nP99 <= 1000 * 17 / 16);
+  }
 }
@@ -0,0 +1,109 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+import org.junit.Test;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+
+/**
+ * Test class for class {@link StatisticsHistogram}.
+ *
+ * @author Philip Helger
+ */
+public final class StatisticsHistogramTest
+{
+  @Test
+  public void testBuckets ()
+  {
+    long nLastHighest = -1;
+    for (int i = 0; i < 960; ++i)
+    {
+      final long nLowest = StatisticsHistogram.getLowestValueOfBucket (i);
+      // No gaps between buckets
+      assertEquals (nLastHighest + 1, nLowest);
+      assertEquals (i, StatisticsHistogram.getBucketIndex (nLowest));
+      nLastHighest = StatisticsHistogram.getHighestValueOfBucket (i);
+      assertEquals (i, StatisticsHistogram.getBucketIndex (nLastHighest));
+    }
+    assertEquals (Long.MAX_VALUE, nLastHighest);
+  }
+
+  @Test
+  public void testPercentiles ()
+  {
+    final StatisticsHistogram aHG = new StatisticsHistogram ();
+    assertEquals (CGlobal.ILLEGAL_ULONG, aHG.getValueAtPercentile (50));
+
+    for (int i = 1; i <= 10000; ++i)
+      aHG.record (i);
+    assertEquals (10000, aHG.getTotalCount ());
+
+    for (final double dPercentile : StatisticsHistogram.DEFAULT_PERCENTILES)
+    {
+      final long nExpected = (long) (dPercentile * 100);
+      final long nValue = aHG.getValueAtPercentile (dPercentile);
+      assertTrue (nValue >= nExpected);
+      assertTrue (nValue <= nExpected * (1 + 1.0 / StatisticsHistogram.SUB_BUCKET_COUNT));
+    }
+    assertEquals (1, aHG.getValueAtPercentile (0));
+
+    // Small values are exact
+    final StatisticsHistogram aHG2 = new StatisticsHistogram ();
+    aHG2.record (-5);
+    aHG2.record (3);
+    aHG2.record (7);
+    assertEquals (0, aHG2.getValueAtPercentile (10));
+    assertEquals (3, aHG2.getValueAtPercentile (50));
+    assertEquals (7, aHG2.getValueAtPercentile (100));
+  }
+
+  @Test
+  public void testCloneAndReset ()
+  {
+    final StatisticsHistogram aHG = new StatisticsHistogram ();
+    aHG.record (1000);
+    final StatisticsHistogram aClone = aHG.getCloneAndReset ();
+    assertEquals (1, aClone.getTotalCount ());
+    assertEquals (0, aHG.getTotalCount ());
+    aHG.record (5);
+    assertEquals (1, aHG.getClone ().getTotalCount ());
+    aHG.reset ();
+    assertEquals (0, aHG.getTotalCount ());
+  }
+
+  @Test
+  public void testConcurrent ()
+  {
+    final StatisticsHistogram aHG = new StatisticsHistogram ();
+    final ExecutorService aES = Executors.newFixedThreadPool (8);
+    for (int i = 0; i < 8; ++i)
+      aES.submit ( () -> {
+        for (int j = 0; j < 10000; ++j)
+          aHG.record (j);
+      });
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+    assertEquals (80000, aHG.getTotalCount ());
+  }
+}
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.commons.statistics.util;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.time.Duration;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.helger.commons.statistics.StatisticsManager;
+
+/**
+ * Test class for class {@link StatisticsMetricsExporter}.
+ *
+ * @author Philip Helger
+ */
+public final class StatisticsMetricsExporterTest
+{
+  @Test
+  public void testPrometheus ()
+  {
+    StatisticsManager.getCacheHandler ("exp-cache").cacheHit ();
+    StatisticsManager.getTimerHandler ("exp-timer").addTime (17);
+    StatisticsManager.getKeyedTimerHandler ("exp-keyedtimer").addTime ("k\"1", 5);
+    StatisticsManager.getKeyedCounterHandler ("exp-keyedcounter").increment ("k2", 3);
+
+    final String s = new StatisticsMetricsExporter ().getAsString (EStatisticsExportFormat.PROMETHEUS);
+    assertTrue (s.contains ("# TYPE ph_cache_hits_total counter\n"));
+    assertTrue (s.contains ("ph_cache_hits_total{name=\"exp-cache\"} 1\n"));
+    assertTrue (s.contains ("ph_timer_milliseconds{name=\"exp-timer\",quantile=\"0.99\"} 17\n"));
+    assertTrue (s.contains ("ph_timer_milliseconds_count{name=\"exp-timer\"} 1\n"));
+    assertTrue (s.contains ("ph_timer_milliseconds_max{name=\"exp-timer\"} 17\n"));
+    assertTrue (s.contains ("ph_timer_milliseconds{name=\"exp-keyedtimer\",key=\"k\\\"1\",quantile=\"0.999\"} 5\n"));
+    assertTrue (s.contains ("ph_counter_total{name=\"exp-keyedcounter\",key=\"k2\"} 3\n"));
+
+    // Each family is declared only once
+    assertEquals (s.indexOf ("# TYPE ph_timer_milliseconds summary"),
+                  s.lastIndexOf ("# TYPE ph_timer_milliseconds summary"));
+  }
+
+  @Test
+  public void testJson ()
+  {
+    StatisticsManager.getSizeHandler ("exp-size").addSize (1000);
+    StatisticsManager.getKeyedSizeHandler ("exp-keyedsize").addSize ("a\nb", 10);
+    StatisticsManager.getCounterHandler ("exp-counter").increment ();
+
+    final StatisticsMetricsExporter aExporter = new StatisticsMetricsExporter ().setPercentiles (99, 50);
+    assertArrayEquals (new double [] { 50, 99 }, aExporter.getPercentiles (), 0);
+    final String s = aExporter.getAsString (EStatisticsExportFormat.JSON);
+    assertTrue (s.startsWith ("{\"cache\":["));
+    assertTrue (s.endsWith ("]}"));
+    assertTrue (s.contains ("{\"name\":\"exp-size\",\"invocations\":1,\"sum\":1000,\"min\":1000,\"max\":1000,\"average\":1000,\"percentiles\":{\"p50\":"));
+    assertTrue (s.contains ("{\"name\":\"exp-keyedsize\",\"keys\":[{\"key\":\"a\\nb\",\"invocations\":1,\"sum\":10"));
+    assertTrue (s.contains ("{\"name\":\"exp-counter\",\"invocations\":1,\"count\":1}"));
+  }
+
+  @Test
+  public void testMetricPrefix ()
+  {
+    final StatisticsMetricsExporter aExporter = new StatisticsMetricsExporter ();
+    assertEquals ("", aExporter.setMetricPrefix ("").getMetricPrefix ());
+    assertEquals ("app:ph_", aExporter.setMetricPrefix ("app:ph_").getMetricPrefix ());
+    for (final String sInvalid : new String [] { "1ph_", "ph-", "ph " })
+      try
+      {
+        aExporter.setMetricPrefix (sInvalid);
+        fail ();
+      }
+      catch (final IllegalArgumentException ex)
+      {
+        // expected
+      }
+  }
+
+  @Test
+  public void testSchedulePush () throws InterruptedException
+  {
+    final CountDownLatch aLatch = new CountDownLatch (2);
+    final ScheduledFuture <?> aFuture = new StatisticsMetricsExporter ().schedulePush (Duration.ofMillis (10),
+                                                                                      EStatisticsExportFormat.JSON,
+                                                                                      s -> {
+                                                                                        aLatch.countDown ();
+                                                                                        // Does not stop the schedule
+                                                                                        throw new IllegalStateException ("Test");
+                                                                                      });
+    try
+    {
+      assertTrue (aLatch.await (5, TimeUnit.SECONDS));
+    }
+    finally
+    {
+      aFuture.cancel (false);
+    }
+  }
+}
@@ -20,6 +20,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.ELockType;
 import com.helger.commons.annotation.MustBeLocked;
 import com.helger.commons.annotation.ReturnsMutableObject;
@@ -43,7 +44,7 @@ public abstract class AbstractDAO implements IDAO
   private static CallbackList <IDAOReadExceptionCallback> s_aExceptionHandlersRead = new CallbackList <> ();
   private static CallbackList <IDAOWriteExceptionCallback> s_aExceptionHandlersWrite = new CallbackList <> ();
 
-  protected final SimpleReadWriteLock m_aRWLock = new SimpleReadWriteLock ();
+  protected final SimpleReadWriteLock m_aRWLock;
 
   @GuardedBy ("m_aRWLock")
   private final NonBlockingStack <Boolean> m_aAutoSaveStack = new NonBlockingStack <> ();
@@ -53,7 +54,21 @@ public abstract class AbstractDAO implements IDAO
   private boolean m_bAutoSaveEnabled = DEFAULT_AUTO_SAVE_ENABLED;
 
   protected AbstractDAO ()
-  {}
+  {
+    this (new SimpleReadWriteLock ());
+  }
+
+  /**
+   * Constructor with a custom lock.
+   *
+   * @param aRWLock
+   *        The read-write lock to be used. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  protected AbstractDAO (@Nonnull final SimpleReadWriteLock aRWLock)
+  {
+    m_aRWLock = ValueEnforcer.notNull (aRWLock, "RWLock");
+  }
 
   protected static final boolean isDebugLogging ()
   {
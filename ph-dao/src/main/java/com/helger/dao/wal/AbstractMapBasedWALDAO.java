@@ -18,7 +18,10 @@ package com.helger.dao.wal;
 
 import java.io.Serializable;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.function.BiConsumer;
 import java.util.function.BiPredicate;
 import java.util.function.Consumer;
@@ -36,14 +39,15 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.CodingStyleguideUnaware;
 import com.helger.commons.annotation.DevelopersNote;
 import com.helger.commons.annotation.ELockType;
-import com.helger.commons.annotation.IsLocked;
 import com.helger.commons.annotation.MustBeLocked;
+import com.helger.commons.annotation.ReturnsImmutableObject;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.callback.CallbackList;
 import com.helger.commons.collection.CollectionHelper;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsMap;
@@ -92,6 +96,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     private boolean m_bDoInitialRead = true;
     private Supplier <ICommonsMap <String, IMPLTYPE>> m_aMapSupplier = () -> new CommonsHashMap <> ();
     private IPredicate <IMicroElement> m_aReadElementFilter = IPredicate.all ();
+    private boolean m_bStreamingRead = false;
+    private int m_nReadParallelism = DEFAULT_READ_PARALLELISM;
 
     @Nonnull
     public InitSettings <IMPLTYPE> setDoInitialRead (final boolean bDoInitialRead)
@@ -119,15 +125,62 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
       m_aReadElementFilter = ValueEnforcer.notNull (aReadElementFilter, "ReadElementFilter");
       return this;
     }
+
+    /**
+     * Read the data file element by element instead of creating the whole
+     * document in memory. Only sensible if {@link #onRead(IMicroDocument)} is
+     * not overridden.
+     *
+     * @param bStreamingRead
+     *        <code>true</code> to enable streaming read
+     * @return this for chaining
+     * @see AbstractWALDAO#getStreamingReader()
+     * @since 9.1.0
+     */
+    @Nonnull
+    public InitSettings <IMPLTYPE> setStreamingRead (final boolean bStreamingRead)
+    {
+      m_bStreamingRead = bStreamingRead;
+      return this;
+    }
+
+    /**
+     * Set the number of threads used to convert the read elements to native
+     * objects. The micro type converter of the implementation type must be
+     * thread-safe if the value is &gt; 1.
+     *
+     * @param nReadParallelism
+     *        The number of threads. Must be &gt; 0.
+     * @return this for chaining
+     * @see AbstractWALDAO#setReadParallelism(int)
+     * @since 9.1.0
+     */
+    @Nonnull
+    public InitSettings <IMPLTYPE> setReadParallelism (@Nonnegative final int nReadParallelism)
+    {
+      m_nReadParallelism = ValueEnforcer.isGT0 (nReadParallelism, "ReadParallelism");
+      return this;
+    }
   }
 
   protected static final String ELEMENT_ROOT = "root";
   protected static final String ELEMENT_ITEM = "item";
 
+  // The main data store in the order of the map supplier
   @GuardedBy ("m_aRWLock")
   private final ICommonsMap <String, IMPLTYPE> m_aMap;
+  // Copy of m_aMap for lock-free lookups by ID - modified within the write
+  // lock only
+  private final ConcurrentHashMap <String, IMPLTYPE> m_aLookup = new ConcurrentHashMap <> ();
+  // Immutable snapshot of the values of m_aMap for lock-free iteration. Reset
+  // to null on each modification and lazily recreated by the next reader.
+  private volatile ICommonsList <IMPLTYPE> m_aSnapshot;
+  // All secondary indexes. Replaced by a modified copy within the write lock
+  // only, so that queries need no lock.
+  private volatile ICommonsMap <MapBasedDAOIndex <?, ?>, MapBasedDAOIndexStore <IMPLTYPE, ?>> m_aIndexes = new CommonsLinkedHashMap <> ();
   private final CallbackList <IDAOChangeCallback <INTERFACETYPE>> m_aCallbacks = new CallbackList <> ();
   private final IPredicate <IMicroElement> m_aReadElementFilter;
+  private final boolean m_bStreamingRead;
 
   /**
    * Default constructor. Automatically tries to read the file in the
@@ -154,6 +207,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     super (aImplClass, aIO, () -> sFilename);
     m_aMap = aInitSettings.m_aMapSupplier.get ();
     m_aReadElementFilter = aInitSettings.m_aReadElementFilter;
+    m_bStreamingRead = aInitSettings.m_bStreamingRead;
+    setReadParallelism (aInitSettings.m_nReadParallelism);
     if (aInitSettings.m_bDoInitialRead)
       initialRead ();
   }
@@ -176,7 +231,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @MustBeLocked (ELockType.WRITE)
   protected void onRecoveryDelete (@Nonnull final IMPLTYPE aItem)
   {
-    m_aMap.remove (aItem.getID (), aItem);
+    if (m_aMap.remove (aItem.getID (), aItem))
+      _removeFromLookup (aItem);
   }
 
   @Override
@@ -184,22 +240,81 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   protected EChange onRead (@Nonnull final IMicroDocument aDoc)
   {
     // Read all child elements independent of the name - soft migration
-    final Class <IMPLTYPE> aDataTypeClass = getDataTypeClass ();
     final Wrapper <EChange> aChange = new Wrapper <> (EChange.UNCHANGED);
 
     aDoc.getDocumentElement ().forAllChildElements (m_aReadElementFilter, eItem -> {
-      final IMPLTYPE aItem = MicroTypeConverter.convertToNative (eItem, aDataTypeClass);
-      _addItem (aItem, EDAOActionType.CREATE);
-      if (aItem instanceof IDAOReadChangeAware)
-        if (((IDAOReadChangeAware) aItem).isReadChanged ())
-        {
-          // Remember that something was changed while reading
-          aChange.set (EChange.CHANGED);
-        }
+      final IMPLTYPE aItem = MicroTypeConverter.convertToNative (eItem, getDataTypeClass ());
+      if (onReadItem (aItem).isChanged ())
+      {
+        // Remember that something was changed while reading
+        aChange.set (EChange.CHANGED);
+      }
     });
     return aChange.get ();
   }
 
+  @Override
+  @Nullable
+  protected final IWALStreamingReader <IMPLTYPE> getStreamingReader ()
+  {
+    if (!m_bStreamingRead)
+      return null;
+
+    return new IWALStreamingReader <IMPLTYPE> ()
+    {
+      @Override
+      @Nullable
+      public IMPLTYPE convertReadElementToNative (@Nonnull final IMicroElement eElement)
+      {
+        return AbstractMapBasedWALDAO.this.convertReadElementToNative (eElement);
+      }
+
+      @Override
+      @Nonnull
+      public EChange onReadItem (@Nonnull final IMPLTYPE aItem)
+      {
+        return AbstractMapBasedWALDAO.this.onReadItem (aItem);
+      }
+    };
+  }
+
+  /**
+   * Convert a single child element of the document element into the native
+   * object. This method must not modify any state, because it may be called
+   * concurrently upon streaming read.
+   *
+   * @param eElement
+   *        The element to convert. Never <code>null</code>.
+   * @return The native object or <code>null</code> if the element is filtered
+   *         out.
+   */
+  @Nullable
+  protected final IMPLTYPE convertReadElementToNative (@Nonnull final IMicroElement eElement)
+  {
+    // Read all child elements independent of the name - soft migration
+    if (!m_aReadElementFilter.test (eElement))
+      return null;
+    return MicroTypeConverter.convertToNative (eElement, getDataTypeClass ());
+  }
+
+  /**
+   * Add a single read item.
+   *
+   * @param aItem
+   *        The item to add. Never <code>null</code>.
+   * @return {@link EChange#CHANGED} if the item requires a writing.
+   */
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  protected final EChange onReadItem (@Nonnull final IMPLTYPE aItem)
+  {
+    _addItem (aItem, EDAOActionType.CREATE);
+    if (aItem instanceof IDAOReadChangeAware)
+      if (((IDAOReadChangeAware) aItem).isReadChanged ())
+        return EChange.CHANGED;
+    return EChange.UNCHANGED;
+  }
+
   @MustBeLocked (ELockType.READ)
   @CodingStyleguideUnaware
   protected final Collection <IMPLTYPE> getAllSortedByKey ()
@@ -234,7 +349,8 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
    *        The action type. Must be CREATE or UPDATE!
    * @throws IllegalArgumentException
    *         If on CREATE an item with the same ID is already contained. If on
-   *         UPDATE an item with the provided ID does NOT exist.
+   *         UPDATE an item with the provided ID does NOT exist. If the key of
+   *         a unique index is already used by another item.
    */
   @MustBeLocked (ELockType.WRITE)
   private void _addItem (@Nonnull final IMPLTYPE aItem, @Nonnull final EDAOActionType eActionType)
@@ -267,7 +383,94 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
                                             aItem);
     }
 
+    // Check all unique constraints before anything is modified
+    for (final MapBasedDAOIndexStore <IMPLTYPE, ?> aIndexStore : m_aIndexes.values ())
+      aIndexStore.checkUnique (aItem);
+
     m_aMap.put (sID, aItem);
+    m_aLookup.put (sID, aItem);
+    m_aSnapshot = null;
+    for (final MapBasedDAOIndexStore <IMPLTYPE, ?> aIndexStore : m_aIndexes.values ())
+      aIndexStore.add (aItem);
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _removeFromLookup (@Nonnull final IMPLTYPE aItem)
+  {
+    final String sID = aItem.getID ();
+    m_aLookup.remove (sID);
+    m_aSnapshot = null;
+    for (final MapBasedDAOIndexStore <IMPLTYPE, ?> aIndexStore : m_aIndexes.values ())
+      aIndexStore.remove (sID);
+  }
+
+  /**
+   * Add a secondary index and fill it with all existing items. Afterwards the
+   * index is maintained on every modification.
+   *
+   * @param aIndex
+   *        The index to add. May not be <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the index is already registered or if the existing items violate
+   *         a unique index.
+   * @since 9.1.0
+   */
+  protected final void addIndex (@Nonnull final MapBasedDAOIndex <? super INTERFACETYPE, ?> aIndex)
+  {
+    ValueEnforcer.notNull (aIndex, "Index");
+
+    m_aRWLock.writeLocked ( () -> {
+      if (m_aIndexes.containsKey (aIndex))
+        throw new IllegalArgumentException ("The index '" + aIndex.getName () + "' is already registered");
+
+      final MapBasedDAOIndexStore <IMPLTYPE, ?> aIndexStore = new MapBasedDAOIndexStore <> (aIndex);
+      for (final IMPLTYPE aItem : m_aMap.values ())
+      {
+        aIndexStore.checkUnique (aItem);
+        aIndexStore.add (aItem);
+      }
+      final ICommonsMap <MapBasedDAOIndex <?, ?>, MapBasedDAOIndexStore <IMPLTYPE, ?>> aNewIndexes = new CommonsLinkedHashMap <> (m_aIndexes);
+      aNewIndexes.put (aIndex, aIndexStore);
+      m_aIndexes = aNewIndexes;
+    });
+  }
+
+  @Nonnull
+  @SuppressWarnings ("unchecked")
+  private <KEYTYPE> MapBasedDAOIndexStore <IMPLTYPE, KEYTYPE> _getIndexStore (@Nonnull final MapBasedDAOIndex <?, KEYTYPE> aIndex)
+  {
+    ValueEnforcer.notNull (aIndex, "Index");
+
+    // The store was created with the same index and therefore has the same
+    // key type
+    final MapBasedDAOIndexStore <IMPLTYPE, KEYTYPE> ret = (MapBasedDAOIndexStore <IMPLTYPE, KEYTYPE>) m_aIndexes.get (aIndex);
+    if (ret == null)
+      throw new IllegalArgumentException ("The index '" + aIndex.getName () + "' is not registered in " + getClass ().getName ());
+    return ret;
+  }
+
+  /**
+   * @return The current snapshot of all values in the order of the map. Never
+   *         <code>null</code>. The returned list must not be modified.
+   */
+  @Nonnull
+  private ICommonsList <IMPLTYPE> _getSnapshot ()
+  {
+    final ICommonsList <IMPLTYPE> ret = m_aSnapshot;
+    if (ret != null)
+      return ret;
+
+    // Create and publish within the lock, so that no modification can happen
+    // in between
+    return m_aRWLock.readLocked ( () -> {
+      ICommonsList <IMPLTYPE> aSnapshot = m_aSnapshot;
+      if (aSnapshot == null)
+      {
+        aSnapshot = new CommonsArrayList <> (m_aMap.values ());
+        m_aSnapshot = aSnapshot;
+      }
+      return aSnapshot;
+    });
   }
 
   @Override
@@ -341,6 +544,7 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     final IMPLTYPE aDeletedItem = m_aMap.remove (sID);
     if (aDeletedItem == null)
       return null;
+    _removeFromLookup (aDeletedItem);
 
     // Trigger save changes
     super.markAsChanged (aDeletedItem, EDAOActionType.DELETE);
@@ -394,6 +598,10 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @Nonnull
   protected final EChange internalRemoveAllItemsNoCallback ()
   {
+    m_aLookup.clear ();
+    m_aSnapshot = null;
+    for (final MapBasedDAOIndexStore <IMPLTYPE, ?> aIndexStore : m_aIndexes.values ())
+      aIndexStore.clear ();
     return m_aMap.removeAll ();
   }
 
@@ -406,17 +614,15 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
 
   @Nonnull
   @ReturnsMutableCopy
-  @IsLocked (ELockType.READ)
   public final ICommonsList <INTERFACETYPE> getAll ()
   {
     // Use new CommonsArrayList to get the return type to NOT use "? extends
     // INTERFACETYPE"
-    return m_aRWLock.readLocked ( () -> new CommonsArrayList <> (m_aMap.values ()));
+    return new CommonsArrayList <> (_getSnapshot ());
   }
 
   @Nonnull
   @ReturnsMutableCopy
-  @IsLocked (ELockType.READ)
   public final ICommonsList <INTERFACETYPE> getAll (@Nullable final Predicate <? super INTERFACETYPE> aFilter)
   {
     if (aFilter == null)
@@ -425,151 +631,159 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
     // Use new CommonsArrayList to get the return type to NOT use "? extends
     // INTERFACETYPE"
     final ICommonsList <INTERFACETYPE> ret = new CommonsArrayList <> ();
-    // (Runnable) cast for Java 9
-    m_aRWLock.readLocked ((Runnable) () -> CollectionHelper.findAll (m_aMap.values (), aFilter, ret::add));
+    CollectionHelper.findAll (_getSnapshot (), aFilter, ret::add);
     return ret;
   }
 
+  /**
+   * Get a read-only view on all items without copying. The view is a snapshot:
+   * it is not affected by later modifications and can be iterated without any
+   * locking.
+   *
+   * @return An unmodifiable, non-<code>null</code> list in the order of the
+   *         underlying map.
+   * @since 9.1.0
+   */
   @Nonnull
-  @ReturnsMutableCopy
-  @IsLocked (ELockType.READ)
+  @ReturnsImmutableObject
+  public final List <INTERFACETYPE> getAllView ()
+  {
+    return Collections.unmodifiableList (_getSnapshot ());
+  }
+
+  @Nonnull
+  @ReturnsImmutableObject
   protected final Iterable <IMPLTYPE> internalDirectGetAll ()
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.values ());
+    return Collections.unmodifiableList (_getSnapshot ());
   }
 
   @Nonnull
   @ReturnsMutableCopy
-  @IsLocked (ELockType.READ)
   protected final ICommonsList <IMPLTYPE> internalGetAll (@Nullable final Predicate <? super IMPLTYPE> aFilter)
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.copyOfValues (aFilter));
+    final ICommonsList <IMPLTYPE> ret = new CommonsArrayList <> ();
+    CollectionHelper.findAll (_getSnapshot (), aFilter, ret::add);
+    return ret;
   }
 
-  @IsLocked (ELockType.READ)
   public final void findAll (@Nullable final Predicate <? super INTERFACETYPE> aFilter,
                              @Nonnull final Consumer <? super INTERFACETYPE> aConsumer)
   {
-    // (Runnable) cast for Java 9
-    m_aRWLock.readLocked ((Runnable) () -> CollectionHelper.findAll (m_aMap.values (), aFilter, aConsumer));
+    CollectionHelper.findAll (_getSnapshot (), aFilter, aConsumer);
   }
 
   @Nonnull
   @ReturnsMutableCopy
-  @IsLocked (ELockType.READ)
   public final <RETTYPE> ICommonsList <RETTYPE> getAllMapped (@Nullable final Predicate <? super INTERFACETYPE> aFilter,
                                                               @Nonnull final Function <? super INTERFACETYPE, ? extends RETTYPE> aMapper)
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.copyOfValuesMapped (aFilter, aMapper));
+    final ICommonsList <RETTYPE> ret = new CommonsArrayList <> ();
+    CollectionHelper.findAllMapped (_getSnapshot (), aFilter, aMapper, ret::add);
+    return ret;
   }
 
-  @IsLocked (ELockType.READ)
   public final <RETTYPE> void findAllMapped (@Nullable final Predicate <? super INTERFACETYPE> aFilter,
                                              @Nonnull final Function <? super INTERFACETYPE, ? extends RETTYPE> aMapper,
                                              @Nonnull final Consumer <? super RETTYPE> aConsumer)
   {
-    // (Runnable) cast for Java 9
-    m_aRWLock.readLocked ((Runnable) () -> CollectionHelper.findAllMapped (m_aMap.values (),
-                                                                           aFilter,
-                                                                           aMapper,
-                                                                           aConsumer));
+    CollectionHelper.findAllMapped (_getSnapshot (), aFilter, aMapper, aConsumer);
   }
 
-  @IsLocked (ELockType.READ)
   @Nullable
   public final INTERFACETYPE findFirst (@Nullable final Predicate <? super INTERFACETYPE> aFilter)
   {
-    return m_aRWLock.readLocked ( () -> CollectionHelper.findFirst (m_aMap.values (), aFilter));
+    return CollectionHelper.findFirst (_getSnapshot (), aFilter);
   }
 
   @Nullable
-  @IsLocked (ELockType.READ)
   public final <RETTYPE> RETTYPE findFirstMapped (@Nullable final Predicate <? super INTERFACETYPE> aFilter,
                                                   @Nonnull final Function <? super INTERFACETYPE, ? extends RETTYPE> aMapper)
   {
-    return m_aRWLock.readLocked ( () -> CollectionHelper.findFirstMapped (m_aMap.values (), aFilter, aMapper));
+    return CollectionHelper.findFirstMapped (_getSnapshot (), aFilter, aMapper);
   }
 
-  @IsLocked (ELockType.READ)
   public final boolean isNotEmpty ()
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.isNotEmpty ());
+    return !m_aLookup.isEmpty ();
   }
 
-  @IsLocked (ELockType.READ)
   public final boolean containsAny (@Nullable final Predicate <? super INTERFACETYPE> aFilter)
   {
-    return m_aRWLock.readLocked ( () -> CollectionHelper.containsAny (m_aMap.values (), aFilter));
+    return CollectionHelper.containsAny (_getSnapshot (), aFilter);
   }
 
-  @IsLocked (ELockType.READ)
   public final boolean isEmpty ()
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.isEmpty ());
+    return m_aLookup.isEmpty ();
   }
 
-  @IsLocked (ELockType.READ)
   public final boolean containsNone (@Nullable final Predicate <? super INTERFACETYPE> aFilter)
   {
-    return m_aRWLock.readLocked ( () -> CollectionHelper.containsNone (m_aMap.values (), aFilter));
+    return CollectionHelper.containsNone (_getSnapshot (), aFilter);
   }
 
-  @IsLocked (ELockType.READ)
   public final boolean containsOnly (@Nullable final Predicate <? super INTERFACETYPE> aFilter)
   {
-    return m_aRWLock.readLocked ( () -> CollectionHelper.containsOnly (m_aMap.values (), aFilter));
+    return CollectionHelper.containsOnly (_getSnapshot (), aFilter);
   }
 
-  @IsLocked (ELockType.READ)
-  public final void forEach (@Nullable final BiConsumer <? super String, ? super INTERFACETYPE> aConsumer)
+  public final void forEach (@Nonnull final BiConsumer <? super String, ? super INTERFACETYPE> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEach (aConsumer));
+    _getSnapshot ().forEach (x -> aConsumer.accept (x.getID (), x));
   }
 
-  @IsLocked (ELockType.READ)
   public final void forEach (@Nullable final BiPredicate <? super String, ? super INTERFACETYPE> aFilter,
-                             @Nullable final BiConsumer <? super String, ? super INTERFACETYPE> aConsumer)
+                             @Nonnull final BiConsumer <? super String, ? super INTERFACETYPE> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEach (aFilter, aConsumer));
+    if (aFilter == null)
+      forEach (aConsumer);
+    else
+      _getSnapshot ().forEach (x -> {
+        final String sID = x.getID ();
+        if (aFilter.test (sID, x))
+          aConsumer.accept (sID, x);
+      });
   }
 
-  @IsLocked (ELockType.READ)
-  public final void forEachKey (@Nullable final Consumer <? super String> aConsumer)
+  public final void forEachKey (@Nonnull final Consumer <? super String> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEachKey (aConsumer));
+    _getSnapshot ().forEach (x -> aConsumer.accept (x.getID ()));
   }
 
-  @IsLocked (ELockType.READ)
   public final void forEachKey (@Nullable final Predicate <? super String> aFilter,
-                                @Nullable final Consumer <? super String> aConsumer)
+                                @Nonnull final Consumer <? super String> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEachKey (aFilter, aConsumer));
+    if (aFilter == null)
+      forEachKey (aConsumer);
+    else
+      _getSnapshot ().forEach (x -> {
+        final String sID = x.getID ();
+        if (aFilter.test (sID))
+          aConsumer.accept (sID);
+      });
   }
 
-  @IsLocked (ELockType.READ)
-  public final void forEachValue (@Nullable final Consumer <? super INTERFACETYPE> aConsumer)
+  public final void forEachValue (@Nonnull final Consumer <? super INTERFACETYPE> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEachValue (aConsumer));
+    _getSnapshot ().forEach (aConsumer);
   }
 
-  @IsLocked (ELockType.READ)
-  protected final void internalForEachValue (@Nullable final Consumer <? super IMPLTYPE> aConsumer)
+  protected final void internalForEachValue (@Nonnull final Consumer <? super IMPLTYPE> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEachValue (aConsumer));
+    _getSnapshot ().forEach (aConsumer);
   }
 
-  @IsLocked (ELockType.READ)
   public final void forEachValue (@Nullable final Predicate <? super INTERFACETYPE> aFilter,
-                                  @Nullable final Consumer <? super INTERFACETYPE> aConsumer)
+                                  @Nonnull final Consumer <? super INTERFACETYPE> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEachValue (aFilter, aConsumer));
+    CollectionHelper.findAll (_getSnapshot (), aFilter, aConsumer);
   }
 
-  @IsLocked (ELockType.READ)
   protected final void internalForEachValue (@Nullable final Predicate <? super IMPLTYPE> aFilter,
-                                             @Nullable final Consumer <? super IMPLTYPE> aConsumer)
+                                             @Nonnull final Consumer <? super IMPLTYPE> aConsumer)
   {
-    m_aRWLock.readLocked ( () -> m_aMap.forEachValue (aFilter, aConsumer));
+    CollectionHelper.findAll (_getSnapshot (), aFilter, aConsumer);
   }
 
   @Nullable
@@ -583,13 +797,12 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   }
 
   @Nullable
-  @IsLocked (ELockType.READ)
   protected final IMPLTYPE getOfID (@Nullable final String sID)
   {
     if (StringHelper.hasNoText (sID))
       return null;
 
-    return m_aRWLock.readLocked ( () -> m_aMap.get (sID));
+    return m_aLookup.get (sID);
   }
 
   /**
@@ -601,38 +814,25 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
    * @return <code>null</code> if an invalid index was provided.
    */
   @Nullable
-  @IsLocked (ELockType.READ)
   protected final INTERFACETYPE getAtIndex (@Nonnegative final int nIndex)
   {
-    return m_aRWLock.readLocked ( () -> CollectionHelper.getAtIndex (m_aMap.values (), nIndex));
+    return _getSnapshot ().getAtIndex (nIndex, null);
   }
 
-  @IsLocked (ELockType.READ)
   public final boolean containsWithID (@Nullable final String sID)
   {
     if (StringHelper.hasNoText (sID))
       return false;
 
-    return m_aRWLock.readLocked ( () -> m_aMap.containsKey (sID));
+    return m_aLookup.containsKey (sID);
   }
 
-  @IsLocked (ELockType.READ)
   public final boolean containsAllIDs (@Nullable final Iterable <String> aIDs)
   {
     if (aIDs != null)
-    {
-      m_aRWLock.readLock ().lock ();
-      try
-      {
-        for (final String sID : aIDs)
-          if (!m_aMap.containsKey (sID))
-            return false;
-      }
-      finally
-      {
-        m_aRWLock.readLock ().unlock ();
-      }
-    }
+      for (final String sID : aIDs)
+        if (sID == null || !m_aLookup.containsKey (sID))
+          return false;
     return true;
   }
 
@@ -640,19 +840,52 @@ public abstract class AbstractMapBasedWALDAO <INTERFACETYPE extends IHasID <Stri
   @ReturnsMutableCopy
   public final ICommonsSet <String> getAllIDs ()
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.copyOfKeySet ());
+    return new CommonsHashSet <> (m_aLookup.keySet ());
   }
 
   @Nonnegative
   public final int size ()
   {
-    return m_aRWLock.readLocked ( () -> m_aMap.size ());
+    return m_aLookup.size ();
   }
 
   @Nonnegative
   public final int getCount (@Nullable final Predicate <? super INTERFACETYPE> aFilter)
   {
-    return m_aRWLock.readLocked ( () -> CollectionHelper.getCount (m_aMap.values (), aFilter));
+    return CollectionHelper.getCount (_getSnapshot (), aFilter);
+  }
+
+  @Override
+  @Nullable
+  public final <KEYTYPE> INTERFACETYPE getFirstOfIndex (@Nonnull final MapBasedDAOIndex <? super INTERFACETYPE, KEYTYPE> aIndex,
+                                                        @Nullable final KEYTYPE aKey)
+  {
+    return _getIndexStore (aIndex).getFirst (aKey);
+  }
+
+  @Override
+  @Nonnull
+  @ReturnsMutableCopy
+  public final <KEYTYPE> ICommonsList <INTERFACETYPE> getAllOfIndex (@Nonnull final MapBasedDAOIndex <? super INTERFACETYPE, KEYTYPE> aIndex,
+                                                                    @Nullable final KEYTYPE aKey)
+  {
+    final ICommonsList <INTERFACETYPE> ret = new CommonsArrayList <> ();
+    _getIndexStore (aIndex).forEach (aKey, ret::add);
+    return ret;
+  }
+
+  @Override
+  @Nonnull
+  @ReturnsMutableCopy
+  public final <KEYTYPE> ICommonsList <INTERFACETYPE> getAllOfIndexRange (@Nonnull final MapBasedDAOIndex <? super INTERFACETYPE, KEYTYPE> aIndex,
+                                                                         @Nullable final KEYTYPE aFromKey,
+                                                                         final boolean bFromInclusive,
+                                                                         @Nullable final KEYTYPE aToKey,
+                                                                         final boolean bToInclusive)
+  {
+    final ICommonsList <INTERFACETYPE> ret = new CommonsArrayList <> ();
+    _getIndexStore (aIndex).forEachInRange (aFromKey, bFromInclusive, aToKey, bToInclusive, ret::add);
+    return ret;
   }
 
   @Override
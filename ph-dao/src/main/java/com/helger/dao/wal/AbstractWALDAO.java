@@ -20,19 +20,26 @@ import java.io.DataInputStream;
 import java.io.DataOutputStream;
 import java.io.EOFException;
 import java.io.File;
+import java.io.IOException;
 import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.io.Serializable;
 import java.time.Clock;
 import java.time.LocalDateTime;
 import java.time.ZonedDateTime;
 import java.util.List;
 import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 
 import org.slf4j.Logger;
@@ -44,11 +51,15 @@ import com.helger.commons.annotation.IsLocked;
 import com.helger.commons.annotation.MustBeLocked;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.OverrideOnDemand;
+import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsTreeMap;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsNavigableMap;
+import com.helger.commons.concurrent.BasicThreadFactory;
 import com.helger.commons.datetime.PDTFactory;
 import com.helger.commons.datetime.PDTToString;
 import com.helger.commons.functional.ISupplier;
-import com.helger.commons.io.EAppend;
 import com.helger.commons.io.file.EFileIOErrorCode;
 import com.helger.commons.io.file.EFileIOOperation;
 import com.helger.commons.io.file.FileHelper;
@@ -57,25 +68,38 @@ import com.helger.commons.io.file.FileOperationManager;
 import com.helger.commons.io.relative.IFileRelativeIO;
 import com.helger.commons.io.resource.FileSystemResource;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.stream.NonBlockingBufferedInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
 import com.helger.commons.io.stream.StreamHelper;
 import com.helger.commons.lang.TimeValue;
+import com.helger.commons.mutable.MutableBoolean;
 import com.helger.commons.state.EChange;
 import com.helger.commons.state.ESuccess;
 import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
 import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
 import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.StringParser;
 import com.helger.commons.string.ToStringGenerator;
 import com.helger.commons.timing.StopWatch;
+import com.helger.commons.wrapper.Wrapper;
 import com.helger.dao.AbstractDAO;
 import com.helger.dao.DAOException;
 import com.helger.dao.EDAOActionType;
 import com.helger.xml.microdom.IMicroComment;
 import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.IMicroProcessingInstruction;
 import com.helger.xml.microdom.MicroComment;
+import com.helger.xml.microdom.MicroProcessingInstruction;
 import com.helger.xml.microdom.convert.MicroTypeConverter;
 import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.microdom.serialize.MicroStreamingSAXHandler;
 import com.helger.xml.microdom.serialize.MicroWriter;
+import com.helger.xml.sax.InputSourceFactory;
+import com.helger.xml.serialize.read.SAXReader;
+import com.helger.xml.serialize.read.SAXReaderSettings;
 import com.helger.xml.serialize.write.EXMLIncorrectCharacterHandling;
 import com.helger.xml.serialize.write.EXMLSerializeIndent;
 import com.helger.xml.serialize.write.IXMLWriterSettings;
@@ -94,7 +118,26 @@ import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
 public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends AbstractDAO
 {
   public static final TimeValue DEFAULT_WAITING_TIME = new TimeValue (TimeUnit.SECONDS, 10);
+  /** The default WAL durability */
+  public static final EWALDurability DEFAULT_WAL_DURABILITY = EWALDurability.NONE;
+  /** The default interval of periodic forces */
+  public static final TimeValue DEFAULT_WAL_FORCE_INTERVAL = new TimeValue (TimeUnit.MILLISECONDS, 10);
+  /** The default number of segment files that triggers a compaction */
+  public static final int DEFAULT_COMPACTION_SEGMENT_COUNT = 16;
+  /** The default number of threads used for the initial read */
+  public static final int DEFAULT_READ_PARALLELISM = 1;
+  /**
+   * The target of the processing instruction in the data file that contains
+   * the generation of the last segment file contained in the data file.
+   */
+  public static final String PI_SEGMENT_GENERATION = "ph-dao-segment";
   private static final Logger s_aLogger = LoggerFactory.getLogger (AbstractWALDAO.class);
+  private static final String SEGMENT_INFIX = ".seg.";
+
+  // Shared by all DAOs - compactions are rare
+  private static final ExecutorService s_aCompactionES = Executors.newSingleThreadExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("WAL-Compaction-%d")
+                                                                                                                         .setDaemon (true)
+                                                                                                                         .build ());
 
   private final IMutableStatisticsHandlerCounter m_aStatsCounterInitTotal = StatisticsManager.getCounterHandler (getClass ().getName () +
                                                                                                                  "$init-total");
@@ -116,11 +159,18 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
                                                                                                                        "$write-exceptions");
   private final IMutableStatisticsHandlerTimer m_aStatsCounterWriteTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
                                                                                                               "$write");
+  private final IMutableStatisticsHandlerTimer m_aStatsCounterWALWriteTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
+                                                                                                                 "$wal-write");
+  private final IMutableStatisticsHandlerCounter m_aStatsCounterSegmentWrite = StatisticsManager.getCounterHandler (getClass ().getName () +
+                                                                                                                   "$segment-write");
+  private final IMutableStatisticsHandlerTimer m_aStatsCounterCompactionTimer = StatisticsManager.getTimerHandler (getClass ().getName () +
+                                                                                                                  "$compaction");
   // Performance and small version
   public static final IXMLWriterSettings WRITE_XWS = new XMLWriterSettings ().setIncorrectCharacterHandling (EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG);
   public static final IXMLWriterSettings WAL_XWS = new XMLWriterSettings ().setIncorrectCharacterHandling (EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG)
                                                                            .setIndent (EXMLSerializeIndent.NONE);
 
+  private final WALReadWriteLock m_aWALRWLock;
   private final Class <DATATYPE> m_aDataTypeClass;
   private final IFileRelativeIO m_aIO;
   private final ISupplier <String> m_aFilenameProvider;
@@ -133,9 +183,26 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   private LocalDateTime m_aLastWriteDT;
   private boolean m_bCanWriteWAL = true;
   private TimeValue m_aWaitingTime = DEFAULT_WAITING_TIME;
+  private EWALDurability m_eWALDurability = DEFAULT_WAL_DURABILITY;
+  private TimeValue m_aWALForceInterval = DEFAULT_WAL_FORCE_INTERVAL;
+  private int m_nWALPreallocationSize = WALFile.DEFAULT_PREALLOCATION_SIZE;
+  private boolean m_bIncrementalWrite = false;
+  private IWALCodec <DATATYPE> m_aWALCodec;
+  private int m_nCompactionSegmentCount = DEFAULT_COMPACTION_SEGMENT_COUNT;
+  private int m_nReadParallelism = DEFAULT_READ_PARALLELISM;
 
   // Status vars
   private final WALListener m_aWALListener;
+  @GuardedBy ("m_aRWLock")
+  private WALFile m_aWALFile;
+  // The generation of the last segment file created
+  @GuardedBy ("m_aRWLock")
+  private long m_nSegmentGeneration = 0;
+  @GuardedBy ("m_aRWLock")
+  private boolean m_bCompactionScheduled = false;
+  // Only present while the initial read is in progress
+  @GuardedBy ("m_aRWLock")
+  private ExecutorService m_aReadExecutor;
 
   private static String _getFilenameNew (final String sFilename)
   {
@@ -147,10 +214,30 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     return sFilename + ".prev";
   }
 
+  private static String _getFilenameCompact (final String sFilename)
+  {
+    return sFilename + ".compact";
+  }
+
+  private static String _getFilenameSegment (final String sFilename, final long nGeneration)
+  {
+    return sFilename + SEGMENT_INFIX + nGeneration;
+  }
+
   protected AbstractWALDAO (@Nonnull final Class <DATATYPE> aDataTypeClass,
                             @Nonnull final IFileRelativeIO aIO,
                             @Nonnull final ISupplier <String> aFilenameProvider)
   {
+    this (new WALReadWriteLock (), aDataTypeClass, aIO, aFilenameProvider);
+  }
+
+  private AbstractWALDAO (@Nonnull final WALReadWriteLock aRWLock,
+                          @Nonnull final Class <DATATYPE> aDataTypeClass,
+                          @Nonnull final IFileRelativeIO aIO,
+                          @Nonnull final ISupplier <String> aFilenameProvider)
+  {
+    super (aRWLock);
+    m_aWALRWLock = aRWLock;
     m_aDataTypeClass = ValueEnforcer.notNull (aDataTypeClass, "DataTypeClass");
     m_aIO = ValueEnforcer.notNull (aIO, "DAOIO");
     m_aFilenameProvider = ValueEnforcer.notNull (aFilenameProvider, "FilenameProvider");
@@ -186,6 +273,10 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       {
         // Ignore
       }
+
+      // Left over from an interrupted compaction - the data file and the
+      // segment files are still complete
+      m_aIO.deleteFileIfExisting (_getFilenameCompact (sFilename));
     }
   }
 
@@ -194,6 +285,12 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     m_aRWLock.writeLocked (aRunnable);
   }
 
+  @Nullable
+  final WALFile internalGetWALFile ()
+  {
+    return m_aRWLock.readLocked ( () -> m_aWALFile);
+  }
+
   /**
    * @return The file-relative IO as passed in the constructor. Never
    *         <code>null</code>.
@@ -241,6 +338,27 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   @MustBeLocked (ELockType.WRITE)
   protected abstract EChange onRead (@Nonnull IMicroDocument aDoc);
 
+  /**
+   * Get the reader to be used to read the data file in a streaming fashion. If
+   * a reader is returned, the whole document is never created in memory and
+   * {@link #onRead(IMicroDocument)} is not called. Instead each child element
+   * of the document element is passed to the reader. The document passed to
+   * {@link #onBetweenReadAndWAL(IMicroDocument)} only contains the empty
+   * document element. In contrast to the regular read, a syntactically invalid
+   * data file results in a {@link DAOException}, because parts of it may
+   * already have been applied.
+   *
+   * @return The streaming reader to use or <code>null</code> to read the whole
+   *         document at once. The default is <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nullable
+  @OverrideOnDemand
+  protected IWALStreamingReader <DATATYPE> getStreamingReader ()
+  {
+    return null;
+  }
+
   @Nonnull
   protected final File getSafeFile (@Nonnull final String sFilename, @Nonnull final EMode eMode) throws DAOException
   {
@@ -336,7 +454,9 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   /**
    * This method is used upon recovery to convert a stored object to its native
    * representation. If you overwrite this method, you should consider
-   * overriding {@link #convertNativeToWALString(Serializable)} as well.
+   * overriding {@link #convertNativeToWALString(Serializable)} as well. If the
+   * read parallelism is &gt; 1 this method is called concurrently from several
+   * threads and must therefore not modify any state.
    *
    * @param sElement
    *        The string representation to be converted. Never <code>null</code>.
@@ -392,6 +512,244 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   @IsLocked (ELockType.WRITE)
   protected abstract void onRecoveryDelete (@Nonnull DATATYPE aElement);
 
+  @MustBeLocked (ELockType.WRITE)
+  private void _recoverElement (@Nonnull final EDAOActionType eActionType, @Nonnull final DATATYPE aElement)
+  {
+    switch (eActionType)
+    {
+      case CREATE:
+        try
+        {
+          onRecoveryCreate (aElement);
+          s_aLogger.info ("[WAL] wal-recovery create " + aElement);
+        }
+        catch (final RuntimeException ex)
+        {
+          s_aLogger.error ("[WAL] wal-recovery create " + aElement, ex);
+          throw ex;
+        }
+        break;
+      case UPDATE:
+        try
+        {
+          onRecoveryUpdate (aElement);
+          s_aLogger.info ("[WAL] wal-recovery update " + aElement);
+          break;
+        }
+        catch (final RuntimeException ex)
+        {
+          s_aLogger.error ("[WAL] wal-recovery update " + aElement, ex);
+          throw ex;
+        }
+      case DELETE:
+        try
+        {
+          onRecoveryDelete (aElement);
+          s_aLogger.info ("[WAL] wal-recovery delete " + aElement);
+          break;
+        }
+        catch (final RuntimeException ex)
+        {
+          s_aLogger.error ("[WAL] wal-recovery delete " + aElement, ex);
+          throw ex;
+        }
+      default:
+        throw new IllegalStateException ("Unsupported action type provided: " + eActionType);
+    }
+  }
+
+  /**
+   * Replay all records of a WAL or segment file. Both the legacy and the binary
+   * format are supported.
+   *
+   * @param aFile
+   *        The file to read. May not be <code>null</code>.
+   * @return <code>true</code> if at least one action was performed.
+   * @throws IOException
+   *         on read error
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private boolean _recoverFromFile (@Nonnull final File aFile) throws IOException
+  {
+    final MutableBoolean aPerformedAtLeastOneRecovery = new MutableBoolean (false);
+    final OrderedParallelProcessor aProcessor = _createReadProcessor ();
+    try (final NonBlockingBufferedInputStream aIS = FileHelper.getBufferedInputStream (aFile))
+    {
+      if (WALBinaryFormat.readHeader (aIS))
+      {
+        final IWALCodec <DATATYPE> aCodec = m_aWALCodec;
+        if (aCodec == null)
+          throw new IllegalStateException ("The file " +
+                                           aFile.getAbsolutePath () +
+                                           " uses the binary WAL format but no WAL codec is present");
+
+        final WALBinaryFormat.RecordReader aReader = new WALBinaryFormat.RecordReader (aIS, aFile.length ());
+        byte [] aPayload;
+        while ((aPayload = aReader.readNext ()) != null)
+        {
+          final byte [] aFinalPayload = aPayload;
+          // Decode in parallel, apply in order
+          aProcessor.add ( () -> {
+            final ICommonsList <DATATYPE> aElements = new CommonsArrayList <> ();
+            final EDAOActionType eActionType;
+            try
+            {
+              final DataInputStream aDIS = new DataInputStream (new NonBlockingByteArrayInputStream (aFinalPayload));
+              eActionType = WALBinaryFormat.getActionType (aDIS.readByte ());
+              final int nElements = aDIS.readInt ();
+              for (int i = 0; i < nElements; ++i)
+              {
+                final DATATYPE aElement = aCodec.decode (aDIS);
+                if (aElement == null)
+                  throw new IllegalStateException ("Action [" +
+                                                   eActionType +
+                                                   "][" +
+                                                   i +
+                                                   "]: failed to decode element");
+                aElements.add (aElement);
+              }
+            }
+            catch (final IOException ex)
+            {
+              throw new UncheckedIOException (ex);
+            }
+            return () -> {
+              for (final DATATYPE aElement : aElements)
+              {
+                _recoverElement (eActionType, aElement);
+                aPerformedAtLeastOneRecovery.set (true);
+              }
+            };
+          });
+        }
+        aProcessor.finish ();
+        if (aReader.isTornTail ())
+          s_aLogger.warn ("Ignoring the incomplete record at position " +
+                          aReader.getPosition () +
+                          " of " +
+                          aFile.getAbsolutePath ());
+        return aPerformedAtLeastOneRecovery.booleanValue ();
+      }
+
+      final DataInputStream aOIS = new DataInputStream (aIS);
+      while (true)
+      {
+        // Read action type
+        String sActionType;
+        try
+        {
+          sActionType = StreamHelper.readSafeUTF (aOIS);
+        }
+        catch (final EOFException ex)
+        {
+          break;
+        }
+        if (sActionType == null)
+        {
+          // Preallocated space after the last record
+          break;
+        }
+        final EDAOActionType eActionType = EDAOActionType.getFromIDOrThrow (sActionType);
+        // Read number of elements
+        final int nElements = aOIS.readInt ();
+        // Read all elements
+        for (int i = 0; i < nElements; ++i)
+        {
+          final String sElement = StreamHelper.readSafeUTF (aOIS);
+          final int nIndex = i;
+          // Convert in parallel, apply in order
+          aProcessor.add ( () -> {
+            final DATATYPE aElement = convertWALStringToNative (sElement);
+            if (aElement == null)
+              throw new IllegalStateException ("Action [" +
+                                               eActionType +
+                                               "][" +
+                                               nIndex +
+                                               "]: failed to convert the following element to native:\n" +
+                                               sElement);
+            return () -> {
+              _recoverElement (eActionType, aElement);
+              aPerformedAtLeastOneRecovery.set (true);
+            };
+          });
+        }
+      }
+      aProcessor.finish ();
+    }
+    finally
+    {
+      aProcessor.cancel ();
+    }
+    return aPerformedAtLeastOneRecovery.booleanValue ();
+  }
+
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private OrderedParallelProcessor _createReadProcessor ()
+  {
+    return new OrderedParallelProcessor (m_aReadExecutor,
+                                         m_nReadParallelism,
+                                         OrderedParallelProcessor.DEFAULT_BATCH_SIZE);
+  }
+
+  /**
+   * Read the data file element by element and apply all items.
+   *
+   * @param aFile
+   *        The data file to read. May not be <code>null</code>.
+   * @param aReader
+   *        The streaming reader to use. May not be <code>null</code>.
+   * @param aChange
+   *        Set to {@link EChange#CHANGED} if applying an item requires a write.
+   * @return The read document containing only the empty document element.
+   *         Never <code>null</code>.
+   * @throws DAOException
+   *         If the file could not be read
+   */
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private IMicroDocument _readStreaming (@Nonnull final File aFile,
+                                         @Nonnull final IWALStreamingReader <DATATYPE> aReader,
+                                         @Nonnull final Wrapper <EChange> aChange) throws DAOException
+  {
+    final OrderedParallelProcessor aProcessor = _createReadProcessor ();
+    try
+    {
+      // Each child of the document element
+      final MicroStreamingSAXHandler aHandler = new MicroStreamingSAXHandler ("/*/*", eChild -> aProcessor.add ( () -> {
+        // Convert in parallel, apply in order
+        final DATATYPE aItem = aReader.convertReadElementToNative (eChild);
+        return () -> {
+          if (aItem != null && aReader.onReadItem (aItem).isChanged ())
+            aChange.set (EChange.CHANGED);
+        };
+      }));
+      final SAXReaderSettings aSettings = new SAXReaderSettings ();
+      aSettings.setEntityResolver (aHandler)
+               .setDTDHandler (aHandler)
+               .setContentHandler (aHandler)
+               .setLexicalHandler (aHandler)
+               .setErrorHandler (aHandler);
+      if (SAXReader.readXMLSAX (InputSourceFactory.create (aFile), aSettings).isFailure ())
+      {
+        final RuntimeException ex = aHandler.getConsumerException ();
+        if (ex != null)
+          throw ex;
+        throw new DAOException ("Failed to read DAO XML document from file '" + aFile.getAbsolutePath () + "'");
+      }
+      aProcessor.finish ();
+
+      final IMicroDocument ret = aHandler.getDocument ();
+      if (ret == null || ret.getDocumentElement () == null)
+        throw new DAOException ("The DAO XML document '" + aFile.getAbsolutePath () + "' has no document element");
+      return ret;
+    }
+    finally
+    {
+      aProcessor.cancel ();
+    }
+  }
+
   /**
    * Call this method inside the constructor to read the file contents directly.
    * This method is write locking internally. This method performs WAL file
@@ -424,6 +782,8 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       try
       {
         m_bCanWriteWAL = false;
+        if (m_nReadParallelism > 1)
+          m_aReadExecutor = new ForkJoinPool (m_nReadParallelism);
 
         IMicroDocument aDoc = null;
         try
@@ -432,7 +792,7 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
           if (bIsInitialization)
           {
             // initial setup for non-existing file
-            if (isDebugLogging ())
+            if (isDebugLogging () && aFinalFile != null)
               s_aLogger.info ("Trying to initialize WAL DAO XML file '" + aFinalFile.getAbsolutePath () + "'");
 
             beginWithoutAutoSave ();
@@ -466,10 +826,17 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
               s_aLogger.info ("Trying to read WAL DAO XML file '" + aFinalFile.getAbsolutePath () + "'");
 
             m_aStatsCounterReadTotal.increment ();
-            aDoc = MicroReader.readMicroXML (aFinalFile);
-            if (aDoc == null)
-              s_aLogger.error ("Failed to read DAO XML document from file '" + aFinalFile.getAbsolutePath () + "'");
-            else
+            final IWALStreamingReader <DATATYPE> aStreamingReader = getStreamingReader ();
+            final boolean bStreamingRead = aStreamingReader != null;
+            if (!bStreamingRead)
+            {
+              aDoc = MicroReader.readMicroXML (aFinalFile);
+              if (aDoc == null)
+                s_aLogger.error ("Failed to read DAO XML document from file '" +
+                                 aFinalFile.getAbsolutePath () +
+                                 "'");
+            }
+            if (bStreamingRead || aDoc != null)
             {
               // Valid XML - start interpreting
               beginWithoutAutoSave ();
@@ -477,7 +844,18 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
               {
                 final StopWatch aSW = StopWatch.createdStarted ();
 
-                if (onRead (aDoc).isChanged ())
+                final EChange eChange;
+                if (bStreamingRead)
+                {
+                  final Wrapper <EChange> aChange = new Wrapper <> (EChange.UNCHANGED);
+                  aDoc = _readStreaming (aFinalFile, aStreamingReader, aChange);
+                  eChange = aChange.get ();
+                }
+                else
+                  eChange = onRead (aDoc);
+                m_nSegmentGeneration = _getSegmentGeneration (aDoc);
+
+                if (eChange.isChanged ())
                   eWriteSuccess = _writeToFile ();
 
                 m_aStatsCounterReadTimer.addTime (aSW.stopAndGetMillis ());
@@ -523,92 +901,51 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
         if (aDoc != null)
           onBetweenReadAndWAL (aDoc);
 
+        boolean bPerformedAtLeastOneRecovery = false;
+        if (sFilename != null)
+        {
+          // Replay all segment files not yet contained in the data file
+          final long nFileGeneration = m_nSegmentGeneration;
+          for (final Map.Entry <Long, File> aEntry : _getAllSegmentFiles (sFilename).entrySet ())
+          {
+            final long nGeneration = aEntry.getKey ().longValue ();
+            final File aSegmentFile = aEntry.getValue ();
+            if (nGeneration <= nFileGeneration)
+            {
+              // Left over after the data file was written
+              if (FileOperationManager.INSTANCE.deleteFile (aSegmentFile).isFailure ())
+                s_aLogger.error ("Failed to delete segment file " + aSegmentFile.getAbsolutePath ());
+              continue;
+            }
+
+            s_aLogger.info ("Trying to recover from segment file " + aSegmentFile.getAbsolutePath ());
+            try
+            {
+              if (_recoverFromFile (aSegmentFile))
+                bPerformedAtLeastOneRecovery = true;
+            }
+            catch (final Throwable t)
+            {
+              s_aLogger.error ("Failed to recover from segment file " + aSegmentFile.getAbsolutePath (), t);
+              triggerExceptionHandlersRead (t, false, aSegmentFile);
+              throw new DAOException ("Error the segment file '" + aSegmentFile.getAbsolutePath () + "'", t);
+            }
+            m_nSegmentGeneration = nGeneration;
+          }
+        }
+
         // Check if there is anything to recover
         final String sWALFilename = _getWALFilename ();
         final File aWALFile = sWALFilename == null ? null : m_aIO.getFile (sWALFilename);
         if (aWALFile != null && aWALFile.exists ())
         {
           s_aLogger.info ("Trying to recover from WAL file " + aWALFile.getAbsolutePath ());
-          boolean bFinishedSuccessful = false;
-          boolean bPerformedAtLeastOnRecovery = false;
 
           // Avoid writing the recovery actions to the WAL file again :)
-          try (final DataInputStream aOIS = new DataInputStream (FileHelper.getInputStream (aWALFile)))
+          try
           {
-            while (true)
-            {
-              // Read action type
-              String sActionType;
-              try
-              {
-                sActionType = StreamHelper.readSafeUTF (aOIS);
-              }
-              catch (final EOFException ex)
-              {
-                break;
-              }
-              final EDAOActionType eActionType = EDAOActionType.getFromIDOrThrow (sActionType);
-              // Read number of elements
-              final int nElements = aOIS.readInt ();
-              // Read all elements
-              for (int i = 0; i < nElements; ++i)
-              {
-                final String sElement = StreamHelper.readSafeUTF (aOIS);
-                final DATATYPE aElement = convertWALStringToNative (sElement);
-                if (aElement == null)
-                  throw new IllegalStateException ("Action [" +
-                                                   eActionType +
-                                                   "][" +
-                                                   i +
-                                                   "]: failed to convert the following element to native:\n" +
-                                                   sElement);
-                switch (eActionType)
-                {
-                  case CREATE:
-                    try
-                    {
-                      onRecoveryCreate (aElement);
-                      bPerformedAtLeastOnRecovery = true;
-                      s_aLogger.info ("[WAL] wal-recovery create " + aElement);
-                    }
-                    catch (final RuntimeException ex)
-                    {
-                      s_aLogger.error ("[WAL] wal-recovery create " + aElement, ex);
-                      throw ex;
-                    }
-                    break;
-                  case UPDATE:
-                    try
-                    {
-                      onRecoveryUpdate (aElement);
-                      bPerformedAtLeastOnRecovery = true;
-                      s_aLogger.info ("[WAL] wal-recovery update " + aElement);
-                      break;
-                    }
-                    catch (final RuntimeException ex)
-                    {
-                      s_aLogger.error ("[WAL] wal-recovery update " + aElement, ex);
-                      throw ex;
-                    }
-                  case DELETE:
-                    try
-                    {
-                      onRecoveryDelete (aElement);
-                      bPerformedAtLeastOnRecovery = true;
-                      s_aLogger.info ("[WAL] wal-recovery delete " + aElement);
-                      break;
-                    }
-                    catch (final RuntimeException ex)
-                    {
-                      s_aLogger.error ("[WAL] wal-recovery delete " + aElement, ex);
-                      throw ex;
-                    }
-                  default:
-                    throw new IllegalStateException ("Unsupported action type provided: " + eActionType);
-                }
-              }
-            }
-            bFinishedSuccessful = true;
+            if (_recoverFromFile (aWALFile))
+              bPerformedAtLeastOneRecovery = true;
             s_aLogger.info ("Successfully finished recovery from WAL file " + aWALFile.getAbsolutePath ());
           }
           catch (final Throwable t)
@@ -617,27 +954,34 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
             triggerExceptionHandlersRead (t, false, aWALFile);
             throw new DAOException ("Error the WAL file '" + aWALFile.getAbsolutePath () + "'", t);
           }
+        }
 
-          if (bFinishedSuccessful)
-          {
-            // Finished recovery successfully
-            // Perform the remaining actions AFTER the WAL input stream was
-            // closed!
-            if (bPerformedAtLeastOnRecovery)
-            {
-              // Write the file without using WAL
-              _writeToFileAndResetPendingChanges ("onRecovery");
-            }
+        // Finished recovery successfully
+        // Perform the remaining actions AFTER the WAL input stream was closed!
+        if (bPerformedAtLeastOneRecovery)
+        {
+          // In incremental mode the WAL file becomes a segment file first, so
+          // that it is deleted together with the other segment files
+          if (m_bIncrementalWrite && aWALFile != null && aWALFile.exists ())
+            _rotateWALFile (sWALFilename);
 
-            // Finally delete the WAL file, as the recovery has finished
-            _deleteWALFile (sWALFilename);
-          }
+          // Write the file without using WAL
+          _writeToFileAndResetPendingChanges ("onRecovery");
         }
+
+        // Finally delete the WAL file, as the recovery has finished
+        if (aWALFile != null && aWALFile.exists ())
+          _deleteWALFile (sWALFilename);
       }
       finally
       {
         // Now a WAL file can be written again
         m_bCanWriteWAL = true;
+        if (m_aReadExecutor != null)
+        {
+          m_aReadExecutor.shutdownNow ();
+          m_aReadExecutor = null;
+        }
       }
     });
   }
@@ -733,6 +1077,51 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     }
   }
 
+  /**
+   * Rename the existing data file to the previous file, the temporary file to
+   * the data file and finally delete the previous file.
+   *
+   * @param sFilenameTemp
+   *        The completely written temporary file.
+   * @param sFilename
+   *        The data file.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  private void _replaceDataFile (@Nonnull final String sFilenameTemp, @Nonnull final String sFilename)
+  {
+    final String sFilenamePrev = _getFilenamePrev (sFilename);
+
+    // Rename existing file to old
+    FileIOError aIOError;
+    boolean bRenamedToPrev = false;
+    if (m_aIO.existsFile (sFilename))
+    {
+      aIOError = m_aIO.renameFile (sFilename, sFilenamePrev);
+      bRenamedToPrev = true;
+    }
+    else
+      aIOError = new FileIOError (EFileIOOperation.RENAME_FILE, EFileIOErrorCode.NO_ERROR);
+    if (aIOError.isSuccess ())
+    {
+      // Rename new file to final
+      aIOError = m_aIO.renameFile (sFilenameTemp, sFilename);
+      if (aIOError.isSuccess ())
+      {
+        // Finally delete old file
+        aIOError = m_aIO.deleteFileIfExisting (sFilenamePrev);
+      }
+      else
+      {
+        // 2nd rename failed
+        // -> Revert original rename to stay as consistent as possible
+        if (bRenamedToPrev)
+          m_aIO.renameFile (sFilenamePrev, sFilename);
+      }
+    }
+    if (aIOError.isFailure ())
+      throw new IllegalStateException ("Error on rename(existing-old)/rename(new-existing)/delete(old): " + aIOError);
+  }
+
   /**
    * The main method for writing the new data to a file. This method may only be
    * called within a write lock!
@@ -766,7 +1155,6 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     File aFileNew = null;
     IMicroDocument aDoc = null;
     final String sFilenameNew = _getFilenameNew (sFilename);
-    final String sFilenamePrev = _getFilenamePrev (sFilename);
     try
     {
       // Get the file handle
@@ -783,6 +1171,11 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       // Generic modification
       modifyWriteData (aDoc);
 
+      // Remember the segment files contained in this file
+      final long nSegmentGeneration = m_nSegmentGeneration;
+      if (nSegmentGeneration > 0)
+        _setSegmentGeneration (aDoc, nSegmentGeneration);
+
       // Get the output stream
       final OutputStream aOS = FileHelper.getOutputStream (aFileNew);
       if (aOS == null)
@@ -797,35 +1190,12 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
       if (MicroWriter.writeToStream (aDoc, aOS, aXWS).isFailure ())
         throw new DAOException ("Failed to write DAO XML data to file");
 
-      // Rename existing file to old
-      FileIOError aIOError;
-      boolean bRenamedToPrev = false;
-      if (m_aIO.existsFile (sFilename))
-      {
-        aIOError = m_aIO.renameFile (sFilename, sFilenamePrev);
-        bRenamedToPrev = true;
-      }
-      else
-        aIOError = new FileIOError (EFileIOOperation.RENAME_FILE, EFileIOErrorCode.NO_ERROR);
-      if (aIOError.isSuccess ())
-      {
-        // Rename new file to final
-        aIOError = m_aIO.renameFile (sFilenameNew, sFilename);
-        if (aIOError.isSuccess ())
-        {
-          // Finally delete old file
-          aIOError = m_aIO.deleteFileIfExisting (sFilenamePrev);
-        }
-        else
-        {
-          // 2nd rename failed
-          // -> Revert original rename to stay as consistent as possible
-          if (bRenamedToPrev)
-            m_aIO.renameFile (sFilenamePrev, sFilename);
-        }
-      }
-      if (aIOError.isFailure ())
-        throw new IllegalStateException ("Error on rename(existing-old)/rename(new-existing)/delete(old): " + aIOError);
+      // Rename existing file to old and new file to final
+      _replaceDataFile (sFilenameNew, sFilename);
+
+      // All segment files are now contained in the data file
+      if (nSegmentGeneration > 0)
+        _deleteSegmentFiles (sFilename, nSegmentGeneration);
 
       // Update stats etc.
       m_aStatsCounterWriteTimer.addTime (aSW.stopAndGetMillis ());
@@ -854,8 +1224,23 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
   @MustBeLocked (ELockType.WRITE)
   final void _writeToFileAndResetPendingChanges (@Nonnull final String sCallingMethodName)
   {
+    String sWALFilenameToDelete = null;
+    // Note: while reading, the WAL file was not yet replayed
+    if (m_bIncrementalWrite && m_bCanWriteWAL)
+    {
+      // Move the WAL records to a segment file, so that they are contained in
+      // the data file and never replayed on top of it
+      final String sWALFilename = _getWALFilename ();
+      if (sWALFilename != null && _rotateWALFile (sWALFilename).isFailure ())
+        sWALFilenameToDelete = sWALFilename;
+    }
+
     if (_writeToFile ().isSuccess ())
+    {
       internalSetPendingChanges (false);
+      if (sWALFilenameToDelete != null)
+        _deleteWALFile (sWALFilenameToDelete);
+    }
     else
     {
       s_aLogger.error ("The DAO of class " +
@@ -883,10 +1268,13 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
    * This method may only be triggered with valid WAL filenames, as the passed
    * file is deleted!
    */
+  @MustBeLocked (ELockType.WRITE)
   final void _deleteWALFile (@Nonnull @Nonempty final String sWALFilename)
   {
     ValueEnforcer.notEmpty (sWALFilename, "WALFilename");
     final File aWALFile = m_aIO.getFile (sWALFilename);
+    if (m_aWALFile != null && m_aWALFile.getFile ().equals (aWALFile))
+      _closeWALFile ();
     if (FileOperationManager.INSTANCE.deleteFile (aWALFile).isFailure ())
       s_aLogger.error ("Failed to delete WAL file " + aWALFile.getAbsolutePath ());
   }
@@ -915,35 +1303,381 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     return MicroWriter.getNodeAsString (aElement, getWALXMLWriterSettings ());
   }
 
+  @MustBeLocked (ELockType.WRITE)
+  private void _closeWALFile ()
+  {
+    try
+    {
+      m_aWALFile.close ();
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.error ("Error closing WAL file " + m_aWALFile.getFile ().getAbsolutePath (), ex);
+    }
+    m_aWALFile = null;
+  }
+
+  /**
+   * Get the persistent WAL file handle. If the WAL filename changed, the old
+   * handle is closed.
+   */
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private WALFile _getWALFile (@Nonnull @Nonempty final String sWALFilename)
+  {
+    final File aFile = m_aIO.getFile (sWALFilename);
+    if (m_aWALFile != null && !m_aWALFile.getFile ().equals (aFile))
+      _closeWALFile ();
+    if (m_aWALFile == null)
+      m_aWALFile = new WALFile (aFile, m_nWALPreallocationSize, m_aWALCodec != null);
+    return m_aWALFile;
+  }
+
   @Nonnull
   @MustBeLocked (ELockType.WRITE)
   private ESuccess _writeWALFile (@Nonnull @Nonempty final List <DATATYPE> aModifiedElements,
                                   @Nonnull final EDAOActionType eActionType,
                                   @Nonnull @Nonempty final String sWALFilename)
   {
-    final FileSystemResource aWALRes = m_aIO.getResource (sWALFilename);
-    try (final DataOutputStream aDOS = new DataOutputStream (aWALRes.getOutputStream (EAppend.APPEND)))
+    try
     {
-      // Write action type ID
-      StreamHelper.writeSafeUTF (aDOS, eActionType.getID ());
-      // Write number of elements
-      aDOS.writeInt (aModifiedElements.size ());
-      // Write all data elements as XML Strings :)
-      for (final DATATYPE aModifiedElement : aModifiedElements)
+      final StopWatch aSW = StopWatch.createdStarted ();
+
+      // Serialize the whole record first, so that it is written at once
+      final byte [] aRecord;
+      if (m_aWALCodec != null)
+        aRecord = WALBinaryFormat.createRecord (eActionType, aModifiedElements, m_aWALCodec);
+      else
+      {
+        final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+        try (final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+        {
+          // Write action type ID
+          StreamHelper.writeSafeUTF (aDOS, eActionType.getID ());
+          // Write number of elements
+          aDOS.writeInt (aModifiedElements.size ());
+          // Write all data elements as XML Strings :)
+          for (final DATATYPE aModifiedElement : aModifiedElements)
+          {
+            final String sElement = convertNativeToWALString (aModifiedElement);
+            StreamHelper.writeSafeUTF (aDOS, sElement);
+          }
+        }
+        aRecord = aBAOS.toByteArray ();
+      }
+
+      final WALFile aWALFile = _getWALFile (sWALFilename);
+      final long nSeq = aWALFile.append (aRecord, m_eWALDurability, m_aWALForceInterval);
+      if (m_eWALDurability == EWALDurability.GROUP_COMMIT)
       {
-        final String sElement = convertNativeToWALString (aModifiedElement);
-        StreamHelper.writeSafeUTF (aDOS, sElement);
+        // Wait for the force after the DAO lock was released
+        m_aWALRWLock.runAfterWriteUnlock ( () -> _awaitWALForce (aWALFile, nSeq, sWALFilename));
       }
+      m_aStatsCounterWALWriteTimer.addTime (aSW.stopAndGetMillis ());
       return ESuccess.SUCCESS;
     }
     catch (final Throwable t)
     {
-      s_aLogger.error ("Error writing WAL file " + aWALRes, t);
+      s_aLogger.error ("Error writing WAL file " + m_aIO.getFile (sWALFilename).getAbsolutePath (), t);
       triggerExceptionHandlersWrite (t, sWALFilename, (IMicroDocument) null);
     }
     return ESuccess.FAILURE;
   }
 
+  /**
+   * Wait until the passed WAL record is forced to the storage device. Called
+   * without the DAO lock.
+   */
+  private void _awaitWALForce (@Nonnull final WALFile aWALFile,
+                               final long nSeq,
+                               @Nonnull @Nonempty final String sWALFilename)
+  {
+    try
+    {
+      aWALFile.awaitForce (nSeq);
+    }
+    catch (final Throwable t)
+    {
+      s_aLogger.error ("Error forcing WAL file " + aWALFile.getFile ().getAbsolutePath (), t);
+      triggerExceptionHandlersWrite (t, sWALFilename, (IMicroDocument) null);
+    }
+  }
+
+  /**
+   * @return The generation of the last segment file contained in the passed
+   *         data file or 0 if the data file contains no segment information.
+   */
+  @Nonnegative
+  private static long _getSegmentGeneration (@Nonnull final IMicroDocument aDoc)
+  {
+    if (aDoc.hasChildren ())
+      for (final IMicroNode aNode : aDoc.getAllChildren ())
+        if (aNode.isProcessingInstruction ())
+        {
+          final IMicroProcessingInstruction aPI = (IMicroProcessingInstruction) aNode;
+          if (PI_SEGMENT_GENERATION.equals (aPI.getTarget ()))
+            return Math.max (StringParser.parseLong (aPI.getData (), 0), 0);
+        }
+    return 0;
+  }
+
+  private static void _setSegmentGeneration (@Nonnull final IMicroDocument aDoc, final long nGeneration)
+  {
+    final IMicroProcessingInstruction aPI = new MicroProcessingInstruction (PI_SEGMENT_GENERATION,
+                                                                           Long.toString (nGeneration));
+    final IMicroElement eRoot = aDoc.getDocumentElement ();
+    if (eRoot != null)
+      aDoc.insertBefore (aPI, eRoot);
+    else
+      aDoc.appendChild (aPI);
+  }
+
+  /**
+   * @return All segment files of the passed data file, sorted ascending by
+   *         generation.
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  private ICommonsNavigableMap <Long, File> _getAllSegmentFiles (@Nonnull final String sFilename)
+  {
+    final ICommonsNavigableMap <Long, File> ret = new CommonsTreeMap <> ();
+    final File aFile = m_aIO.getFile (sFilename);
+    final File aDir = aFile.getParentFile ();
+    if (aDir != null && aDir.isDirectory ())
+    {
+      final String sPrefix = aFile.getName () + SEGMENT_INFIX;
+      for (final File aSegmentFile : FileHelper.getDirectoryContent (aDir, (d, s) -> s.startsWith (sPrefix)))
+      {
+        final long nGeneration = StringParser.parseLong (aSegmentFile.getName ().substring (sPrefix.length ()), -1);
+        if (nGeneration > 0)
+          ret.put (Long.valueOf (nGeneration), aSegmentFile);
+      }
+    }
+    return ret;
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  private void _deleteSegmentFiles (@Nonnull final String sFilename, final long nMaxGeneration)
+  {
+    // Delete in ascending order, so that an interruption leaves no gaps
+    for (final File aSegmentFile : _getAllSegmentFiles (sFilename).headMap (Long.valueOf (nMaxGeneration), true)
+                                                                  .values ())
+      if (FileOperationManager.INSTANCE.deleteFile (aSegmentFile).isFailure ())
+        s_aLogger.error ("Failed to delete segment file " + aSegmentFile.getAbsolutePath ());
+  }
+
+  /**
+   * Rename the passed WAL file to the next segment file. This is the
+   * incremental alternative to writing the whole data file.
+   *
+   * @param sWALFilename
+   *        The WAL file to rotate.
+   * @return {@link ESuccess#SUCCESS} if the WAL file was renamed or if there
+   *         is no WAL file.
+   */
+  @Nonnull
+  @MustBeLocked (ELockType.WRITE)
+  private ESuccess _rotateWALFile (@Nonnull @Nonempty final String sWALFilename)
+  {
+    final String sFilename = m_aFilenameProvider.get ();
+    if (sFilename == null || !sWALFilename.equals (_getWALFilename ()))
+    {
+      // The filename changed in the meantime
+      return ESuccess.FAILURE;
+    }
+
+    final File aWALFile = m_aIO.getFile (sWALFilename);
+    if (m_aWALFile != null && m_aWALFile.getFile ().equals (aWALFile))
+    {
+      try
+      {
+        // Write the pending records and remove the preallocated space
+        m_aWALFile.seal (m_eWALDurability.isForcing ());
+      }
+      catch (final IOException ex)
+      {
+        s_aLogger.error ("Error sealing WAL file " + aWALFile.getAbsolutePath (), ex);
+        return ESuccess.FAILURE;
+      }
+      finally
+      {
+        m_aWALFile = null;
+      }
+    }
+
+    if (!aWALFile.exists ())
+      return ESuccess.SUCCESS;
+
+    final long nGeneration = m_nSegmentGeneration + 1;
+    final FileIOError aIOError = m_aIO.renameFile (sWALFilename, _getFilenameSegment (sFilename, nGeneration));
+    if (aIOError.isFailure ())
+    {
+      s_aLogger.error ("Failed to rename WAL file " + aWALFile.getAbsolutePath () + " to a segment file: " + aIOError);
+      return ESuccess.FAILURE;
+    }
+    m_nSegmentGeneration = nGeneration;
+    m_aStatsCounterSegmentWrite.increment ();
+    return ESuccess.SUCCESS;
+  }
+
+  /**
+   * Called by the {@link WALListener} after the waiting time expired.
+   *
+   * @param sWALFilename
+   *        The WAL file that was written.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  final void _writeScheduled (@Nonnull @Nonempty final String sWALFilename)
+  {
+    if (m_bIncrementalWrite && _rotateWALFile (sWALFilename).isSuccess ())
+    {
+      // All changes of the WAL file are now persistent. Changes made without
+      // auto save are not contained in the WAL file.
+      if (internalIsAutoSaveEnabled ())
+        internalSetPendingChanges (false);
+
+      final String sFilename = m_aFilenameProvider.get ();
+      if (!m_bCompactionScheduled)
+      {
+        final ICommonsNavigableMap <Long, File> aSegmentFiles = _getAllSegmentFiles (sFilename);
+        long nSegmentBytes = 0;
+        for (final File aSegmentFile : aSegmentFiles.values ())
+          nSegmentBytes += aSegmentFile.length ();
+        final File aFile = m_aIO.getFile (sFilename);
+        if (aSegmentFiles.isNotEmpty () &&
+            isCompactionNeeded (aSegmentFiles.size (), nSegmentBytes, aFile.exists () ? aFile.length () : -1))
+        {
+          m_bCompactionScheduled = true;
+          s_aCompactionES.submit ((Runnable) this::compactSegments);
+        }
+      }
+    }
+    else
+    {
+      // Main DAO writing
+      _writeToFileAndResetPendingChanges ("ScheduledWriter.run");
+      // Delete the WAL file
+      _deleteWALFile (sWALFilename);
+    }
+  }
+
+  /**
+   * Decide whether the segment files should be merged into the data file. The
+   * default implementation compacts if at least the configured number of
+   * segment files exists or if the segment files are larger than the data
+   * file. This method is called within a write lock.
+   *
+   * @param nSegmentFileCount
+   *        The number of segment files. Always &gt; 0.
+   * @param nSegmentBytes
+   *        The total size of all segment files in bytes.
+   * @param nDataFileBytes
+   *        The size of the data file in bytes or -1 if no data file exists.
+   * @return <code>true</code> to compact the segment files in the background.
+   * @since 9.1.0
+   */
+  @OverrideOnDemand
+  @MustBeLocked (ELockType.WRITE)
+  protected boolean isCompactionNeeded (@Nonnegative final int nSegmentFileCount,
+                                        @Nonnegative final long nSegmentBytes,
+                                        final long nDataFileBytes)
+  {
+    if (nSegmentFileCount >= m_nCompactionSegmentCount)
+      return true;
+    return nDataFileBytes >= 0 && nSegmentBytes >= nDataFileBytes;
+  }
+
+  /**
+   * Merge all segment files into the data file. The data is collected within
+   * the write lock, but serialized and written outside of it. This is
+   * automatically called in the background in incremental write mode, but can
+   * also be called manually.
+   *
+   * @return {@link ESuccess#SUCCESS} if the data file was written.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final ESuccess compactSegments ()
+  {
+    final String sFilename = m_aFilenameProvider.get ();
+    if (sFilename == null)
+      return ESuccess.FAILURE;
+
+    final StopWatch aSW = StopWatch.createdStarted ();
+    final int [] aWriteCount = new int [1];
+    final IMicroDocument aDoc = m_aRWLock.writeLocked ( () -> {
+      m_bCompactionScheduled = false;
+
+      // The data file must contain exactly the segment files
+      final String sWALFilename = _getWALFilename ();
+      if (!sFilename.equals (m_aFilenameProvider.get ()) || _rotateWALFile (sWALFilename).isFailure ())
+        return null;
+      if (m_nSegmentGeneration == 0)
+        return null;
+
+      aWriteCount[0] = m_nWriteCount;
+      final IMicroDocument ret = createWriteData ();
+      if (ret != null)
+      {
+        modifyWriteData (ret);
+        _setSegmentGeneration (ret, m_nSegmentGeneration);
+      }
+      return ret;
+    });
+    if (aDoc == null)
+      return ESuccess.FAILURE;
+
+    final long nSegmentGeneration = _getSegmentGeneration (aDoc);
+    final String sFilenameCompact = _getFilenameCompact (sFilename);
+    try
+    {
+      m_aStatsCounterWriteTotal.increment ();
+
+      // Serialize outside of the lock
+      final File aFileCompact = getSafeFile (sFilenameCompact, EMode.WRITE);
+      final OutputStream aOS = FileHelper.getOutputStream (aFileCompact);
+      if (aOS == null)
+        throw new DAOException ("Failed to open output stream for '" + aFileCompact.getAbsolutePath () + "'");
+      if (MicroWriter.writeToStream (aDoc, aOS, getXMLWriterSettings ()).isFailure ())
+        throw new DAOException ("Failed to write DAO XML data to file");
+
+      final ESuccess eSuccess = m_aRWLock.writeLocked ( () -> {
+        if (m_nWriteCount != aWriteCount[0] || !sFilename.equals (m_aFilenameProvider.get ()))
+        {
+          // The data file was written in the meantime and is newer
+          m_aIO.deleteFileIfExisting (sFilenameCompact);
+          return ESuccess.FAILURE;
+        }
+
+        _replaceDataFile (sFilenameCompact, sFilename);
+        _deleteSegmentFiles (sFilename, nSegmentGeneration);
+
+        m_nWriteCount++;
+        m_aLastWriteDT = PDTFactory.getCurrentLocalDateTime ();
+        return ESuccess.SUCCESS;
+      });
+      if (eSuccess.isSuccess ())
+      {
+        m_aStatsCounterCompactionTimer.addTime (aSW.stopAndGetMillis ());
+        m_aStatsCounterWriteSuccess.increment ();
+      }
+      return eSuccess;
+    }
+    catch (final Throwable t)
+    {
+      s_aLogger.error ("The DAO of class " +
+                       getClass ().getName () +
+                       " failed to compact the segment files into '" +
+                       sFilename +
+                       "'",
+                       t);
+      m_aIO.deleteFileIfExisting (sFilenameCompact);
+      triggerExceptionHandlersWrite (t, sFilename, aDoc);
+      m_aStatsCounterWriteExceptions.increment ();
+      return ESuccess.FAILURE;
+    }
+  }
+
   /**
    * @return The waiting time used before the file is effectively written. Never
    *         <code>null</code>. Default value is 10 seconds.
@@ -968,6 +1702,197 @@ public abstract class AbstractWALDAO <DATATYPE extends Serializable> extends Abs
     m_aWaitingTime = aWaitingTime;
   }
 
+  /**
+   * @return The durability of the WAL records. Never <code>null</code>.
+   *         Default value is {@link #DEFAULT_WAL_DURABILITY}.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final EWALDurability getWALDurability ()
+  {
+    return m_aRWLock.readLocked ( () -> m_eWALDurability);
+  }
+
+  /**
+   * Set the durability of the WAL records. The stronger the durability the
+   * slower the modifications.
+   *
+   * @param eWALDurability
+   *        The durability to use. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  protected final void setWALDurability (@Nonnull final EWALDurability eWALDurability)
+  {
+    ValueEnforcer.notNull (eWALDurability, "WALDurability");
+    m_aRWLock.writeLocked ( () -> m_eWALDurability = eWALDurability);
+  }
+
+  /**
+   * @return The maximum time until written WAL records are forced to the
+   *         storage device. Only relevant for {@link EWALDurability#PERIODIC}.
+   *         Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final TimeValue getWALForceInterval ()
+  {
+    return m_aRWLock.readLocked ( () -> m_aWALForceInterval);
+  }
+
+  /**
+   * Set the maximum time until written WAL records are forced to the storage
+   * device. Only relevant for {@link EWALDurability#PERIODIC}.
+   *
+   * @param aWALForceInterval
+   *        The interval to use. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  protected final void setWALForceInterval (@Nonnull final TimeValue aWALForceInterval)
+  {
+    ValueEnforcer.notNull (aWALForceInterval, "WALForceInterval");
+    m_aRWLock.writeLocked ( () -> m_aWALForceInterval = aWALForceInterval);
+  }
+
+  /**
+   * Set the number of bytes by which the WAL file grows at once. The
+   * preallocated space avoids metadata updates when forcing the file. Only
+   * affects WAL files opened afterwards.
+   *
+   * @param nWALPreallocationSize
+   *        The number of bytes. Must be &ge; 0. 0 means no preallocation.
+   * @since 9.1.0
+   */
+  protected final void setWALPreallocationSize (@Nonnegative final int nWALPreallocationSize)
+  {
+    ValueEnforcer.isGE0 (nWALPreallocationSize, "WALPreallocationSize");
+    m_aRWLock.writeLocked ( () -> m_nWALPreallocationSize = nWALPreallocationSize);
+  }
+
+  /**
+   * @return The codec for the binary WAL format or <code>null</code> if the
+   *         elements are written as XML strings (see
+   *         {@link #convertNativeToWALString(Serializable)}).
+   * @since 9.1.0
+   */
+  @Nullable
+  public final IWALCodec <DATATYPE> getWALCodec ()
+  {
+    return m_aRWLock.readLocked ( () -> m_aWALCodec);
+  }
+
+  /**
+   * Set the codec for the binary WAL format. Binary WAL records are length
+   * prefixed and checksummed, and an incomplete last record is ignored upon
+   * recovery. Existing WAL and segment files are read in the format they were
+   * written in. This should be called before {@link #initialRead()}, because
+   * binary files can only be recovered with a codec.
+   *
+   * @param aWALCodec
+   *        The codec to use. May be <code>null</code> to write elements as XML
+   *        strings.
+   * @since 9.1.0
+   */
+  protected final void setWALCodec (@Nullable final IWALCodec <DATATYPE> aWALCodec)
+  {
+    m_aRWLock.writeLocked ( () -> {
+      if ((aWALCodec != null) != (m_aWALCodec != null) && m_bCanWriteWAL && m_aWALFile != null)
+      {
+        // The open WAL file has the old format - persist its content so that
+        // the next WAL file starts empty
+        final String sWALFilename = _getWALFilename ();
+        _writeToFileAndResetPendingChanges ("setWALCodec");
+        if (sWALFilename != null && !hasPendingChanges ())
+          _deleteWALFile (sWALFilename);
+      }
+      m_aWALCodec = aWALCodec;
+    });
+  }
+
+  /**
+   * @return <code>true</code> if incremental write is enabled,
+   *         <code>false</code> if the whole data file is written after the
+   *         waiting time. Default is <code>false</code>.
+   * @since 9.1.0
+   */
+  public final boolean isIncrementalWrite ()
+  {
+    return m_aRWLock.readLocked ( () -> m_bIncrementalWrite);
+  }
+
+  /**
+   * Enable or disable incremental write. If enabled, the WAL file becomes a
+   * segment file after the waiting time instead of writing the whole data
+   * file. The segment files are merged into the data file in the background
+   * (see {@link #isCompactionNeeded(int, long, long)}). Existing segment files
+   * are always considered when reading, so this mode can be switched at any
+   * time. To be effective upon reading, this must be set before
+   * {@link #initialRead()} is called.
+   *
+   * @param bIncrementalWrite
+   *        <code>true</code> to enable, <code>false</code> to disable.
+   * @since 9.1.0
+   */
+  protected final void setIncrementalWrite (final boolean bIncrementalWrite)
+  {
+    m_aRWLock.writeLocked ( () -> m_bIncrementalWrite = bIncrementalWrite);
+  }
+
+  /**
+   * @return The number of segment files that triggers a compaction. Default is
+   *         {@link #DEFAULT_COMPACTION_SEGMENT_COUNT}.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public final int getCompactionSegmentCount ()
+  {
+    return m_aRWLock.readLocked ( () -> m_nCompactionSegmentCount);
+  }
+
+  /**
+   * Set the number of segment files that triggers a compaction. Only relevant
+   * in incremental write mode.
+   *
+   * @param nCompactionSegmentCount
+   *        The number of segment files. Must be &gt; 0.
+   * @since 9.1.0
+   */
+  protected final void setCompactionSegmentCount (@Nonnegative final int nCompactionSegmentCount)
+  {
+    ValueEnforcer.isGT0 (nCompactionSegmentCount, "CompactionSegmentCount");
+    m_aRWLock.writeLocked ( () -> m_nCompactionSegmentCount = nCompactionSegmentCount);
+  }
+
+  /**
+   * @return The number of threads used to convert the elements of the data
+   *         file and the WAL records upon the initial read. Default is
+   *         {@link #DEFAULT_READ_PARALLELISM}.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public final int getReadParallelism ()
+  {
+    return m_aRWLock.readLocked ( () -> m_nReadParallelism);
+  }
+
+  /**
+   * Set the number of threads used upon the initial read. If the value is
+   * &gt; 1,
+   * {@link IWALStreamingReader#convertReadElementToNative(IMicroElement)}
+   * (streaming read only), {@link #convertWALStringToNative(String)} and the
+   * WAL codec are invoked concurrently on a fork-join pool, whereas the results
+   * are still applied in the original order. To be effective, this must be set before
+   * {@link #initialRead()} is called.
+   *
+   * @param nReadParallelism
+   *        The number of threads. Must be &gt; 0.
+   * @since 9.1.0
+   */
+  protected final void setReadParallelism (@Nonnegative final int nReadParallelism)
+  {
+    ValueEnforcer.isGT0 (nReadParallelism, "ReadParallelism");
+    m_aRWLock.writeLocked ( () -> m_nReadParallelism = nReadParallelism);
+  }
+
   /**
    * This method must be called every time something changed in the DAO. It
    * triggers the writing to a file if auto-save is active. This method must be
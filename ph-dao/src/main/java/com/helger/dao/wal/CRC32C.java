@@ -0,0 +1,97 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.util.zip.Checksum;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+/**
+ * CRC-32C (Castagnoli) checksum as used by iSCSI and many storage formats. It
+ * detects more error patterns than {@link java.util.zip.CRC32}. This is a
+ * table based implementation, because <code>java.util.zip.CRC32C</code> is not
+ * available in Java 8.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@NotThreadSafe
+final class CRC32C implements Checksum
+{
+  // Reversed polynomial 0x1EDC6F41
+  private static final int POLYNOMIAL = 0x82F63B78;
+  private static final int [] TABLE = new int [256];
+
+  static
+  {
+    for (int i = 0; i < 256; ++i)
+    {
+      int nCRC = i;
+      for (int j = 0; j < 8; ++j)
+        nCRC = (nCRC & 1) != 0 ? (nCRC >>> 1) ^ POLYNOMIAL : nCRC >>> 1;
+      TABLE[i] = nCRC;
+    }
+  }
+
+  private int m_nCRC = 0xffffffff;
+
+  public CRC32C ()
+  {}
+
+  public void update (final int nByte)
+  {
+    m_nCRC = (m_nCRC >>> 8) ^ TABLE[(m_nCRC ^ nByte) & 0xff];
+  }
+
+  public void update (@Nonnull final byte [] aBuf, final int nOfs, final int nLen)
+  {
+    int nCRC = m_nCRC;
+    final int nEnd = nOfs + nLen;
+    for (int i = nOfs; i < nEnd; ++i)
+      nCRC = (nCRC >>> 8) ^ TABLE[(nCRC ^ aBuf[i]) & 0xff];
+    m_nCRC = nCRC;
+  }
+
+  public long getValue ()
+  {
+    return ~m_nCRC & 0xffffffffL;
+  }
+
+  public void reset ()
+  {
+    m_nCRC = 0xffffffff;
+  }
+
+  /**
+   * Get the checksum of the passed byte range.
+   *
+   * @param aBuf
+   *        Source buffer. May not be <code>null</code>.
+   * @param nOfs
+   *        Offset. Must be &ge; 0.
+   * @param nLen
+   *        Number of bytes. Must be &ge; 0.
+   * @return The checksum as an int.
+   */
+  static int getChecksum (@Nonnull final byte [] aBuf, final int nOfs, final int nLen)
+  {
+    final CRC32C aCRC = new CRC32C ();
+    aCRC.update (aBuf, nOfs, nLen);
+    return (int) aCRC.getValue ();
+  }
+}
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+/**
+ * Defines when the records of the write ahead log (WAL) are forced to the
+ * storage device.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+public enum EWALDurability
+{
+  /**
+   * Each record is written to the WAL file immediately but the file is never
+   * forced to the storage device. The records survive a crash of the process
+   * but not necessarily a crash of the operating system. This was the only
+   * behaviour of previous versions.
+   */
+  NONE,
+  /**
+   * Each record is written to the WAL file immediately like with
+   * {@link #NONE}, and the file is forced to the storage device in the
+   * background at most the force interval after the first unforced record.
+   * The modifying method does not wait for the force, so the records of the
+   * last interval may be lost if the operating system crashes. Several records
+   * share a single force.
+   */
+  PERIODIC,
+  /**
+   * Each record is written and the file is forced to the storage device before
+   * the modifying method returns.
+   */
+  PER_OPERATION,
+  /**
+   * Each record is written to the WAL file immediately like with
+   * {@link #NONE}. After the DAO lock was released, the modifying thread waits
+   * until the file was forced to the storage device. All threads waiting at
+   * the same time share a single force, so the records are as durable as with
+   * {@link #PER_OPERATION} while concurrent modifications don't force the file
+   * one after the other.
+   */
+  GROUP_COMMIT;
+
+  /**
+   * @return <code>true</code> if the WAL file is forced to the storage device
+   *         at all.
+   */
+  public boolean isForcing ()
+  {
+    return this != NONE;
+  }
+}
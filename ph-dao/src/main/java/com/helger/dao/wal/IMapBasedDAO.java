@@ -16,6 +16,8 @@
  */
 package com.helger.dao.wal;
 
+import java.util.Collections;
+import java.util.List;
 import java.util.function.Consumer;
 import java.util.function.Function;
 import java.util.function.Predicate;
@@ -25,6 +27,7 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.concurrent.ThreadSafe;
 
+import com.helger.commons.annotation.ReturnsImmutableObject;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsSet;
@@ -42,6 +45,20 @@ public interface IMapBasedDAO <INTERFACETYPE extends IHasID <String>> extends IH
   @ReturnsMutableCopy
   ICommonsList <? extends INTERFACETYPE> getAll (@Nullable Predicate <? super INTERFACETYPE> aFilter);
 
+  /**
+   * Get a read-only view on all items. Implementations should avoid copying
+   * the data. The default implementation is based on {@link #getAll()}.
+   *
+   * @return An unmodifiable, non-<code>null</code> list of all items.
+   * @since 9.1.0
+   */
+  @Nonnull
+  @ReturnsImmutableObject
+  default List <? extends INTERFACETYPE> getAllView ()
+  {
+    return Collections.unmodifiableList (getAll ());
+  }
+
   void findAll (@Nullable Predicate <? super INTERFACETYPE> aFilter,
                 @Nonnull Consumer <? super INTERFACETYPE> aConsumer);
 
@@ -75,4 +92,87 @@ public interface IMapBasedDAO <INTERFACETYPE extends IHasID <String>> extends IH
 
   @Nonnegative
   int getCount (@Nullable Predicate <? super INTERFACETYPE> aFilter);
+
+  /**
+   * Get the first item with the provided key in the provided index. This is
+   * the way to query unique indexes. The default implementation scans all
+   * items.
+   *
+   * @param aIndex
+   *        The index to query. May not be <code>null</code>.
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return <code>null</code> if no item with the key exists.
+   * @param <KEYTYPE>
+   *        The index key type
+   * @since 9.1.0
+   */
+  @Nullable
+  default <KEYTYPE> INTERFACETYPE getFirstOfIndex (@Nonnull final MapBasedDAOIndex <? super INTERFACETYPE, KEYTYPE> aIndex,
+                                                   @Nullable final KEYTYPE aKey)
+  {
+    return findFirst (x -> aIndex.matchesKey (x, aKey));
+  }
+
+  /**
+   * Get all items with the provided key in the provided index. The default
+   * implementation scans all items.
+   *
+   * @param aIndex
+   *        The index to query. May not be <code>null</code>.
+   * @param aKey
+   *        The key to search. May be <code>null</code>.
+   * @return A non-<code>null</code> but maybe empty list.
+   * @param <KEYTYPE>
+   *        The index key type
+   * @since 9.1.0
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  default <KEYTYPE> ICommonsList <? extends INTERFACETYPE> getAllOfIndex (@Nonnull final MapBasedDAOIndex <? super INTERFACETYPE, KEYTYPE> aIndex,
+                                                                         @Nullable final KEYTYPE aKey)
+  {
+    return getAll (x -> aIndex.matchesKey (x, aKey));
+  }
+
+  /**
+   * Get all items with a key within the provided range of a sorted index,
+   * ordered by key. The default implementation scans all items.
+   *
+   * @param aIndex
+   *        The sorted index to query. May not be <code>null</code>.
+   * @param aFromKey
+   *        The lower bound. May be <code>null</code> for no lower bound.
+   * @param bFromInclusive
+   *        <code>true</code> if the lower bound is inclusive
+   * @param aToKey
+   *        The upper bound. May be <code>null</code> for no upper bound.
+   * @param bToInclusive
+   *        <code>true</code> if the upper bound is inclusive
+   * @return A non-<code>null</code> but maybe empty list.
+   * @throws IllegalStateException
+   *         If the index is not sorted
+   * @param <KEYTYPE>
+   *        The index key type
+   * @since 9.1.0
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  default <KEYTYPE> ICommonsList <? extends INTERFACETYPE> getAllOfIndexRange (@Nonnull final MapBasedDAOIndex <? super INTERFACETYPE, KEYTYPE> aIndex,
+                                                                              @Nullable final KEYTYPE aFromKey,
+                                                                              final boolean bFromInclusive,
+                                                                              @Nullable final KEYTYPE aToKey,
+                                                                              final boolean bToInclusive)
+  {
+    if (!aIndex.isSorted ())
+      throw new IllegalStateException ("Index '" + aIndex.getName () + "' is not sorted");
+
+    final ICommonsList <? extends INTERFACETYPE> ret = getAll (x -> aIndex.isKeyInRange (x,
+                                                                                         aFromKey,
+                                                                                         bFromInclusive,
+                                                                                         aToKey,
+                                                                                         bToInclusive));
+    ret.sort ( (x, y) -> aIndex.getComparator ().compare (aIndex.getKey (x), aIndex.getKey (y)));
+    return ret;
+  }
 }
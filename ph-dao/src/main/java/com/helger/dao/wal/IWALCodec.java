@@ -0,0 +1,68 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Converts the elements of a DAO to and from the binary WAL record format.
+ * The framing of the records (length prefix and checksum) is handled by the
+ * DAO - an implementation only needs to write and read the element itself.
+ * If no codec is set, each element is written as an XML string. A domain
+ * specific codec writing the fields directly is usually much smaller and
+ * faster.
+ *
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The data type to be serialized
+ * @since 9.1.0
+ * @see AbstractWALDAO#setWALCodec(IWALCodec)
+ */
+public interface IWALCodec <DATATYPE extends Serializable>
+{
+  /**
+   * Write a single element.
+   *
+   * @param aElement
+   *        The element to write. Never <code>null</code>.
+   * @param aDO
+   *        The output to write to. Never <code>null</code>.
+   * @throws IOException
+   *         on write error
+   */
+  void encode (@Nonnull DATATYPE aElement, @Nonnull DataOutput aDO) throws IOException;
+
+  /**
+   * Read a single element that was written with
+   * {@link #encode(Serializable, DataOutput)}.
+   *
+   * @param aDI
+   *        The input to read from. Never <code>null</code>.
+   * @return The read element. If <code>null</code> is returned, the recovery
+   *         fails with an exception.
+   * @throws IOException
+   *         on read error
+   */
+  @Nullable
+  DATATYPE decode (@Nonnull DataInput aDI) throws IOException;
+}
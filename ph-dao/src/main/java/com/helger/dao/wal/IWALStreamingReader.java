@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.state.EChange;
+import com.helger.xml.microdom.IMicroElement;
+
+/**
+ * Reads the data file of an {@link AbstractWALDAO} element by element instead
+ * of creating the whole document in memory. Each child element of the document
+ * element is converted via {@link #convertReadElementToNative(IMicroElement)}
+ * and afterwards passed to {@link #onReadItem(Serializable)} in document order.
+ *
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The data type to be read
+ * @see AbstractWALDAO#getStreamingReader()
+ * @since 9.1.0
+ */
+public interface IWALStreamingReader <DATATYPE extends Serializable>
+{
+  /**
+   * Convert a single child element of the document element. If the read
+   * parallelism of the DAO is &gt; 1 this method is called concurrently from
+   * several threads and must therefore not modify any state.
+   *
+   * @param eElement
+   *        The element to convert. Never <code>null</code>.
+   * @return The native object or <code>null</code> if the element should be
+   *         skipped.
+   */
+  @Nullable
+  DATATYPE convertReadElementToNative (@Nonnull IMicroElement eElement);
+
+  /**
+   * Apply a single item. This method is called in document order and only
+   * within the write lock of the DAO.
+   *
+   * @param aItem
+   *        The item as created by
+   *        {@link #convertReadElementToNative(IMicroElement)}. Never
+   *        <code>null</code>.
+   * @return {@link EChange#CHANGED} if reading the item changed something that
+   *         requires a writing.
+   */
+  @Nonnull
+  EChange onReadItem (@Nonnull DATATYPE aItem);
+}
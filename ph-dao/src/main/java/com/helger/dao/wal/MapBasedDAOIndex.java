@@ -0,0 +1,284 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.util.Comparator;
+import java.util.function.Function;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.name.IHasName;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The definition of a secondary index of an {@link IMapBasedDAO}. An index
+ * extracts a key from each item and allows to query items by that key without
+ * scanning all items. Items for which the key extractor returns
+ * <code>null</code> are not indexed.<br>
+ * The definition itself holds no data and can therefore be declared as a
+ * constant and used for several DAO instances. Equality is based on identity.
+ *
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The item type to be indexed
+ * @param <KEYTYPE>
+ *        The index key type
+ * @since 9.1.0
+ */
+@Immutable
+public final class MapBasedDAOIndex <DATATYPE, KEYTYPE> implements IHasName
+{
+  private final String m_sName;
+  private final Function <? super DATATYPE, ? extends KEYTYPE> m_aKeyExtractor;
+  private final boolean m_bUnique;
+  private final Comparator <? super KEYTYPE> m_aComparator;
+
+  private MapBasedDAOIndex (@Nonnull @Nonempty final String sName,
+                            @Nonnull final Function <? super DATATYPE, ? extends KEYTYPE> aKeyExtractor,
+                            final boolean bUnique,
+                            @Nullable final Comparator <? super KEYTYPE> aComparator)
+  {
+    m_sName = ValueEnforcer.notEmpty (sName, "Name");
+    m_aKeyExtractor = ValueEnforcer.notNull (aKeyExtractor, "KeyExtractor");
+    m_bUnique = bUnique;
+    m_aComparator = aComparator;
+  }
+
+  /**
+   * @return The name of the index as provided in the constructor. Only used
+   *         for logging purposes.
+   */
+  @Nonnull
+  @Nonempty
+  public String getName ()
+  {
+    return m_sName;
+  }
+
+  /**
+   * Extract the index key from the provided item.
+   *
+   * @param aItem
+   *        The item to extract the key from. May not be <code>null</code>.
+   * @return The index key. May be <code>null</code> in which case the item is
+   *         not indexed.
+   */
+  @Nullable
+  public KEYTYPE getKey (@Nonnull final DATATYPE aItem)
+  {
+    return m_aKeyExtractor.apply (aItem);
+  }
+
+  /**
+   * @return <code>true</code> if at most one item per key is allowed,
+   *         <code>false</code> if several items may share the same key.
+   */
+  public boolean isUnique ()
+  {
+    return m_bUnique;
+  }
+
+  /**
+   * @return <code>true</code> if this is a sorted index that supports range
+   *         queries, <code>false</code> if it is a hash index.
+   */
+  public boolean isSorted ()
+  {
+    return m_aComparator != null;
+  }
+
+  /**
+   * @return The comparator of a sorted index or <code>null</code> for a hash
+   *         index.
+   */
+  @Nullable
+  public Comparator <? super KEYTYPE> getComparator ()
+  {
+    return m_aComparator;
+  }
+
+  /**
+   * Check if the provided item has the provided key in this index. For sorted
+   * indexes the comparator is used, for hash indexes
+   * {@link Object#equals(Object)}.
+   *
+   * @param aItem
+   *        The item to check. May not be <code>null</code>.
+   * @param aKey
+   *        The key to check. May be <code>null</code>.
+   * @return <code>true</code> if the item is indexed with the provided key.
+   */
+  public boolean matchesKey (@Nonnull final DATATYPE aItem, @Nullable final KEYTYPE aKey)
+  {
+    if (aKey == null)
+      return false;
+    final KEYTYPE aItemKey = getKey (aItem);
+    if (aItemKey == null)
+      return false;
+    return m_aComparator != null ? m_aComparator.compare (aItemKey, aKey) == 0 : aItemKey.equals (aKey);
+  }
+
+  /**
+   * Check if the key of the provided item lies within the provided range. Only
+   * applicable to sorted indexes.
+   *
+   * @param aItem
+   *        The item to check. May not be <code>null</code>.
+   * @param aFromKey
+   *        The lower bound. May be <code>null</code> for no lower bound.
+   * @param bFromInclusive
+   *        <code>true</code> if the lower bound is inclusive
+   * @param aToKey
+   *        The upper bound. May be <code>null</code> for no upper bound.
+   * @param bToInclusive
+   *        <code>true</code> if the upper bound is inclusive
+   * @return <code>true</code> if the item is indexed with a key in the range.
+   * @throws IllegalStateException
+   *         If this is not a sorted index
+   */
+  public boolean isKeyInRange (@Nonnull final DATATYPE aItem,
+                               @Nullable final KEYTYPE aFromKey,
+                               final boolean bFromInclusive,
+                               @Nullable final KEYTYPE aToKey,
+                               final boolean bToInclusive)
+  {
+    if (m_aComparator == null)
+      throw new IllegalStateException ("Index '" + m_sName + "' is not sorted");
+
+    final KEYTYPE aItemKey = getKey (aItem);
+    if (aItemKey == null)
+      return false;
+    if (aFromKey != null)
+    {
+      final int nCmp = m_aComparator.compare (aItemKey, aFromKey);
+      if (nCmp < 0 || (nCmp == 0 && !bFromInclusive))
+        return false;
+    }
+    if (aToKey != null)
+    {
+      final int nCmp = m_aComparator.compare (aItemKey, aToKey);
+      if (nCmp > 0 || (nCmp == 0 && !bToInclusive))
+        return false;
+    }
+    return true;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Name", m_sName)
+                                       .append ("Unique", m_bUnique)
+                                       .append ("Sorted", isSorted ())
+                                       .getToString ();
+  }
+
+  /**
+   * Create a new hash index where every key may be used by at most one item.
+   * Creating or updating an item with a key that is already used by another
+   * item fails with an {@link IllegalArgumentException}.
+   *
+   * @param sName
+   *        Index name. May neither be <code>null</code> nor empty.
+   * @param aKeyExtractor
+   *        Key extractor. May not be <code>null</code>. The key type must
+   *        implement {@link Object#equals(Object)} and
+   *        {@link Object#hashCode()}.
+   * @return The new index definition. Never <code>null</code>.
+   * @param <DATATYPE>
+   *        The item type to be indexed
+   * @param <KEYTYPE>
+   *        The index key type
+   */
+  @Nonnull
+  public static <DATATYPE, KEYTYPE> MapBasedDAOIndex <DATATYPE, KEYTYPE> createUniqueHash (@Nonnull @Nonempty final String sName,
+                                                                                          @Nonnull final Function <? super DATATYPE, ? extends KEYTYPE> aKeyExtractor)
+  {
+    return new MapBasedDAOIndex <> (sName, aKeyExtractor, true, null);
+  }
+
+  /**
+   * Create a new hash index where several items may share the same key.
+   *
+   * @param sName
+   *        Index name. May neither be <code>null</code> nor empty.
+   * @param aKeyExtractor
+   *        Key extractor. May not be <code>null</code>. The key type must
+   *        implement {@link Object#equals(Object)} and
+   *        {@link Object#hashCode()}.
+   * @return The new index definition. Never <code>null</code>.
+   * @param <DATATYPE>
+   *        The item type to be indexed
+   * @param <KEYTYPE>
+   *        The index key type
+   */
+  @Nonnull
+  public static <DATATYPE, KEYTYPE> MapBasedDAOIndex <DATATYPE, KEYTYPE> createHash (@Nonnull @Nonempty final String sName,
+                                                                                    @Nonnull final Function <? super DATATYPE, ? extends KEYTYPE> aKeyExtractor)
+  {
+    return new MapBasedDAOIndex <> (sName, aKeyExtractor, false, null);
+  }
+
+  /**
+   * Create a new sorted index with naturally ordered keys that supports range
+   * queries. Several items may share the same key.
+   *
+   * @param sName
+   *        Index name. May neither be <code>null</code> nor empty.
+   * @param aKeyExtractor
+   *        Key extractor. May not be <code>null</code>.
+   * @return The new index definition. Never <code>null</code>.
+   * @param <DATATYPE>
+   *        The item type to be indexed
+   * @param <KEYTYPE>
+   *        The index key type
+   */
+  @Nonnull
+  public static <DATATYPE, KEYTYPE extends Comparable <? super KEYTYPE>> MapBasedDAOIndex <DATATYPE, KEYTYPE> createSorted (@Nonnull @Nonempty final String sName,
+                                                                                                                          @Nonnull final Function <? super DATATYPE, ? extends KEYTYPE> aKeyExtractor)
+  {
+    return createSorted (sName, aKeyExtractor, Comparator.naturalOrder ());
+  }
+
+  /**
+   * Create a new sorted index that supports range queries. Several items may
+   * share the same key.
+   *
+   * @param sName
+   *        Index name. May neither be <code>null</code> nor empty.
+   * @param aKeyExtractor
+   *        Key extractor. May not be <code>null</code>.
+   * @param aComparator
+   *        The comparator for the keys. May not be <code>null</code>.
+   * @return The new index definition. Never <code>null</code>.
+   * @param <DATATYPE>
+   *        The item type to be indexed
+   * @param <KEYTYPE>
+   *        The index key type
+   */
+  @Nonnull
+  public static <DATATYPE, KEYTYPE> MapBasedDAOIndex <DATATYPE, KEYTYPE> createSorted (@Nonnull @Nonempty final String sName,
+                                                                                      @Nonnull final Function <? super DATATYPE, ? extends KEYTYPE> aKeyExtractor,
+                                                                                      @Nonnull final Comparator <? super KEYTYPE> aComparator)
+  {
+    ValueEnforcer.notNull (aComparator, "Comparator");
+    return new MapBasedDAOIndex <> (sName, aKeyExtractor, false, aComparator);
+  }
+}
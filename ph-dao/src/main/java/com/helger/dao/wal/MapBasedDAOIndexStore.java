@@ -0,0 +1,225 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ELockType;
+import com.helger.commons.annotation.MustBeLocked;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * The data of a single {@link MapBasedDAOIndex} of a DAO. The key of each item
+ * is remembered, so that items that were modified in place are still removed
+ * from the correct key. Modifications must happen within the write lock of the
+ * owning DAO, whereas queries need no lock. Like the iterators of the
+ * concurrent collections, a query reflects the state at or since its start, so
+ * an item that is updated concurrently may be missing from a query.
+ *
+ * @author Philip Helger
+ * @param <ITEMTYPE>
+ *        The item type to be indexed
+ * @param <KEYTYPE>
+ *        The index key type
+ * @since 9.1.0
+ */
+@ThreadSafe
+final class MapBasedDAOIndexStore <ITEMTYPE extends IHasID <String>, KEYTYPE>
+{
+  /**
+   * The key of an indexed item together with the insertion sequence number
+   * that orders the items of the same key.
+   */
+  private static final class IndexEntry <KEYTYPE>
+  {
+    private final KEYTYPE m_aKey;
+    private final Long m_aSequence;
+
+    IndexEntry (@Nonnull final KEYTYPE aKey, @Nonnull final Long aSequence)
+    {
+      m_aKey = aKey;
+      m_aSequence = aSequence;
+    }
+  }
+
+  private final MapBasedDAOIndex <? super ITEMTYPE, KEYTYPE> m_aIndex;
+  // Key to all items with that key, ordered by insertion sequence
+  private final ConcurrentMap <KEYTYPE, ConcurrentSkipListMap <Long, ITEMTYPE>> m_aKeyMap;
+  // Item ID to the key it is indexed with - only used by the writer
+  private final ICommonsMap <String, IndexEntry <KEYTYPE>> m_aIDToKey = new CommonsHashMap <> ();
+  // Only used by the writer
+  private long m_nNextSequence = 0;
+
+  MapBasedDAOIndexStore (@Nonnull final MapBasedDAOIndex <? super ITEMTYPE, KEYTYPE> aIndex)
+  {
+    m_aIndex = ValueEnforcer.notNull (aIndex, "Index");
+    m_aKeyMap = aIndex.isSorted () ? new ConcurrentSkipListMap <> (aIndex.getComparator ())
+                                   : new ConcurrentHashMap <> ();
+  }
+
+  @Nonnull
+  MapBasedDAOIndex <? super ITEMTYPE, KEYTYPE> getIndex ()
+  {
+    return m_aIndex;
+  }
+
+  /**
+   * Check if the provided item can be added without violating a unique
+   * constraint.
+   *
+   * @param aItem
+   *        The item to be added or updated. May not be <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If the key of the item is already used by another item
+   */
+  @MustBeLocked (ELockType.WRITE)
+  void checkUnique (@Nonnull final ITEMTYPE aItem)
+  {
+    if (m_aIndex.isUnique ())
+    {
+      final KEYTYPE aKey = m_aIndex.getKey (aItem);
+      if (aKey != null)
+      {
+        final ConcurrentSkipListMap <Long, ITEMTYPE> aItems = m_aKeyMap.get (aKey);
+        if (aItems != null)
+          for (final ITEMTYPE aOther : aItems.values ())
+          {
+            final String sID = aOther.getID ();
+            if (!sID.equals (aItem.getID ()))
+              throw new IllegalArgumentException ("The key '" +
+                                                  aKey +
+                                                  "' of unique index '" +
+                                                  m_aIndex.getName () +
+                                                  "' is already used by the item with ID '" +
+                                                  sID +
+                                                  "' and can therefore not be used for item " +
+                                                  aItem);
+          }
+      }
+    }
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  void add (@Nonnull final ITEMTYPE aItem)
+  {
+    final String sID = aItem.getID ();
+    remove (sID);
+
+    final KEYTYPE aKey = m_aIndex.getKey (aItem);
+    if (aKey != null)
+    {
+      final Long aSequence = Long.valueOf (m_nNextSequence++);
+      // Only a single writer, so no concurrent creation of the same key
+      ConcurrentSkipListMap <Long, ITEMTYPE> aItems = m_aKeyMap.get (aKey);
+      if (aItems == null)
+      {
+        aItems = new ConcurrentSkipListMap <> ();
+        aItems.put (aSequence, aItem);
+        m_aKeyMap.put (aKey, aItems);
+      }
+      else
+        aItems.put (aSequence, aItem);
+      m_aIDToKey.put (sID, new IndexEntry <> (aKey, aSequence));
+    }
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  void remove (@Nonnull final String sID)
+  {
+    final IndexEntry <KEYTYPE> aOldEntry = m_aIDToKey.remove (sID);
+    if (aOldEntry != null)
+    {
+      final ConcurrentSkipListMap <Long, ITEMTYPE> aItems = m_aKeyMap.get (aOldEntry.m_aKey);
+      if (aItems != null)
+      {
+        aItems.remove (aOldEntry.m_aSequence);
+        if (aItems.isEmpty ())
+          m_aKeyMap.remove (aOldEntry.m_aKey);
+      }
+    }
+  }
+
+  @MustBeLocked (ELockType.WRITE)
+  void clear ()
+  {
+    m_aKeyMap.clear ();
+    m_aIDToKey.clear ();
+  }
+
+  @Nullable
+  ITEMTYPE getFirst (@Nullable final KEYTYPE aKey)
+  {
+    if (aKey == null)
+      return null;
+    final ConcurrentSkipListMap <Long, ITEMTYPE> aItems = m_aKeyMap.get (aKey);
+    if (aItems == null)
+      return null;
+    // May be empty if the last item was removed concurrently
+    final Map.Entry <Long, ITEMTYPE> aFirst = aItems.firstEntry ();
+    return aFirst == null ? null : aFirst.getValue ();
+  }
+
+  void forEach (@Nullable final KEYTYPE aKey, @Nonnull final Consumer <? super ITEMTYPE> aConsumer)
+  {
+    if (aKey != null)
+    {
+      final ConcurrentSkipListMap <Long, ITEMTYPE> aItems = m_aKeyMap.get (aKey);
+      if (aItems != null)
+        aItems.values ().forEach (aConsumer);
+    }
+  }
+
+  void forEachInRange (@Nullable final KEYTYPE aFromKey,
+                       final boolean bFromInclusive,
+                       @Nullable final KEYTYPE aToKey,
+                       final boolean bToInclusive,
+                       @Nonnull final Consumer <? super ITEMTYPE> aConsumer)
+  {
+    if (!m_aIndex.isSorted ())
+      throw new IllegalStateException ("Index '" + m_aIndex.getName () + "' is not sorted");
+
+    NavigableMap <KEYTYPE, ConcurrentSkipListMap <Long, ITEMTYPE>> aRange = (NavigableMap <KEYTYPE, ConcurrentSkipListMap <Long, ITEMTYPE>>) m_aKeyMap;
+    if (aFromKey != null)
+      aRange = aRange.tailMap (aFromKey, bFromInclusive);
+    if (aToKey != null)
+      aRange = aRange.headMap (aToKey, bToInclusive);
+    for (final Map.Entry <KEYTYPE, ConcurrentSkipListMap <Long, ITEMTYPE>> aEntry : aRange.entrySet ())
+      aEntry.getValue ().values ().forEach (aConsumer);
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Index", m_aIndex)
+                                       .append ("KeyCount", m_aKeyMap.size ())
+                                       .append ("ItemCount", m_aIDToKey.size ())
+                                       .getToString ();
+  }
+}
@@ -0,0 +1,178 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.function.Supplier;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+
+/**
+ * Process tasks in two phases: the expensive part (e.g. XML parsing and type
+ * conversion) runs in parallel on an executor, whereas the resulting actions
+ * are run on the calling thread in the order the tasks were added. Tasks are
+ * grouped into batches to keep the scheduling overhead low, and the number of
+ * batches in flight is limited so that the memory consumption stays flat.
+ * Without an executor everything is run directly on the calling thread.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@NotThreadSafe
+final class OrderedParallelProcessor
+{
+  /** The number of tasks that are grouped into one batch */
+  static final int DEFAULT_BATCH_SIZE = 256;
+
+  private final ExecutorService m_aExecutor;
+  private final int m_nBatchSize;
+  private final int m_nMaxPendingBatches;
+  private final Deque <Future <ICommonsList <Runnable>>> m_aPending = new ArrayDeque <> ();
+  private ICommonsList <Supplier <? extends Runnable>> m_aCurrentBatch;
+
+  /**
+   * Constructor
+   *
+   * @param aExecutor
+   *        The executor to run the tasks on. May be <code>null</code> to run
+   *        everything on the calling thread.
+   * @param nParallelism
+   *        The parallelism of the executor. Used to limit the number of
+   *        pending batches. Must be &gt; 0.
+   * @param nBatchSize
+   *        The number of tasks per batch. Must be &gt; 0.
+   */
+  OrderedParallelProcessor (@Nullable final ExecutorService aExecutor,
+                            @Nonnegative final int nParallelism,
+                            @Nonnegative final int nBatchSize)
+  {
+    ValueEnforcer.isGT0 (nParallelism, "Parallelism");
+    ValueEnforcer.isGT0 (nBatchSize, "BatchSize");
+    m_aExecutor = aExecutor;
+    m_nBatchSize = nBatchSize;
+    m_nMaxPendingBatches = nParallelism * 2;
+  }
+
+  @Nonnull
+  private static ICommonsList <Runnable> _runBatch (@Nonnull final ICommonsList <Supplier <? extends Runnable>> aBatch)
+  {
+    final ICommonsList <Runnable> ret = new CommonsArrayList <> (aBatch.size ());
+    for (final Supplier <? extends Runnable> aTask : aBatch)
+      ret.add (aTask.get ());
+    return ret;
+  }
+
+  private void _applyOldest ()
+  {
+    final Future <ICommonsList <Runnable>> aFuture = m_aPending.removeFirst ();
+    final ICommonsList <Runnable> aActions;
+    try
+    {
+      aActions = aFuture.get ();
+    }
+    catch (final InterruptedException ex)
+    {
+      Thread.currentThread ().interrupt ();
+      throw new IllegalStateException ("Interrupted while waiting for parallel processing", ex);
+    }
+    catch (final ExecutionException ex)
+    {
+      final Throwable aCause = ex.getCause ();
+      if (aCause instanceof RuntimeException)
+        throw (RuntimeException) aCause;
+      if (aCause instanceof Error)
+        throw (Error) aCause;
+      throw new IllegalStateException ("Error in parallel processing", aCause);
+    }
+    for (final Runnable aAction : aActions)
+      aAction.run ();
+  }
+
+  private void _submitCurrentBatch ()
+  {
+    final ICommonsList <Supplier <? extends Runnable>> aBatch = m_aCurrentBatch;
+    m_aCurrentBatch = null;
+    m_aPending.addLast (m_aExecutor.submit ( () -> _runBatch (aBatch)));
+    while (m_aPending.size () > m_nMaxPendingBatches)
+      _applyOldest ();
+  }
+
+  /**
+   * Add a new task.
+   *
+   * @param aTask
+   *        The task to be executed, potentially in parallel. It returns the
+   *        action to be run on the calling thread in the order of addition.
+   *        May not be <code>null</code>.
+   */
+  void add (@Nonnull final Supplier <? extends Runnable> aTask)
+  {
+    if (m_aExecutor == null)
+    {
+      aTask.get ().run ();
+      return;
+    }
+
+    if (m_aCurrentBatch == null)
+      m_aCurrentBatch = new CommonsArrayList <> (m_nBatchSize);
+    m_aCurrentBatch.add (aTask);
+    if (m_aCurrentBatch.size () >= m_nBatchSize)
+      _submitCurrentBatch ();
+  }
+
+  /**
+   * Wait for all added tasks and run all remaining actions. Must be called
+   * after the last task was added. If an exception occurs, all pending tasks
+   * are cancelled.
+   */
+  void finish ()
+  {
+    try
+    {
+      if (m_aCurrentBatch != null)
+        _submitCurrentBatch ();
+      while (!m_aPending.isEmpty ())
+        _applyOldest ();
+    }
+    finally
+    {
+      cancel ();
+    }
+  }
+
+  /**
+   * Cancel all pending tasks without running their actions.
+   */
+  void cancel ()
+  {
+    m_aCurrentBatch = null;
+    for (final Future <?> aFuture : m_aPending)
+      aFuture.cancel (true);
+    m_aPending.clear ();
+  }
+}
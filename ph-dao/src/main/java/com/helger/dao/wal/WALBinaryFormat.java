@@ -0,0 +1,282 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Serializable;
+import java.util.Arrays;
+import java.util.List;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.dao.EDAOActionType;
+
+/**
+ * The binary WAL file format. A binary WAL file starts with {@link #HEADER}
+ * followed by the records. Each record consists of:
+ * <ul>
+ * <li>int: length of the payload (always &gt; 0)</li>
+ * <li>int: CRC-32C of the payload</li>
+ * <li>payload: byte action type, int number of elements, all elements as
+ * written by the {@link IWALCodec}</li>
+ * </ul>
+ * A length of 0 marks the preallocated space after the last record. A record
+ * that is incomplete or has a wrong checksum marks a torn tail - it and
+ * everything after it is ignored.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@Immutable
+final class WALBinaryFormat
+{
+  /**
+   * The file header. The first byte is neither 0 nor 1, which are the only
+   * possible first bytes of the legacy format.
+   */
+  static final byte [] HEADER = new byte [] { (byte) 0xB7, 'W', 'A', 'L', 1 };
+
+  private static final int RECORD_PREFIX_LENGTH = 8;
+
+  private static final byte ACTION_CREATE = 1;
+  private static final byte ACTION_UPDATE = 2;
+  private static final byte ACTION_DELETE = 3;
+
+  private WALBinaryFormat ()
+  {}
+
+  private static byte _getActionByte (@Nonnull final EDAOActionType eActionType)
+  {
+    switch (eActionType)
+    {
+      case CREATE:
+        return ACTION_CREATE;
+      case UPDATE:
+        return ACTION_UPDATE;
+      case DELETE:
+        return ACTION_DELETE;
+      default:
+        throw new IllegalStateException ("Unsupported action type provided: " + eActionType);
+    }
+  }
+
+  @Nonnull
+  static EDAOActionType getActionType (final byte nAction) throws IOException
+  {
+    switch (nAction)
+    {
+      case ACTION_CREATE:
+        return EDAOActionType.CREATE;
+      case ACTION_UPDATE:
+        return EDAOActionType.UPDATE;
+      case ACTION_DELETE:
+        return EDAOActionType.DELETE;
+      default:
+        throw new IOException ("Unsupported binary action type " + nAction);
+    }
+  }
+
+  /**
+   * Check if the passed stream starts with the binary header. If so, the
+   * header is consumed, otherwise the stream is reset to the beginning.
+   *
+   * @param aIS
+   *        The stream to check. Must support mark and reset.
+   * @return <code>true</code> if the stream is in the binary format.
+   * @throws IOException
+   *         on read error
+   */
+  static boolean readHeader (@Nonnull final InputStream aIS) throws IOException
+  {
+    ValueEnforcer.isTrue (aIS.markSupported (), "InputStream must support mark");
+    aIS.mark (HEADER.length);
+    final byte [] aBuf = new byte [HEADER.length];
+    boolean bIsBinary;
+    try
+    {
+      StreamHelper.readFully (aIS, aBuf, 0, aBuf.length);
+      bIsBinary = Arrays.equals (aBuf, HEADER);
+    }
+    catch (final EOFException ex)
+    {
+      bIsBinary = false;
+    }
+    if (!bIsBinary)
+      aIS.reset ();
+    return bIsBinary;
+  }
+
+  /**
+   * Create a complete record including length and checksum.
+   *
+   * @param eActionType
+   *        Action type. May not be <code>null</code>.
+   * @param aElements
+   *        The elements of the record. May not be <code>null</code>.
+   * @param aCodec
+   *        The codec to use. May not be <code>null</code>.
+   * @return The record bytes.
+   * @throws IOException
+   *         if encoding fails
+   * @param <T>
+   *        Element type
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  static <T extends Serializable> byte [] createRecord (@Nonnull final EDAOActionType eActionType,
+                                                        @Nonnull final List <T> aElements,
+                                                        @Nonnull final IWALCodec <T> aCodec) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try (final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+    {
+      // Placeholder for length and checksum
+      aDOS.writeLong (0);
+      aDOS.writeByte (_getActionByte (eActionType));
+      aDOS.writeInt (aElements.size ());
+      for (final T aElement : aElements)
+        aCodec.encode (aElement, aDOS);
+    }
+
+    final byte [] ret = aBAOS.toByteArray ();
+    final int nPayloadLength = ret.length - RECORD_PREFIX_LENGTH;
+    final int nCRC = CRC32C.getChecksum (ret, RECORD_PREFIX_LENGTH, nPayloadLength);
+    _putInt (ret, 0, nPayloadLength);
+    _putInt (ret, 4, nCRC);
+    return ret;
+  }
+
+  private static void _putInt (@Nonnull final byte [] aBuf, final int nOfs, final int nValue)
+  {
+    aBuf[nOfs] = (byte) (nValue >>> 24);
+    aBuf[nOfs + 1] = (byte) (nValue >>> 16);
+    aBuf[nOfs + 2] = (byte) (nValue >>> 8);
+    aBuf[nOfs + 3] = (byte) nValue;
+  }
+
+  /**
+   * Sequential reader for the records after the header.
+   *
+   * @author Philip Helger
+   */
+  @NotThreadSafe
+  static final class RecordReader
+  {
+    private final DataInputStream m_aDIS;
+    private final long m_nFileSize;
+    private long m_nPosition;
+    private boolean m_bTornTail = false;
+
+    /**
+     * @param aIS
+     *        The stream positioned after the header. Is not closed.
+     * @param nFileSize
+     *        The total size of the file, used to detect invalid lengths.
+     */
+    RecordReader (@Nonnull final InputStream aIS, @Nonnegative final long nFileSize)
+    {
+      m_aDIS = new DataInputStream (aIS);
+      m_nFileSize = nFileSize;
+      m_nPosition = HEADER.length;
+    }
+
+    /**
+     * @return The payload of the next valid record or <code>null</code> if
+     *         the end of the log was reached.
+     * @throws IOException
+     *         on read error
+     */
+    @Nullable
+    byte [] readNext () throws IOException
+    {
+      if (m_bTornTail)
+        return null;
+
+      final int nLength;
+      final int nCRC;
+      try
+      {
+        nLength = m_aDIS.readInt ();
+        if (nLength == 0)
+        {
+          // Preallocated space
+          return null;
+        }
+        nCRC = m_aDIS.readInt ();
+      }
+      catch (final EOFException ex)
+      {
+        // Clean end or incomplete prefix
+        return null;
+      }
+
+      // Avoid huge allocations for corrupt lengths
+      if (nLength < 0 || nLength > m_nFileSize - m_nPosition - RECORD_PREFIX_LENGTH)
+      {
+        m_bTornTail = true;
+        return null;
+      }
+
+      final byte [] aPayload = new byte [nLength];
+      try
+      {
+        StreamHelper.readFully (m_aDIS, aPayload, 0, nLength);
+      }
+      catch (final EOFException ex)
+      {
+        m_bTornTail = true;
+        return null;
+      }
+      if (CRC32C.getChecksum (aPayload, 0, nLength) != nCRC)
+      {
+        m_bTornTail = true;
+        return null;
+      }
+      m_nPosition += RECORD_PREFIX_LENGTH + nLength;
+      return aPayload;
+    }
+
+    /**
+     * @return The position after the last valid record.
+     */
+    @Nonnegative
+    long getPosition ()
+    {
+      return m_nPosition;
+    }
+
+    /**
+     * @return <code>true</code> if an incomplete or corrupt record was found.
+     */
+    boolean isTornTail ()
+    {
+      return m_bTornTail;
+    }
+  }
+}
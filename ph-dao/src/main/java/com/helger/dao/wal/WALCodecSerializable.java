@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.IOException;
+import java.io.Serializable;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.serialize.SerializationHelper;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A generic {@link IWALCodec} using Java serialization. This requires no
+ * additional code but is slower and bigger than a specific codec.
+ *
+ * @author Philip Helger
+ * @param <DATATYPE>
+ *        The data type to be serialized
+ * @since 9.1.0
+ */
+@Immutable
+public class WALCodecSerializable <DATATYPE extends Serializable> implements IWALCodec <DATATYPE>
+{
+  private final Class <DATATYPE> m_aDataTypeClass;
+
+  public WALCodecSerializable (@Nonnull final Class <DATATYPE> aDataTypeClass)
+  {
+    m_aDataTypeClass = ValueEnforcer.notNull (aDataTypeClass, "DataTypeClass");
+  }
+
+  public void encode (@Nonnull final DATATYPE aElement, @Nonnull final DataOutput aDO) throws IOException
+  {
+    final byte [] aBytes = SerializationHelper.getSerializedByteArray (aElement);
+    aDO.writeInt (aBytes.length);
+    aDO.write (aBytes);
+  }
+
+  @Nullable
+  public DATATYPE decode (@Nonnull final DataInput aDI) throws IOException
+  {
+    final int nLength = aDI.readInt ();
+    if (nLength < 0)
+      throw new IOException ("Invalid element length " + nLength);
+    final byte [] aBytes = new byte [nLength];
+    aDI.readFully (aBytes);
+    final Object aObj = SerializationHelper.getDeserializedObject (aBytes);
+    return m_aDataTypeClass.isInstance (aObj) ? m_aDataTypeClass.cast (aObj) : null;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("DataTypeClass", m_aDataTypeClass).getToString ();
+  }
+}
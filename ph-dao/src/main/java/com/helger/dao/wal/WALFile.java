@@ -0,0 +1,538 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Condition;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.CGlobal;
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.concurrent.BasicThreadFactory;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.io.file.FileHelper;
+import com.helger.commons.io.stream.CountingInputStream;
+import com.helger.commons.io.stream.NonBlockingBufferedInputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.lang.TimeValue;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * A persistent channel to a single WAL file. The channel is kept open between
+ * the records and the file is preallocated in chunks, so that forcing the file
+ * usually requires no metadata update. Each record is written directly.
+ * Depending on the {@link EWALDurability} the file is never forced, forced
+ * after each record, forced periodically in the background or forced once for
+ * all threads waiting in {@link #awaitForce(long)} at the same time.<br>
+ * The file is preallocated with zero bytes. As each legacy record starts with
+ * a non zero byte and each {@link WALBinaryFormat} record starts with a non
+ * zero length, zero bytes at the beginning of a record mark the end of the
+ * log.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@ThreadSafe
+final class WALFile
+{
+  /** The default number of bytes the file grows at once */
+  public static final int DEFAULT_PREALLOCATION_SIZE = CGlobal.BYTES_PER_MEGABYTE;
+  private static final Logger s_aLogger = LoggerFactory.getLogger (WALFile.class);
+  private static final ByteBuffer ZERO_BUFFER = ByteBuffer.allocateDirect (64 * CGlobal.BYTES_PER_KILOBYTE);
+
+  // Shared by all WAL files - the work per force is small
+  private static final ScheduledExecutorService s_aForceES = Executors.newSingleThreadScheduledExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("WAL-PeriodicForce-%d")
+                                                                                                                                         .setDaemon (true)
+                                                                                                                                         .build ());
+
+  private final File m_aFile;
+  private final int m_nPreallocationSize;
+  private final boolean m_bBinary;
+  private final SimpleLock m_aLock = new SimpleLock ();
+  @GuardedBy ("m_aLock")
+  private FileChannel m_aChannel;
+  @GuardedBy ("m_aLock")
+  private long m_nPosition;
+  @GuardedBy ("m_aLock")
+  private long m_nAllocated;
+  @GuardedBy ("m_aLock")
+  private boolean m_bMetadataDirty;
+  @GuardedBy ("m_aLock")
+  private boolean m_bUnforced = false;
+  @GuardedBy ("m_aLock")
+  private boolean m_bForceScheduled = false;
+  @GuardedBy ("m_aLock")
+  private long m_nForceCount = 0;
+  // Group commit
+  private final Condition m_aForceDone = m_aLock.newCondition ();
+  @GuardedBy ("m_aLock")
+  private long m_nWrittenSeq = 0;
+  @GuardedBy ("m_aLock")
+  private long m_nForcedSeq = 0;
+  @GuardedBy ("m_aLock")
+  private boolean m_bForceInProgress = false;
+
+  WALFile (@Nonnull final File aFile, @Nonnegative final int nPreallocationSize)
+  {
+    this (aFile, nPreallocationSize, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param aFile
+   *        The WAL file. May not be <code>null</code>.
+   * @param nPreallocationSize
+   *        The number of bytes the file grows at once. Must be &ge; 0.
+   * @param bBinary
+   *        <code>true</code> for the {@link WALBinaryFormat},
+   *        <code>false</code> for the legacy format.
+   */
+  WALFile (@Nonnull final File aFile, @Nonnegative final int nPreallocationSize, final boolean bBinary)
+  {
+    m_aFile = ValueEnforcer.notNull (aFile, "File");
+    m_nPreallocationSize = ValueEnforcer.isGE0 (nPreallocationSize, "PreallocationSize");
+    m_bBinary = bBinary;
+  }
+
+  @Nonnull
+  public File getFile ()
+  {
+    return m_aFile;
+  }
+
+  /**
+   * @return <code>true</code> if this file uses the {@link WALBinaryFormat}.
+   */
+  public boolean isBinary ()
+  {
+    return m_bBinary;
+  }
+
+  /**
+   * Determine the end of the last complete record in the passed WAL stream.
+   * Both the legacy and the binary format are supported.
+   *
+   * @param aIS
+   *        The stream to read. Is not closed.
+   * @param nFileSize
+   *        The total number of bytes of the stream.
+   * @return The number of bytes of all complete records.
+   * @throws IOException
+   *         on read error
+   */
+  @Nonnegative
+  static long getLogicalEnd (@Nonnull final InputStream aIS, @Nonnegative final long nFileSize) throws IOException
+  {
+    final InputStream aMarkIS = aIS.markSupported () ? aIS : new NonBlockingBufferedInputStream (aIS);
+    if (WALBinaryFormat.readHeader (aMarkIS))
+      return _getBinaryLogicalEnd (aMarkIS, nFileSize);
+    return _getLegacyLogicalEnd (aMarkIS);
+  }
+
+  @Nonnegative
+  private static long _getBinaryLogicalEnd (@Nonnull final InputStream aIS,
+                                            @Nonnegative final long nFileSize) throws IOException
+  {
+    final WALBinaryFormat.RecordReader aReader = new WALBinaryFormat.RecordReader (aIS, nFileSize);
+    while (aReader.readNext () != null)
+    {
+      // Just skip
+    }
+    return aReader.getPosition ();
+  }
+
+  @Nonnegative
+  private static long _getLegacyLogicalEnd (@Nonnull final InputStream aIS) throws IOException
+  {
+    final CountingInputStream aCIS = new CountingInputStream (aIS);
+    final DataInputStream aDIS = new DataInputStream (aCIS);
+    long nEnd = 0;
+    try
+    {
+      while (true)
+      {
+        if (StreamHelper.readSafeUTF (aDIS) == null)
+        {
+          // Preallocated space
+          break;
+        }
+        final int nElements = aDIS.readInt ();
+        if (nElements < 0)
+          break;
+        for (int i = 0; i < nElements; ++i)
+          if (StreamHelper.readSafeUTF (aDIS) == null)
+            return nEnd;
+        nEnd = aCIS.getPosition ();
+      }
+    }
+    catch (final EOFException ex)
+    {
+      // Incomplete record at the end
+    }
+    return nEnd;
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _open () throws IOException
+  {
+    m_aChannel = FileChannel.open (m_aFile.toPath (),
+                                   StandardOpenOption.CREATE,
+                                   StandardOpenOption.READ,
+                                   StandardOpenOption.WRITE);
+    final long nSize = m_aChannel.size ();
+    m_nPosition = 0;
+    if (nSize > 0)
+    {
+      // Continue an existing file after the last complete record
+      try (final InputStream aIS = FileHelper.getBufferedInputStream (m_aFile))
+      {
+        final boolean bExistingBinary = WALBinaryFormat.readHeader (aIS);
+        final long nEnd = bExistingBinary ? _getBinaryLogicalEnd (aIS, nSize) : _getLegacyLogicalEnd (aIS);
+        if (bExistingBinary == m_bBinary)
+          m_nPosition = nEnd;
+        else
+          if (nEnd > (bExistingBinary ? WALBinaryFormat.HEADER.length : 0))
+          {
+            m_aChannel.close ();
+            m_aChannel = null;
+            throw new IOException ("The WAL file " +
+                                   m_aFile.getAbsolutePath () +
+                                   " contains records in a different format");
+          }
+      }
+      if (m_nPosition < nSize)
+        m_aChannel.truncate (m_nPosition);
+    }
+    m_nAllocated = m_nPosition;
+    m_bMetadataDirty = true;
+
+    if (m_bBinary && m_nPosition == 0)
+    {
+      // New file
+      _ensureAllocated (WALBinaryFormat.HEADER.length);
+      final ByteBuffer aBuf = ByteBuffer.wrap (WALBinaryFormat.HEADER);
+      while (aBuf.hasRemaining ())
+        m_nPosition += m_aChannel.write (aBuf, m_nPosition);
+    }
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _ensureAllocated (@Nonnegative final long nRequiredEnd) throws IOException
+  {
+    if (nRequiredEnd <= m_nAllocated)
+      return;
+
+    // The actual data will be written over the zero bytes
+    final long nNewAllocated = Math.max (nRequiredEnd, m_nAllocated + m_nPreallocationSize);
+    long nPos = Math.max (nRequiredEnd, m_nAllocated);
+    while (nPos < nNewAllocated)
+    {
+      final ByteBuffer aBuf = ZERO_BUFFER.duplicate ();
+      aBuf.limit ((int) Math.min (aBuf.capacity (), nNewAllocated - nPos));
+      nPos += m_aChannel.write (aBuf, nPos);
+    }
+    m_nAllocated = nNewAllocated;
+    m_bMetadataDirty = true;
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _write (@Nonnull final byte [] aBytes, @Nonnegative final int nLen) throws IOException
+  {
+    if (m_aChannel == null)
+      _open ();
+
+    _ensureAllocated (m_nPosition + nLen);
+    final ByteBuffer aBuf = ByteBuffer.wrap (aBytes, 0, nLen);
+    long nPos = m_nPosition;
+    while (aBuf.hasRemaining ())
+      nPos += m_aChannel.write (aBuf, nPos);
+    m_nPosition = nPos;
+    m_nWrittenSeq++;
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _onForced (final long nForcedSeq)
+  {
+    if (nForcedSeq > m_nForcedSeq)
+    {
+      m_nForcedSeq = nForcedSeq;
+      m_aForceDone.signalAll ();
+    }
+    if (m_nForcedSeq == m_nWrittenSeq)
+      m_bUnforced = false;
+    m_nForceCount++;
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _force () throws IOException
+  {
+    if (m_aChannel != null)
+    {
+      m_aChannel.force (m_bMetadataDirty);
+      m_bMetadataDirty = false;
+      _onForced (m_nWrittenSeq);
+    }
+  }
+
+  @GuardedBy ("m_aLock")
+  private void _awaitForceInProgress ()
+  {
+    while (m_bForceInProgress)
+      m_aForceDone.awaitUninterruptibly ();
+  }
+
+  /**
+   * Force all records written so far to the storage device, if this did not
+   * happen yet.
+   *
+   * @throws IOException
+   *         on write error
+   */
+  public void force () throws IOException
+  {
+    m_aLock.lockedThrowing ( () -> {
+      m_bForceScheduled = false;
+      if (m_bUnforced)
+        _force ();
+    });
+  }
+
+  private void _scheduledForce ()
+  {
+    try
+    {
+      force ();
+    }
+    catch (final IOException ex)
+    {
+      s_aLogger.error ("Failed to force WAL file " + m_aFile.getAbsolutePath (), ex);
+    }
+  }
+
+  /**
+   * Wait until all records up to the passed sequence number are forced to the
+   * storage device. If no other thread is currently forcing the file, the
+   * calling thread forces it once for all records written so far. Otherwise it
+   * waits for the running force, so that all threads waiting at the same time
+   * share a single force. The file is forced outside of the lock, so that new
+   * records can be appended in the meantime. If the file was closed in the
+   * meantime, the method returns immediately, because the records were either
+   * forced upon sealing or the file is obsolete.
+   *
+   * @param nSeq
+   *        The sequence number as returned by
+   *        {@link #append(byte[], EWALDurability, TimeValue)}.
+   * @throws IOException
+   *         on write error
+   */
+  public void awaitForce (final long nSeq) throws IOException
+  {
+    m_aLock.lockedThrowing ( () -> {
+      while (m_nForcedSeq < nSeq && m_aChannel != null)
+      {
+        if (m_bForceInProgress)
+        {
+          // Another thread is forcing - check again afterwards
+          m_aForceDone.awaitUninterruptibly ();
+          continue;
+        }
+
+        // Force everything written so far
+        m_bForceInProgress = true;
+        final FileChannel aChannel = m_aChannel;
+        final long nTargetSeq = m_nWrittenSeq;
+        final boolean bMetadata = m_bMetadataDirty;
+        m_bMetadataDirty = false;
+        boolean bSuccess = false;
+        m_aLock.unlock ();
+        try
+        {
+          aChannel.force (bMetadata);
+          bSuccess = true;
+        }
+        finally
+        {
+          m_aLock.lock ();
+          m_bForceInProgress = false;
+          if (bSuccess)
+            _onForced (nTargetSeq);
+          else
+          {
+            m_bMetadataDirty |= bMetadata;
+            // Let the next waiting thread try again
+            m_aForceDone.signalAll ();
+          }
+        }
+      }
+    });
+  }
+
+  /**
+   * Append a single serialized record. The record is always written to the
+   * file before this method returns.
+   *
+   * @param aRecord
+   *        The complete record. May not be <code>null</code>.
+   * @param eDurability
+   *        The durability to use. May not be <code>null</code>.
+   * @param aForceInterval
+   *        The maximum time until the record is forced in the background. Only
+   *        relevant for {@link EWALDurability#PERIODIC}.
+   * @return The sequence number of the record, to be passed to
+   *         {@link #awaitForce(long)} for {@link EWALDurability#GROUP_COMMIT}.
+   * @throws IOException
+   *         on write error
+   */
+  public long append (@Nonnull final byte [] aRecord,
+                      @Nonnull final EWALDurability eDurability,
+                      @Nonnull final TimeValue aForceInterval) throws IOException
+  {
+    return m_aLock.lockedThrowing ( () -> {
+      _write (aRecord, aRecord.length);
+      m_bUnforced = true;
+      switch (eDurability)
+      {
+        case PER_OPERATION:
+          _force ();
+          break;
+        case PERIODIC:
+          if (!m_bForceScheduled)
+          {
+            m_bForceScheduled = true;
+            s_aForceES.schedule (this::_scheduledForce, aForceInterval.getAsMillis (), TimeUnit.MILLISECONDS);
+          }
+          break;
+        default:
+          // GROUP_COMMIT is forced in awaitForce
+          break;
+      }
+      return Long.valueOf (m_nWrittenSeq);
+    }).longValue ();
+  }
+
+  /**
+   * @return The number of bytes of all records written so far.
+   */
+  @Nonnegative
+  public long getWrittenBytes ()
+  {
+    return m_aLock.locked ( () -> m_nPosition);
+  }
+
+  /**
+   * @return <code>true</code> if records were written since the file was
+   *         forced the last time.
+   */
+  public boolean hasUnforcedRecords ()
+  {
+    return m_aLock.locked ( () -> m_bUnforced);
+  }
+
+  /**
+   * @return How often the file was forced to the storage device.
+   */
+  @Nonnegative
+  public long getForceCount ()
+  {
+    return m_aLock.locked ( () -> m_nForceCount);
+  }
+
+  /**
+   * Close the channel. A subsequent append re-opens the file.
+   *
+   * @throws IOException
+   *         on close error
+   */
+  public void close () throws IOException
+  {
+    m_aLock.lockedThrowing ( () -> {
+      _awaitForceInProgress ();
+      if (m_aChannel != null)
+      {
+        try
+        {
+          m_aChannel.close ();
+        }
+        finally
+        {
+          m_aChannel = null;
+        }
+      }
+    });
+  }
+
+  /**
+   * Cut off the preallocated space and close the file. Afterwards the file only contains complete records and can be
+   * renamed.
+   *
+   * @param bForce
+   *        <code>true</code> to force the content to the storage device before
+   *        closing.
+   * @throws IOException
+   *         on write error
+   */
+  public void seal (final boolean bForce) throws IOException
+  {
+    m_aLock.lockedThrowing ( () -> {
+      _awaitForceInProgress ();
+      if (m_aChannel != null)
+      {
+        try
+        {
+          if (m_nAllocated > m_nPosition)
+            m_aChannel.truncate (m_nPosition);
+          if (bForce)
+          {
+            m_aChannel.force (true);
+            _onForced (m_nWrittenSeq);
+          }
+          m_aChannel.close ();
+        }
+        finally
+        {
+          m_aChannel = null;
+        }
+      }
+    });
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("File", m_aFile)
+                                       .append ("PreallocationSize", m_nPreallocationSize)
+                                       .getToString ();
+  }
+}
@@ -16,71 +16,154 @@
  */
 package com.helger.dao.wal;
 
-import java.util.Map;
 import java.util.concurrent.Executors;
-import java.util.concurrent.Future;
+import java.util.concurrent.PriorityBlockingQueue;
 import java.util.concurrent.ScheduledExecutorService;
 import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.concurrent.GuardedBy;
-import javax.annotation.concurrent.Immutable;
 
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.UsedViaReflection;
 import com.helger.commons.collection.impl.CommonsHashMap;
-import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsMap;
-import com.helger.commons.collection.impl.ICommonsSet;
 import com.helger.commons.concurrent.BasicThreadFactory;
 import com.helger.commons.concurrent.ExecutorServiceHelper;
 import com.helger.commons.lang.TimeValue;
+import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
+import com.helger.commons.statistics.IMutableStatisticsHandlerSize;
+import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
+import com.helger.commons.statistics.StatisticsManager;
 import com.helger.scope.IScope;
 import com.helger.scope.singleton.AbstractGlobalSingleton;
 
 /**
  * The global write ahead logging manager that schedules future writings of a
- * DAO.
+ * DAO. A single timer thread waits for the waiting time of each DAO to expire
+ * and then passes the DAO to a pool of worker threads that perform the
+ * writing. DAOs with a larger backlog of changes are written first. Repeated
+ * registrations of the same DAO are coalesced into one writing. If the workers
+ * fall behind, the writing is performed directly in the thread that changed
+ * the DAO.
  *
  * @author Philip Helger
  */
 public final class WALListener extends AbstractGlobalSingleton
 {
+  /** The default number of worker threads */
+  public static final int DEFAULT_WORKER_COUNT = Math.max (2, Runtime.getRuntime ().availableProcessors ());
   /**
-   * A single scheduled action consisting of the scheduled {@link Future} as
-   * well as the original {@link Runnable} for rescheduling upon shutdown.
+   * The default number of coalesced changes of a single DAO, after which the
+   * DAO is written directly
+   */
+  public static final int DEFAULT_MAX_BACKLOG = 10_000;
+  /**
+   * The default number of DAOs waiting for a worker, after which new DAOs are
+   * written directly
+   */
+  public static final int DEFAULT_MAX_QUEUE_DEPTH = 1_000;
+
+  /**
+   * The state of a single DAO waiting to be written.
    *
    * @author Philip Helger
    */
-  @Immutable
   private static final class WALItem
   {
-    private final ScheduledFuture <?> m_aFuture;
-    private final Runnable m_aRunnable;
+    private final AbstractWALDAO <?> m_aDAO;
+    private final String m_sKey;
+    private final String m_sWALFilename;
+    private final long m_nRegistrationNanos = System.nanoTime ();
+    // Number of changes since the registration
+    private final AtomicInteger m_aBacklog = new AtomicInteger (1);
+    // Set by whoever performs the writing
+    private final AtomicBoolean m_aClaimed = new AtomicBoolean (false);
+    private ScheduledFuture <?> m_aTimerFuture;
+
+    WALItem (@Nonnull final AbstractWALDAO <?> aDAO, @Nonnull final String sKey, @Nonnull final String sWALFilename)
+    {
+      m_aDAO = aDAO;
+      m_sKey = sKey;
+      m_sWALFilename = sWALFilename;
+    }
+  }
+
+  /**
+   * A writing that is due. Ordered by descending backlog and afterwards by
+   * due order.
+   *
+   * @author Philip Helger
+   */
+  private final class FlushTask implements Runnable, Comparable <FlushTask>
+  {
+    private final WALItem m_aItem;
+    private final int m_nBacklog;
+    private final long m_nSequence;
 
-    public WALItem (@Nonnull final ScheduledFuture <?> aFuture, @Nonnull final Runnable aRunnable)
+    FlushTask (@Nonnull final WALItem aItem)
     {
-      m_aFuture = aFuture;
-      m_aRunnable = aRunnable;
+      m_aItem = aItem;
+      m_nBacklog = aItem.m_aBacklog.get ();
+      m_nSequence = m_aSequence.incrementAndGet ();
+    }
+
+    public void run ()
+    {
+      _flush (m_aItem);
+    }
+
+    public int compareTo (@Nonnull final FlushTask aOther)
+    {
+      int ret = Integer.compare (aOther.m_nBacklog, m_nBacklog);
+      if (ret == 0)
+        ret = Long.compare (m_nSequence, aOther.m_nSequence);
+      return ret;
     }
   }
 
   private static final Logger s_aLogger = LoggerFactory.getLogger (WALListener.class);
 
+  private static final IMutableStatisticsHandlerTimer s_aStatsFlushLatency = StatisticsManager.getTimerHandler (WALListener.class.getName () +
+                                                                                                              "$flush-latency");
+  private static final IMutableStatisticsHandlerSize s_aStatsQueueDepth = StatisticsManager.getSizeHandler (WALListener.class.getName () +
+                                                                                                           "$queue-depth");
+  private static final IMutableStatisticsHandlerCounter s_aStatsSkippedWrites = StatisticsManager.getCounterHandler (WALListener.class.getName () +
+                                                                                                                    "$skipped-writes");
+  private static final IMutableStatisticsHandlerCounter s_aStatsBackpressure = StatisticsManager.getCounterHandler (WALListener.class.getName () +
+                                                                                                                   "$backpressure");
+
   // custom ThreadFactory to give the baby a name
-  private final ScheduledExecutorService m_aES = Executors.newSingleThreadScheduledExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("WAL-Listener-%d")
-                                                                                                                              .build ());
-  @GuardedBy ("m_aRWLock")
-  private final ICommonsSet <String> m_aWaitingDAOs = new CommonsHashSet <> ();
+  private final ScheduledExecutorService m_aTimer = Executors.newSingleThreadScheduledExecutor (new BasicThreadFactory.Builder ().setNamingPattern ("WAL-Listener-Timer-%d")
+                                                                                                                                 .build ());
+  private final ThreadPoolExecutor m_aWorkers = new ThreadPoolExecutor (DEFAULT_WORKER_COUNT,
+                                                                        DEFAULT_WORKER_COUNT,
+                                                                        60,
+                                                                        TimeUnit.SECONDS,
+                                                                        new PriorityBlockingQueue <> (),
+                                                                        new BasicThreadFactory.Builder ().setNamingPattern ("WAL-Listener-%d")
+                                                                                                         .build ());
+  private final AtomicLong m_aSequence = new AtomicLong (0);
   @GuardedBy ("m_aRWLock")
-  private final ICommonsMap <String, WALListener.WALItem> m_aScheduledItems = new CommonsHashMap <> ();
+  private final ICommonsMap <String, WALItem> m_aWaitingItems = new CommonsHashMap <> ();
+  private volatile int m_nMaxBacklog = DEFAULT_MAX_BACKLOG;
+  private volatile int m_nMaxQueueDepth = DEFAULT_MAX_QUEUE_DEPTH;
 
   @Deprecated
   @UsedViaReflection
   public WALListener ()
-  {}
+  {
+    m_aWorkers.allowCoreThreadTimeOut (true);
+  }
 
   @Nonnull
   public static WALListener getInstance ()
@@ -93,24 +176,60 @@ public final class WALListener extends AbstractGlobalSingleton
   {
     m_aRWLock.writeLocked ( () -> {
       // Reschedule all existing scheduled items to run now
-      for (final Map.Entry <String, WALListener.WALItem> aEntry : m_aScheduledItems.entrySet ())
+      for (final WALItem aItem : m_aWaitingItems.values ())
       {
-        final WALListener.WALItem aItem = aEntry.getValue ();
-        if (aItem.m_aFuture.cancel (false))
+        if (aItem.m_aTimerFuture != null && aItem.m_aTimerFuture.cancel (false))
         {
           // reschedule to perform it now
-          m_aES.submit (aItem.m_aRunnable);
-          s_aLogger.info ("Rescheduled DAO writing for " + aEntry.getKey () + " to happen now");
+          m_aWorkers.execute (new FlushTask (aItem));
+          s_aLogger.info ("Rescheduled DAO writing for " + aItem.m_sKey + " to happen now");
         }
         else
-          s_aLogger.info ("Cannot reschedule DAO writing for " + aEntry.getKey () + " because it is already running");
+          s_aLogger.info ("Cannot reschedule DAO writing for " + aItem.m_sKey + " because it is already due");
       }
-      // ensure all are cleared
-      m_aScheduledItems.clear ();
     });
 
-    // Wait until all tasks finished
-    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (m_aES);
+    // Wait until all tasks finished - the timer first, because it may still
+    // pass items to the workers
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (m_aTimer);
+    ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (m_aWorkers);
+  }
+
+  /**
+   * Write the DAO of the passed item, unless somebody else already does it.
+   *
+   * @param aItem
+   *        The item to be written. May not be <code>null</code>.
+   */
+  private void _flush (@Nonnull final WALItem aItem)
+  {
+    if (!aItem.m_aClaimed.compareAndSet (false, true))
+      return;
+
+    final AbstractWALDAO <?> aDAO = aItem.m_aDAO;
+    // Use DAO lock!
+    aDAO.internalWriteLocked ( () -> {
+      // Changes from now on need a new registration. This happens within the
+      // DAO lock, so all changes coalesced so far are contained in the write.
+      m_aRWLock.writeLocked ( () -> {
+        m_aWaitingItems.remove (aItem.m_sKey, aItem);
+        if (aItem.m_aTimerFuture != null)
+          aItem.m_aTimerFuture.cancel (false);
+      });
+
+      // Main DAO writing and WAL file handling
+      aDAO._writeScheduled (aItem.m_sWALFilename);
+    });
+
+    s_aStatsFlushLatency.addTime (TimeUnit.NANOSECONDS.toMillis (System.nanoTime () - aItem.m_nRegistrationNanos));
+    if (s_aLogger.isDebugEnabled ())
+      s_aLogger.debug ("Finished scheduled writing for DAO " + aItem.m_sKey + " with a backlog of " + aItem.m_aBacklog);
+  }
+
+  private void _enqueue (@Nonnull final WALItem aItem)
+  {
+    m_aWorkers.execute (new FlushTask (aItem));
+    s_aStatsQueueDepth.addSize (m_aWorkers.getQueue ().size ());
   }
 
   /**
@@ -132,48 +251,166 @@ public final class WALListener extends AbstractGlobalSingleton
     // In case many DAOs of the same class exist, the filename is also added
     final String sKey = aDAO.getClass ().getName () + "::" + sWALFilename;
 
-    // Check if the passed DAO is already scheduled for writing
-    final boolean bDoScheduleForWriting = m_aRWLock.writeLocked ( () -> m_aWaitingDAOs.add (sKey));
+    final WALItem aItemToWriteNow = m_aRWLock.writeLocked ( () -> {
+      final WALItem aExistingItem = m_aWaitingItems.get (sKey);
+      if (aExistingItem != null && aExistingItem.m_aDAO != aDAO)
+      {
+        // A new DAO instance took over the file. Writing the old instance
+        // would overwrite the data and delete the WAL file of the new one.
+        if (aExistingItem.m_aClaimed.compareAndSet (false, true))
+        {
+          m_aWaitingItems.remove (sKey);
+          if (aExistingItem.m_aTimerFuture != null)
+            aExistingItem.m_aTimerFuture.cancel (false);
+          s_aLogger.info ("Dropping the scheduled writing of a previous DAO instance for " + sKey);
+        }
+      }
+      else
+        if (aExistingItem != null)
+        {
+          // The writing of the passed DAO is already scheduled - coalesce
+          s_aStatsSkippedWrites.increment ();
+          if (aExistingItem.m_aBacklog.incrementAndGet () > m_nMaxBacklog)
+          {
+            // Backpressure: the DAO changes faster than it is written
+            return aExistingItem;
+          }
+          return null;
+        }
+
+      final WALItem aNewItem = new WALItem (aDAO, sKey, sWALFilename);
+      m_aWaitingItems.put (sKey, aNewItem);
+      if (m_aWorkers.getQueue ().size () >= m_nMaxQueueDepth)
+      {
+        // Backpressure: the workers cannot keep up
+        return aNewItem;
+      }
 
-    if (bDoScheduleForWriting)
-    {
       // We need to schedule it now
       if (s_aLogger.isDebugEnabled ())
         s_aLogger.debug ("Now scheduling writing for DAO " + sKey);
 
-      // What should be executed upon writing
-      final Runnable r = () -> {
-        // Use DAO lock!
-        aDAO.internalWriteLocked ( () -> {
-          // Main DAO writing
-          aDAO._writeToFileAndResetPendingChanges ("ScheduledWriter.run");
-          // Delete the WAL file
-          aDAO._deleteWALFile (sWALFilename);
-
-          if (s_aLogger.isDebugEnabled ())
-            s_aLogger.debug ("Finished scheduled writing for DAO " + sKey);
-        });
-
-        // Remove from the internal set so that another job will be
-        // scheduled for the same DAO
-        // Do this after the writing to the file
-        m_aRWLock.writeLocked ( () -> {
-          // Remove from the overall set as well as from the scheduled items
-          m_aWaitingDAOs.remove (sKey);
-          m_aScheduledItems.remove (sKey);
-        });
-      };
-
       // Schedule exactly once in the specified waiting time
-      final ScheduledFuture <?> aFuture = m_aES.schedule (r, aWaitingWime.getDuration (), aWaitingWime.getTimeUnit ());
+      aNewItem.m_aTimerFuture = m_aTimer.schedule ( () -> _enqueue (aNewItem),
+                                                   aWaitingWime.getDuration (),
+                                                   aWaitingWime.getTimeUnit ());
+      return null;
+    });
 
-      m_aRWLock.writeLocked ( () -> {
-        // Remember the scheduled item and the runnable so that the task can
-        // be rescheduled upon shutdown.
-        m_aScheduledItems.put (sKey, new WALItem (aFuture, r));
-      });
+    if (aItemToWriteNow != null)
+    {
+      // Write in the calling thread. The DAO lock is reentrant, so this works
+      // from within markAsChanged as well.
+      s_aStatsBackpressure.increment ();
+      if (s_aLogger.isDebugEnabled ())
+        s_aLogger.debug ("Writing DAO " + sKey + " directly because the scheduled writing falls behind");
+      _flush (aItemToWriteNow);
     }
-    // else the writing of the passed DAO is already scheduled and no further
-    // action is necessary
+  }
+
+  /**
+   * @return The number of worker threads that write DAOs. Default is
+   *         {@link #DEFAULT_WORKER_COUNT}.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getWorkerCount ()
+  {
+    return m_aWorkers.getMaximumPoolSize ();
+  }
+
+  /**
+   * Set the number of worker threads that write DAOs.
+   *
+   * @param nWorkerCount
+   *        The number of threads. Must be &gt; 0.
+   * @since 9.1.0
+   */
+  public void setWorkerCount (@Nonnegative final int nWorkerCount)
+  {
+    ValueEnforcer.isGT0 (nWorkerCount, "WorkerCount");
+    m_aRWLock.writeLocked ( () -> {
+      // Core size may never exceed the maximum size
+      if (nWorkerCount > m_aWorkers.getMaximumPoolSize ())
+      {
+        m_aWorkers.setMaximumPoolSize (nWorkerCount);
+        m_aWorkers.setCorePoolSize (nWorkerCount);
+      }
+      else
+      {
+        m_aWorkers.setCorePoolSize (nWorkerCount);
+        m_aWorkers.setMaximumPoolSize (nWorkerCount);
+      }
+    });
+  }
+
+  /**
+   * @return The number of coalesced changes of a single DAO after which the
+   *         DAO is written directly by the changing thread. Default is
+   *         {@link #DEFAULT_MAX_BACKLOG}.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getMaxBacklog ()
+  {
+    return m_nMaxBacklog;
+  }
+
+  /**
+   * @param nMaxBacklog
+   *        The number of coalesced changes of a single DAO after which the DAO
+   *        is written directly by the changing thread. Must be &gt; 0.
+   * @since 9.1.0
+   */
+  public void setMaxBacklog (@Nonnegative final int nMaxBacklog)
+  {
+    ValueEnforcer.isGT0 (nMaxBacklog, "MaxBacklog");
+    m_nMaxBacklog = nMaxBacklog;
+  }
+
+  /**
+   * @return The number of DAOs waiting for a worker after which newly changed
+   *         DAOs are written directly by the changing thread. Default is
+   *         {@link #DEFAULT_MAX_QUEUE_DEPTH}.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getMaxQueueDepth ()
+  {
+    return m_nMaxQueueDepth;
+  }
+
+  /**
+   * @param nMaxQueueDepth
+   *        The number of DAOs waiting for a worker after which newly changed
+   *        DAOs are written directly by the changing thread. Must be &gt; 0.
+   * @since 9.1.0
+   */
+  public void setMaxQueueDepth (@Nonnegative final int nMaxQueueDepth)
+  {
+    ValueEnforcer.isGT0 (nMaxQueueDepth, "MaxQueueDepth");
+    m_nMaxQueueDepth = nMaxQueueDepth;
+  }
+
+  /**
+   * @return The number of DAOs whose waiting time expired and that wait for a
+   *         worker.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getQueueDepth ()
+  {
+    return m_aWorkers.getQueue ().size ();
+  }
+
+  /**
+   * @return The number of DAOs that are registered for later writing and not
+   *         yet written.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public int getWaitingDAOCount ()
+  {
+    return m_aRWLock.readLocked (m_aWaitingItems::size);
   }
 }
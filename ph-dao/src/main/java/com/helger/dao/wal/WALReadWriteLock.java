@@ -0,0 +1,87 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.ThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ELockType;
+import com.helger.commons.annotation.MustBeLocked;
+import com.helger.commons.concurrent.SimpleReadWriteLock;
+
+/**
+ * A read-write lock that runs an action registered by the current thread after
+ * the thread released the write lock completely. This is used for the group
+ * commit of the WAL, so that a modifying thread waits for the WAL file to be
+ * forced without blocking other modifications.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@ThreadSafe
+final class WALReadWriteLock extends SimpleReadWriteLock
+{
+  private final class AfterUnlockWriteLock extends ReentrantReadWriteLock.WriteLock
+  {
+    AfterUnlockWriteLock ()
+    {
+      super (WALReadWriteLock.this);
+    }
+
+    @Override
+    public void unlock ()
+    {
+      super.unlock ();
+      if (!isHeldByCurrentThread ())
+      {
+        final Runnable aAction = m_aAfterUnlockAction.get ();
+        if (aAction != null)
+        {
+          m_aAfterUnlockAction.remove ();
+          aAction.run ();
+        }
+      }
+    }
+  }
+
+  private final ThreadLocal <Runnable> m_aAfterUnlockAction = new ThreadLocal <> ();
+  private final AfterUnlockWriteLock m_aWriteLock = new AfterUnlockWriteLock ();
+
+  @Override
+  public ReentrantReadWriteLock.WriteLock writeLock ()
+  {
+    return m_aWriteLock;
+  }
+
+  /**
+   * Register an action to be run by the current thread after it released the
+   * write lock completely. A previously registered action of the current
+   * thread is replaced.
+   *
+   * @param aAction
+   *        The action to run. May not be <code>null</code>.
+   */
+  @MustBeLocked (ELockType.WRITE)
+  void runAfterWriteUnlock (@Nonnull final Runnable aAction)
+  {
+    ValueEnforcer.notNull (aAction, "Action");
+    m_aAfterUnlockAction.set (aAction);
+  }
+}
@@ -0,0 +1,561 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInput;
+import java.io.DataOutput;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.RandomAccessFile;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import javax.annotation.Nonnull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.io.file.FileHelper;
+import com.helger.commons.io.file.FileOperationManager;
+import com.helger.commons.io.relative.FileRelativeIO;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.lang.TimeValue;
+import com.helger.commons.state.EChange;
+import com.helger.dao.DAOException;
+import com.helger.dao.EDAOActionType;
+import com.helger.scope.mgr.ScopeManager;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.MicroDocument;
+
+/**
+ * Test class for class {@link AbstractWALDAO}.
+ *
+ * @author Philip Helger
+ */
+public final class AbstractWALDAOTest
+{
+  private static final File BASE_DIR = new File ("target/wal-dao-test").getAbsoluteFile ();
+  private static final String FILENAME = "values.xml";
+  private static final String WAL_FILENAME = FILENAME + ".wal";
+  private static final IWALCodec <String> STRING_CODEC = new IWALCodec <String> ()
+  {
+    public void encode (@Nonnull final String aElement, @Nonnull final DataOutput aDO) throws IOException
+    {
+      aDO.writeUTF (aElement);
+    }
+
+    @Nonnull
+    public String decode (@Nonnull final DataInput aDI) throws IOException
+    {
+      return aDI.readUTF ();
+    }
+  };
+
+  private static final class MockStringDAO extends AbstractWALDAO <String>
+  {
+    private final ICommonsOrderedSet <String> m_aValues = new CommonsLinkedHashSet <> ();
+    private final boolean m_bStreamingRead;
+
+    public MockStringDAO () throws DAOException
+    {
+      this (true, false);
+    }
+
+    public MockStringDAO (final boolean bIncrementalWrite, final boolean bBinary) throws DAOException
+    {
+      this (bIncrementalWrite, bBinary, false, 1);
+    }
+
+    public MockStringDAO (final boolean bIncrementalWrite,
+                          final boolean bBinary,
+                          final boolean bStreamingRead,
+                          final int nReadParallelism) throws DAOException
+    {
+      super (String.class, new FileRelativeIO (BASE_DIR), () -> FILENAME);
+      m_bStreamingRead = bStreamingRead;
+      // Never write automatically within this test
+      setWaitingTime (new TimeValue (TimeUnit.HOURS, 1));
+      setIncrementalWrite (bIncrementalWrite);
+      if (bBinary)
+        setWALCodec (STRING_CODEC);
+      setReadParallelism (nReadParallelism);
+      initialRead ();
+    }
+
+    @Override
+    protected IWALStreamingReader <String> getStreamingReader ()
+    {
+      if (!m_bStreamingRead)
+        return null;
+      return new IWALStreamingReader <String> ()
+      {
+        @Override
+        public String convertReadElementToNative (@Nonnull final IMicroElement eElement)
+        {
+          return eElement.getTagName ().equals ("item") ? eElement.getTextContent () : null;
+        }
+
+        @Override
+        @Nonnull
+        public EChange onReadItem (@Nonnull final String aItem)
+        {
+          m_aValues.add (aItem);
+          return EChange.UNCHANGED;
+        }
+      };
+    }
+
+    @Override
+    protected boolean isCompactionNeeded (final int nSegmentFileCount,
+                                          final long nSegmentBytes,
+                                          final long nDataFileBytes)
+    {
+      return false;
+    }
+
+    @Override
+    @Nonnull
+    protected EChange onRead (@Nonnull final IMicroDocument aDoc)
+    {
+      for (final IMicroElement eItem : aDoc.getDocumentElement ().getAllChildElements ("item"))
+        m_aValues.add (eItem.getTextContent ());
+      return EChange.UNCHANGED;
+    }
+
+    @Override
+    @Nonnull
+    protected IMicroDocument createWriteData ()
+    {
+      final IMicroDocument aDoc = new MicroDocument ();
+      final IMicroElement eRoot = aDoc.appendElement ("root");
+      for (final String sValue : m_aValues)
+        eRoot.appendElement ("item").appendText (sValue);
+      return aDoc;
+    }
+
+    @Override
+    @Nonnull
+    protected String convertWALStringToNative (@Nonnull final String sElement)
+    {
+      return sElement;
+    }
+
+    @Override
+    @Nonnull
+    protected String convertNativeToWALString (@Nonnull final String aModifiedElement)
+    {
+      return aModifiedElement;
+    }
+
+    @Override
+    protected void onRecoveryCreate (@Nonnull final String aElement)
+    {
+      if (!m_aValues.add (aElement))
+        throw new IllegalStateException ("Value '" + aElement + "' is already present");
+    }
+
+    @Override
+    protected void onRecoveryUpdate (@Nonnull final String aElement)
+    {}
+
+    @Override
+    protected void onRecoveryDelete (@Nonnull final String aElement)
+    {
+      m_aValues.remove (aElement);
+    }
+
+    void add (@Nonnull final String sValue)
+    {
+      m_aRWLock.writeLocked ( () -> {
+        m_aValues.add (sValue);
+        markAsChanged (sValue, EDAOActionType.CREATE);
+      });
+    }
+
+    void remove (@Nonnull final String sValue)
+    {
+      m_aRWLock.writeLocked ( () -> {
+        m_aValues.remove (sValue);
+        markAsChanged (sValue, EDAOActionType.DELETE);
+      });
+    }
+
+    @Nonnull
+    ICommonsOrderedSet <String> getAll ()
+    {
+      return m_aRWLock.readLocked ( () -> m_aValues.getClone ());
+    }
+
+    void flush ()
+    {
+      internalWriteLocked ( () -> _writeScheduled (WAL_FILENAME));
+    }
+  }
+
+  /**
+   * Only implements the document based read.
+   */
+  private static final class MockDocumentOnlyDAO extends AbstractWALDAO <String>
+  {
+    private final ICommonsOrderedSet <String> m_aValues = new CommonsLinkedHashSet <> ();
+    private int m_nOnReadCount = 0;
+
+    public MockDocumentOnlyDAO () throws DAOException
+    {
+      super (String.class, new FileRelativeIO (BASE_DIR), () -> FILENAME);
+      initialRead ();
+    }
+
+    @Override
+    @Nonnull
+    protected EChange onRead (@Nonnull final IMicroDocument aDoc)
+    {
+      m_nOnReadCount++;
+      for (final IMicroElement eItem : aDoc.getDocumentElement ().getAllChildElements ("item"))
+        m_aValues.add (eItem.getTextContent ());
+      return EChange.UNCHANGED;
+    }
+
+    @Override
+    @Nonnull
+    protected IMicroDocument createWriteData ()
+    {
+      final IMicroDocument aDoc = new MicroDocument ();
+      final IMicroElement eRoot = aDoc.appendElement ("root");
+      for (final String sValue : m_aValues)
+        eRoot.appendElement ("item").appendText (sValue);
+      return aDoc;
+    }
+
+    @Override
+    @Nonnull
+    protected String convertWALStringToNative (@Nonnull final String sElement)
+    {
+      return sElement;
+    }
+
+    @Override
+    @Nonnull
+    protected String convertNativeToWALString (@Nonnull final String aModifiedElement)
+    {
+      return aModifiedElement;
+    }
+
+    @Override
+    protected void onRecoveryCreate (@Nonnull final String aElement)
+    {
+      m_aValues.add (aElement);
+    }
+
+    @Override
+    protected void onRecoveryUpdate (@Nonnull final String aElement)
+    {}
+
+    @Override
+    protected void onRecoveryDelete (@Nonnull final String aElement)
+    {
+      m_aValues.remove (aElement);
+    }
+  }
+
+  private static File _getFile (final String sFilename)
+  {
+    return new File (BASE_DIR, sFilename);
+  }
+
+  @Before
+  public void before ()
+  {
+    FileOperationManager.INSTANCE.deleteDirRecursiveIfExisting (BASE_DIR);
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (BASE_DIR);
+    ScopeManager.onGlobalBegin ("test");
+  }
+
+  @After
+  public void after ()
+  {
+    ScopeManager.onGlobalEnd ();
+  }
+
+  @Test
+  public void testStreamingAndParallelRead () throws DAOException
+  {
+    final int nCount = 5000;
+    MockStringDAO aDAO = new MockStringDAO (false, false);
+    for (int i = 0; i < nCount; ++i)
+      aDAO.add ("v" + i);
+    // Write the data file
+    aDAO.flush ();
+    assertTrue (_getFile (FILENAME).exists ());
+    final String sExpected = aDAO.getAll ().toString ();
+
+    // Streaming read, serial and parallel
+    for (final boolean bBinary : new boolean [] { false, true })
+      for (final int nParallelism : new int [] { 1, 4 })
+      {
+        aDAO = new MockStringDAO (false, bBinary, true, nParallelism);
+        assertEquals (sExpected, aDAO.getAll ().toString ());
+      }
+
+    // Parallel WAL recovery must keep the order of create and delete
+    aDAO = new MockStringDAO (false, true, true, 4);
+    for (int i = 0; i < nCount; ++i)
+    {
+      aDAO.add ("w" + i);
+      if ((i % 3) == 0)
+        aDAO.remove ("w" + i);
+    }
+    final String sExpected2 = aDAO.getAll ().toString ();
+    assertTrue (_getFile (WAL_FILENAME).exists ());
+    aDAO = new MockStringDAO (false, true, true, 4);
+    assertEquals (sExpected2, aDAO.getAll ().toString ());
+    assertFalse (_getFile (WAL_FILENAME).exists ());
+
+    // And the data file written after the recovery is the same
+    aDAO = new MockStringDAO (false, true, false, 1);
+    assertEquals (sExpected2, aDAO.getAll ().toString ());
+  }
+
+  @Test
+  public void testDocumentReadByDefault () throws DAOException
+  {
+    final MockStringDAO aDAO = new MockStringDAO (false, false);
+    aDAO.add ("a");
+    aDAO.add ("b");
+    aDAO.flush ();
+
+    // No streaming reader is provided - the document is read
+    final MockDocumentOnlyDAO aDocDAO = new MockDocumentOnlyDAO ();
+    assertEquals (1, aDocDAO.m_nOnReadCount);
+    assertEquals ("[a, b]", aDocDAO.m_aValues.toString ());
+  }
+
+  @Test
+  public void testGroupCommit () throws Exception
+  {
+    final MockStringDAO aDAO = new MockStringDAO (false, true);
+    aDAO.setWALDurability (EWALDurability.GROUP_COMMIT);
+
+    final int nThreads = 8;
+    final int nPerThread = 25;
+    final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+    final ICommonsList <Future <?>> aFutures = new CommonsArrayList <> ();
+    for (int i = 0; i < nThreads; ++i)
+    {
+      final int nThread = i;
+      aFutures.add (aES.submit ( () -> {
+        for (int j = 0; j < nPerThread; ++j)
+          aDAO.add ("v" + nThread + "-" + j);
+      }));
+    }
+    for (final Future <?> aFuture : aFutures)
+      aFuture.get ();
+    aES.shutdown ();
+
+    // Each modification returned after its record was forced
+    final WALFile aWALFile = aDAO.internalGetWALFile ();
+    assertFalse (aWALFile.hasUnforcedRecords ());
+    assertTrue (aWALFile.getForceCount () > 0);
+    assertTrue (aWALFile.getForceCount () <= nThreads * nPerThread);
+
+    // Everything is recovered from the WAL
+    assertEquals (nThreads * nPerThread, new MockStringDAO (false, true).getAll ().size ());
+  }
+
+  @Test
+  public void testScheduledWriting () throws Exception
+  {
+    final MockStringDAO aDAO = new MockStringDAO (false, false);
+    aDAO.setWaitingTime (new TimeValue (TimeUnit.MILLISECONDS, 10));
+    aDAO.add ("a");
+    aDAO.add ("b");
+    assertTrue (_getFile (WAL_FILENAME).exists ());
+
+    // Wait for the worker
+    final WALListener aListener = WALListener.getInstance ();
+    for (int i = 0; i < 500 && _getFile (WAL_FILENAME).exists (); ++i)
+      Thread.sleep (10);
+    assertFalse (_getFile (WAL_FILENAME).exists ());
+    assertTrue (_getFile (FILENAME).exists ());
+    assertEquals (0, aListener.getWaitingDAOCount ());
+    assertEquals ("[a, b]", new MockStringDAO (false, false).getAll ().toString ());
+  }
+
+  @Test
+  public void testScheduledWritingBackpressure () throws DAOException
+  {
+    final WALListener aListener = WALListener.getInstance ();
+    aListener.setMaxBacklog (5);
+    try
+    {
+      // Waiting time is one hour
+      final MockStringDAO aDAO = new MockStringDAO (false, false);
+      for (int i = 0; i < 5; ++i)
+        aDAO.add ("v" + i);
+      assertEquals (1, aListener.getWaitingDAOCount ());
+      assertFalse (_getFile (FILENAME).exists ());
+
+      // Exceeds the backlog - written directly
+      aDAO.add ("v5");
+      assertEquals (0, aListener.getWaitingDAOCount ());
+      assertTrue (_getFile (FILENAME).exists ());
+      assertFalse (_getFile (WAL_FILENAME).exists ());
+      assertEquals (6, new MockStringDAO (false, false).getAll ().size ());
+    }
+    finally
+    {
+      aListener.setMaxBacklog (WALListener.DEFAULT_MAX_BACKLOG);
+    }
+  }
+
+  @Test
+  public void testSegmentsAndRecovery () throws DAOException
+  {
+    MockStringDAO aDAO = new MockStringDAO ();
+    aDAO.add ("a");
+    aDAO.add ("b");
+    assertTrue (_getFile (WAL_FILENAME).exists ());
+
+    // The WAL file becomes the first segment - the data file is not written
+    aDAO.flush ();
+    assertFalse (_getFile (WAL_FILENAME).exists ());
+    assertTrue (_getFile (FILENAME + ".seg.1").exists ());
+    assertFalse (_getFile (FILENAME).exists ());
+    assertFalse (aDAO.hasPendingChanges ());
+
+    aDAO.add ("c");
+    aDAO.flush ();
+    assertTrue (_getFile (FILENAME + ".seg.2").exists ());
+    assertFalse (_getFile (FILENAME).exists ());
+
+    // Not yet flushed
+    aDAO.add ("d");
+
+    // Simulate a restart: segments and WAL are replayed, merged into the data
+    // file and deleted afterwards
+    aDAO = new MockStringDAO ();
+    assertEquals ("[a, b, c, d]", aDAO.getAll ().toString ());
+    assertTrue (_getFile (FILENAME).exists ());
+    assertFalse (_getFile (FILENAME + ".seg.1").exists ());
+    assertFalse (_getFile (FILENAME + ".seg.2").exists ());
+    assertFalse (_getFile (FILENAME + ".seg.3").exists ());
+    assertFalse (_getFile (WAL_FILENAME).exists ());
+
+    aDAO = new MockStringDAO ();
+    assertEquals ("[a, b, c, d]", aDAO.getAll ().toString ());
+  }
+
+  @Test
+  public void testCompaction () throws DAOException
+  {
+    MockStringDAO aDAO = new MockStringDAO ();
+    aDAO.add ("a");
+    aDAO.flush ();
+    aDAO.add ("b");
+    aDAO.flush ();
+    // Still in the WAL file
+    aDAO.add ("c");
+    assertEquals (0, aDAO.getWriteCount ());
+
+    assertTrue (aDAO.compactSegments ().isSuccess ());
+    assertEquals (1, aDAO.getWriteCount ());
+    assertTrue (_getFile (FILENAME).exists ());
+    assertFalse (_getFile (FILENAME + ".compact").exists ());
+    assertFalse (_getFile (WAL_FILENAME).exists ());
+    for (int i = 1; i <= 3; ++i)
+      assertFalse (_getFile (FILENAME + ".seg." + i).exists ());
+
+    // Generations continue after the compacted ones
+    aDAO.add ("d");
+    aDAO.flush ();
+    assertTrue (_getFile (FILENAME + ".seg.4").exists ());
+
+    aDAO = new MockStringDAO ();
+    assertEquals ("[a, b, c, d]", aDAO.getAll ().toString ());
+  }
+
+  @Test
+  public void testStaleSegmentIsIgnored () throws DAOException, IOException
+  {
+    MockStringDAO aDAO = new MockStringDAO ();
+    aDAO.add ("a");
+    aDAO.flush ();
+    assertTrue (aDAO.compactSegments ().isSuccess ());
+
+    // Simulate an interruption before the segment file was deleted
+    try (final DataOutputStream aDOS = new DataOutputStream (FileHelper.getOutputStream (_getFile (FILENAME +
+                                                                                                   ".seg.1"))))
+    {
+      StreamHelper.writeSafeUTF (aDOS, EDAOActionType.CREATE.getID ());
+      aDOS.writeInt (1);
+      StreamHelper.writeSafeUTF (aDOS, "a");
+    }
+
+    // Replaying the segment again would fail
+    aDAO = new MockStringDAO ();
+    assertEquals ("[a]", aDAO.getAll ().toString ());
+    assertFalse (_getFile (FILENAME + ".seg.1").exists ());
+  }
+
+  @Test
+  public void testBinaryCodecWithTornTail () throws DAOException, IOException
+  {
+    MockStringDAO aDAO = new MockStringDAO (false, true);
+    aDAO.add ("a");
+    aDAO.add ("b");
+    aDAO.add ("c");
+
+    // Simulate a crash in the middle of writing the last record
+    final File aWALFile = _getFile (WAL_FILENAME);
+    final long nEnd;
+    try (final InputStream aIS = FileHelper.getBufferedInputStream (aWALFile))
+    {
+      nEnd = WALFile.getLogicalEnd (aIS, aWALFile.length ());
+    }
+    try (final RandomAccessFile aRAF = new RandomAccessFile (aWALFile, "rw"))
+    {
+      aRAF.setLength (nEnd - 2);
+    }
+
+    // The first two records are recovered, the torn one is ignored
+    aDAO = new MockStringDAO (false, true);
+    assertEquals ("[a, b]", aDAO.getAll ().toString ());
+    assertFalse (aWALFile.exists ());
+
+    // Binary segment files are read as well
+    aDAO = new MockStringDAO (true, true);
+    aDAO.add ("d");
+    aDAO.flush ();
+    assertTrue (_getFile (FILENAME + ".seg.1").exists ());
+    aDAO = new MockStringDAO (false, true);
+    assertEquals ("[a, b, d]", aDAO.getAll ().toString ());
+  }
+}
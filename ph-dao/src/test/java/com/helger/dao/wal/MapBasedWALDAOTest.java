@@ -0,0 +1,395 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import java.io.Serializable;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.helger.commons.id.IHasID;
+import com.helger.commons.io.relative.FileRelativeIO;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.dao.DAOException;
+import com.helger.scope.mgr.ScopeManager;
+
+/**
+ * Test class for class {@link AbstractMapBasedWALDAO}.
+ *
+ * @author Philip Helger
+ */
+public final class MapBasedWALDAOTest
+{
+  static final class MockItem implements IHasID <String>, Serializable
+  {
+    private final String m_sID;
+    private final String m_sName;
+    private final int m_nAge;
+
+    MockItem (@Nonnull final String sID, @Nonnull final String sName, final int nAge)
+    {
+      m_sID = sID;
+      m_sName = sName;
+      m_nAge = nAge;
+    }
+
+    @Nonnull
+    public String getID ()
+    {
+      return m_sID;
+    }
+
+    @Nonnull
+    public String getName ()
+    {
+      return m_sName;
+    }
+
+    public int getAge ()
+    {
+      return m_nAge;
+    }
+
+    @Override
+    public String toString ()
+    {
+      return new ToStringGenerator (this).append ("ID", m_sID).append ("Name", m_sName).getToString ();
+    }
+  }
+
+  static final MapBasedDAOIndex <MockItem, String> IDX_NAME = MapBasedDAOIndex.createUniqueHash ("name",
+                                                                                                  MockItem::getName);
+  static final MapBasedDAOIndex <MockItem, Integer> IDX_DECADE = MapBasedDAOIndex.createHash ("decade",
+                                                                                              x -> Integer.valueOf (x.getAge () /
+                                                                                                                    10));
+  static final MapBasedDAOIndex <MockItem, Integer> IDX_AGE = MapBasedDAOIndex.createSorted ("age",
+                                                                                             x -> Integer.valueOf (x.getAge ()));
+
+  static final class MockMapDAO extends AbstractMapBasedWALDAO <MockItem, MockItem>
+  {
+    MockMapDAO () throws DAOException
+    {
+      this (new InitSettings <MockItem> ().setOrderedMapSupplier ());
+    }
+
+    MockMapDAO (@Nonnull final AbstractMapBasedWALDAO.InitSettings <MockItem> aInitSettings) throws DAOException
+    {
+      // No filename - in memory only
+      super (MockItem.class, FileRelativeIO.createForCurrentDir (), null, aInitSettings);
+    }
+
+    void registerIndex (@Nonnull final MapBasedDAOIndex <? super MockItem, ?> aIndex)
+    {
+      addIndex (aIndex);
+    }
+
+    void runWriteLocked (@Nonnull final Runnable aRunnable)
+    {
+      m_aRWLock.writeLocked (aRunnable);
+    }
+
+    void create (@Nonnull final MockItem aItem)
+    {
+      m_aRWLock.writeLocked ( () -> {
+        internalCreateItem (aItem);
+      });
+    }
+
+    void update (@Nonnull final MockItem aItem)
+    {
+      m_aRWLock.writeLocked ( () -> internalUpdateItem (aItem));
+    }
+
+    void removeAll ()
+    {
+      m_aRWLock.writeLocked ( () -> {
+        internalRemoveAllItemsNoCallback ();
+      });
+    }
+
+    void delete (@Nonnull final String sID)
+    {
+      m_aRWLock.writeLocked ( () -> {
+        internalDeleteItem (sID);
+      });
+    }
+
+    MockItem get (final String sID)
+    {
+      return getOfID (sID);
+    }
+
+    MockItem getAt (final int nIndex)
+    {
+      return getAtIndex (nIndex);
+    }
+  }
+
+  @Before
+  public void before ()
+  {
+    ScopeManager.onGlobalBegin ("test");
+  }
+
+  @After
+  public void after ()
+  {
+    ScopeManager.onGlobalEnd ();
+  }
+
+  @Test
+  public void testSnapshotReads () throws DAOException
+  {
+    final MockMapDAO aDAO = new MockMapDAO ();
+    assertTrue (aDAO.isEmpty ());
+    assertTrue (aDAO.getAllView ().isEmpty ());
+
+    final MockItem a = new MockItem ("a", "Anna", 30);
+    aDAO.create (a);
+    aDAO.create (new MockItem ("b", "Bert", 40));
+    final List <MockItem> aView = aDAO.getAllView ();
+    assertEquals (2, aView.size ());
+    // Unchanged views are reused
+    assertSame (aView.get (0), aDAO.getAllView ().get (0));
+
+    aDAO.create (new MockItem ("c", "Carl", 50));
+    // The old view is a snapshot
+    assertEquals (2, aView.size ());
+    assertEquals (3, aDAO.getAllView ().size ());
+    assertEquals (3, aDAO.size ());
+    assertEquals (3, aDAO.getAll ().size ());
+    assertEquals ("c", aDAO.getAt (2).getID ());
+    assertNull (aDAO.getAt (3));
+    assertSame (a, aDAO.get ("a"));
+    assertTrue (aDAO.containsWithID ("b"));
+    assertEquals (2, aDAO.getCount (x -> x.getAge () >= 40));
+    assertEquals ("Bert", aDAO.findFirstMapped (x -> x.getAge () == 40, MockItem::getName));
+
+    aDAO.update (new MockItem ("a", "Anne", 31));
+    assertEquals ("Anne", aDAO.get ("a").getName ());
+    assertEquals ("Anne", aDAO.getAllView ().get (0).getName ());
+
+    aDAO.delete ("b");
+    assertNull (aDAO.get ("b"));
+    assertFalse (aDAO.containsWithID ("b"));
+    assertFalse (aDAO.containsAllIDs (aDAO.getAllIDs ().getAllMapped (x -> x + "x")));
+    assertTrue (aDAO.containsAllIDs (aDAO.getAllIDs ()));
+    assertEquals (2, aDAO.size ());
+    final StringBuilder aSB = new StringBuilder ();
+    aDAO.forEach ( (k, v) -> aSB.append (k).append ('=').append (v.getName ()).append (';'));
+    assertEquals ("a=Anne;c=Carl;", aSB.toString ());
+  }
+
+  @Test
+  public void testIndexes () throws DAOException
+  {
+    final MockMapDAO aDAO = new MockMapDAO ();
+    aDAO.registerIndex (IDX_NAME);
+    aDAO.registerIndex (IDX_DECADE);
+    aDAO.registerIndex (IDX_AGE);
+    final MockItem a = new MockItem ("a", "Anna", 30);
+    aDAO.create (a);
+    aDAO.create (new MockItem ("b", "Bert", 35));
+    aDAO.create (new MockItem ("c", "Carl", 42));
+    aDAO.create (new MockItem ("d", "Dora", 35));
+
+    // Unique hash
+    assertSame (a, aDAO.getFirstOfIndex (IDX_NAME, "Anna"));
+    assertNull (aDAO.getFirstOfIndex (IDX_NAME, "Zoe"));
+    assertNull (aDAO.getFirstOfIndex (IDX_NAME, null));
+    try
+    {
+      aDAO.create (new MockItem ("e", "Anna", 1));
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected
+    }
+    // Nothing was modified
+    assertNull (aDAO.get ("e"));
+    assertEquals (4, aDAO.size ());
+
+    // Non-unique hash
+    assertEquals (3, aDAO.getAllOfIndex (IDX_DECADE, Integer.valueOf (3)).size ());
+    assertEquals (1, aDAO.getAllOfIndex (IDX_DECADE, Integer.valueOf (4)).size ());
+    assertTrue (aDAO.getAllOfIndex (IDX_DECADE, Integer.valueOf (5)).isEmpty ());
+
+    // Sorted range
+    List <MockItem> aRange = aDAO.getAllOfIndexRange (IDX_AGE, Integer.valueOf (35), true, null, false);
+    assertEquals (3, aRange.size ());
+    assertEquals ("b", aRange.get (0).getID ());
+    assertEquals ("d", aRange.get (1).getID ());
+    assertEquals ("c", aRange.get (2).getID ());
+    aRange = aDAO.getAllOfIndexRange (IDX_AGE, Integer.valueOf (30), false, Integer.valueOf (42), false);
+    assertEquals (2, aRange.size ());
+    try
+    {
+      aDAO.getAllOfIndexRange (IDX_DECADE, null, true, null, true);
+      fail ();
+    }
+    catch (final IllegalStateException ex)
+    {
+      // expected
+    }
+
+    // Update changes the keys
+    aDAO.update (new MockItem ("a", "Anne", 51));
+    assertNull (aDAO.getFirstOfIndex (IDX_NAME, "Anna"));
+    assertEquals ("a", aDAO.getFirstOfIndex (IDX_NAME, "Anne").getID ());
+    assertEquals (2, aDAO.getAllOfIndex (IDX_DECADE, Integer.valueOf (3)).size ());
+    assertEquals ("a", aDAO.getAllOfIndexRange (IDX_AGE, Integer.valueOf (50), true, null, true).get (0).getID ());
+
+    // Delete
+    aDAO.delete ("b");
+    assertNull (aDAO.getFirstOfIndex (IDX_NAME, "Bert"));
+    assertEquals (1, aDAO.getAllOfIndex (IDX_DECADE, Integer.valueOf (3)).size ());
+
+    // The default implementations of the interface find the same items
+    final IMapBasedDAO <MockItem> aIDAO = aDAO;
+    assertEquals (aDAO.getAllOfIndexRange (IDX_AGE, null, true, null, true),
+                  aIDAO.getAll ()
+                       .getSortedInline ( (x, y) -> Integer.compare (x.getAge (), y.getAge ())));
+
+    // Late index is filled with existing items
+    final MapBasedDAOIndex <MockItem, Character> aIdxInitial = MapBasedDAOIndex.createHash ("initial",
+                                                                                           x -> Character.valueOf (x.getName ()
+                                                                                                                    .charAt (0)));
+    try
+    {
+      aDAO.getAllOfIndex (aIdxInitial, Character.valueOf ('C'));
+      fail ();
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // expected - not registered
+    }
+    aDAO.registerIndex (aIdxInitial);
+    assertEquals ("c", aDAO.getFirstOfIndex (aIdxInitial, Character.valueOf ('C')).getID ());
+
+    aDAO.removeAll ();
+    assertNull (aDAO.getFirstOfIndex (IDX_NAME, "Carl"));
+  }
+
+  @Test
+  public void testIndexQueriesDoNotLock () throws Exception
+  {
+    final MockMapDAO aDAO = new MockMapDAO ();
+    aDAO.registerIndex (IDX_NAME);
+    aDAO.registerIndex (IDX_AGE);
+    aDAO.create (new MockItem ("a", "Anna", 30));
+
+    // Queries succeed while another thread holds the write lock
+    final ExecutorService aES = Executors.newSingleThreadExecutor ();
+    try
+    {
+      aDAO.runWriteLocked ( () -> {
+        try
+        {
+          assertEquals ("a",
+                        aES.submit ( () -> aDAO.getFirstOfIndex (IDX_NAME, "Anna").getID ())
+                           .get (10, TimeUnit.SECONDS));
+          assertEquals (1,
+                        aES.submit ( () -> aDAO.getAllOfIndexRange (IDX_AGE, null, true, null, true).size ())
+                           .get (10, TimeUnit.SECONDS)
+                           .intValue ());
+        }
+        catch (final Exception ex)
+        {
+          throw new IllegalStateException (ex);
+        }
+      });
+    }
+    finally
+    {
+      aES.shutdown ();
+    }
+
+    // Readers always see the latest complete state of unrelated items
+    final AtomicBoolean aStop = new AtomicBoolean (false);
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aReaders = Executors.newFixedThreadPool (4);
+    for (int i = 0; i < 4; ++i)
+      aReaders.submit ( () -> {
+        while (!aStop.get ())
+          if (aDAO.getFirstOfIndex (IDX_NAME, "Anna") == null)
+            aErrors.incrementAndGet ();
+      });
+    for (int i = 0; i < 2000; ++i)
+    {
+      aDAO.create (new MockItem ("id" + i, "Name" + i, i % 50));
+      if ((i % 10) == 0)
+        aDAO.delete ("id" + (i / 2));
+    }
+    aStop.set (true);
+    aReaders.shutdown ();
+    assertTrue (aReaders.awaitTermination (10, TimeUnit.SECONDS));
+    assertEquals (0, aErrors.get ());
+    assertEquals (aDAO.size (), aDAO.getAllOfIndexRange (IDX_AGE, null, true, null, true).size ());
+  }
+
+  @Test
+  public void testConcurrentReadersDoNotBlock () throws Exception
+  {
+    final MockMapDAO aDAO = new MockMapDAO ();
+    final AtomicBoolean aStop = new AtomicBoolean (false);
+    final AtomicInteger aErrors = new AtomicInteger (0);
+    final ExecutorService aES = Executors.newFixedThreadPool (4);
+    for (int i = 0; i < 4; ++i)
+      aES.submit ( () -> {
+        int nLastSize = 0;
+        while (!aStop.get ())
+        {
+          final List <MockItem> aView = aDAO.getAllView ();
+          int nCount = 0;
+          for (final MockItem aItem : aView)
+            if (aItem != null)
+              nCount++;
+          // The DAO only grows
+          if (nCount < nLastSize || nCount != aView.size ())
+            aErrors.incrementAndGet ();
+          nLastSize = nCount;
+        }
+      });
+
+    for (int i = 0; i < 2000; ++i)
+      aDAO.create (new MockItem ("id" + i, "Name" + i, i));
+    aStop.set (true);
+    aES.shutdown ();
+    assertTrue (aES.awaitTermination (10, TimeUnit.SECONDS));
+    assertEquals (0, aErrors.get ());
+    assertEquals (2000, aDAO.getAllView ().size ());
+    assertNotNull (aDAO.get ("id1999"));
+  }
+}
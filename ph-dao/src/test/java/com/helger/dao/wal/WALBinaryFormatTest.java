@@ -0,0 +1,130 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.dao.EDAOActionType;
+
+/**
+ * Test class for class {@link WALBinaryFormat}.
+ *
+ * @author Philip Helger
+ */
+public final class WALBinaryFormatTest
+{
+  private static final IWALCodec <String> CODEC = new WALCodecSerializable <> (String.class);
+
+  @Test
+  public void testCRC32C ()
+  {
+    // Check value from RFC 3720
+    final byte [] aBytes = "123456789".getBytes (StandardCharsets.US_ASCII);
+    assertEquals (0xE3069283, CRC32C.getChecksum (aBytes, 0, aBytes.length));
+    assertEquals (0x8A9136AA, CRC32C.getChecksum (new byte [32], 0, 32));
+  }
+
+  @Test
+  public void testReadWrite () throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    aBAOS.write (WALBinaryFormat.HEADER);
+    aBAOS.write (WALBinaryFormat.createRecord (EDAOActionType.CREATE, new CommonsArrayList <> ("a", "b"), CODEC));
+    aBAOS.write (WALBinaryFormat.createRecord (EDAOActionType.DELETE, new CommonsArrayList <> ("a"), CODEC));
+    final int nValidLength = aBAOS.size ();
+    // Preallocated space
+    aBAOS.write (new byte [100]);
+    final byte [] aBytes = aBAOS.toByteArray ();
+
+    final NonBlockingByteArrayInputStream aIS = new NonBlockingByteArrayInputStream (aBytes);
+    assertTrue (WALBinaryFormat.readHeader (aIS));
+    final WALBinaryFormat.RecordReader aReader = new WALBinaryFormat.RecordReader (aIS, aBytes.length);
+
+    byte [] aPayload = aReader.readNext ();
+    assertNotNull (aPayload);
+    DataInputStream aDIS = new DataInputStream (new NonBlockingByteArrayInputStream (aPayload));
+    assertEquals (EDAOActionType.CREATE, WALBinaryFormat.getActionType (aDIS.readByte ()));
+    assertEquals (2, aDIS.readInt ());
+    assertEquals ("a", CODEC.decode (aDIS));
+    assertEquals ("b", CODEC.decode (aDIS));
+
+    aPayload = aReader.readNext ();
+    assertNotNull (aPayload);
+    aDIS = new DataInputStream (new NonBlockingByteArrayInputStream (aPayload));
+    assertEquals (EDAOActionType.DELETE, WALBinaryFormat.getActionType (aDIS.readByte ()));
+
+    assertNull (aReader.readNext ());
+    assertFalse (aReader.isTornTail ());
+    assertEquals (nValidLength, aReader.getPosition ());
+  }
+
+  @Test
+  public void testTornTail () throws IOException
+  {
+    final byte [] aRecord = WALBinaryFormat.createRecord (EDAOActionType.UPDATE,
+                                                          new CommonsArrayList <> ("value"),
+                                                          CODEC);
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    aBAOS.write (WALBinaryFormat.HEADER);
+    aBAOS.write (aRecord);
+    aBAOS.write (aRecord);
+    final byte [] aBytes = aBAOS.toByteArray ();
+
+    // Incomplete last record
+    byte [] aTorn = new byte [aBytes.length - 3];
+    System.arraycopy (aBytes, 0, aTorn, 0, aTorn.length);
+    assertEquals (WALBinaryFormat.HEADER.length + aRecord.length,
+                  WALFile.getLogicalEnd (new NonBlockingByteArrayInputStream (aTorn), aTorn.length));
+
+    // Corrupt last record
+    aTorn = aBytes.clone ();
+    aTorn[aTorn.length - 1] ^= 0x01;
+    final NonBlockingByteArrayInputStream aIS = new NonBlockingByteArrayInputStream (aTorn);
+    assertTrue (WALBinaryFormat.readHeader (aIS));
+    final WALBinaryFormat.RecordReader aReader = new WALBinaryFormat.RecordReader (aIS, aTorn.length);
+    assertNotNull (aReader.readNext ());
+    assertNull (aReader.readNext ());
+    assertTrue (aReader.isTornTail ());
+    assertEquals (WALBinaryFormat.HEADER.length + aRecord.length, aReader.getPosition ());
+  }
+
+  @Test
+  public void testLegacyIsNotBinary () throws IOException
+  {
+    final byte [] aLegacy = new byte [] { 1, 0, 0, 0, 6, 'c', 'r', 'e', 'a', 't', 'e' };
+    final NonBlockingByteArrayInputStream aIS = new NonBlockingByteArrayInputStream (aLegacy);
+    assertFalse (WALBinaryFormat.readHeader (aIS));
+    // Stream was reset
+    final byte [] aRead = new byte [aLegacy.length];
+    assertEquals (aLegacy.length, aIS.read (aRead));
+    assertArrayEquals (aLegacy, aRead);
+  }
+}
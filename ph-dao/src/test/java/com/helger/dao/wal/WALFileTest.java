@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.dao.wal;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.file.FileHelper;
+import com.helger.commons.io.file.FileOperationManager;
+import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.lang.TimeValue;
+import com.helger.dao.EDAOActionType;
+
+/**
+ * Test class for class {@link WALFile}.
+ *
+ * @author Philip Helger
+ */
+public final class WALFileTest
+{
+  private static final TimeValue FORCE_INTERVAL = new TimeValue (TimeUnit.MILLISECONDS, 10);
+
+  private static byte [] _createRecord (final String... aElements) throws IOException
+  {
+    final NonBlockingByteArrayOutputStream aBAOS = new NonBlockingByteArrayOutputStream ();
+    try (final DataOutputStream aDOS = new DataOutputStream (aBAOS))
+    {
+      StreamHelper.writeSafeUTF (aDOS, EDAOActionType.CREATE.getID ());
+      aDOS.writeInt (aElements.length);
+      for (final String s : aElements)
+        StreamHelper.writeSafeUTF (aDOS, s);
+    }
+    return aBAOS.toByteArray ();
+  }
+
+  private static long _getLogicalEnd (final File aFile) throws IOException
+  {
+    try (final InputStream aIS = FileHelper.getBufferedInputStream (aFile))
+    {
+      return WALFile.getLogicalEnd (aIS, aFile.length ());
+    }
+  }
+
+  @Test
+  public void testDurabilityModes () throws IOException
+  {
+    final File aFile = new File ("target/wal-test/durability.wal");
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (aFile.getParentFile ());
+    FileOperationManager.INSTANCE.deleteFileIfExisting (aFile);
+    final WALFile aWAL = new WALFile (aFile, 4096);
+    try
+    {
+      final byte [] aRecord = _createRecord ("<item id='1'/>");
+      aWAL.append (aRecord, EWALDurability.NONE, FORCE_INTERVAL);
+      assertEquals (aRecord.length, aWAL.getWrittenBytes ());
+      assertEquals (0, aWAL.getForceCount ());
+      // Preallocated
+      assertEquals (4096, aFile.length ());
+      assertEquals (aRecord.length, _getLogicalEnd (aFile));
+
+      aWAL.append (aRecord, EWALDurability.PER_OPERATION, FORCE_INTERVAL);
+      assertEquals (1, aWAL.getForceCount ());
+      assertEquals (2 * aRecord.length, _getLogicalEnd (aFile));
+
+      assertFalse (aWAL.hasUnforcedRecords ());
+
+      // Periodic force - records are written immediately
+      for (int i = 0; i < 100; ++i)
+        aWAL.append (aRecord, EWALDurability.PERIODIC, new TimeValue (TimeUnit.HOURS, 1));
+      assertTrue (aWAL.hasUnforcedRecords ());
+      assertEquals (102 * aRecord.length, aWAL.getWrittenBytes ());
+      assertEquals (102 * aRecord.length, _getLogicalEnd (aFile));
+      assertEquals (1, aWAL.getForceCount ());
+      aWAL.force ();
+      assertFalse (aWAL.hasUnforcedRecords ());
+      assertEquals (2, aWAL.getForceCount ());
+      assertEquals (102 * aRecord.length, _getLogicalEnd (aFile));
+      assertTrue (aFile.length () >= 102 * aRecord.length);
+    }
+    finally
+    {
+      aWAL.close ();
+      FileOperationManager.INSTANCE.deleteFile (aFile);
+    }
+  }
+
+  @Test
+  public void testPeriodicForce () throws Exception
+  {
+    final File aFile = new File ("target/wal-test/periodic.wal");
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (aFile.getParentFile ());
+    FileOperationManager.INSTANCE.deleteFileIfExisting (aFile);
+    final WALFile aWAL = new WALFile (aFile, 0);
+    try
+    {
+      final byte [] aRecord = _createRecord ("a", "b");
+      for (int i = 0; i < 10; ++i)
+        aWAL.append (aRecord, EWALDurability.PERIODIC, FORCE_INTERVAL);
+      assertEquals (10 * aRecord.length, aFile.length ());
+
+      final long nEnd = System.currentTimeMillis () + 5000;
+      while (aWAL.hasUnforcedRecords () && System.currentTimeMillis () < nEnd)
+        Thread.sleep (5);
+      assertFalse (aWAL.hasUnforcedRecords ());
+      assertEquals (1, aWAL.getForceCount ());
+      assertEquals (10 * aRecord.length, aFile.length ());
+    }
+    finally
+    {
+      aWAL.close ();
+      FileOperationManager.INSTANCE.deleteFile (aFile);
+    }
+  }
+
+  @Test
+  public void testGroupCommit () throws Exception
+  {
+    final File aFile = new File ("target/wal-test/group.wal");
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (aFile.getParentFile ());
+    FileOperationManager.INSTANCE.deleteFileIfExisting (aFile);
+    final WALFile aWAL = new WALFile (aFile, 4096);
+    try
+    {
+      final byte [] aRecord = _createRecord ("a");
+      final int nThreads = 8;
+      final long [] aSeqs = new long [nThreads];
+      for (int i = 0; i < nThreads; ++i)
+        aSeqs[i] = aWAL.append (aRecord, EWALDurability.GROUP_COMMIT, FORCE_INTERVAL);
+      assertTrue (aWAL.hasUnforcedRecords ());
+      assertEquals (0, aWAL.getForceCount ());
+
+      // All writers wait at the same time and share a single force
+      final CountDownLatch aStart = new CountDownLatch (1);
+      final ExecutorService aES = Executors.newFixedThreadPool (nThreads);
+      final ICommonsList <Future <?>> aFutures = new CommonsArrayList <> ();
+      for (int i = 0; i < nThreads; ++i)
+      {
+        final long nSeq = aSeqs[i];
+        aFutures.add (aES.submit ( () -> {
+          aStart.await ();
+          aWAL.awaitForce (nSeq);
+          return null;
+        }));
+      }
+      aStart.countDown ();
+      for (final Future <?> aFuture : aFutures)
+        aFuture.get ();
+      aES.shutdown ();
+      assertEquals (1, aWAL.getForceCount ());
+      assertFalse (aWAL.hasUnforcedRecords ());
+
+      // Already forced
+      aWAL.awaitForce (aSeqs[nThreads - 1]);
+      assertEquals (1, aWAL.getForceCount ());
+
+      // A later record needs a new force
+      aWAL.awaitForce (aWAL.append (aRecord, EWALDurability.GROUP_COMMIT, FORCE_INTERVAL));
+      assertEquals (2, aWAL.getForceCount ());
+      assertEquals ((nThreads + 1) * aRecord.length, _getLogicalEnd (aFile));
+    }
+    finally
+    {
+      aWAL.close ();
+      FileOperationManager.INSTANCE.deleteFile (aFile);
+    }
+  }
+
+  @Test
+  public void testReopenWithTornTail () throws IOException
+  {
+    final File aFile = new File ("target/wal-test/reopen.wal");
+    FileOperationManager.INSTANCE.createDirRecursiveIfNotExisting (aFile.getParentFile ());
+    FileOperationManager.INSTANCE.deleteFileIfExisting (aFile);
+    final byte [] aRecord = _createRecord ("<item id='2'/>");
+    try
+    {
+      // One complete and one incomplete record
+      try (final DataOutputStream aDOS = new DataOutputStream (FileHelper.getOutputStream (aFile)))
+      {
+        aDOS.write (aRecord);
+        aDOS.write (aRecord, 0, aRecord.length - 3);
+      }
+      assertEquals (aRecord.length, _getLogicalEnd (aFile));
+
+      final WALFile aWAL = new WALFile (aFile, 0);
+      aWAL.append (aRecord, EWALDurability.NONE, FORCE_INTERVAL);
+      aWAL.close ();
+      assertEquals (2 * aRecord.length, aFile.length ());
+      assertEquals (2 * aRecord.length, _getLogicalEnd (aFile));
+    }
+    finally
+    {
+      FileOperationManager.INSTANCE.deleteFile (aFile);
+    }
+  }
+}
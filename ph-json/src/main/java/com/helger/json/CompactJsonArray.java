@@ -0,0 +1,315 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.function.Consumer;
+import java.util.function.ObjIntConsumer;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Memory efficient implementation of {@link IJsonArray} that stores the values
+ * in a single flat array that can be trimmed to the exact size via
+ * {@link #trimToSize()}.<br>
+ * This class is fully interchangeable with {@link JsonArray}:
+ * {@link #equals(Object)} and {@link #hashCode()} only depend on the contained
+ * values.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class CompactJsonArray implements IJsonArray
+{
+  public static final int DEFAULT_INITIAL_CAPACITY = 4;
+
+  private static final IJson [] EMPTY_VALUES = new IJson [0];
+
+  private IJson [] m_aValues;
+  private int m_nSize;
+
+  public CompactJsonArray ()
+  {
+    this (DEFAULT_INITIAL_CAPACITY);
+  }
+
+  public CompactJsonArray (@Nonnegative final int nInitialCapacity)
+  {
+    ValueEnforcer.isGE0 (nInitialCapacity, "InitialCapacity");
+    m_aValues = nInitialCapacity == 0 ? EMPTY_VALUES : new IJson [nInitialCapacity];
+  }
+
+  public CompactJsonArray (@Nonnull final IJson... aJsons)
+  {
+    ValueEnforcer.noNullValue (aJsons, "Jsons");
+    m_aValues = aJsons.length == 0 ? EMPTY_VALUES : aJsons.clone ();
+    m_nSize = aJsons.length;
+  }
+
+  public final boolean isArray ()
+  {
+    return true;
+  }
+
+  public final boolean isObject ()
+  {
+    return false;
+  }
+
+  public final boolean isValue ()
+  {
+    return false;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_nSize;
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_nSize == 0;
+  }
+
+  @Nonnull
+  public Iterator <IJson> iterator ()
+  {
+    return new Iterator <IJson> ()
+    {
+      private int m_nNext = 0;
+      private int m_nLast = -1;
+
+      public boolean hasNext ()
+      {
+        return m_nNext < m_nSize;
+      }
+
+      @Nonnull
+      public IJson next ()
+      {
+        if (m_nNext >= m_nSize)
+          throw new NoSuchElementException ();
+        m_nLast = m_nNext++;
+        return m_aValues[m_nLast];
+      }
+
+      @Override
+      public void remove ()
+      {
+        if (m_nLast < 0)
+          throw new IllegalStateException ();
+        removeAndReturnAtIndex (m_nLast);
+        m_nNext = m_nLast;
+        m_nLast = -1;
+      }
+    };
+  }
+
+  private void _ensureCapacity ()
+  {
+    if (m_nSize == m_aValues.length)
+      m_aValues = Arrays.copyOf (m_aValues, Math.max (m_nSize + (m_nSize >> 1), DEFAULT_INITIAL_CAPACITY));
+  }
+
+  @Nonnull
+  public CompactJsonArray add (@Nonnull final IJson aValue)
+  {
+    ValueEnforcer.notNull (aValue, "Value");
+
+    _ensureCapacity ();
+    m_aValues[m_nSize++] = aValue;
+    return this;
+  }
+
+  /**
+   * Add a value at the specified index.
+   *
+   * @param nIndex
+   *        The index to add the value at. If it is &lt; 0 or &ge; size, the
+   *        value is appended at the end.
+   * @param aValue
+   *        The value to be added. May not be <code>null</code>.
+   * @return this for chaining
+   */
+  @Nonnull
+  public CompactJsonArray addAt (@CheckForSigned final int nIndex, @Nonnull final IJson aValue)
+  {
+    ValueEnforcer.notNull (aValue, "Value");
+
+    if (nIndex < 0 || nIndex >= m_nSize)
+      return add (aValue);
+
+    _ensureCapacity ();
+    System.arraycopy (m_aValues, nIndex, m_aValues, nIndex + 1, m_nSize - nIndex);
+    m_aValues[nIndex] = aValue;
+    m_nSize++;
+    return this;
+  }
+
+  @Nullable
+  public IJson removeAndReturnAtIndex (@Nonnegative final int nIndex)
+  {
+    if (nIndex < 0 || nIndex >= m_nSize)
+      return null;
+
+    final IJson ret = m_aValues[nIndex];
+    final int nMoved = m_nSize - nIndex - 1;
+    if (nMoved > 0)
+      System.arraycopy (m_aValues, nIndex + 1, m_aValues, nIndex, nMoved);
+    m_aValues[--m_nSize] = null;
+    return ret;
+  }
+
+  @Nonnull
+  public EChange removeAtIndex (@Nonnegative final int nIndex)
+  {
+    return EChange.valueOf (removeAndReturnAtIndex (nIndex) != null);
+  }
+
+  @Nullable
+  public IJson get (@Nonnegative final int nIndex)
+  {
+    return nIndex >= 0 && nIndex < m_nSize ? m_aValues[nIndex] : null;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public CompactJsonArray getSubArray (@Nonnegative final int nStartIndex, @Nonnegative final int nEndIndex)
+  {
+    ValueEnforcer.isGE0 (nStartIndex, "StartIndex");
+    ValueEnforcer.isBetweenInclusive (nEndIndex, "EndIndex", nStartIndex, m_nSize);
+
+    final int nLength = nEndIndex - nStartIndex;
+    final CompactJsonArray ret = new CompactJsonArray (nLength);
+    System.arraycopy (m_aValues, nStartIndex, ret.m_aValues, 0, nLength);
+    ret.m_nSize = nLength;
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> getAll ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.add (m_aValues[i]);
+    return ret;
+  }
+
+  public void forEach (@Nonnull final Consumer <? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_nSize; ++i)
+      aConsumer.accept (m_aValues[i]);
+  }
+
+  public void forEachByIndex (@Nonnull final ObjIntConsumer <? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_nSize; ++i)
+      aConsumer.accept (m_aValues[i], i);
+  }
+
+  public boolean contains (@Nullable final IJson aValue)
+  {
+    if (aValue != null)
+      for (int i = 0; i < m_nSize; ++i)
+        if (m_aValues[i].equals (aValue))
+          return true;
+    return false;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> getClonedValues ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.add (m_aValues[i].getClone ());
+    return ret;
+  }
+
+  @Nonnull
+  public CompactJsonArray getClone ()
+  {
+    final CompactJsonArray ret = new CompactJsonArray (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.m_aValues[i] = m_aValues[i].getClone ();
+    ret.m_nSize = m_nSize;
+    return ret;
+  }
+
+  /**
+   * Reduce the capacity of the internal array to the number of contained
+   * values. Call this after the array is completely filled.
+   *
+   * @return this for chaining
+   */
+  @Nonnull
+  public CompactJsonArray trimToSize ()
+  {
+    if (m_nSize < m_aValues.length)
+      m_aValues = m_nSize == 0 ? EMPTY_VALUES : Arrays.copyOf (m_aValues, m_nSize);
+    return this;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!(o instanceof IJsonArray))
+      return false;
+    final IJsonArray rhs = (IJsonArray) o;
+    if (m_nSize != rhs.size ())
+      return false;
+    for (int i = 0; i < m_nSize; ++i)
+      if (!m_aValues[i].equals (rhs.get (i)))
+        return false;
+    return true;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    // Same as List.hashCode () - compatible to JsonArray
+    int nListHashCode = 1;
+    for (int i = 0; i < m_nSize; ++i)
+      nListHashCode = 31 * nListHashCode + m_aValues[i].hashCode ();
+    return new HashCodeGenerator (IJsonArray.class).append (nListHashCode).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("values", getAll ()).getToString ();
+  }
+}
@@ -0,0 +1,425 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import java.io.IOException;
+import java.io.ObjectInputStream;
+import java.util.Arrays;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.NoSuchElementException;
+import java.util.function.BiConsumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsOrderedMap;
+import com.helger.commons.collection.impl.ICommonsOrderedSet;
+import com.helger.commons.collection.map.MapEntry;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.state.EChange;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Memory efficient implementation of {@link IJsonObject}. Instead of a linked
+ * hash map, the names and values are stored in two flat arrays in insertion
+ * order. Small objects are searched linearly; for objects with more than
+ * {@link #LINEAR_SEARCH_LIMIT} entries an open addressing index of primitive
+ * <code>int</code>s is created lazily. Names are compared by identity first,
+ * so names that were interned by the creator (as done by
+ * {@link com.helger.json.parser.handler.CompactCollectingJsonParserHandler})
+ * are found without calling {@link String#equals(Object)}.<br>
+ * This class is fully interchangeable with {@link JsonObject}:
+ * {@link #equals(Object)} and {@link #hashCode()} only depend on the contained
+ * name/value pairs.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class CompactJsonObject implements IJsonObject
+{
+  public static final int DEFAULT_INITIAL_CAPACITY = 4;
+  /** Up to this number of entries no index is used. */
+  public static final int LINEAR_SEARCH_LIMIT = 8;
+
+  private static final String [] EMPTY_NAMES = new String [0];
+  private static final IJson [] EMPTY_VALUES = new IJson [0];
+
+  private String [] m_aNames;
+  private IJson [] m_aValues;
+  private int m_nSize;
+  // Index into the arrays - position + 1; 0 means empty slot
+  private transient int [] m_aIndex;
+
+  public CompactJsonObject ()
+  {
+    this (DEFAULT_INITIAL_CAPACITY);
+  }
+
+  public CompactJsonObject (@Nonnegative final int nInitialCapacity)
+  {
+    ValueEnforcer.isGE0 (nInitialCapacity, "InitialCapacity");
+    m_aNames = nInitialCapacity == 0 ? EMPTY_NAMES : new String [nInitialCapacity];
+    m_aValues = nInitialCapacity == 0 ? EMPTY_VALUES : new IJson [nInitialCapacity];
+  }
+
+  public CompactJsonObject (@Nonnull final Map <String, ? extends IJson> aJsons)
+  {
+    this (aJsons.size ());
+    for (final Map.Entry <String, ? extends IJson> aEntry : aJsons.entrySet ())
+      add (aEntry.getKey (), aEntry.getValue ());
+  }
+
+  private void readObject (@Nonnull final ObjectInputStream aOIS) throws IOException, ClassNotFoundException
+  {
+    aOIS.defaultReadObject ();
+    // Index is transient
+    m_aIndex = null;
+  }
+
+  public final boolean isArray ()
+  {
+    return false;
+  }
+
+  public final boolean isObject ()
+  {
+    return true;
+  }
+
+  public final boolean isValue ()
+  {
+    return false;
+  }
+
+  @Nonnegative
+  public int size ()
+  {
+    return m_nSize;
+  }
+
+  public boolean isEmpty ()
+  {
+    return m_nSize == 0;
+  }
+
+  private static int _hash (@Nonnull final String sName)
+  {
+    final int h = sName.hashCode ();
+    return h ^ (h >>> 16);
+  }
+
+  private void _addToIndex (@Nonnull final int [] aIndex, final int nPos)
+  {
+    final int nMask = aIndex.length - 1;
+    int nSlot = _hash (m_aNames[nPos]) & nMask;
+    while (aIndex[nSlot] != 0)
+      nSlot = (nSlot + 1) & nMask;
+    aIndex[nSlot] = nPos + 1;
+  }
+
+  @Nonnull
+  private int [] _buildIndex ()
+  {
+    // Load factor of at most 0.5
+    final int nTableSize = Integer.highestOneBit (Math.max (m_nSize, LINEAR_SEARCH_LIMIT) * 2) * 2;
+    final int [] ret = new int [nTableSize];
+    for (int i = 0; i < m_nSize; ++i)
+      _addToIndex (ret, i);
+    return ret;
+  }
+
+  private int _indexOf (@Nullable final String sName)
+  {
+    if (sName == null)
+      return -1;
+
+    final String [] aNames = m_aNames;
+    if (m_nSize <= LINEAR_SEARCH_LIMIT)
+    {
+      // Interned names are found by identity
+      for (int i = 0; i < m_nSize; ++i)
+        if (aNames[i] == sName)
+          return i;
+      for (int i = 0; i < m_nSize; ++i)
+        if (aNames[i].equals (sName))
+          return i;
+      return -1;
+    }
+
+    int [] aIndex = m_aIndex;
+    if (aIndex == null)
+    {
+      aIndex = _buildIndex ();
+      m_aIndex = aIndex;
+    }
+    final int nMask = aIndex.length - 1;
+    int nSlot = _hash (sName) & nMask;
+    int nPos;
+    while ((nPos = aIndex[nSlot]) != 0)
+    {
+      final String sCur = aNames[nPos - 1];
+      if (sCur == sName || sCur.equals (sName))
+        return nPos - 1;
+      nSlot = (nSlot + 1) & nMask;
+    }
+    return -1;
+  }
+
+  @Nonnull
+  public Iterator <Map.Entry <String, IJson>> iterator ()
+  {
+    return new Iterator <Map.Entry <String, IJson>> ()
+    {
+      private int m_nNext = 0;
+      private int m_nLast = -1;
+
+      public boolean hasNext ()
+      {
+        return m_nNext < m_nSize;
+      }
+
+      @Nonnull
+      public Map.Entry <String, IJson> next ()
+      {
+        if (m_nNext >= m_nSize)
+          throw new NoSuchElementException ();
+        m_nLast = m_nNext++;
+        return new MapEntry <> (m_aNames[m_nLast], m_aValues[m_nLast]);
+      }
+
+      @Override
+      public void remove ()
+      {
+        if (m_nLast < 0)
+          throw new IllegalStateException ();
+        _removeAtIndex (m_nLast);
+        m_nNext = m_nLast;
+        m_nLast = -1;
+      }
+    };
+  }
+
+  @Nonnull
+  public CompactJsonObject add (@Nonnull final String sName, @Nonnull final IJson aValue)
+  {
+    ValueEnforcer.notNull (sName, "Name");
+    ValueEnforcer.notNull (aValue, "Value");
+
+    final int nIndex = _indexOf (sName);
+    if (nIndex >= 0)
+    {
+      // Overwrite existing value, keeping the position
+      m_aValues[nIndex] = aValue;
+    }
+    else
+    {
+      if (m_nSize == m_aNames.length)
+      {
+        final int nNewCapacity = Math.max (m_nSize + (m_nSize >> 1), DEFAULT_INITIAL_CAPACITY);
+        m_aNames = Arrays.copyOf (m_aNames, nNewCapacity);
+        m_aValues = Arrays.copyOf (m_aValues, nNewCapacity);
+      }
+      m_aNames[m_nSize] = sName;
+      m_aValues[m_nSize] = aValue;
+
+      final int [] aIndex = m_aIndex;
+      if (aIndex != null)
+      {
+        if ((m_nSize + 1) * 2 > aIndex.length)
+        {
+          // Rebuild lazily with a bigger table
+          m_aIndex = null;
+        }
+        else
+          _addToIndex (aIndex, m_nSize);
+      }
+      m_nSize++;
+    }
+    return this;
+  }
+
+  @Nonnull
+  private IJson _removeAtIndex (final int nIndex)
+  {
+    final IJson ret = m_aValues[nIndex];
+    final int nMoved = m_nSize - nIndex - 1;
+    if (nMoved > 0)
+    {
+      System.arraycopy (m_aNames, nIndex + 1, m_aNames, nIndex, nMoved);
+      System.arraycopy (m_aValues, nIndex + 1, m_aValues, nIndex, nMoved);
+    }
+    m_nSize--;
+    m_aNames[m_nSize] = null;
+    m_aValues[m_nSize] = null;
+    // Positions changed
+    m_aIndex = null;
+    return ret;
+  }
+
+  @Nullable
+  public IJson removeKeyAndReturnValue (@Nullable final String sName)
+  {
+    final int nIndex = _indexOf (sName);
+    return nIndex < 0 ? null : _removeAtIndex (nIndex);
+  }
+
+  @Nonnull
+  public EChange removeKey (@Nullable final String sName)
+  {
+    return EChange.valueOf (removeKeyAndReturnValue (sName) != null);
+  }
+
+  public boolean containsKey (@Nullable final String sName)
+  {
+    return _indexOf (sName) >= 0;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedSet <String> keySet ()
+  {
+    final ICommonsOrderedSet <String> ret = new CommonsLinkedHashSet <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.add (m_aNames[i]);
+    return ret;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> values ()
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.add (m_aValues[i]);
+    return ret;
+  }
+
+  @Nullable
+  public IJson get (@Nullable final String sName)
+  {
+    final int nIndex = _indexOf (sName);
+    return nIndex < 0 ? null : m_aValues[nIndex];
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, IJson> getAll ()
+  {
+    final ICommonsOrderedMap <String, IJson> ret = new CommonsLinkedHashMap <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.put (m_aNames[i], m_aValues[i]);
+    return ret;
+  }
+
+  public void forEach (@Nonnull final BiConsumer <? super String, ? super IJson> aConsumer)
+  {
+    for (int i = 0; i < m_nSize; ++i)
+      aConsumer.accept (m_aNames[i], m_aValues[i]);
+  }
+
+  public boolean containsValue (@Nullable final IJson aValue)
+  {
+    if (aValue != null)
+      for (int i = 0; i < m_nSize; ++i)
+        if (m_aValues[i].equals (aValue))
+          return true;
+    return false;
+  }
+
+  @Nonnull
+  @ReturnsMutableCopy
+  public ICommonsOrderedMap <String, IJson> getClonedValues ()
+  {
+    final ICommonsOrderedMap <String, IJson> ret = new CommonsLinkedHashMap <> (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+      ret.put (m_aNames[i], m_aValues[i].getClone ());
+    return ret;
+  }
+
+  @Nonnull
+  public CompactJsonObject getClone ()
+  {
+    final CompactJsonObject ret = new CompactJsonObject (m_nSize);
+    for (int i = 0; i < m_nSize; ++i)
+    {
+      ret.m_aNames[i] = m_aNames[i];
+      ret.m_aValues[i] = m_aValues[i].getClone ();
+    }
+    ret.m_nSize = m_nSize;
+    return ret;
+  }
+
+  /**
+   * Reduce the capacity of the internal arrays to the number of contained
+   * entries. Call this after the object is completely filled.
+   *
+   * @return this for chaining
+   */
+  @Nonnull
+  public CompactJsonObject trimToSize ()
+  {
+    if (m_nSize < m_aNames.length)
+    {
+      m_aNames = m_nSize == 0 ? EMPTY_NAMES : Arrays.copyOf (m_aNames, m_nSize);
+      m_aValues = m_nSize == 0 ? EMPTY_VALUES : Arrays.copyOf (m_aValues, m_nSize);
+    }
+    return this;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (!(o instanceof IJsonObject))
+      return false;
+    final IJsonObject rhs = (IJsonObject) o;
+    if (m_nSize != rhs.size ())
+      return false;
+    // Order independent - same as JsonObject
+    for (int i = 0; i < m_nSize; ++i)
+      if (!m_aValues[i].equals (rhs.get (m_aNames[i])))
+        return false;
+    return true;
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    // Same as Map.hashCode () - compatible to JsonObject
+    int nMapHashCode = 0;
+    for (int i = 0; i < m_nSize; ++i)
+      nMapHashCode += m_aNames[i].hashCode () ^ m_aValues[i].hashCode ();
+    return new HashCodeGenerator (IJsonObject.class).append (nMapHashCode).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("values", getAll ()).getToString ();
+  }
+}
@@ -82,8 +82,8 @@ public class JsonArray implements IJsonArray
     final int nInitialSize = aOIS.readInt ();
     m_aValues = new CommonsArrayList <> (nInitialSize);
     final String sJson = StreamHelper.readSafeUTF (aOIS);
-    final JsonArray aJson = (JsonArray) JsonReader.readFromString (sJson);
-    m_aValues.addAll (aJson.m_aValues);
+    final IJsonArray aJson = JsonReader.readFromString (sJson).getAsArray ();
+    aJson.forEach (m_aValues::add);
   }
 
   public final boolean isArray ()
@@ -207,16 +207,27 @@ public class JsonArray implements IJsonArray
   {
     if (o == this)
       return true;
-    if (o == null || !getClass ().equals (o.getClass ()))
+    if (!(o instanceof IJsonArray))
       return false;
-    final JsonArray rhs = (JsonArray) o;
-    return m_aValues.equals (rhs.m_aValues);
+    if (o instanceof JsonArray)
+      return m_aValues.equals (((JsonArray) o).m_aValues);
+
+    // Other implementation, e.g. CompactJsonArray
+    final IJsonArray rhs = (IJsonArray) o;
+    final int nSize = m_aValues.size ();
+    if (nSize != rhs.size ())
+      return false;
+    for (int i = 0; i < nSize; ++i)
+      if (!m_aValues.get (i).equals (rhs.get (i)))
+        return false;
+    return true;
   }
 
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aValues).getHashCode ();
+    // Independent of the implementation class
+    return new HashCodeGenerator (IJsonArray.class).append (m_aValues.hashCode ()).getHashCode ();
   }
 
   @Override
@@ -0,0 +1,168 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.valueserializer.IJsonValueSerializer;
+import com.helger.json.valueserializer.JsonValueSerializerRegistry;
+
+/**
+ * Memory efficient implementation of {@link IJsonValue} for decimal values
+ * that stores the value as a primitive <code>double</code> instead of a boxed
+ * {@link Double}. It is fully interchangeable with a {@link JsonValue}
+ * containing the same {@link Double}.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@Immutable
+public final class JsonDoubleValue implements IJsonValue
+{
+  private final double m_dValue;
+
+  private JsonDoubleValue (final double dValue)
+  {
+    m_dValue = dValue;
+  }
+
+  public boolean isArray ()
+  {
+    return false;
+  }
+
+  public boolean isObject ()
+  {
+    return false;
+  }
+
+  public boolean isValue ()
+  {
+    return true;
+  }
+
+  @Nonnull
+  public Double getValue ()
+  {
+    return Double.valueOf (m_dValue);
+  }
+
+  @Override
+  @Nonnull
+  public Class <?> getValueClass ()
+  {
+    return Double.class;
+  }
+
+  @Override
+  public boolean hasValue ()
+  {
+    return true;
+  }
+
+  public boolean isBooleanValue ()
+  {
+    return false;
+  }
+
+  public boolean isIntValue ()
+  {
+    return false;
+  }
+
+  public boolean isDecimalValue ()
+  {
+    return true;
+  }
+
+  public boolean isStringValue ()
+  {
+    return false;
+  }
+
+  @Override
+  public double getAsDouble ()
+  {
+    return m_dValue;
+  }
+
+  @Override
+  public double getAsDouble (final double dDefault)
+  {
+    return m_dValue;
+  }
+
+  @Nonnull
+  public IJsonValueSerializer getValueSerializer ()
+  {
+    final IJsonValueSerializer ret = JsonValueSerializerRegistry.getInstance ()
+                                                               .getJsonValueSerializer (Double.class);
+    return ret != null ? ret : JsonValue.getDefaultJsonValueSerializer ();
+  }
+
+  public void appendAsJsonString (@Nonnull @WillNotClose final Writer aWriter) throws IOException
+  {
+    getValueSerializer ().appendAsJsonString (getValue (), aWriter);
+  }
+
+  @Nonnull
+  public JsonDoubleValue getClone ()
+  {
+    // No need to clone, as this object is immutable!
+    return this;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o instanceof JsonDoubleValue)
+      return EqualsHelper.equals (m_dValue, ((JsonDoubleValue) o).m_dValue);
+    if (!(o instanceof IJsonValue))
+      return false;
+    // Compatible to JsonValue
+    return EqualsHelper.equals (getValue (), ((IJsonValue) o).getValue ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    // Compatible to JsonValue
+    return new HashCodeGenerator (IJsonValue.class).append (getValue ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Value", m_dValue).getToString ();
+  }
+
+  @Nonnull
+  public static JsonDoubleValue create (final double dValue)
+  {
+    return new JsonDoubleValue (dValue);
+  }
+}
@@ -0,0 +1,226 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import java.io.IOException;
+import java.io.Writer;
+
+import javax.annotation.Nonnull;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.equals.EqualsHelper;
+import com.helger.commons.hashcode.HashCodeGenerator;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.valueserializer.IJsonValueSerializer;
+import com.helger.json.valueserializer.JsonValueSerializerRegistry;
+
+/**
+ * Memory efficient implementation of {@link IJsonValue} for integer values
+ * that stores the value as a primitive <code>long</code> instead of a boxed
+ * {@link Number}. It is fully interchangeable with a {@link JsonValue}
+ * containing the same {@link Integer} or {@link Long}: {@link #getValue()}
+ * returns the same boxed type, and {@link #equals(Object)} and
+ * {@link #hashCode()} are compatible.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@Immutable
+public final class JsonLongValue implements IJsonValue
+{
+  /** Cache for regular used numeric JSON values */
+  private static final int INT_CACHE_MIN = -128;
+  private static final int INT_CACHE_MAX = 127;
+  private static final JsonLongValue [] NUMERIC = new JsonLongValue [INT_CACHE_MAX - INT_CACHE_MIN + 1];
+
+  static
+  {
+    for (int i = INT_CACHE_MIN; i <= INT_CACHE_MAX; ++i)
+      NUMERIC[i - INT_CACHE_MIN] = new JsonLongValue (i, true);
+  }
+
+  private final long m_nValue;
+  // Was the value created from an int?
+  private final boolean m_bIsInt;
+
+  private JsonLongValue (final long nValue, final boolean bIsInt)
+  {
+    m_nValue = nValue;
+    m_bIsInt = bIsInt;
+  }
+
+  public boolean isArray ()
+  {
+    return false;
+  }
+
+  public boolean isObject ()
+  {
+    return false;
+  }
+
+  public boolean isValue ()
+  {
+    return true;
+  }
+
+  /**
+   * @return The contained value as an {@link Integer} if it was created from
+   *         an <code>int</code> or as a {@link Long} otherwise. Never
+   *         <code>null</code>.
+   */
+  @Nonnull
+  public Number getValue ()
+  {
+    return m_bIsInt ? (Number) Integer.valueOf ((int) m_nValue) : (Number) Long.valueOf (m_nValue);
+  }
+
+  @Override
+  @Nonnull
+  public Class <?> getValueClass ()
+  {
+    return m_bIsInt ? Integer.class : Long.class;
+  }
+
+  @Override
+  public boolean hasValue ()
+  {
+    return true;
+  }
+
+  public boolean isBooleanValue ()
+  {
+    return false;
+  }
+
+  public boolean isIntValue ()
+  {
+    return true;
+  }
+
+  public boolean isDecimalValue ()
+  {
+    return false;
+  }
+
+  public boolean isStringValue ()
+  {
+    return false;
+  }
+
+  @Override
+  public int getAsInt ()
+  {
+    return (int) m_nValue;
+  }
+
+  @Override
+  public int getAsInt (final int nDefault)
+  {
+    return (int) m_nValue;
+  }
+
+  @Override
+  public long getAsLong ()
+  {
+    return m_nValue;
+  }
+
+  @Override
+  public long getAsLong (final long nDefault)
+  {
+    return m_nValue;
+  }
+
+  @Override
+  public double getAsDouble ()
+  {
+    return m_nValue;
+  }
+
+  @Override
+  public double getAsDouble (final double dDefault)
+  {
+    return m_nValue;
+  }
+
+  @Nonnull
+  public IJsonValueSerializer getValueSerializer ()
+  {
+    final IJsonValueSerializer ret = JsonValueSerializerRegistry.getInstance ()
+                                                               .getJsonValueSerializer (getValueClass ());
+    return ret != null ? ret : JsonValue.getDefaultJsonValueSerializer ();
+  }
+
+  public void appendAsJsonString (@Nonnull @WillNotClose final Writer aWriter) throws IOException
+  {
+    getValueSerializer ().appendAsJsonString (getValue (), aWriter);
+  }
+
+  @Nonnull
+  public JsonLongValue getClone ()
+  {
+    // No need to clone, as this object is immutable!
+    return this;
+  }
+
+  @Override
+  public boolean equals (final Object o)
+  {
+    if (o == this)
+      return true;
+    if (o instanceof JsonLongValue)
+    {
+      final JsonLongValue rhs = (JsonLongValue) o;
+      return m_nValue == rhs.m_nValue && m_bIsInt == rhs.m_bIsInt;
+    }
+    if (!(o instanceof IJsonValue))
+      return false;
+    // Compatible to JsonValue
+    return EqualsHelper.equals (getValue (), ((IJsonValue) o).getValue ());
+  }
+
+  @Override
+  public int hashCode ()
+  {
+    // Compatible to JsonValue
+    return new HashCodeGenerator (IJsonValue.class).append (getValue ()).getHashCode ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Value", m_nValue).append ("IsInt", m_bIsInt).getToString ();
+  }
+
+  @Nonnull
+  public static JsonLongValue create (final int nValue)
+  {
+    // Use cached value
+    if (nValue >= INT_CACHE_MIN && nValue <= INT_CACHE_MAX)
+      return NUMERIC[nValue - INT_CACHE_MIN];
+
+    return new JsonLongValue (nValue, true);
+  }
+
+  @Nonnull
+  public static JsonLongValue create (final long nValue)
+  {
+    return new JsonLongValue (nValue, false);
+  }
+}
@@ -80,8 +80,8 @@ public class JsonObject implements IJsonObject
     final int nInitialSize = aOIS.readInt ();
     m_aValues = new CommonsLinkedHashMap <> (nInitialSize);
     final String sJson = StreamHelper.readSafeUTF (aOIS);
-    final JsonObject aJson = (JsonObject) JsonReader.readFromString (sJson);
-    m_aValues.putAll (aJson.m_aValues);
+    final IJsonObject aJson = JsonReader.readFromString (sJson).getAsObject ();
+    aJson.forEach ((k, v) -> m_aValues.put (k, v));
   }
 
   public final boolean isArray ()
@@ -201,16 +201,26 @@ public class JsonObject implements IJsonObject
   {
     if (o == this)
       return true;
-    if (o == null || !getClass ().equals (o.getClass ()))
+    if (!(o instanceof IJsonObject))
       return false;
-    final JsonObject rhs = (JsonObject) o;
-    return m_aValues.equals (rhs.m_aValues);
+    if (o instanceof JsonObject)
+      return m_aValues.equals (((JsonObject) o).m_aValues);
+
+    // Other implementation, e.g. CompactJsonObject
+    final IJsonObject rhs = (IJsonObject) o;
+    if (m_aValues.size () != rhs.size ())
+      return false;
+    for (final Map.Entry <String, IJson> aEntry : m_aValues.entrySet ())
+      if (!aEntry.getValue ().equals (rhs.get (aEntry.getKey ())))
+        return false;
+    return true;
   }
 
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aValues).getHashCode ();
+    // Independent of the implementation class
+    return new HashCodeGenerator (IJsonObject.class).append (m_aValues.hashCode ()).getHashCode ();
   }
 
   @Override
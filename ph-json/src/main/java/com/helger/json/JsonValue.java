@@ -85,8 +85,8 @@ public class JsonValue implements IJsonValue
   private void readObject (@Nonnull final ObjectInputStream aOIS) throws IOException
   {
     final String sJson = StreamHelper.readSafeUTF (aOIS);
-    final JsonValue aJson = (JsonValue) JsonReader.readFromString (sJson);
-    m_aValue = aJson.m_aValue;
+    final IJsonValue aJson = (IJsonValue) JsonReader.readFromString (sJson);
+    m_aValue = aJson.getValue ();
   }
 
   public final boolean isArray ()
@@ -175,16 +175,18 @@ public class JsonValue implements IJsonValue
   {
     if (o == this)
       return true;
-    if (o == null || !getClass ().equals (o.getClass ()))
+    // Other implementations like JsonLongValue are considered as well
+    if (!(o instanceof IJsonValue))
       return false;
-    final JsonValue rhs = (JsonValue) o;
-    return EqualsHelper.equals (m_aValue, rhs.m_aValue);
+    final IJsonValue rhs = (IJsonValue) o;
+    return EqualsHelper.equals (m_aValue, rhs.getValue ());
   }
 
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aValue).getHashCode ();
+    // Independent of the implementation class
+    return new HashCodeGenerator (IJsonValue.class).append (m_aValue).getHashCode ();
   }
 
   @Override
@@ -0,0 +1,75 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+/**
+ * All the tokens that can be returned by the pull based
+ * {@link JsonTokenReader}.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+public enum EJsonToken
+{
+  /** Opening curly bracket of a JSON object */
+  START_OBJECT,
+  /** Closing curly bracket of a JSON object */
+  END_OBJECT,
+  /** Opening square bracket of a JSON array */
+  START_ARRAY,
+  /** Closing square bracket of a JSON array */
+  END_ARRAY,
+  /** The name of an object member */
+  FIELD_NAME,
+  /** A string value */
+  VALUE_STRING,
+  /** A numeric value */
+  VALUE_NUMBER,
+  /** The keyword <code>true</code> */
+  VALUE_TRUE,
+  /** The keyword <code>false</code> */
+  VALUE_FALSE,
+  /** The keyword <code>null</code> */
+  VALUE_NULL;
+
+  /**
+   * @return <code>true</code> if this is {@link #START_OBJECT} or
+   *         {@link #START_ARRAY}
+   */
+  public boolean isStructStart ()
+  {
+    return this == START_OBJECT || this == START_ARRAY;
+  }
+
+  /**
+   * @return <code>true</code> if this is {@link #END_OBJECT} or
+   *         {@link #END_ARRAY}
+   */
+  public boolean isStructEnd ()
+  {
+    return this == END_OBJECT || this == END_ARRAY;
+  }
+
+  /**
+   * @return <code>true</code> if this is a simple value token like a string, a
+   *         number or one of the keywords.
+   */
+  public boolean isScalarValue ()
+  {
+    return this == VALUE_STRING || this == VALUE_NUMBER || this == VALUE_TRUE || this == VALUE_FALSE || this == VALUE_NULL;
+  }
+}
@@ -17,15 +17,16 @@
 package com.helger.json.parser;
 
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.Reader;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 import javax.annotation.WillNotClose;
 import javax.annotation.concurrent.NotThreadSafe;
 
 import com.helger.commons.ValueEnforcer;
-import com.helger.commons.io.stream.NonBlockingPushbackReader;
 import com.helger.commons.string.StringHelper;
 import com.helger.json.CJson;
 import com.helger.json.parser.handler.IJsonParserHandler;
@@ -33,7 +34,10 @@ import com.helger.json.parser.handler.IJsonParserHandler;
 /**
  * This is a generic JSON parser that invokes a custom callback for all found
  * elements. This can be used as the basis for a "SAX" like JSON parsing, if
- * required.
+ * required.<br>
+ * The input is read block wise into an internal buffer, so the provided
+ * {@link Reader} does not need to be buffered. UTF-8 encoded
+ * {@link InputStream}s are decoded by the parser itself.
  *
  * @author Philip Helger
  */
@@ -70,11 +74,23 @@ public class JsonParser
   /** The end of input special value */
   public static final int EOI = -1;
 
+  /**
+   * The number of characters that are read at once
+   *
+   * @since 9.1.0
+   */
+  public static final int BUFFER_SIZE = 8192;
+
   private static final int MAX_PUSH_BACK_CHARS = 2;
+  // The maximum number of bytes of a single UTF-8 sequence
+  private static final int MAX_UTF8_BYTES = 4;
+  private static final char REPLACEMENT_CHAR = '\ufffd';
 
   // Constructor parameters
-  private final NonBlockingPushbackReader m_aReader;
+  private final Reader m_aReader;
+  private final InputStream m_aIS;
   private final IJsonParserHandler m_aCallback;
+  private final boolean m_bOriginalContent;
 
   // Settings
   private boolean m_bTrackPosition = false;
@@ -84,17 +100,58 @@ public class JsonParser
   private boolean m_bAllowSpecialCharsInStrings = false;
 
   // Status variables
+  // Input buffer
+  private final char [] m_aBuf = new char [BUFFER_SIZE];
+  private int m_nBufPos = 0;
+  private int m_nBufLen = 0;
+  private boolean m_bEOI = false;
+  // UTF-8 input buffer
+  private final byte [] m_aByteBuf;
+  private int m_nBytePos = 0;
+  private int m_nByteLen = 0;
+  private boolean m_bByteEOI = false;
+  // Reused token buffers
+  private final JsonStringBuilder m_aStrSpaces = new JsonStringBuilder (64);
+  private final JsonStringBuilder m_aStrComment = new JsonStringBuilder (256);
+  private final JsonStringBuilder m_aStrOriginal = new JsonStringBuilder (256);
+  private final JsonStringBuilder m_aStrUnescaped = new JsonStringBuilder (256);
+  private final JsonStringBuilder m_aStrNumber = new JsonStringBuilder (32);
   // Position tracking
   private final JsonParsePosition m_aPos = new JsonParsePosition ();
   private int m_nBackupChars = 0;
 
-  public JsonParser (@Nonnull @WillNotClose final Reader aReader, @Nonnull final IJsonParserHandler aCallback)
+  private JsonParser (@Nullable final Reader aReader,
+                      @Nullable final InputStream aIS,
+                      @Nonnull final IJsonParserHandler aCallback)
   {
-    ValueEnforcer.notNull (aReader, "Reader");
     ValueEnforcer.notNull (aCallback, "Callback");
-    // Maximum of 2 pushbacks
-    m_aReader = new NonBlockingPushbackReader (aReader, MAX_PUSH_BACK_CHARS);
+    m_aReader = aReader;
+    m_aIS = aIS;
+    m_aByteBuf = aIS == null ? null : new byte [BUFFER_SIZE];
     m_aCallback = aCallback;
+    m_bOriginalContent = aCallback.isOriginalContentRequired ();
+  }
+
+  public JsonParser (@Nonnull @WillNotClose final Reader aReader, @Nonnull final IJsonParserHandler aCallback)
+  {
+    this (ValueEnforcer.notNull (aReader, "Reader"), null, aCallback);
+  }
+
+  /**
+   * Constructor for UTF-8 encoded input. The bytes are decoded by the parser
+   * without an intermediate {@link Reader}. Malformed input is replaced with
+   * U+FFFD. A potential byte order mark must have been skipped before.
+   *
+   * @param aIS
+   *        The UTF-8 encoded input stream to parse. May not be
+   *        <code>null</code>. The stream does not need to be buffered.
+   * @param aCallback
+   *        The callback to be invoked. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  public JsonParser (@Nonnull @WillNotClose final InputStream aIS, @Nonnull final IJsonParserHandler aCallback)
+  {
+    this (null, ValueEnforcer.notNull (aIS, "InputStream"), aCallback);
   }
 
   public boolean isTrackPosition ()
@@ -178,53 +235,195 @@ public class JsonParser
   }
 
   /**
-   * Must return int to differentiate between the whole char range (0-0xffff)
-   * and EOF (-1).
+   * Decode UTF-8 bytes from the byte buffer into the provided char array.
    *
-   * @return the char read or {@link #EOI} (=-1) in case of EOF
+   * @return The number of decoded chars or -1 at the end of input.
    */
-  private int _readChar ()
+  private int _readUTF8 (@Nonnull final char [] aDst, final int nDstOfs, final int nDstLen) throws IOException
   {
-    try
+    final byte [] aSrc = m_aByteBuf;
+    if (m_nByteLen - m_nBytePos < MAX_UTF8_BYTES && !m_bByteEOI)
+    {
+      // Compact and refill so that at least the first sequence is complete
+      m_nByteLen -= m_nBytePos;
+      System.arraycopy (aSrc, m_nBytePos, aSrc, 0, m_nByteLen);
+      m_nBytePos = 0;
+      while (m_nByteLen < MAX_UTF8_BYTES)
+      {
+        final int nRead = m_aIS.read (aSrc, m_nByteLen, aSrc.length - m_nByteLen);
+        if (nRead < 0)
+        {
+          m_bByteEOI = true;
+          break;
+        }
+        m_nByteLen += nRead;
+      }
+    }
+    if (m_nBytePos >= m_nByteLen)
+      return EOI;
+
+    int nSrc = m_nBytePos;
+    final int nSrcEnd = m_nByteLen;
+    int nDst = nDstOfs;
+    // Keep one char spare for surrogate pairs
+    final int nDstEnd = nDstOfs + nDstLen - 1;
+    while (nDst < nDstEnd && nSrc < nSrcEnd)
     {
-      final int c = m_aReader.read ();
+      final int b = aSrc[nSrc];
+      if (b >= 0)
+      {
+        // ASCII
+        aDst[nDst++] = (char) b;
+        nSrc++;
+        continue;
+      }
 
-      if (m_bTrackPosition)
+      final int nFollowing;
+      final int nMinValue;
+      int nCodePoint;
+      if ((b & 0xe0) == 0xc0)
+      {
+        nFollowing = 1;
+        nMinValue = 0x80;
+        nCodePoint = b & 0x1f;
+      }
+      else
+        if ((b & 0xf0) == 0xe0)
+        {
+          nFollowing = 2;
+          nMinValue = 0x800;
+          nCodePoint = b & 0x0f;
+        }
+        else
+          if ((b & 0xf8) == 0xf0)
+          {
+            nFollowing = 3;
+            nMinValue = 0x10000;
+            nCodePoint = b & 0x07;
+          }
+          else
+          {
+            // Invalid start byte
+            aDst[nDst++] = REPLACEMENT_CHAR;
+            nSrc++;
+            continue;
+          }
+
+      if (nSrc + nFollowing >= nSrcEnd && !m_bByteEOI)
+      {
+        // Incomplete sequence - continue after the next read
+        break;
+      }
+
+      int nLen = 1;
+      while (nLen <= nFollowing && nSrc + nLen < nSrcEnd && (aSrc[nSrc + nLen] & 0xc0) == 0x80)
       {
-        if (m_nBackupChars > 0)
+        nCodePoint = (nCodePoint << 6) | (aSrc[nSrc + nLen] & 0x3f);
+        nLen++;
+      }
+      nSrc += nLen;
+
+      if (nLen <= nFollowing ||
+          nCodePoint < nMinValue ||
+          nCodePoint > Character.MAX_CODE_POINT ||
+          (nCodePoint >= Character.MIN_SURROGATE && nCodePoint <= Character.MAX_SURROGATE))
+        aDst[nDst++] = REPLACEMENT_CHAR;
+      else
+        if (nCodePoint >= Character.MIN_SUPPLEMENTARY_CODE_POINT)
         {
-          // If previously a char was backed up, don't increase the position!
-          m_nBackupChars--;
+          aDst[nDst++] = Character.highSurrogate (nCodePoint);
+          aDst[nDst++] = Character.lowSurrogate (nCodePoint);
         }
         else
-          m_aPos.updatePosition (c, m_nTabSize);
+          aDst[nDst++] = (char) nCodePoint;
+    }
+    m_nBytePos = nSrc;
+    return nDst - nDstOfs;
+  }
+
+  /**
+   * Refill the input buffer. The last {@value #MAX_PUSH_BACK_CHARS} chars are
+   * kept so that they can be unread. Read errors are treated as the end of
+   * input.
+   *
+   * @return <code>true</code> if at least one char was read.
+   */
+  private boolean _fillBuffer ()
+  {
+    if (m_bEOI)
+      return false;
+
+    final int nKeep = Math.min (m_nBufPos, MAX_PUSH_BACK_CHARS);
+    final int nDrop = m_nBufPos - nKeep;
+    if (nDrop > 0)
+    {
+      m_nBufLen -= nDrop;
+      System.arraycopy (m_aBuf, nDrop, m_aBuf, 0, m_nBufLen);
+      m_nBufPos = nKeep;
+    }
+
+    try
+    {
+      int nRead;
+      do
+      {
+        final int nMax = m_aBuf.length - m_nBufLen;
+        nRead = m_aIS != null ? _readUTF8 (m_aBuf, m_nBufLen, nMax) : m_aReader.read (m_aBuf, m_nBufLen, nMax);
+      } while (nRead == 0);
+
+      if (nRead < 0)
+      {
+        m_bEOI = true;
+        return false;
       }
-      return c;
+      m_nBufLen += nRead;
+      return true;
     }
     catch (final IOException ex)
     {
-      return EOI;
+      m_bEOI = true;
+      return false;
     }
   }
 
   /**
-   * Backup the provided char if it is not end of input
+   * Must return int to differentiate between the whole char range (0-0xffff)
+   * and EOF (-1).
+   *
+   * @return the char read or {@link #EOI} (=-1) in case of EOF
+   */
+  private int _readChar ()
+  {
+    final int c = m_nBufPos < m_nBufLen || _fillBuffer () ? m_aBuf[m_nBufPos++] : EOI;
+
+    if (m_bTrackPosition)
+    {
+      if (m_nBackupChars > 0)
+      {
+        // If previously a char was backed up, don't increase the position!
+        m_nBackupChars--;
+      }
+      else
+        m_aPos.updatePosition (c, m_nTabSize);
+    }
+    return c;
+  }
+
+  /**
+   * Backup the provided char if it is not end of input. The char must be the
+   * last one read.
    *
    * @param c
-   * @throws JsonParseException
+   *        The char to unread
    */
-  private void _backupChar (final int c) throws JsonParseException
+  private void _backupChar (final int c)
   {
     if (c != EOI)
-      try
-      {
-        m_aReader.unread (c);
+    {
+      m_nBufPos--;
+      if (m_bTrackPosition)
         m_nBackupChars++;
-      }
-      catch (final IOException ex)
-      {
-        throw new IllegalStateException ("Failed to unread character " + _getPrintableChar (c));
-      }
+    }
   }
 
   @Nonnull
@@ -239,6 +438,16 @@ public class JsonParser
     return "'" + (char) c + "'";
   }
 
+  /**
+   * @return The position to be used as the token start in exceptions. A copy
+   *         is only created if the position is tracked.
+   */
+  @Nonnull
+  private IJsonParsePosition _getStartPos ()
+  {
+    return m_bTrackPosition ? m_aPos.getClone () : m_aPos;
+  }
+
   @Nonnull
   private JsonParseException _parseEx (@Nonnull final IJsonParsePosition aTokenStart, @Nonnull final String sMsg)
   {
@@ -250,8 +459,9 @@ public class JsonParser
 
   private void _readComment () throws JsonParseException
   {
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
-    final JsonStringBuilder aStrComment = new JsonStringBuilder (1024);
+    final IJsonParsePosition aStartPos = _getStartPos ();
+    final JsonStringBuilder aStrComment = m_aStrComment;
+    aStrComment.reset ();
 
     while (true)
     {
@@ -263,7 +473,8 @@ public class JsonParser
         if (c2 == '/')
         {
           // End of comment!
-          m_aCallback.onComment (aStrComment.getAsString ());
+          if (m_bOriginalContent)
+            m_aCallback.onComment (aStrComment.getAsString ());
           return;
         }
         if (c2 == EOI)
@@ -276,13 +487,16 @@ public class JsonParser
       if (c1 == EOI)
         throw _parseEx (aStartPos, "Unclosed JSON comment at end of input");
 
-      aStrComment.append ((char) c1);
+      if (m_bOriginalContent)
+        aStrComment.append ((char) c1);
     }
   }
 
   private void _skipSpaces () throws JsonParseException
   {
-    final JsonStringBuilder aStrSpaces = new JsonStringBuilder ();
+    final boolean bReport = m_bOriginalContent;
+    final JsonStringBuilder aStrSpaces = m_aStrSpaces;
+    aStrSpaces.reset ();
 
     while (true)
     {
@@ -294,7 +508,7 @@ public class JsonParser
         final int c2 = _readChar ();
         if (c2 == '*')
         {
-          if (aStrSpaces.hasContent ())
+          if (bReport && aStrSpaces.hasContent ())
           {
             // Notify on previous whitespaces
             m_aCallback.onWhitespace (aStrSpaces.getAsString ());
@@ -314,7 +528,7 @@ public class JsonParser
       if (c != ' ' && c != '\t' && c != '\r' && c != '\n' && c != '\f')
       {
         // End of whitespaces reached
-        if (aStrSpaces.hasContent ())
+        if (bReport && aStrSpaces.hasContent ())
           m_aCallback.onWhitespace (aStrSpaces.getAsString ());
 
         // backup c - if previously c2 was backed up this is where we need 2
@@ -324,7 +538,8 @@ public class JsonParser
       }
 
       // It's a whitespace character
-      aStrSpaces.append ((char) c);
+      if (bReport)
+        aStrSpaces.append ((char) c);
     }
   }
 
@@ -343,50 +558,59 @@ public class JsonParser
     return ret;
   }
 
-  private void _readStringEscapeChar (@Nonnull final IJsonParsePosition aStartPos,
-                                      @Nonnull final JsonStringBuilder aStrStringOriginalContent,
-                                      @Nonnull final JsonStringBuilder aStrStringUnescapedContent) throws JsonParseException
+  private void _readStringEscapeChar (@Nonnull final IJsonParsePosition aStartPos) throws JsonParseException
   {
+    final JsonStringBuilder aStrStringUnescapedContent = m_aStrUnescaped;
     final int c2 = _readChar ();
-    aStrStringOriginalContent.append ((char) c2);
-    if (c2 == '"' || c2 == '/' || c2 == '\\')
-      aStrStringUnescapedContent.append ((char) c2);
-    else
-      if (c2 == 'b')
+    if (m_bOriginalContent)
+      m_aStrOriginal.append ((char) c2);
+    switch (c2)
+    {
+      case '"':
+      case '/':
+      case '\\':
+        aStrStringUnescapedContent.append ((char) c2);
+        break;
+      case 'b':
         aStrStringUnescapedContent.append ('\b');
-      else
-        if (c2 == 'f')
-          aStrStringUnescapedContent.append ('\f');
-        else
-          if (c2 == 'n')
-            aStrStringUnescapedContent.append ('\n');
-          else
-            if (c2 == 'r')
-              aStrStringUnescapedContent.append ('\r');
-            else
-              if (c2 == 't')
-                aStrStringUnescapedContent.append ('\t');
-              else
-                if (c2 == 'u')
-                {
-                  final int ch0 = _readChar ();
-                  final int n0 = _getHexValue (aStartPos, ch0);
-                  final int ch1 = _readChar ();
-                  final int n1 = _getHexValue (aStartPos, ch1);
-                  final int ch2 = _readChar ();
-                  final int n2 = _getHexValue (aStartPos, ch2);
-                  final int ch3 = _readChar ();
-                  final int n3 = _getHexValue (aStartPos, ch3);
-                  aStrStringOriginalContent.append ((char) ch0);
-                  aStrStringOriginalContent.append ((char) ch1);
-                  aStrStringOriginalContent.append ((char) ch2);
-                  aStrStringOriginalContent.append ((char) ch3);
-
-                  final int nUnescapedChar = (n0 & 0xff) << 12 | (n1 & 0xff) << 8 | (n2 & 0xff) << 4 | (n3 & 0xff);
-                  aStrStringUnescapedContent.append ((char) nUnescapedChar);
-                }
-                else
-                  throw _parseEx (aStartPos, "Invalid JSON String escape character " + _getPrintableChar (c2));
+        break;
+      case 'f':
+        aStrStringUnescapedContent.append ('\f');
+        break;
+      case 'n':
+        aStrStringUnescapedContent.append ('\n');
+        break;
+      case 'r':
+        aStrStringUnescapedContent.append ('\r');
+        break;
+      case 't':
+        aStrStringUnescapedContent.append ('\t');
+        break;
+      case 'u':
+      {
+        final int ch0 = _readChar ();
+        final int n0 = _getHexValue (aStartPos, ch0);
+        final int ch1 = _readChar ();
+        final int n1 = _getHexValue (aStartPos, ch1);
+        final int ch2 = _readChar ();
+        final int n2 = _getHexValue (aStartPos, ch2);
+        final int ch3 = _readChar ();
+        final int n3 = _getHexValue (aStartPos, ch3);
+        if (m_bOriginalContent)
+        {
+          m_aStrOriginal.append ((char) ch0);
+          m_aStrOriginal.append ((char) ch1);
+          m_aStrOriginal.append ((char) ch2);
+          m_aStrOriginal.append ((char) ch3);
+        }
+
+        final int nUnescapedChar = (n0 & 0xff) << 12 | (n1 & 0xff) << 8 | (n2 & 0xff) << 4 | (n3 & 0xff);
+        aStrStringUnescapedContent.append ((char) nUnescapedChar);
+        break;
+      }
+      default:
+        throw _parseEx (aStartPos, "Invalid JSON String escape character " + _getPrintableChar (c2));
+    }
   }
 
   private static boolean _isUnquotedStringValidChar (final int c)
@@ -394,42 +618,30 @@ public class JsonParser
     return (c >= 0x21 && c <= 0x7a) && c != ':';
   }
 
-  private static final class TwoStrings
-  {
-    private final String m_sOriginal;
-    private final String m_sUnescaped;
-
-    private TwoStrings (@Nonnull final String sOriginal, @Nonnull final String sUnescaped)
-    {
-      m_sOriginal = sOriginal;
-      m_sUnescaped = sUnescaped;
-    }
-  }
-
   /**
-   * @param EStringQuoteMode
+   * Read a string. Afterwards the unescaped string without leading and
+   * trailing quotes is contained in {@link #m_aStrUnescaped}. If the handler
+   * requires the original content, the original read string including the
+   * quotes is contained in {@link #m_aStrOriginal}.
+   *
+   * @param eQuoteMode
    *        The quoting mode used. May not be <code>null</code>.
-   * @return A pair where the first string is the original read string whereas
-   *         the second part is the unescaped read string without leading and
-   *         trailing quotes
    * @throws JsonParseException
    */
-  @Nonnull
-  private TwoStrings _readString (@Nonnull final EStringQuoteMode eQuoteMode) throws JsonParseException
+  private void _readString (@Nonnull final EStringQuoteMode eQuoteMode) throws JsonParseException
   {
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
-    final JsonStringBuilder aStrStringOriginalContent = new JsonStringBuilder (256);
-    final JsonStringBuilder aStrStringUnescapedContent = new JsonStringBuilder (256);
+    final IJsonParsePosition aStartPos = _getStartPos ();
+    final boolean bOriginal = m_bOriginalContent;
+    final JsonStringBuilder aStrStringOriginalContent = m_aStrOriginal;
+    final JsonStringBuilder aStrStringUnescapedContent = m_aStrUnescaped;
+    aStrStringOriginalContent.reset ();
+    aStrStringUnescapedContent.reset ();
 
     final int cQuoteChar = eQuoteMode.getQuoteChar ();
 
     final int cStart = _readChar ();
     final boolean bStringIsQuoted = cStart == cQuoteChar;
-    if (bStringIsQuoted)
-    {
-      aStrStringOriginalContent.append ((char) cQuoteChar);
-    }
-    else
+    if (!bStringIsQuoted)
     {
       if (m_bRequireStringQuotes)
         throw _parseEx (aStartPos,
@@ -439,20 +651,49 @@ public class JsonParser
                                    _getPrintableChar (cQuoteChar));
 
       _backupChar (cStart);
-      aStrStringOriginalContent.append ((char) cQuoteChar);
     }
+    if (bOriginal)
+      aStrStringOriginalContent.append ((char) cQuoteChar);
 
     outer: while (true)
     {
+      if (bStringIsQuoted && m_nBackupChars == 0)
+      {
+        // Fast path: take all regular characters from the buffer at once
+        final char [] aBuf = m_aBuf;
+        final int nStart = m_nBufPos;
+        final int nEnd = m_nBufLen;
+        int nPos = nStart;
+        while (nPos < nEnd)
+        {
+          final char c = aBuf[nPos];
+          if (c == cQuoteChar || c == '\\' || (c >= '\b' && c <= '\r' && c != 0x0b))
+            break;
+          nPos++;
+        }
+        final int nCount = nPos - nStart;
+        if (nCount > 0)
+        {
+          aStrStringUnescapedContent.append (aBuf, nStart, nCount);
+          if (bOriginal)
+            aStrStringOriginalContent.append (aBuf, nStart, nCount);
+          if (m_bTrackPosition)
+            for (int i = nStart; i < nPos; ++i)
+              m_aPos.updatePosition (aBuf[i], m_nTabSize);
+          m_nBufPos = nPos;
+        }
+      }
+
       final int c = _readChar ();
-      aStrStringOriginalContent.append ((char) c);
+      if (bOriginal)
+        aStrStringOriginalContent.append ((char) c);
 
       switch (c)
       {
         case '\\':
         {
           // Escape char
-          _readStringEscapeChar (aStartPos, aStrStringOriginalContent, aStrStringUnescapedContent);
+          _readStringEscapeChar (aStartPos);
           break;
         }
         case EOI:
@@ -483,13 +724,15 @@ public class JsonParser
 
               // Remove from original content
               _backupChar (c);
-              aStrStringOriginalContent.backup (1);
+              if (bOriginal)
+                aStrStringOriginalContent.backup (1);
 
               if (aStrStringUnescapedContent.getLength () == 0)
                 throw _parseEx (aStartPos, "Empty unquoted JSON String encountered");
 
               // Since it is present on open, it must also be present on close
-              aStrStringOriginalContent.append ((char) cQuoteChar);
+              if (bOriginal)
+                aStrStringOriginalContent.append ((char) cQuoteChar);
               break outer;
             }
           }
@@ -499,8 +742,18 @@ public class JsonParser
           break;
       }
     }
+  }
 
-    return new TwoStrings (aStrStringOriginalContent.getAsString (), aStrStringUnescapedContent.getAsString ());
+  /**
+   * @param sUnescaped
+   *        The unescaped string read last.
+   * @return The original string read last or the unescaped string if the
+   *         handler does not require the original content.
+   */
+  @Nonnull
+  private String _getOriginalString (@Nonnull final String sUnescaped)
+  {
+    return m_bOriginalContent ? m_aStrOriginal.getAsString () : sUnescaped;
   }
 
   @Nonnull
@@ -581,44 +834,72 @@ public class JsonParser
     return Long.valueOf (r);
   }
 
+  /**
+   * Convert the characters of a syntactically valid JSON number to the best
+   * matching {@link Number} implementation.
+   *
+   * @param aNumChars
+   *        The number characters. May not be <code>null</code>.
+   * @param bIsDecimal
+   *        <code>true</code> if a decimal point is present
+   * @param bHasExponent
+   *        <code>true</code> if an exponent is present
+   * @param bHasPositiveExponent
+   *        <code>true</code> if the exponent is positive
+   * @param bAlwaysUseBigNumber
+   *        <code>true</code> to always create BigInteger or BigDecimal
+   * @return The number and never <code>null</code>.
+   * @throws NumberFormatException
+   *         In case of an internal inconsistency
+   */
   @Nonnull
-  private Number _parseNumber (@Nonnull final IJsonParsePosition aStartPos,
-                               final boolean bIsDecimal,
-                               final boolean bHasExponent,
-                               final boolean bHasPositiveExponent,
-                               @Nonnull final JsonStringBuilder aNumChars) throws JsonParseException
+  static Number getAsNumber (@Nonnull final JsonStringBuilder aNumChars,
+                             final boolean bIsDecimal,
+                             final boolean bHasExponent,
+                             final boolean bHasPositiveExponent,
+                             final boolean bAlwaysUseBigNumber)
   {
-    try
-    {
-      final int nCharCount = aNumChars.getLength ();
+    final int nCharCount = aNumChars.getLength ();
 
-      if (bIsDecimal)
-      {
-        // Decimal number
-        if (nCharCount > 18 || m_bAlwaysUseBigNumber)
-          return aNumChars.getAsBigDecimal ();
+    if (bIsDecimal)
+    {
+      // Decimal number
+      if (nCharCount > 18 || bAlwaysUseBigNumber)
+        return aNumChars.getAsBigDecimal ();
 
-        return aNumChars.getAsDouble ();
-      }
+      return aNumChars.getAsDouble ();
+    }
 
-      if (bHasExponent)
+    if (bHasExponent)
+    {
+      // Integer number
+      if (bHasPositiveExponent)
       {
-        // Integer number
-        if (bHasPositiveExponent)
-        {
-          // Required for correct "e" handling
-          return aNumChars.getAsBigDecimal ().toBigIntegerExact ();
-        }
-
         // Required for correct "e" handling
-        return aNumChars.getAsBigDecimal ();
+        return aNumChars.getAsBigDecimal ().toBigIntegerExact ();
       }
 
-      // No exponent present
-      if (m_bAlwaysUseBigNumber)
-        return aNumChars.getAsBigInteger ();
+      // Required for correct "e" handling
+      return aNumChars.getAsBigDecimal ();
+    }
+
+    // No exponent present
+    if (bAlwaysUseBigNumber)
+      return aNumChars.getAsBigInteger ();
 
-      return _parseNumberInt (aNumChars);
+    return _parseNumberInt (aNumChars);
+  }
+
+  @Nonnull
+  private Number _parseNumber (@Nonnull final IJsonParsePosition aStartPos,
+                               final boolean bIsDecimal,
+                               final boolean bHasExponent,
+                               final boolean bHasPositiveExponent,
+                               @Nonnull final JsonStringBuilder aNumChars) throws JsonParseException
+  {
+    try
+    {
+      return getAsNumber (aNumChars, bIsDecimal, bHasExponent, bHasPositiveExponent, m_bAlwaysUseBigNumber);
     }
     catch (final NumberFormatException ex)
     {
@@ -630,9 +911,10 @@ public class JsonParser
 
   private void _readNumber () throws JsonParseException
   {
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
+    final IJsonParsePosition aStartPos = _getStartPos ();
 
-    final JsonStringBuilder aStrNumber = new JsonStringBuilder (32);
+    final JsonStringBuilder aStrNumber = m_aStrNumber;
+    aStrNumber.reset ();
     int c = _readChar ();
     if (c == '-')
     {
@@ -720,10 +1002,12 @@ public class JsonParser
 
   private void _expect (@Nonnull final String sKeyword) throws JsonParseException
   {
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
+    final IJsonParsePosition aStartPos = _getStartPos ();
 
-    for (final char cExpected : sKeyword.toCharArray ())
+    final int nLen = sKeyword.length ();
+    for (int i = 0; i < nLen; ++i)
     {
+      final char cExpected = sKeyword.charAt (i);
       final int c = _readChar ();
       if (c != cExpected)
         throw _parseEx (aStartPos,
@@ -739,7 +1023,7 @@ public class JsonParser
 
   private void _readArray () throws JsonParseException
   {
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
+    final IJsonParsePosition aStartPos = _getStartPos ();
 
     m_aCallback.onArrayStart ();
     int nIndex = 0;
@@ -777,7 +1061,7 @@ public class JsonParser
 
   private void _readObject () throws JsonParseException
   {
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
+    final IJsonParsePosition aStartPos = _getStartPos ();
 
     m_aCallback.onObjectStart ();
     int nIndex = 0;
@@ -796,8 +1080,9 @@ public class JsonParser
       final EStringQuoteMode eQuoteMode = EStringQuoteMode.getFromCharOrDefault (c);
       _backupChar (c);
 
-      final TwoStrings aName = _readString (eQuoteMode);
-      m_aCallback.onObjectName (aName.m_sOriginal, aName.m_sUnescaped);
+      _readString (eQuoteMode);
+      final String sName = m_aStrUnescaped.getAsString ();
+      m_aCallback.onObjectName (_getOriginalString (sName), sName);
 
       _skipSpaces ();
 
@@ -830,7 +1115,7 @@ public class JsonParser
   {
     _skipSpaces ();
 
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
+    final IJsonParsePosition aStartPos = _getStartPos ();
 
     final int cFirst = _readChar ();
     switch (cFirst)
@@ -838,15 +1123,17 @@ public class JsonParser
       case '\'':
       {
         _backupChar (cFirst);
-        final TwoStrings aString = _readString (EStringQuoteMode.SINGLE);
-        m_aCallback.onString (aString.m_sOriginal, aString.m_sUnescaped);
+        _readString (EStringQuoteMode.SINGLE);
+        final String sUnescaped = m_aStrUnescaped.getAsString ();
+        m_aCallback.onString (_getOriginalString (sUnescaped), sUnescaped);
         break;
       }
       case '"':
       {
         _backupChar (cFirst);
-        final TwoStrings aString = _readString (EStringQuoteMode.DOUBLE);
-        m_aCallback.onString (aString.m_sOriginal, aString.m_sUnescaped);
+        _readString (EStringQuoteMode.DOUBLE);
+        final String sUnescaped = m_aStrUnescaped.getAsString ();
+        m_aCallback.onString (_getOriginalString (sUnescaped), sUnescaped);
         break;
       }
       case '-':
@@ -902,7 +1189,7 @@ public class JsonParser
     // Check for trailing whitespaces
     _skipSpaces ();
 
-    final IJsonParsePosition aStartPos = m_aPos.getClone ();
+    final IJsonParsePosition aStartPos = _getStartPos ();
 
     // Check for expected end of input
     final int c = _readChar ();
@@ -70,6 +70,27 @@ public class JsonStringBuilder implements Serializable
     m_aBuf[m_nLen++] = c;
   }
 
+  /**
+   * Append multiple chars at once.
+   *
+   * @param aChars
+   *        The source array. May not be <code>null</code>.
+   * @param nOfs
+   *        Offset into the source array. Must be &ge; 0.
+   * @param nLen
+   *        Number of chars to append. Must be &ge; 0.
+   * @since 9.1.0
+   */
+  public void append (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
+  {
+    m_sCache = null;
+    final int nNewLen = m_nLen + nLen;
+    if (nNewLen > m_aBuf.length)
+      _expandCapacity (nNewLen);
+    System.arraycopy (aChars, nOfs, m_aBuf, m_nLen, nLen);
+    m_nLen = nNewLen;
+  }
+
   public boolean hasContent ()
   {
     return m_nLen > 0;
@@ -90,11 +111,13 @@ public class JsonStringBuilder implements Serializable
 
   public void reset ()
   {
+    m_sCache = null;
     m_nLen = 0;
   }
 
   public void backup (final int n)
   {
+    m_sCache = null;
     m_nLen -= n;
   }
 
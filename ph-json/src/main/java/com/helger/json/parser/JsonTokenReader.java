@@ -0,0 +1,963 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.util.Arrays;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillNotClose;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.NonBlockingStack;
+import com.helger.commons.string.StringHelper;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.CJson;
+import com.helger.json.IJson;
+import com.helger.json.IJsonCollection;
+import com.helger.json.IJsonValue;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonObject;
+import com.helger.json.JsonValue;
+
+/**
+ * A pull based JSON reader. In contrast to {@link JsonParser}, which pushes
+ * all elements to a handler until the end of the input is reached, the caller
+ * of this class requests each token via {@link #nextToken()} and decides what
+ * to do with it. Complete sub trees can be skipped with
+ * {@link #skipChildren()} without creating any strings or can be materialized
+ * with {@link #readValueAsTree()}.<br>
+ * The syntax accepted is the same as for {@link JsonParser}. Comments are
+ * skipped.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class JsonTokenReader
+{
+  /** The end of input special value */
+  public static final int EOI = JsonParser.EOI;
+  /** The default size of the internal character buffer */
+  public static final int DEFAULT_BUFFER_SIZE = 4096;
+
+  private static final byte CTX_ARRAY = 1;
+  private static final byte CTX_OBJECT = 2;
+
+  private static enum EState
+  {
+    ROOT,
+    FIRST_IN_ARRAY,
+    FIRST_IN_OBJECT,
+    AFTER_NAME,
+    AFTER_VALUE,
+    END;
+  }
+
+  // Constructor parameters
+  private final Reader m_aReader;
+
+  // Settings
+  private boolean m_bAlwaysUseBigNumber = false;
+  private boolean m_bRequireStringQuotes = true;
+  private boolean m_bAllowSpecialCharsInStrings = false;
+
+  // Input buffer
+  private final char [] m_aBuf;
+  private int m_nBufPos = 0;
+  private int m_nBufLen = 0;
+  private boolean m_bEOI = false;
+
+  // Structure stack
+  private byte [] m_aCtx = new byte [16];
+  private String [] m_aNames = new String [16];
+  private int [] m_aIndex = new int [16];
+  private int m_nDepth = 0;
+
+  // Current token
+  private EState m_eState = EState.ROOT;
+  private EJsonToken m_eToken;
+  private int m_nTokenParent = -1;
+  private boolean m_bSkipNames = false;
+  private final JsonStringBuilder m_aStrBuf = new JsonStringBuilder (256);
+  private String m_sText;
+  private final JsonStringBuilder m_aNumBuf = new JsonStringBuilder (32);
+  private boolean m_bNumDecimal;
+  private boolean m_bNumExponent;
+  private boolean m_bNumPositiveExponent;
+  private Number m_aNumber;
+
+  public JsonTokenReader (@Nonnull @WillNotClose final Reader aReader)
+  {
+    this (aReader, DEFAULT_BUFFER_SIZE);
+  }
+
+  public JsonTokenReader (@Nonnull @WillNotClose final Reader aReader, @Nonnegative final int nBufferSize)
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    ValueEnforcer.isGT0 (nBufferSize, "BufferSize");
+    m_aReader = aReader;
+    // At least 2 chars are needed to detect comments
+    m_aBuf = new char [Math.max (nBufferSize, 2)];
+  }
+
+  public boolean isAlwaysUseBigNumber ()
+  {
+    return m_bAlwaysUseBigNumber;
+  }
+
+  @Nonnull
+  public JsonTokenReader setAlwaysUseBigNumber (final boolean bAlwaysUseBigNumber)
+  {
+    m_bAlwaysUseBigNumber = bAlwaysUseBigNumber;
+    return this;
+  }
+
+  public boolean isRequireStringQuotes ()
+  {
+    return m_bRequireStringQuotes;
+  }
+
+  @Nonnull
+  public JsonTokenReader setRequireStringQuotes (final boolean bRequireStringQuotes)
+  {
+    m_bRequireStringQuotes = bRequireStringQuotes;
+    return this;
+  }
+
+  public boolean isAllowSpecialCharsInStrings ()
+  {
+    return m_bAllowSpecialCharsInStrings;
+  }
+
+  @Nonnull
+  public JsonTokenReader setAllowSpecialCharsInStrings (final boolean bAllowSpecialCharsInStrings)
+  {
+    m_bAllowSpecialCharsInStrings = bAllowSpecialCharsInStrings;
+    return this;
+  }
+
+  /**
+   * Ensure that at least the provided number of characters is available in the
+   * buffer. As in {@link JsonParser} read errors are treated like the end of
+   * input.
+   *
+   * @param nCount
+   *        Number of characters required.
+   * @return <code>true</code> if enough characters are available,
+   *         <code>false</code> if the end of input was reached before.
+   */
+  private boolean _ensure (final int nCount)
+  {
+    while (m_nBufLen - m_nBufPos < nCount)
+    {
+      if (m_bEOI)
+        return false;
+
+      if (m_nBufPos > 0)
+      {
+        // Compact buffer
+        m_nBufLen -= m_nBufPos;
+        System.arraycopy (m_aBuf, m_nBufPos, m_aBuf, 0, m_nBufLen);
+        m_nBufPos = 0;
+      }
+
+      try
+      {
+        final int nRead = m_aReader.read (m_aBuf, m_nBufLen, m_aBuf.length - m_nBufLen);
+        if (nRead < 0)
+          m_bEOI = true;
+        else
+          m_nBufLen += nRead;
+      }
+      catch (final IOException ex)
+      {
+        m_bEOI = true;
+      }
+    }
+    return true;
+  }
+
+  private int _peek ()
+  {
+    return _ensure (1) ? m_aBuf[m_nBufPos] : EOI;
+  }
+
+  private int _peek2 ()
+  {
+    return _ensure (2) ? m_aBuf[m_nBufPos + 1] : EOI;
+  }
+
+  private int _read ()
+  {
+    final int c = _peek ();
+    if (c != EOI)
+      m_nBufPos++;
+    return c;
+  }
+
+  @Nonnull
+  private static String _getPrintableChar (final int c)
+  {
+    if (c == EOI)
+      return "<EOI>";
+    if (c <= 32)
+      return "0x" + StringHelper.getHexStringLeadingZero (c, 2);
+    if (c >= 127)
+      return "0x" + StringHelper.getHexStringLeadingZero (c, 4);
+    return "'" + (char) c + "'";
+  }
+
+  private void _skipComment () throws JsonParseException
+  {
+    while (true)
+    {
+      final int c = _read ();
+      if (c == EOI)
+        throw new JsonParseException ("Unclosed JSON comment at end of input");
+      if (c == '*' && _peek () == '/')
+      {
+        m_nBufPos++;
+        return;
+      }
+    }
+  }
+
+  private void _skipSpaces () throws JsonParseException
+  {
+    while (true)
+    {
+      final int c = _peek ();
+      if (c == ' ' || c == '\t' || c == '\r' || c == '\n' || c == '\f')
+        m_nBufPos++;
+      else
+        if (c == '/' && _peek2 () == '*')
+        {
+          m_nBufPos += 2;
+          _skipComment ();
+        }
+        else
+          return;
+    }
+  }
+
+  private void _readStringEscapeChar () throws JsonParseException
+  {
+    final int c = _read ();
+    switch (c)
+    {
+      case '"':
+      case '/':
+      case '\\':
+        m_aStrBuf.append ((char) c);
+        break;
+      case 'b':
+        m_aStrBuf.append ('\b');
+        break;
+      case 'f':
+        m_aStrBuf.append ('\f');
+        break;
+      case 'n':
+        m_aStrBuf.append ('\n');
+        break;
+      case 'r':
+        m_aStrBuf.append ('\r');
+        break;
+      case 't':
+        m_aStrBuf.append ('\t');
+        break;
+      case 'u':
+      {
+        int nUnescapedChar = 0;
+        for (int i = 0; i < 4; ++i)
+        {
+          final int cHex = _read ();
+          final int nHex = StringHelper.getHexValue ((char) cHex);
+          if (cHex == EOI || nHex == -1)
+            throw new JsonParseException ("Invalid hex character " + _getPrintableChar (cHex) + " provided!");
+          nUnescapedChar = (nUnescapedChar << 4) | nHex;
+        }
+        m_aStrBuf.append ((char) nUnescapedChar);
+        break;
+      }
+      default:
+        throw new JsonParseException ("Invalid JSON String escape character " + _getPrintableChar (c));
+    }
+  }
+
+  private static boolean _isUnquotedStringValidChar (final int c)
+  {
+    return (c >= 0x21 && c <= 0x7a) && c != ':';
+  }
+
+  /**
+   * Read a string into {@link #m_aStrBuf}.
+   *
+   * @param bIsName
+   *        <code>true</code> if an object member name is read. Only names may
+   *        be unquoted.
+   */
+  private void _readString (final boolean bIsName) throws JsonParseException
+  {
+    m_aStrBuf.reset ();
+
+    final int cQuote = _peek ();
+    final boolean bQuoted = cQuote == '"' || cQuote == '\'';
+    if (bQuoted)
+      m_nBufPos++;
+    else
+      if (!bIsName || m_bRequireStringQuotes)
+        throw new JsonParseException ("Invalid JSON String start character " +
+                                      _getPrintableChar (cQuote) +
+                                      " - expected " +
+                                      _getPrintableChar ('"'));
+
+    while (true)
+    {
+      final int c = _peek ();
+      if (!bQuoted && c != '\\' && !_isUnquotedStringValidChar (c))
+      {
+        // End of unquoted string
+        if (m_aStrBuf.getLength () == 0)
+          throw new JsonParseException ("Empty unquoted JSON String encountered");
+        return;
+      }
+
+      switch (c)
+      {
+        case '\\':
+          m_nBufPos++;
+          _readStringEscapeChar ();
+          break;
+        case EOI:
+          throw new JsonParseException ("Unclosed JSON String at end of input");
+        case '\b':
+        case '\f':
+        case '\n':
+        case '\r':
+        case '\t':
+          if (!m_bAllowSpecialCharsInStrings)
+            throw new JsonParseException ("Invalid JSON String character " + _getPrintableChar (c));
+          // else fall-though!
+        default:
+          m_nBufPos++;
+          if (bQuoted && c == cQuote)
+          {
+            // End of quoted string
+            return;
+          }
+          m_aStrBuf.append ((char) c);
+          break;
+      }
+    }
+  }
+
+  private int _readDigits (final int cFirst)
+  {
+    int c = cFirst;
+    while (c >= '0' && c <= '9')
+    {
+      m_aNumBuf.append ((char) c);
+      m_nBufPos++;
+      c = _peek ();
+    }
+    return c;
+  }
+
+  private void _readNumber () throws JsonParseException
+  {
+    m_aNumBuf.reset ();
+
+    int c = _peek ();
+    if (c == '-')
+    {
+      // Note: leading plus is not allowed
+      m_aNumBuf.append ((char) c);
+      m_nBufPos++;
+      c = _peek ();
+    }
+
+    if (c == '0')
+    {
+      // No additional numbers allowed
+      m_aNumBuf.append ((char) c);
+      m_nBufPos++;
+      c = _peek ();
+    }
+    else
+      if (c >= '1' && c <= '9')
+        c = _readDigits (c);
+      else
+        throw new JsonParseException ("Invalid JSON Number start character " + _getPrintableChar (c));
+
+    m_bNumDecimal = c == '.';
+    if (m_bNumDecimal)
+    {
+      m_aNumBuf.append ((char) c);
+      m_nBufPos++;
+      final int nLen = m_aNumBuf.getLength ();
+      c = _readDigits (_peek ());
+      if (m_aNumBuf.getLength () == nLen)
+        throw new JsonParseException ("Missing digits after decimal point in JSON Number '" +
+                                      m_aNumBuf.getAsString () +
+                                      "'");
+    }
+
+    m_bNumExponent = c == 'e' || c == 'E';
+    m_bNumPositiveExponent = false;
+    if (m_bNumExponent)
+    {
+      m_aNumBuf.append ((char) c);
+      m_nBufPos++;
+      c = _peek ();
+
+      // Any char other than "-" means the exponent is positive
+      m_bNumPositiveExponent = c != '-';
+      if (c == '+' || c == '-')
+      {
+        m_aNumBuf.append ((char) c);
+        m_nBufPos++;
+        c = _peek ();
+      }
+
+      final int nLen = m_aNumBuf.getLength ();
+      _readDigits (c);
+      if (m_aNumBuf.getLength () == nLen)
+        throw new JsonParseException ("Missing digits after exponent sign in JSON Number '" +
+                                      m_aNumBuf.getAsString () +
+                                      "'");
+    }
+  }
+
+  private void _expect (@Nonnull final String sKeyword) throws JsonParseException
+  {
+    for (final char cExpected : sKeyword.toCharArray ())
+    {
+      final int c = _read ();
+      if (c != cExpected)
+        throw new JsonParseException ("Expected " +
+                                      _getPrintableChar (cExpected) +
+                                      " but got " +
+                                      _getPrintableChar (c) +
+                                      " as part of JSON keyword \"" +
+                                      sKeyword +
+                                      "\"");
+    }
+  }
+
+  private void _push (final byte nCtx)
+  {
+    if (m_nDepth == m_aCtx.length)
+    {
+      final int nNewLen = m_nDepth * 2;
+      m_aCtx = Arrays.copyOf (m_aCtx, nNewLen);
+      m_aNames = Arrays.copyOf (m_aNames, nNewLen);
+      m_aIndex = Arrays.copyOf (m_aIndex, nNewLen);
+    }
+    m_aCtx[m_nDepth] = nCtx;
+    m_aNames[m_nDepth] = null;
+    m_aIndex[m_nDepth] = -1;
+    m_nDepth++;
+  }
+
+  @Nonnull
+  private EJsonToken _setToken (@Nonnull final EJsonToken eToken, @Nonnull final EState eNextState)
+  {
+    m_eToken = eToken;
+    m_eState = eNextState;
+    return eToken;
+  }
+
+  @Nonnull
+  private EJsonToken _endStruct (@Nonnull final EJsonToken eToken)
+  {
+    m_nDepth--;
+    m_aNames[m_nDepth] = null;
+    m_nTokenParent = m_nDepth - 1;
+    return _setToken (eToken, EState.AFTER_VALUE);
+  }
+
+  @Nonnull
+  private EJsonToken _readName () throws JsonParseException
+  {
+    final int nLevel = m_nDepth - 1;
+    m_nTokenParent = nLevel;
+    _readString (true);
+    m_aNames[nLevel] = m_bSkipNames ? null : m_aStrBuf.getAsString ();
+    return _setToken (EJsonToken.FIELD_NAME, EState.AFTER_NAME);
+  }
+
+  @Nonnull
+  private EJsonToken _readValue () throws JsonParseException
+  {
+    m_nTokenParent = m_nDepth - 1;
+
+    final int c = _peek ();
+    switch (c)
+    {
+      case '"':
+      case '\'':
+        _readString (false);
+        return _setToken (EJsonToken.VALUE_STRING, EState.AFTER_VALUE);
+      case '-':
+      case '0':
+      case '1':
+      case '2':
+      case '3':
+      case '4':
+      case '5':
+      case '6':
+      case '7':
+      case '8':
+      case '9':
+        _readNumber ();
+        return _setToken (EJsonToken.VALUE_NUMBER, EState.AFTER_VALUE);
+      case 't':
+        _expect (CJson.KEYWORD_TRUE);
+        return _setToken (EJsonToken.VALUE_TRUE, EState.AFTER_VALUE);
+      case 'f':
+        _expect (CJson.KEYWORD_FALSE);
+        return _setToken (EJsonToken.VALUE_FALSE, EState.AFTER_VALUE);
+      case 'n':
+        _expect (CJson.KEYWORD_NULL);
+        return _setToken (EJsonToken.VALUE_NULL, EState.AFTER_VALUE);
+      case CJson.ARRAY_START:
+        m_nBufPos++;
+        _push (CTX_ARRAY);
+        return _setToken (EJsonToken.START_ARRAY, EState.FIRST_IN_ARRAY);
+      case CJson.OBJECT_START:
+        m_nBufPos++;
+        _push (CTX_OBJECT);
+        return _setToken (EJsonToken.START_OBJECT, EState.FIRST_IN_OBJECT);
+      default:
+        throw new JsonParseException ("Syntax error in JSON. Found " + _getPrintableChar (c));
+    }
+  }
+
+  /**
+   * Read the next token from the input.
+   *
+   * @return The next token or <code>null</code> if the end of the input was
+   *         reached after the root value.
+   * @throws JsonParseException
+   *         In case the input is not valid JSON.
+   */
+  @Nullable
+  public EJsonToken nextToken () throws JsonParseException
+  {
+    m_sText = null;
+    m_aNumber = null;
+
+    switch (m_eState)
+    {
+      case ROOT:
+        _skipSpaces ();
+        return _readValue ();
+      case FIRST_IN_ARRAY:
+        _skipSpaces ();
+        if (_peek () == CJson.ARRAY_END)
+        {
+          m_nBufPos++;
+          return _endStruct (EJsonToken.END_ARRAY);
+        }
+        m_aIndex[m_nDepth - 1] = 0;
+        return _readValue ();
+      case FIRST_IN_OBJECT:
+        _skipSpaces ();
+        if (_peek () == CJson.OBJECT_END)
+        {
+          m_nBufPos++;
+          return _endStruct (EJsonToken.END_OBJECT);
+        }
+        return _readName ();
+      case AFTER_NAME:
+      {
+        _skipSpaces ();
+        final int c = _read ();
+        if (c != CJson.NAME_VALUE_SEPARATOR)
+          throw new JsonParseException ("Expected colon character in JSON Object but found " + _getPrintableChar (c));
+        _skipSpaces ();
+        return _readValue ();
+      }
+      case AFTER_VALUE:
+      {
+        _skipSpaces ();
+        if (m_nDepth == 0)
+        {
+          // Check for expected end of input
+          final int c = _peek ();
+          if (c != EOI)
+            throw new JsonParseException ("Invalid character " + _getPrintableChar (c) + " after JSON root object");
+          m_nTokenParent = -1;
+          return _setToken (null, EState.END);
+        }
+
+        final int nLevel = m_nDepth - 1;
+        final int c = _read ();
+        if (m_aCtx[nLevel] == CTX_ARRAY)
+        {
+          if (c == CJson.ITEM_SEPARATOR)
+          {
+            _skipSpaces ();
+            if (_peek () == CJson.ARRAY_END)
+              throw new JsonParseException ("Expected another element in JSON Array");
+            m_aIndex[nLevel]++;
+            return _readValue ();
+          }
+          if (c == CJson.ARRAY_END)
+            return _endStruct (EJsonToken.END_ARRAY);
+          throw new JsonParseException ("Unexpected character " + _getPrintableChar (c) + " in JSON array");
+        }
+
+        if (c == CJson.ITEM_SEPARATOR)
+        {
+          _skipSpaces ();
+          if (_peek () == CJson.OBJECT_END)
+            throw new JsonParseException ("Expected another element in JSON Object");
+          return _readName ();
+        }
+        if (c == CJson.OBJECT_END)
+          return _endStruct (EJsonToken.END_OBJECT);
+        throw new JsonParseException ("Unexpected character " + _getPrintableChar (c) + " in JSON Object");
+      }
+      case END:
+        return null;
+      default:
+        throw new IllegalStateException ("Unsupported state " + m_eState);
+    }
+  }
+
+  /**
+   * @return The token that was last returned by {@link #nextToken()}. May be
+   *         <code>null</code> before the first token and after the end of
+   *         input.
+   */
+  @Nullable
+  public EJsonToken getCurrentToken ()
+  {
+    return m_eToken;
+  }
+
+  /**
+   * @return The number of currently open objects and arrays.
+   */
+  @Nonnegative
+  public int getDepth ()
+  {
+    return m_nDepth;
+  }
+
+  /**
+   * Get the name of the object member the current token belongs to. For
+   * {@link EJsonToken#FIELD_NAME} this is the name itself, for values and
+   * {@link EJsonToken#START_OBJECT}/{@link EJsonToken#START_ARRAY} it is the
+   * name of the member they are the value of.
+   *
+   * @return <code>null</code> if the current token is not part of an object.
+   */
+  @Nullable
+  public String getCurrentName ()
+  {
+    final int nParent = m_nTokenParent;
+    return nParent >= 0 && m_aCtx[nParent] == CTX_OBJECT ? m_aNames[nParent] : null;
+  }
+
+  /**
+   * @return The 0-based index of the current token in its parent array or -1
+   *         if the current token is not part of an array.
+   */
+  @CheckForSigned
+  public int getCurrentIndex ()
+  {
+    final int nParent = m_nTokenParent;
+    return nParent >= 0 && m_aCtx[nParent] == CTX_ARRAY ? m_aIndex[nParent] : -1;
+  }
+
+  /**
+   * @return The number of path elements leading to the current token. 0 for
+   *         the root value.
+   */
+  @Nonnegative
+  public int getPathLength ()
+  {
+    return m_nTokenParent + 1;
+  }
+
+  /**
+   * @param nLevel
+   *        The 0-based path level. Must be &lt; {@link #getPathLength()}.
+   * @return <code>true</code> if the path element is an object member,
+   *         <code>false</code> if it is an array index.
+   */
+  public boolean isPathName (@Nonnegative final int nLevel)
+  {
+    ValueEnforcer.isBetweenInclusive (nLevel, "Level", 0, m_nTokenParent);
+    return m_aCtx[nLevel] == CTX_OBJECT;
+  }
+
+  /**
+   * @param nLevel
+   *        The 0-based path level. Must be &lt; {@link #getPathLength()}.
+   * @return The object member name of the path element or <code>null</code>
+   *         if it is an array index.
+   */
+  @Nullable
+  public String getPathName (@Nonnegative final int nLevel)
+  {
+    ValueEnforcer.isBetweenInclusive (nLevel, "Level", 0, m_nTokenParent);
+    return m_aCtx[nLevel] == CTX_OBJECT ? m_aNames[nLevel] : null;
+  }
+
+  /**
+   * @param nLevel
+   *        The 0-based path level. Must be &lt; {@link #getPathLength()}.
+   * @return The array index of the path element or -1 if it is an object
+   *         member.
+   */
+  @CheckForSigned
+  public int getPathIndex (@Nonnegative final int nLevel)
+  {
+    ValueEnforcer.isBetweenInclusive (nLevel, "Level", 0, m_nTokenParent);
+    return m_aCtx[nLevel] == CTX_ARRAY ? m_aIndex[nLevel] : -1;
+  }
+
+  /**
+   * @return The path to the current token in the form
+   *         <code>$.name[3].other</code>. Never <code>null</code>.
+   */
+  @Nonnull
+  public String getCurrentPath ()
+  {
+    final StringBuilder aSB = new StringBuilder ("$");
+    for (int i = 0; i <= m_nTokenParent; ++i)
+      if (m_aCtx[i] == CTX_OBJECT)
+        aSB.append ('.').append (m_aNames[i]);
+      else
+        aSB.append ('[').append (m_aIndex[i]).append (']');
+    return aSB.toString ();
+  }
+
+  /**
+   * @return The textual representation of the current token. For strings
+   *         this is the unescaped value, for numbers the number as read. The
+   *         string is only created upon request. May be <code>null</code> if
+   *         no token is present.
+   */
+  @Nullable
+  public String getText ()
+  {
+    if (m_eToken == null)
+      return null;
+    switch (m_eToken)
+    {
+      case START_OBJECT:
+        return Character.toString (CJson.OBJECT_START);
+      case END_OBJECT:
+        return Character.toString (CJson.OBJECT_END);
+      case START_ARRAY:
+        return Character.toString (CJson.ARRAY_START);
+      case END_ARRAY:
+        return Character.toString (CJson.ARRAY_END);
+      case FIELD_NAME:
+        return getCurrentName ();
+      case VALUE_STRING:
+        if (m_sText == null)
+          m_sText = m_aStrBuf.getAsString ();
+        return m_sText;
+      case VALUE_NUMBER:
+        if (m_sText == null)
+          m_sText = m_aNumBuf.getAsString ();
+        return m_sText;
+      case VALUE_TRUE:
+        return CJson.KEYWORD_TRUE;
+      case VALUE_FALSE:
+        return CJson.KEYWORD_FALSE;
+      case VALUE_NULL:
+        return CJson.KEYWORD_NULL;
+      default:
+        throw new IllegalStateException ("Unsupported token " + m_eToken);
+    }
+  }
+
+  /**
+   * @return The number of the current {@link EJsonToken#VALUE_NUMBER} token.
+   *         The number is only created upon request. Never <code>null</code>.
+   * @throws JsonParseException
+   *         If the number cannot be converted
+   * @throws IllegalStateException
+   *         If the current token is not a number
+   */
+  @Nonnull
+  public Number getNumber () throws JsonParseException
+  {
+    if (m_eToken != EJsonToken.VALUE_NUMBER)
+      throw new IllegalStateException ("Current token is not a number but " + m_eToken);
+    if (m_aNumber == null)
+      try
+      {
+        m_aNumber = JsonParser.getAsNumber (m_aNumBuf,
+                                            m_bNumDecimal,
+                                            m_bNumExponent,
+                                            m_bNumPositiveExponent,
+                                            m_bAlwaysUseBigNumber);
+      }
+      catch (final NumberFormatException ex)
+      {
+        throw new JsonParseException ("Invalid JSON Number '" + m_aNumBuf.getAsString () + "'");
+      }
+    return m_aNumber;
+  }
+
+  /**
+   * @return The current scalar value token as an {@link IJsonValue}. Never
+   *         <code>null</code>.
+   * @throws JsonParseException
+   *         If the number cannot be converted
+   * @throws IllegalStateException
+   *         If the current token is not a scalar value
+   */
+  @Nonnull
+  public IJsonValue getValue () throws JsonParseException
+  {
+    if (m_eToken != null)
+      switch (m_eToken)
+      {
+        case VALUE_STRING:
+          return JsonValue.create (getText ());
+        case VALUE_NUMBER:
+          return JsonValue.create (getNumber ());
+        case VALUE_TRUE:
+          return JsonValue.TRUE;
+        case VALUE_FALSE:
+          return JsonValue.FALSE;
+        case VALUE_NULL:
+          return JsonValue.NULL;
+        default:
+          break;
+      }
+    throw new IllegalStateException ("Current token is not a scalar value but " + m_eToken);
+  }
+
+  /**
+   * If the current token is {@link EJsonToken#START_OBJECT} or
+   * {@link EJsonToken#START_ARRAY}, all tokens up to and including the
+   * matching end token are skipped. No strings or numbers are created for the
+   * skipped content. For all other tokens nothing happens.
+   *
+   * @return this for chaining
+   * @throws JsonParseException
+   *         In case the skipped input is not valid JSON.
+   */
+  @Nonnull
+  public JsonTokenReader skipChildren () throws JsonParseException
+  {
+    if (m_eToken != null && m_eToken.isStructStart ())
+    {
+      m_bSkipNames = true;
+      try
+      {
+        int nOpen = 1;
+        while (nOpen > 0)
+        {
+          final EJsonToken eToken = nextToken ();
+          if (eToken.isStructStart ())
+            nOpen++;
+          else
+            if (eToken.isStructEnd ())
+              nOpen--;
+        }
+      }
+      finally
+      {
+        m_bSkipNames = false;
+      }
+    }
+    return this;
+  }
+
+  /**
+   * Materialize the value starting at the current token. If the current token
+   * is {@link EJsonToken#FIELD_NAME} the next token is read first. After the
+   * call the current token is the last token of the value.
+   *
+   * @return The read value. Never <code>null</code>.
+   * @throws JsonParseException
+   *         In case the input is not valid JSON.
+   * @throws IllegalStateException
+   *         If the current token does not start a value
+   */
+  @Nonnull
+  public IJson readValueAsTree () throws JsonParseException
+  {
+    if (m_eToken == EJsonToken.FIELD_NAME)
+      nextToken ();
+    if (m_eToken == null || m_eToken.isStructEnd ())
+      throw new IllegalStateException ("Current token does not start a value but is " + m_eToken);
+    if (m_eToken.isScalarValue ())
+      return getValue ();
+
+    final IJsonCollection ret = m_eToken == EJsonToken.START_OBJECT ? new JsonObject () : new JsonArray ();
+    final NonBlockingStack <IJsonCollection> aStack = new NonBlockingStack <> ();
+    aStack.push (ret);
+    while (aStack.isNotEmpty ())
+    {
+      final EJsonToken eToken = nextToken ();
+      if (eToken == EJsonToken.FIELD_NAME)
+        continue;
+      if (eToken.isStructEnd ())
+      {
+        aStack.pop ();
+        continue;
+      }
+
+      final IJson aValue;
+      if (eToken == EJsonToken.START_OBJECT)
+        aValue = new JsonObject ();
+      else
+        if (eToken == EJsonToken.START_ARRAY)
+          aValue = new JsonArray ();
+        else
+          aValue = getValue ();
+
+      final IJsonCollection aParent = aStack.peek ();
+      if (aParent.isArray ())
+        aParent.getAsArray ().add (aValue);
+      else
+        aParent.getAsObject ().add (getCurrentName (), aValue);
+
+      if (eToken.isStructStart ())
+        aStack.push ((IJsonCollection) aValue);
+    }
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Token", m_eToken)
+                                       .append ("Path", getCurrentPath ())
+                                       .append ("AlwaysUseBigNumber", m_bAlwaysUseBigNumber)
+                                       .append ("RequireStringQuotes", m_bRequireStringQuotes)
+                                       .append ("AllowSpecialCharsInStrings", m_bAllowSpecialCharsInStrings)
+                                       .getToString ();
+  }
+}
@@ -23,7 +23,9 @@ import javax.annotation.concurrent.NotThreadSafe;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.collection.NonBlockingStack;
 import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
 import com.helger.json.IJsonCollection;
+import com.helger.json.IJsonObject;
 import com.helger.json.JsonArray;
 import com.helger.json.JsonObject;
 import com.helger.json.JsonValue;
@@ -79,6 +81,78 @@ public class CollectingJsonParserHandler implements IJsonParserHandler
     m_aStack.push (aValue);
   }
 
+  /**
+   * Create a new JSON value for a string.
+   *
+   * @param sUnescaped
+   *        The unescaped string. Never <code>null</code>.
+   * @return The JSON value to use. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  protected IJson createStringValue (@Nonnull final String sUnescaped)
+  {
+    return JsonValue.create (sUnescaped);
+  }
+
+  /**
+   * Create a new JSON value for a number.
+   *
+   * @param aNumber
+   *        The parsed number. Never <code>null</code>.
+   * @return The JSON value to use. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  protected IJson createNumberValue (@Nonnull final Number aNumber)
+  {
+    return JsonValue.create (aNumber);
+  }
+
+  /**
+   * @return A new empty JSON array. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  protected IJsonArray createArray ()
+  {
+    return new JsonArray ();
+  }
+
+  /**
+   * @return A new empty JSON object. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  protected IJsonObject createObject ()
+  {
+    return new JsonObject ();
+  }
+
+  /**
+   * Get the object name to be used as the key.
+   *
+   * @param sName
+   *        The unescaped object name. Never <code>null</code>.
+   * @return The name to use. May not be <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  protected String getObjectName (@Nonnull final String sName)
+  {
+    return sName;
+  }
+
+  /**
+   * Called after an array or an object was completely read.
+   *
+   * @param aCollection
+   *        The finished array or object. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  protected void onCollectionFinished (@Nonnull final IJsonCollection aCollection)
+  {}
+
   public void onWhitespace (@Nonnull @Nonempty final String sWhitespace)
   {}
 
@@ -87,12 +161,12 @@ public class CollectingJsonParserHandler implements IJsonParserHandler
 
   public void onString (@Nonnull final String sString, @Nonnull final String sUnescaped)
   {
-    _addSimple (JsonValue.create (sUnescaped));
+    _addSimple (createStringValue (sUnescaped));
   }
 
   public void onNumber (@Nonnull final String sNumber, @Nonnull final Number aNumber)
   {
-    _addSimple (JsonValue.create (aNumber));
+    _addSimple (createNumberValue (aNumber));
   }
 
   public void onFalse ()
@@ -112,7 +186,7 @@ public class CollectingJsonParserHandler implements IJsonParserHandler
 
   public void onArrayStart ()
   {
-    _addCollection (new JsonArray ());
+    _addCollection (createArray ());
   }
 
   public void onArrayNextElement ()
@@ -120,17 +194,17 @@ public class CollectingJsonParserHandler implements IJsonParserHandler
 
   public void onArrayEnd ()
   {
-    m_aStack.pop ();
+    onCollectionFinished (m_aStack.pop ());
   }
 
   public void onObjectStart ()
   {
-    _addCollection (new JsonObject ());
+    _addCollection (createObject ());
   }
 
   public void onObjectName (@Nonnull final String sString, @Nonnull final String sName)
   {
-    m_aObjectName.push (sName);
+    m_aObjectName.push (getObjectName (sName));
   }
 
   public void onObjectColon ()
@@ -141,7 +215,7 @@ public class CollectingJsonParserHandler implements IJsonParserHandler
 
   public void onObjectEnd ()
   {
-    m_aStack.pop ();
+    onCollectionFinished (m_aStack.pop ());
   }
 
   @Nullable
@@ -149,4 +223,11 @@ public class CollectingJsonParserHandler implements IJsonParserHandler
   {
     return m_aJson;
   }
+
+  @Override
+  public boolean isOriginalContentRequired ()
+  {
+    // Only the unescaped values are used
+    return false;
+  }
 }
@@ -0,0 +1,154 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser.handler;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.json.CompactJsonArray;
+import com.helger.json.CompactJsonObject;
+import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.IJsonCollection;
+import com.helger.json.IJsonObject;
+import com.helger.json.JsonDoubleValue;
+import com.helger.json.JsonLongValue;
+import com.helger.json.JsonValue;
+
+/**
+ * Special {@link CollectingJsonParserHandler} that creates a memory efficient
+ * JSON tree:
+ * <ul>
+ * <li>Objects are {@link CompactJsonObject} and arrays are
+ * {@link CompactJsonArray} instances, that are trimmed to their exact size
+ * after reading.</li>
+ * <li>All object names are interned per document, so that each distinct name
+ * is only present once in memory.</li>
+ * <li>Short string values are shared per document, so that e.g. repeated
+ * enumeration values result in a single immutable {@link JsonValue}.</li>
+ * <li>{@link Integer} and {@link Long} numbers are stored as
+ * {@link JsonLongValue} and {@link Double} numbers as {@link JsonDoubleValue}.
+ * Big numbers use {@link JsonValue}.</li>
+ * </ul>
+ * The resulting tree is fully interchangeable with the tree created by
+ * {@link CollectingJsonParserHandler}.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class CompactCollectingJsonParserHandler extends CollectingJsonParserHandler
+{
+  /** The default maximum length of string values to be shared */
+  public static final int DEFAULT_MAX_SHARED_STRING_LENGTH = 32;
+  /** The default maximum number of different string values to be shared */
+  public static final int DEFAULT_MAX_SHARED_STRING_COUNT = 4096;
+
+  private final int m_nMaxSharedStringLength;
+  private final int m_nMaxSharedStringCount;
+  private final ICommonsMap <String, String> m_aNames = new CommonsHashMap <> ();
+  private final ICommonsMap <String, IJson> m_aStringValues = new CommonsHashMap <> ();
+
+  public CompactCollectingJsonParserHandler ()
+  {
+    this (DEFAULT_MAX_SHARED_STRING_LENGTH, DEFAULT_MAX_SHARED_STRING_COUNT);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param nMaxSharedStringLength
+   *        The maximum length of string values to be shared. Use 0 to disable
+   *        sharing of string values.
+   * @param nMaxSharedStringCount
+   *        The maximum number of different string values to be shared.
+   */
+  public CompactCollectingJsonParserHandler (@Nonnegative final int nMaxSharedStringLength,
+                                             @Nonnegative final int nMaxSharedStringCount)
+  {
+    ValueEnforcer.isGE0 (nMaxSharedStringLength, "MaxSharedStringLength");
+    ValueEnforcer.isGE0 (nMaxSharedStringCount, "MaxSharedStringCount");
+    m_nMaxSharedStringLength = nMaxSharedStringLength;
+    m_nMaxSharedStringCount = nMaxSharedStringCount;
+  }
+
+  @Override
+  @Nonnull
+  protected IJson createStringValue (@Nonnull final String sUnescaped)
+  {
+    if (sUnescaped.length () > m_nMaxSharedStringLength)
+      return JsonValue.create (sUnescaped);
+
+    IJson ret = m_aStringValues.get (sUnescaped);
+    if (ret == null)
+    {
+      ret = JsonValue.create (sUnescaped);
+      if (m_aStringValues.size () < m_nMaxSharedStringCount)
+        m_aStringValues.put (sUnescaped, ret);
+    }
+    return ret;
+  }
+
+  @Override
+  @Nonnull
+  protected IJson createNumberValue (@Nonnull final Number aNumber)
+  {
+    if (aNumber instanceof Integer)
+      return JsonLongValue.create (aNumber.intValue ());
+    if (aNumber instanceof Long)
+      return JsonLongValue.create (aNumber.longValue ());
+    if (aNumber instanceof Double)
+      return JsonDoubleValue.create (aNumber.doubleValue ());
+    return super.createNumberValue (aNumber);
+  }
+
+  @Override
+  @Nonnull
+  protected IJsonArray createArray ()
+  {
+    return new CompactJsonArray ();
+  }
+
+  @Override
+  @Nonnull
+  protected IJsonObject createObject ()
+  {
+    return new CompactJsonObject ();
+  }
+
+  @Override
+  @Nonnull
+  protected String getObjectName (@Nonnull final String sName)
+  {
+    final String ret = m_aNames.putIfAbsent (sName, sName);
+    return ret != null ? ret : sName;
+  }
+
+  @Override
+  protected void onCollectionFinished (@Nonnull final IJsonCollection aCollection)
+  {
+    if (aCollection instanceof CompactJsonArray)
+      ((CompactJsonArray) aCollection).trimToSize ();
+    else
+      if (aCollection instanceof CompactJsonObject)
+        ((CompactJsonObject) aCollection).trimToSize ();
+  }
+}
@@ -131,4 +131,23 @@ public interface IJsonParserHandler
    * {@link #onObjectStart()} was called.
    */
   void onObjectEnd ();
+
+  /**
+   * Determine whether this handler needs the content of the input that is not
+   * relevant for the resulting values. If <code>false</code> is returned, the
+   * parser does not create the original (escaped and quoted) strings - the
+   * unescaped string is passed as the original string to
+   * {@link #onString(String, String)} and
+   * {@link #onObjectName(String, String)} - and
+   * {@link #onWhitespace(String)} and {@link #onComment(String)} are not
+   * invoked.
+   *
+   * @return <code>true</code> if the original content is required. The default
+   *         is <code>true</code>.
+   * @since 9.1.0
+   */
+  default boolean isOriginalContentRequired ()
+  {
+    return true;
+  }
 }
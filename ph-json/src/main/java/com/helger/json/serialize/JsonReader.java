@@ -35,6 +35,7 @@ import org.slf4j.LoggerFactory;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.charset.CharsetHelper;
+import com.helger.commons.charset.CharsetHelper.InputStreamAndCharset;
 import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.FileSystemResource;
@@ -49,6 +50,7 @@ import com.helger.json.parser.JsonParser;
 import com.helger.json.parser.errorhandler.IJsonParseExceptionCallback;
 import com.helger.json.parser.errorhandler.LoggingJsonParseExceptionCallback;
 import com.helger.json.parser.handler.CollectingJsonParserHandler;
+import com.helger.json.parser.handler.CompactCollectingJsonParserHandler;
 import com.helger.json.parser.handler.DoNothingJsonParserHandler;
 import com.helger.json.parser.handler.IJsonParserHandler;
 
@@ -69,6 +71,8 @@ public final class JsonReader
   // Use the LoggingJsonParseExceptionHandler for maximum backward compatibility
   @GuardedBy ("s_aRWLock")
   private static IJsonParseExceptionCallback s_aDefaultParseExceptionCallback = new LoggingJsonParseExceptionCallback ();
+  @GuardedBy ("s_aRWLock")
+  private static boolean s_bDefaultUseCompactTree = false;
 
   @PresentForCodeCoverage
   private static final JsonReader s_aInstance = new JsonReader ();
@@ -103,12 +107,48 @@ public final class JsonReader
     });
   }
 
+  /**
+   * @return <code>true</code> if the <code>read...</code> methods create a
+   *         memory efficient JSON tree, <code>false</code> if the default JSON
+   *         tree is created. Default is <code>false</code>.
+   * @since 9.1.0
+   */
+  public static boolean isDefaultUseCompactTree ()
+  {
+    return s_aRWLock.readLocked ( () -> s_bDefaultUseCompactTree);
+  }
+
+  /**
+   * Define whether the <code>read...</code> methods should create a memory
+   * efficient JSON tree (compact objects and arrays with primitive based
+   * numeric values) instead of the default tree. Both trees are
+   * interchangeable.
+   *
+   * @param bDefaultUseCompactTree
+   *        <code>true</code> to use the compact tree, <code>false</code> to use
+   *        the default tree.
+   * @since 9.1.0
+   * @see CompactCollectingJsonParserHandler
+   */
+  public static void setDefaultUseCompactTree (final boolean bDefaultUseCompactTree)
+  {
+    s_aRWLock.writeLocked ( () -> {
+      s_bDefaultUseCompactTree = bDefaultUseCompactTree;
+    });
+  }
+
+  @Nonnull
+  private static CollectingJsonParserHandler _createCollectingHandler ()
+  {
+    return isDefaultUseCompactTree () ? new CompactCollectingJsonParserHandler () : new CollectingJsonParserHandler ();
+  }
+
   /**
    * Simple JSON parse method taking only the most basic parameters.
    *
    * @param aReader
-   *        The reader to read from. Should be buffered. May not be
-   *        <code>null</code>.
+   *        The reader to read from. Does not need to be buffered. May
+   *        not be <code>null</code>.
    * @param aParserHandler
    *        The parser handler. May not be <code>null</code>.
    * @return {@link ESuccess}
@@ -125,8 +165,8 @@ public final class JsonReader
    * this only when you know what you are doing :)
    *
    * @param aReader
-   *        The reader to read from. Should be buffered. May not be
-   *        <code>null</code>.
+   *        The reader to read from. Does not need to be buffered. May
+   *        not be <code>null</code>.
    * @param aParserHandler
    *        The parser handler. May not be <code>null</code>.
    * @param aCustomizeCallback
@@ -147,7 +187,74 @@ public final class JsonReader
 
     try
     {
-      final JsonParser aParser = new JsonParser (aReader, aParserHandler);
+      return _parseJson (new JsonParser (aReader, aParserHandler), aCustomizeCallback, aCustomExceptionCallback);
+    }
+    finally
+    {
+      StreamHelper.close (aReader);
+    }
+  }
+
+  /**
+   * Generic JSON parse method for byte streams. If the effective charset is
+   * UTF-8, the bytes are decoded by the parser itself, otherwise a
+   * {@link Reader} is used.
+   *
+   * @param aIS
+   *        The input stream to read from. Does not need to be buffered. May
+   *        not be <code>null</code>.
+   * @param aFallbackCharset
+   *        The charset to be used in case no BOM is present. May not be
+   *        <code>null</code>.
+   * @param aParserHandler
+   *        The parser handler. May not be <code>null</code>.
+   * @param aCustomizeCallback
+   *        An optional {@link JsonParser} customization callback. May be
+   *        <code>null</code>.
+   * @param aCustomExceptionCallback
+   *        A custom handler for unrecoverable errors. May be <code>null</code>.
+   * @return {@link ESuccess}
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static ESuccess parseJson (@Nonnull @WillClose final InputStream aIS,
+                                    @Nonnull final Charset aFallbackCharset,
+                                    @Nonnull final IJsonParserHandler aParserHandler,
+                                    @Nullable final IJsonParserCustomizeCallback aCustomizeCallback,
+                                    @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
+  {
+    ValueEnforcer.notNull (aIS, "InputStream");
+    ValueEnforcer.notNull (aFallbackCharset, "FallbackCharset");
+    ValueEnforcer.notNull (aParserHandler, "ParserHandler");
+
+    try
+    {
+      // Determine BOM/Charset
+      final InputStreamAndCharset aISAndBOM = CharsetHelper.getInputStreamAndCharsetFromBOM (aIS);
+      final Charset aEffectiveCharset = aISAndBOM.getCharset (aFallbackCharset);
+      if (StandardCharsets.UTF_8.equals (aEffectiveCharset))
+        return _parseJson (new JsonParser (aISAndBOM.getInputStream (), aParserHandler),
+                           aCustomizeCallback,
+                           aCustomExceptionCallback);
+
+      return parseJson (StreamHelper.createReader (aISAndBOM.getInputStream (), aEffectiveCharset),
+                        aParserHandler,
+                        aCustomizeCallback,
+                        aCustomExceptionCallback);
+    }
+    finally
+    {
+      StreamHelper.close (aIS);
+    }
+  }
+
+  @Nonnull
+  private static ESuccess _parseJson (@Nonnull final JsonParser aParser,
+                                      @Nullable final IJsonParserCustomizeCallback aCustomizeCallback,
+                                      @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
+  {
+    try
+    {
       if (aCustomizeCallback != null)
         aCustomizeCallback.customizeJsonParser (aParser);
       aParser.parse ();
@@ -162,18 +269,27 @@ public final class JsonReader
         getDefaultParseExceptionCallback ().onException (ex);
       return ESuccess.FAILURE;
     }
-    finally
+  }
+
+  @Nonnull
+  private static IJsonParserHandler _createValidatingHandler ()
+  {
+    return new DoNothingJsonParserHandler ()
     {
-      StreamHelper.close (aReader);
-    }
+      @Override
+      public boolean isOriginalContentRequired ()
+      {
+        return false;
+      }
+    };
   }
 
   /**
    * Validate a JSON without building the tree in memory.
    *
    * @param aReader
-   *        The reader to read from. Should be buffered. May not be
-   *        <code>null</code>.
+   *        The reader to read from. Does not need to be buffered. May
+   *        not be <code>null</code>.
    * @return {@link EValidity#VALID} if the JSON is valid,
    *         {@link EValidity#INVALID} otherwise.
    */
@@ -182,7 +298,7 @@ public final class JsonReader
   {
     // Force silent parsing :)
     final ESuccess eSuccess = parseJson (aReader,
-                                         new DoNothingJsonParserHandler (),
+                                         _createValidatingHandler (),
                                          (IJsonParserCustomizeCallback) null,
                                          ex -> {});
     return EValidity.valueOf (eSuccess.isSuccess ());
@@ -344,18 +460,13 @@ public final class JsonReader
    */
   public static boolean isValidJson (@Nonnull @WillClose final InputStream aIS, @Nonnull final Charset aFallbackCharset)
   {
-    ValueEnforcer.notNull (aIS, "InputStream");
-    ValueEnforcer.notNull (aFallbackCharset, "FallbackCharset");
-
-    try
-    {
-      final Reader aReader = CharsetHelper.getReaderByBOM (aIS, aFallbackCharset);
-      return isValidJson (aReader);
-    }
-    finally
-    {
-      StreamHelper.close (aIS);
-    }
+    // Force silent parsing :)
+    final ESuccess eSuccess = parseJson (aIS,
+                                         aFallbackCharset,
+                                         _createValidatingHandler (),
+                                         (IJsonParserCustomizeCallback) null,
+                                         ex -> {});
+    return eSuccess.isSuccess ();
   }
 
   /**
@@ -392,15 +503,15 @@ public final class JsonReader
   {
     ValueEnforcer.notNull (aReader, "Reader");
 
-    return _validateJson (StreamHelper.getBuffered (aReader)).isValid ();
+    return _validateJson (aReader).isValid ();
   }
 
   /**
    * Main reading of the JSON
    *
    * @param aReader
-   *        The reader to read from. Should be buffered. May not be
-   *        <code>null</code>.
+   *        The reader to read from. Does not need to be buffered. May
+   *        not be <code>null</code>.
    * @param aCustomExceptionCallback
    *        A custom handler for unrecoverable errors. May be <code>null</code>.
    * @return <code>null</code> if parsing failed with an unrecoverable error
@@ -412,7 +523,7 @@ public final class JsonReader
   private static IJson _readJson (@Nonnull @WillClose final Reader aReader,
                                   @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
   {
-    final CollectingJsonParserHandler aHandler = new CollectingJsonParserHandler ();
+    final CollectingJsonParserHandler aHandler = _createCollectingHandler ();
     if (parseJson (aReader, aHandler, (IJsonParserCustomizeCallback) null, aCustomExceptionCallback).isFailure ())
       return null;
     return aHandler.getJson ();
@@ -674,18 +785,14 @@ public final class JsonReader
                                       @Nonnull final Charset aFallbackCharset,
                                       @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
   {
-    ValueEnforcer.notNull (aIS, "InputStream");
-    ValueEnforcer.notNull (aFallbackCharset, "FallbackCharset");
-
-    try
-    {
-      final Reader aReader = CharsetHelper.getReaderByBOM (aIS, aFallbackCharset);
-      return _readJson (aReader, aCustomExceptionCallback);
-    }
-    finally
-    {
-      StreamHelper.close (aIS);
-    }
+    final CollectingJsonParserHandler aHandler = _createCollectingHandler ();
+    if (parseJson (aIS,
+                   aFallbackCharset,
+                   aHandler,
+                   (IJsonParserCustomizeCallback) null,
+                   aCustomExceptionCallback).isFailure ())
+      return null;
+    return aHandler.getJson ();
   }
 
   /**
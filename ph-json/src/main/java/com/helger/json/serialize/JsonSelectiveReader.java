@@ -0,0 +1,302 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import java.io.Reader;
+import java.util.function.Consumer;
+
+import javax.annotation.CheckForSigned;
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.WillClose;
+import javax.annotation.concurrent.Immutable;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.state.ESuccess;
+import com.helger.commons.string.StringParser;
+import com.helger.commons.string.ToStringGenerator;
+import com.helger.json.IJson;
+import com.helger.json.parser.EJsonToken;
+import com.helger.json.parser.JsonParseException;
+import com.helger.json.parser.JsonTokenReader;
+import com.helger.json.parser.errorhandler.IJsonParseExceptionCallback;
+
+/**
+ * A reader that only materializes the parts of a JSON document that match a
+ * simple JSON path. All other parts are skipped while reading, so that only
+ * the matching sub trees are kept in memory. The supported path syntax is a
+ * subset of JSONPath:
+ * <ul>
+ * <li><code>$</code> - the root value - must always be the first element</li>
+ * <li><code>.name</code> or <code>['name']</code> - the object member with the
+ * provided name</li>
+ * <li><code>[n]</code> - the array element with the 0-based index n</li>
+ * <li><code>.*</code> or <code>[*]</code> - any object member or array
+ * element</li>
+ * </ul>
+ * Example: <code>$.items[*].id</code>
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@Immutable
+public final class JsonSelectiveReader
+{
+  @Immutable
+  private static final class Step
+  {
+    private final String m_sName;
+    private final int m_nIndex;
+
+    private Step (@Nullable final String sName, final int nIndex)
+    {
+      m_sName = sName;
+      m_nIndex = nIndex;
+    }
+
+    boolean matches (@Nonnull final JsonTokenReader aReader, @Nonnegative final int nLevel)
+    {
+      if (m_sName != null)
+        return aReader.isPathName (nLevel) && m_sName.equals (aReader.getPathName (nLevel));
+      if (m_nIndex >= 0)
+        return !aReader.isPathName (nLevel) && m_nIndex == aReader.getPathIndex (nLevel);
+      // Wildcard
+      return true;
+    }
+  }
+
+  private final String m_sPath;
+  private final Step [] m_aSteps;
+
+  /**
+   * Constructor
+   *
+   * @param sPath
+   *        The path to be selected. May neither be <code>null</code> nor
+   *        empty.
+   * @throws IllegalArgumentException
+   *         If the path is syntactically invalid
+   */
+  public JsonSelectiveReader (@Nonnull @Nonempty final String sPath)
+  {
+    ValueEnforcer.notEmpty (sPath, "Path");
+    m_sPath = sPath;
+    m_aSteps = _parsePath (sPath);
+  }
+
+  @Nonnull
+  private static IllegalArgumentException _pathEx (@Nonnull final String sPath, @Nonnull final String sMsg)
+  {
+    return new IllegalArgumentException ("Invalid JSON path '" + sPath + "': " + sMsg);
+  }
+
+  @Nonnull
+  private static Step [] _parsePath (@Nonnull final String sPath)
+  {
+    if (sPath.charAt (0) != '$')
+      throw _pathEx (sPath, "must start with '$'");
+
+    final ICommonsList <Step> ret = new CommonsArrayList <> ();
+    final int nLen = sPath.length ();
+    int nPos = 1;
+    while (nPos < nLen)
+    {
+      final char c = sPath.charAt (nPos);
+      if (c == '.')
+      {
+        int nEnd = nPos + 1;
+        while (nEnd < nLen && sPath.charAt (nEnd) != '.' && sPath.charAt (nEnd) != '[')
+          nEnd++;
+        final String sName = sPath.substring (nPos + 1, nEnd);
+        if (sName.isEmpty ())
+          throw _pathEx (sPath, "empty name at index " + nPos);
+        ret.add ("*".equals (sName) ? new Step (null, -1) : new Step (sName, -1));
+        nPos = nEnd;
+      }
+      else
+        if (c == '[')
+        {
+          final int nEnd = sPath.indexOf (']', nPos);
+          if (nEnd < 0)
+            throw _pathEx (sPath, "unclosed '[' at index " + nPos);
+          final String sContent = sPath.substring (nPos + 1, nEnd);
+          if ("*".equals (sContent))
+            ret.add (new Step (null, -1));
+          else
+            if (sContent.length () >= 2 &&
+                (sContent.charAt (0) == '\'' || sContent.charAt (0) == '"') &&
+                sContent.charAt (sContent.length () - 1) == sContent.charAt (0))
+              ret.add (new Step (sContent.substring (1, sContent.length () - 1), -1));
+            else
+            {
+              final int nIndex = StringParser.parseInt (sContent, -1);
+              if (nIndex < 0)
+                throw _pathEx (sPath, "invalid array index '" + sContent + "'");
+              ret.add (new Step (null, nIndex));
+            }
+          nPos = nEnd + 1;
+        }
+        else
+          throw _pathEx (sPath, "unexpected character '" + c + "' at index " + nPos);
+    }
+    return ret.toArray (new Step [ret.size ()]);
+  }
+
+  /**
+   * @return The path as provided in the constructor. Neither <code>null</code>
+   *         nor empty.
+   */
+  @Nonnull
+  @Nonempty
+  public String getPath ()
+  {
+    return m_sPath;
+  }
+
+  /**
+   * Check how the path of the value at the current token matches.
+   *
+   * @return -1 if it does not match, 0 if it is a prefix and 1 if it fully
+   *         matches.
+   */
+  @CheckForSigned
+  private int _match (@Nonnull final JsonTokenReader aReader)
+  {
+    final int nPathLength = aReader.getPathLength ();
+    if (nPathLength > m_aSteps.length)
+      return -1;
+    for (int i = 0; i < nPathLength; ++i)
+      if (!m_aSteps[i].matches (aReader, i))
+        return -1;
+    return nPathLength == m_aSteps.length ? 1 : 0;
+  }
+
+  /**
+   * Read all matching values from the provided token reader. The token reader
+   * must be positioned before the root value.
+   *
+   * @param aReader
+   *        The token reader to read from. May not be <code>null</code>.
+   * @param aConsumer
+   *        The consumer that is invoked for every matching value in document
+   *        order. May not be <code>null</code>.
+   * @return The number of matching values.
+   * @throws JsonParseException
+   *         In case the input is not valid JSON
+   */
+  @Nonnegative
+  public int read (@Nonnull final JsonTokenReader aReader,
+                   @Nonnull final Consumer <? super IJson> aConsumer) throws JsonParseException
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    ValueEnforcer.notNull (aConsumer, "Consumer");
+
+    int nMatches = 0;
+    EJsonToken eToken;
+    while ((eToken = aReader.nextToken ()) != null)
+    {
+      if (eToken == EJsonToken.FIELD_NAME || eToken.isStructEnd ())
+        continue;
+
+      final int nMatch = _match (aReader);
+      if (nMatch > 0)
+      {
+        aConsumer.accept (aReader.readValueAsTree ());
+        nMatches++;
+      }
+      else
+        if (nMatch < 0)
+        {
+          // No match possible inside
+          aReader.skipChildren ();
+        }
+    }
+    return nMatches;
+  }
+
+  /**
+   * Read all matching values from the provided reader.
+   *
+   * @param aReader
+   *        The reader to read from. Does not need to be buffered. May
+   *        not be <code>null</code>.
+   * @param aConsumer
+   *        The consumer that is invoked for every matching value in document
+   *        order. May not be <code>null</code>.
+   * @param aCustomExceptionCallback
+   *        A custom handler for unrecoverable errors. May be <code>null</code>.
+   * @return {@link ESuccess}
+   */
+  @Nonnull
+  public ESuccess read (@Nonnull @WillClose final Reader aReader,
+                        @Nonnull final Consumer <? super IJson> aConsumer,
+                        @Nullable final IJsonParseExceptionCallback aCustomExceptionCallback)
+  {
+    ValueEnforcer.notNull (aReader, "Reader");
+    ValueEnforcer.notNull (aConsumer, "Consumer");
+
+    try
+    {
+      read (new JsonTokenReader (aReader), aConsumer);
+      return ESuccess.SUCCESS;
+    }
+    catch (final JsonParseException ex)
+    {
+      // Unrecoverable error
+      if (aCustomExceptionCallback != null)
+        aCustomExceptionCallback.onException (ex);
+      else
+        JsonReader.getDefaultParseExceptionCallback ().onException (ex);
+      return ESuccess.FAILURE;
+    }
+    finally
+    {
+      StreamHelper.close (aReader);
+    }
+  }
+
+  /**
+   * Read all matching values from the provided JSON string.
+   *
+   * @param sJson
+   *        The JSON string to read from. May not be <code>null</code>.
+   * @return <code>null</code> if reading failed, the list of all matching
+   *         values in document order otherwise.
+   */
+  @Nullable
+  @ReturnsMutableCopy
+  public ICommonsList <IJson> readAllFromString (@Nonnull final String sJson)
+  {
+    final ICommonsList <IJson> ret = new CommonsArrayList <> ();
+    if (read (new NonBlockingStringReader (sJson), ret::add, (IJsonParseExceptionCallback) null).isFailure ())
+      return null;
+    return ret;
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Path", m_sPath).getToString ();
+  }
+}
@@ -0,0 +1,92 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+
+import org.junit.Test;
+
+import com.helger.commons.mock.CommonsTestHelper;
+
+/**
+ * Test class for class {@link CompactJsonArray}.
+ *
+ * @author Philip Helger
+ */
+public final class CompactJsonArrayTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final CompactJsonArray aArray = new CompactJsonArray (0);
+    assertTrue (aArray.isEmpty ());
+    assertNull (aArray.get (0));
+    assertNull (aArray.removeAndReturnAtIndex (0));
+
+    for (int i = 0; i < 10; ++i)
+      aArray.add (i);
+    assertEquals (10, aArray.size ());
+    assertEquals (9, aArray.getValueAtIndex (9).getAsInt ());
+    assertTrue (aArray.contains (5));
+    assertFalse (aArray.contains (10));
+
+    aArray.addAt (0, "first");
+    aArray.addAt (-1, "last");
+    assertEquals ("[\"first\",0,1,2,3,4,5,6,7,8,9,\"last\"]", aArray.getAsJsonString ());
+    assertTrue (aArray.removeAtIndex (0).isChanged ());
+    assertTrue (aArray.removeAtIndex (100).isUnchanged ());
+    assertEquals ("[0,1,2,3,4,5,6,7,8,9,\"last\"]", aArray.getAsJsonString ());
+    assertEquals ("[2,3]", aArray.getSubArray (2, 4).getAsJsonString ());
+    assertEquals ("[]", aArray.getSubArray (2, 2).getAsJsonString ());
+
+    final Iterator <IJson> it = aArray.iterator ();
+    while (it.hasNext ())
+      if (it.next ().getAsValue ().isStringValue ())
+        it.remove ();
+    assertEquals (10, aArray.size ());
+    assertEquals ("[0,1,2,3,4,5,6,7,8,9]", aArray.trimToSize ().getAsJsonString ());
+  }
+
+  @Test
+  public void testInterchangeable ()
+  {
+    final CompactJsonArray aArray = new CompactJsonArray (JsonLongValue.create (1),
+                                                          JsonDoubleValue.create (2.5),
+                                                          JsonValue.create ("x"),
+                                                          new CompactJsonObject ().add ("a", 1));
+    final IJsonArray aDefault = new JsonArray ().add (1).add (2.5).add ("x").add (new JsonObject ().add ("a", 1));
+
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (aArray, aDefault);
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (aDefault, aArray);
+    assertEquals (aDefault.getAsJsonString (), aArray.getAsJsonString ());
+
+    final CompactJsonArray aReordered = new CompactJsonArray ();
+    for (int i = aArray.size () - 1; i >= 0; --i)
+      aReordered.add (aArray.get (i));
+    assertNotEquals (aArray, aReordered);
+    assertNotEquals (aDefault, aReordered);
+
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (aArray, aArray.getClone ());
+    CommonsTestHelper.testDefaultSerialization (aArray);
+  }
+}
@@ -0,0 +1,150 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+
+import java.util.Iterator;
+import java.util.Map;
+
+import org.junit.Test;
+
+import com.helger.commons.mock.CommonsTestHelper;
+
+/**
+ * Test class for class {@link CompactJsonObject}.
+ *
+ * @author Philip Helger
+ */
+public final class CompactJsonObjectTest
+{
+  @Test
+  public void testBasic ()
+  {
+    final CompactJsonObject aObject = new CompactJsonObject ();
+    assertTrue (aObject.isEmpty ());
+    assertNull (aObject.get ("a"));
+    assertNull (aObject.get (null));
+
+    aObject.add ("a", 1).add ("b", "x").add ("c", 2.5);
+    assertEquals (3, aObject.size ());
+    assertEquals (1, aObject.getAsValue ("a").getAsInt ());
+    assertEquals ("x", aObject.getAsValue ("b").getAsString ());
+    assertTrue (aObject.containsKey ("c"));
+    assertTrue (aObject.containsValue (2.5));
+    assertFalse (aObject.containsKey ("d"));
+
+    // Overwrite keeps the order
+    aObject.add ("a", 5);
+    assertEquals (3, aObject.size ());
+    assertEquals ("[a, b, c]", aObject.keySet ().toString ());
+    assertEquals (5, aObject.getAsValue ("a").getAsInt ());
+
+    assertEquals (JsonValue.create ("x"), aObject.removeKeyAndReturnValue ("b"));
+    assertTrue (aObject.removeKey ("b").isUnchanged ());
+    assertEquals ("[a, c]", aObject.keySet ().toString ());
+
+    final Iterator <Map.Entry <String, IJson>> it = aObject.iterator ();
+    assertEquals ("a", it.next ().getKey ());
+    it.remove ();
+    assertEquals ("c", it.next ().getKey ());
+    assertFalse (it.hasNext ());
+    assertEquals (1, aObject.size ());
+    assertEquals ("{\"c\":2.5}", aObject.getAsJsonString ());
+  }
+
+  @Test
+  public void testManyKeys ()
+  {
+    // Exceed the linear search limit and force rebuilds of the index
+    final CompactJsonObject aObject = new CompactJsonObject ();
+    final JsonObject aDefault = new JsonObject ();
+    for (int i = 0; i < 1000; ++i)
+    {
+      aObject.add ("key" + i, i);
+      aDefault.add ("key" + i, i);
+    }
+    assertEquals (1000, aObject.size ());
+    for (int i = 0; i < 1000; ++i)
+      assertEquals (i, aObject.getAsValue ("key" + i).getAsInt ());
+    assertNull (aObject.get ("key1000"));
+
+    for (int i = 0; i < 1000; i += 2)
+    {
+      assertTrue (aObject.removeKey ("key" + i).isChanged ());
+      aDefault.removeKey ("key" + i);
+    }
+    assertEquals (500, aObject.size ());
+    assertNull (aObject.get ("key0"));
+    assertEquals (999, aObject.getAsValue ("key999").getAsInt ());
+    assertEquals (aDefault, aObject);
+    assertEquals (aDefault.getAsJsonString (), aObject.getAsJsonString ());
+  }
+
+  @Test
+  public void testInterchangeable ()
+  {
+    final CompactJsonObject aObject = new CompactJsonObject ();
+    aObject.add ("int", JsonLongValue.create (5))
+           .add ("long", JsonLongValue.create (1L << 40))
+           .add ("double", JsonDoubleValue.create (1.5))
+           .add ("str", "bla")
+           .add ("array", new CompactJsonArray ().add (1).add ("x"));
+
+    final JsonObject aDefault = new JsonObject ();
+    aDefault.add ("int", 5)
+            .add ("long", 1L << 40)
+            .add ("double", 1.5)
+            .add ("str", "bla")
+            .add ("array", new JsonArray ().add (1).add ("x"));
+
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (aObject, aDefault);
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (aDefault, aObject);
+    assertEquals (aDefault.getAsJsonString (), aObject.getAsJsonString ());
+
+    // Order independent like JsonObject
+    final CompactJsonObject aReordered = new CompactJsonObject ();
+    aReordered.addAll (aObject);
+    aReordered.removeKey ("int");
+    aReordered.add ("int", 5);
+    assertEquals (aObject, aReordered);
+    assertEquals (aObject.hashCode (), aReordered.hashCode ());
+
+    aReordered.add ("int", 6);
+    assertNotEquals (aObject, aReordered);
+    assertNotEquals (aDefault, aReordered);
+
+    CommonsTestHelper.testDefaultImplementationWithEqualContentObject (aObject, aObject.getClone ());
+    CommonsTestHelper.testDefaultSerialization (aObject);
+  }
+
+  @Test
+  public void testTrimToSize ()
+  {
+    final CompactJsonObject aObject = new CompactJsonObject (100);
+    assertSame (aObject, aObject.trimToSize ());
+    aObject.add ("a", true);
+    aObject.trimToSize ();
+    aObject.add ("b", false);
+    assertEquals ("{\"a\":true,\"b\":false}", aObject.getAsJsonString ());
+  }
+}
@@ -18,18 +18,28 @@ package com.helger.json.parser;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
 
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.math.BigDecimal;
 import java.math.BigInteger;
+import java.nio.charset.StandardCharsets;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 import org.junit.Test;
 
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
 import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.commons.mutable.MutableInt;
+import com.helger.commons.string.StringHelper;
 import com.helger.json.IJson;
 import com.helger.json.IJsonValue;
+import com.helger.json.JsonArray;
+import com.helger.json.JsonValue;
 import com.helger.json.parser.handler.CollectingJsonParserHandler;
 import com.helger.json.serialize.JsonReader;
 
@@ -93,4 +103,88 @@ public final class JsonParserTest
     assertEquals (1, sValue.length ());
     assertEquals ('\u1234', sValue.charAt (0));
   }
+
+  @Test
+  public void testLongStringsAcrossBuffers ()
+  {
+    final String sLong = StringHelper.getRepeated ("abc\\\"\\u00e4", JsonParser.BUFFER_SIZE / 3);
+    final String sJson = "[\"" + sLong + "\", 'x', \"" + sLong + "\"]";
+    final IJson aJson = _read (sJson, null);
+    assertNotNull (aJson);
+    final String sExpected = StringHelper.getRepeated ("abc\"\u00e4", JsonParser.BUFFER_SIZE / 3);
+    assertEquals (new JsonArray ().add (sExpected).add ("x").add (sExpected), aJson);
+
+    // Same with position tracking
+    assertEquals (aJson, _read (sJson, aParser -> aParser.setTrackPosition (true)));
+  }
+
+  /**
+   * Input stream that returns only a single byte per read call, to split all
+   * UTF-8 sequences.
+   */
+  private static final class SingleByteInputStream extends FilterInputStream
+  {
+    SingleByteInputStream (@Nonnull final InputStream aIS)
+    {
+      super (aIS);
+    }
+
+    @Override
+    public int read (final byte [] aBuf, final int nOfs, final int nLen) throws IOException
+    {
+      return super.read (aBuf, nOfs, Math.min (nLen, 1));
+    }
+  }
+
+  @Test
+  public void testUTF8InputStream ()
+  {
+    final String sValue = "\u00e4\u00f6\u00fc \u20ac \ud834\udd1e " + StringHelper.getRepeated ('x', JsonParser.BUFFER_SIZE);
+    final String sJson = "{\"k\u00e4y\":[\"" + sValue + "\", 1, true, null]}";
+    final byte [] aBytes = sJson.getBytes (StandardCharsets.UTF_8);
+    final IJson aExpected = JsonReader.readFromString (sJson);
+    assertNotNull (aExpected);
+
+    assertEquals (aExpected, JsonReader.readFromStream (new NonBlockingByteArrayInputStream (aBytes)));
+    assertEquals (aExpected,
+                  JsonReader.readFromStream (new SingleByteInputStream (new NonBlockingByteArrayInputStream (aBytes))));
+
+    // With BOM
+    final byte [] aBOMBytes = new byte [aBytes.length + 3];
+    aBOMBytes[0] = (byte) 0xef;
+    aBOMBytes[1] = (byte) 0xbb;
+    aBOMBytes[2] = (byte) 0xbf;
+    System.arraycopy (aBytes, 0, aBOMBytes, 3, aBytes.length);
+    assertEquals (aExpected, JsonReader.readFromStream (new NonBlockingByteArrayInputStream (aBOMBytes)));
+
+    // Malformed input is replaced
+    assertEquals (JsonValue.create ("a\ufffdb\ufffd"),
+                  JsonReader.readFromStream (new NonBlockingByteArrayInputStream (new byte [] { '"',
+                                                                                               'a',
+                                                                                               (byte) 0xc3,
+                                                                                               'b',
+                                                                                               (byte) 0xff,
+                                                                                               '"' })));
+    // Incomplete sequence at the end
+    assertNull (JsonReader.readFromStream (new NonBlockingByteArrayInputStream (new byte [] { '"', (byte) 0xe2 }),
+                                           StandardCharsets.UTF_8,
+                                           ex -> {}));
+  }
+
+  @Test
+  public void testErrorPosition ()
+  {
+    final MutableInt aLine = new MutableInt (0);
+    final MutableInt aColumn = new MutableInt (0);
+    final CollectingJsonParserHandler aHandler = new CollectingJsonParserHandler ();
+    JsonReader.parseJson (new NonBlockingStringReader ("{\"a\":\n  [1, \"xyz\" x]}"),
+                          aHandler,
+                          aParser -> aParser.setTrackPosition (true),
+                          ex -> {
+                            aLine.set (ex.getErrorLine ());
+                            aColumn.set (ex.getErrorColumn ());
+                          });
+    assertEquals (2, aLine.intValue ());
+    assertEquals (13, aColumn.intValue ());
+  }
 }
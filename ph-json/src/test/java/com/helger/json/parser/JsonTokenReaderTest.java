@@ -0,0 +1,181 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.parser;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.fail;
+
+import java.math.BigInteger;
+
+import javax.annotation.Nonnull;
+
+import org.junit.Test;
+
+import com.helger.commons.io.stream.NonBlockingStringReader;
+import com.helger.json.IJson;
+import com.helger.json.serialize.JsonReader;
+
+/**
+ * Test class for class {@link JsonTokenReader}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonTokenReaderTest
+{
+  @Nonnull
+  private static JsonTokenReader _create (@Nonnull final String sJson)
+  {
+    // Small buffer to test the refilling
+    return new JsonTokenReader (new NonBlockingStringReader (sJson), 3);
+  }
+
+  @Test
+  public void testTokens () throws JsonParseException
+  {
+    final JsonTokenReader aReader = _create ("{\"a\" : [1, 2.5, \"x\\u0041\"], /* c */ 'b':{}, \"c\":true, \"d\":false, \"e\":null}");
+    assertSame (EJsonToken.START_OBJECT, aReader.nextToken ());
+    assertEquals ("$", aReader.getCurrentPath ());
+    assertEquals (1, aReader.getDepth ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertEquals ("a", aReader.getCurrentName ());
+    assertEquals ("a", aReader.getText ());
+    assertSame (EJsonToken.START_ARRAY, aReader.nextToken ());
+    assertEquals ("a", aReader.getCurrentName ());
+    assertEquals ("$.a", aReader.getCurrentPath ());
+    assertSame (EJsonToken.VALUE_NUMBER, aReader.nextToken ());
+    assertEquals (Integer.valueOf (1), aReader.getNumber ());
+    assertEquals (0, aReader.getCurrentIndex ());
+    assertEquals ("$.a[0]", aReader.getCurrentPath ());
+    assertSame (EJsonToken.VALUE_NUMBER, aReader.nextToken ());
+    assertEquals (Double.valueOf (2.5), aReader.getNumber ());
+    assertEquals ("2.5", aReader.getText ());
+    assertSame (EJsonToken.VALUE_STRING, aReader.nextToken ());
+    assertEquals ("xA", aReader.getText ());
+    assertEquals ("$.a[2]", aReader.getCurrentPath ());
+    assertSame (EJsonToken.END_ARRAY, aReader.nextToken ());
+    assertEquals ("a", aReader.getCurrentName ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertEquals ("b", aReader.getCurrentName ());
+    assertSame (EJsonToken.START_OBJECT, aReader.nextToken ());
+    assertSame (EJsonToken.END_OBJECT, aReader.nextToken ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertSame (EJsonToken.VALUE_TRUE, aReader.nextToken ());
+    assertEquals ("c", aReader.getCurrentName ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertSame (EJsonToken.VALUE_FALSE, aReader.nextToken ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertSame (EJsonToken.VALUE_NULL, aReader.nextToken ());
+    assertEquals ("$.e", aReader.getCurrentPath ());
+    assertSame (EJsonToken.END_OBJECT, aReader.nextToken ());
+    assertEquals (0, aReader.getDepth ());
+    assertNull (aReader.nextToken ());
+    assertNull (aReader.getCurrentToken ());
+    assertNull (aReader.nextToken ());
+  }
+
+  @Test
+  public void testSkipChildren () throws JsonParseException
+  {
+    final JsonTokenReader aReader = _create ("[{\"a\":[1,[2,{}],\"s\"]},3]");
+    assertSame (EJsonToken.START_ARRAY, aReader.nextToken ());
+    assertSame (EJsonToken.START_OBJECT, aReader.nextToken ());
+    aReader.skipChildren ();
+    assertSame (EJsonToken.END_OBJECT, aReader.getCurrentToken ());
+    assertSame (EJsonToken.VALUE_NUMBER, aReader.nextToken ());
+    assertEquals (1, aReader.getCurrentIndex ());
+    // No-op for scalars
+    aReader.skipChildren ();
+    assertSame (EJsonToken.VALUE_NUMBER, aReader.getCurrentToken ());
+    assertSame (EJsonToken.END_ARRAY, aReader.nextToken ());
+    assertNull (aReader.nextToken ());
+  }
+
+  @Test
+  public void testReadValueAsTree () throws JsonParseException
+  {
+    final String sJson = "{\"x\":1,\"y\":{\"a\":[1,{\"b\":null}],\"c\":\"d\"},\"z\":12345678901234567890}";
+    final JsonTokenReader aReader = _create (sJson);
+    assertSame (EJsonToken.START_OBJECT, aReader.nextToken ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertSame (EJsonToken.VALUE_NUMBER, aReader.nextToken ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    final IJson aTree = aReader.readValueAsTree ();
+    assertEquals (JsonReader.readFromString ("{\"a\":[1,{\"b\":null}],\"c\":\"d\"}"), aTree);
+    assertSame (EJsonToken.END_OBJECT, aReader.getCurrentToken ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertSame (EJsonToken.VALUE_NUMBER, aReader.nextToken ());
+    assertEquals (BigInteger.class, aReader.getNumber ().getClass ());
+    assertSame (EJsonToken.END_OBJECT, aReader.nextToken ());
+
+    // Whole document
+    final JsonTokenReader aReader2 = _create (sJson);
+    aReader2.nextToken ();
+    assertEquals (JsonReader.readFromString (sJson), aReader2.readValueAsTree ());
+    assertNull (aReader2.nextToken ());
+  }
+
+  @Test
+  public void testSettings () throws JsonParseException
+  {
+    JsonTokenReader aReader = _create ("{a:5}").setRequireStringQuotes (false).setAlwaysUseBigNumber (true);
+    assertSame (EJsonToken.START_OBJECT, aReader.nextToken ());
+    assertSame (EJsonToken.FIELD_NAME, aReader.nextToken ());
+    assertEquals ("a", aReader.getCurrentName ());
+    assertSame (EJsonToken.VALUE_NUMBER, aReader.nextToken ());
+    assertEquals (BigInteger.valueOf (5), aReader.getNumber ());
+
+    aReader = _create ("\"a\tb\"").setAllowSpecialCharsInStrings (true);
+    assertSame (EJsonToken.VALUE_STRING, aReader.nextToken ());
+    assertEquals ("a\tb", aReader.getText ());
+  }
+
+  private static void _expectError (@Nonnull final String sJson)
+  {
+    final JsonTokenReader aReader = _create (sJson);
+    try
+    {
+      while (aReader.nextToken () != null)
+      {}
+      fail (sJson);
+    }
+    catch (final JsonParseException ex)
+    {
+      // expected
+    }
+  }
+
+  @Test
+  public void testErrors ()
+  {
+    _expectError ("");
+    _expectError ("{");
+    _expectError ("[1,]");
+    _expectError ("[1 2]");
+    _expectError ("{\"a\" 1}");
+    _expectError ("{\"a\":1,}");
+    _expectError ("{a:1}");
+    _expectError ("1 2");
+    _expectError ("tru");
+    _expectError ("\"abc");
+    _expectError ("\"a\\x\"");
+    _expectError ("1.");
+    _expectError ("1e");
+    _expectError ("/* abc");
+  }
+}
@@ -20,9 +20,11 @@ import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.File;
+import java.nio.charset.StandardCharsets;
 
 import javax.annotation.Nonnull;
 
@@ -31,9 +33,13 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import com.helger.commons.io.file.FileSystemIterator;
+import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
 import com.helger.commons.io.stream.NonBlockingStringReader;
 import com.helger.commons.timing.StopWatch;
+import com.helger.json.CompactJsonObject;
 import com.helger.json.IJson;
+import com.helger.json.IJsonArray;
+import com.helger.json.JsonObject;
 import com.helger.json.parser.handler.StringAssemblyJsonParserHandler;
 
 /**
@@ -274,4 +280,40 @@ public final class JsonReaderTest
         assertNull ("Parsed even if error expected: " + f.getName (), aJson);
       }
   }
+
+  @Test
+  public void testCompactTree ()
+  {
+    final String sJson = "{\"a\":[1,2.5,\"x\",null,true,12345678901,1e400,123456789012345678901234567890]," +
+                         "\"b\":{\"c\":\"x\",\"d\":{}},\"e\":[{\"c\":\"x\"},{\"c\":\"y\"}]}";
+    final IJson aDefault = JsonReader.readFromString (sJson);
+    assertNotNull (aDefault);
+    assertTrue (aDefault instanceof JsonObject);
+
+    assertFalse (JsonReader.isDefaultUseCompactTree ());
+    JsonReader.setDefaultUseCompactTree (true);
+    try
+    {
+      final IJson aCompact = JsonReader.readFromString (sJson);
+      assertNotNull (aCompact);
+      assertTrue (aCompact instanceof CompactJsonObject);
+      assertEquals (aDefault, aCompact);
+      assertEquals (aCompact, aDefault);
+      assertEquals (aDefault.hashCode (), aCompact.hashCode ());
+      assertEquals (aDefault.getAsJsonString (), aCompact.getAsJsonString ());
+
+      // Names and short strings are shared
+      final IJsonArray aArray = aCompact.getAsObject ().getAsArray ("e");
+      assertSame (aArray.getObjectAtIndex (0).keySet ().getFirst (), aArray.getObjectAtIndex (1).keySet ().getFirst ());
+      assertSame (aCompact.getAsObject ().getAsObject ("b").get ("c"), aArray.getObjectAtIndex (0).get ("c"));
+
+      // Same in a stream
+      assertEquals (aDefault,
+                    JsonReader.readFromStream (new NonBlockingByteArrayInputStream (sJson.getBytes (StandardCharsets.UTF_8))));
+    }
+    finally
+    {
+      JsonReader.setDefaultUseCompactTree (false);
+    }
+  }
 }
@@ -0,0 +1,88 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.json.serialize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.json.IJson;
+import com.helger.json.JsonValue;
+
+/**
+ * Test class for class {@link JsonSelectiveReader}.
+ *
+ * @author Philip Helger
+ */
+public final class JsonSelectiveReaderTest
+{
+  private static final String JSON = "{\"meta\":{\"count\":2,\"items\":[0]}," +
+                                     "\"items\":[{\"id\":1,\"tags\":[\"a\",\"b\"]},{\"id\":2,\"tags\":[]}]," +
+                                     "\"my.name\":\"x\"}";
+
+  @Test
+  public void testBasic ()
+  {
+    ICommonsList <IJson> aList = new JsonSelectiveReader ("$.items[*].id").readAllFromString (JSON);
+    assertEquals (2, aList.size ());
+    assertEquals (JsonValue.create (1), aList.get (0));
+    assertEquals (JsonValue.create (2), aList.get (1));
+
+    aList = new JsonSelectiveReader ("$.items[1]").readAllFromString (JSON);
+    assertEquals (1, aList.size ());
+    assertEquals (JsonReader.readFromString ("{\"id\":2,\"tags\":[]}"), aList.get (0));
+
+    aList = new JsonSelectiveReader ("$.*.count").readAllFromString (JSON);
+    assertEquals (1, aList.size ());
+    assertEquals (JsonValue.create (2), aList.get (0));
+
+    aList = new JsonSelectiveReader ("$['my.name']").readAllFromString (JSON);
+    assertEquals (1, aList.size ());
+    assertEquals (JsonValue.create ("x"), aList.get (0));
+
+    aList = new JsonSelectiveReader ("$.items[0].tags[*]").readAllFromString (JSON);
+    assertEquals (2, aList.size ());
+
+    aList = new JsonSelectiveReader ("$").readAllFromString (JSON);
+    assertEquals (1, aList.size ());
+    assertEquals (JsonReader.readFromString (JSON), aList.get (0));
+
+    aList = new JsonSelectiveReader ("$.nothere").readAllFromString (JSON);
+    assertEquals (0, aList.size ());
+
+    // Invalid JSON
+    assertNull (new JsonSelectiveReader ("$.a").readAllFromString ("{\"a\":1,"));
+  }
+
+  @Test
+  public void testInvalidPath ()
+  {
+    for (final String sPath : new String [] { "a", "$.", "$[", "$[x]", "$[-1]", "$a" })
+      try
+      {
+        new JsonSelectiveReader (sPath);
+        fail (sPath);
+      }
+      catch (final IllegalArgumentException ex)
+      {
+        // expected
+      }
+  }
+}
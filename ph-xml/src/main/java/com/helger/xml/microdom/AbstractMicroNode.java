@@ -48,6 +48,10 @@ public abstract class AbstractMicroNode implements IMicroNode
 {
   /** The parent node of this node. */
   private AbstractMicroNodeWithChildren m_aParentNode;
+  /**
+   * The registered event targets. Only created when the first event target is
+   * registered and released again when the last one is unregistered.
+   */
   private CommonsEnumMap <EMicroEvent, CallbackList <IMicroEventTarget>> m_aEventTargets;
 
   /**
@@ -467,8 +471,17 @@ public abstract class AbstractMicroNode implements IMicroNode
     if (m_aEventTargets != null && m_aEventTargets.isNotEmpty ())
     {
       final CallbackList <IMicroEventTarget> aSet = m_aEventTargets.get (eEventType);
-      if (aSet != null)
-        return aSet.removeObject (aTarget);
+      if (aSet != null && aSet.removeObject (aTarget).isChanged ())
+      {
+        // Release the memory again if no more event targets are present
+        if (aSet.isEmpty ())
+        {
+          m_aEventTargets.remove (eEventType);
+          if (m_aEventTargets.isEmpty ())
+            m_aEventTargets = null;
+        }
+        return EChange.CHANGED;
+      }
     }
     return EChange.UNCHANGED;
   }
@@ -477,6 +490,8 @@ public abstract class AbstractMicroNode implements IMicroNode
   @ReturnsMutableCopy
   public ICommonsMap <EMicroEvent, CallbackList <IMicroEventTarget>> getAllEventTargets ()
   {
+    if (m_aEventTargets == null)
+      return new CommonsEnumMap <> (EMicroEvent.class);
     return new CommonsEnumMap <> (m_aEventTargets);
   }
 
@@ -46,7 +46,7 @@ import com.helger.commons.typeconvert.TypeConverter;
 public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode implements IMicroNodeWithChildren
 {
   /** The list of child elements. May be <code>null</code>. */
-  private ICommonsList <IMicroNode> m_aChildren;
+  private CommonsArrayList <IMicroNode> m_aChildren;
 
   /**
    * @return The writable list of all child nodes - handle with care. May be
@@ -59,6 +59,21 @@ public abstract class AbstractMicroNodeWithChildren extends AbstractMicroNode im
     return m_aChildren;
   }
 
+  /**
+   * Reduce the memory footprint of this node by trimming the internal child
+   * list to its current size. This is e.g. called by the
+   * {@link com.helger.xml.microdom.serialize.MicroSAXHandler} in compact mode
+   * after an element was completely read.
+   *
+   * @since 9.1.0
+   */
+  @OverridingMethodsMustInvokeSuper
+  public void trimToSize ()
+  {
+    if (m_aChildren != null)
+      m_aChildren.trimToSize ();
+  }
+
   private void _afterInsertAsChildOfThis (@Nonnull final AbstractMicroNode aChildNode)
   {
     aChildNode.internalSetParentNode (this);
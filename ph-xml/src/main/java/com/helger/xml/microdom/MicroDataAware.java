@@ -34,68 +34,91 @@ import com.helger.commons.string.ToStringGenerator;
  */
 final class MicroDataAware implements IMicroDataAware, ICloneable <MicroDataAware>
 {
-  private final StringBuilder m_aSB;
+  /**
+   * Either an immutable String (as created by the reader - may be shared
+   * between several nodes) or a StringBuilder as soon as the data is modified.
+   */
+  private CharSequence m_aData;
 
   public MicroDataAware (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
     ValueEnforcer.isArrayOfsLen (aChars, nOfs, nLen);
-    m_aSB = new StringBuilder (nLen + 16).append (aChars, nOfs, nLen);
+    m_aData = new String (aChars, nOfs, nLen);
   }
 
   public MicroDataAware (@Nullable final CharSequence aText)
   {
     if (StringHelper.hasNoText (aText))
-      m_aSB = new StringBuilder ();
+      m_aData = "";
     else
-      m_aSB = new StringBuilder (aText);
+      m_aData = aText.toString ();
   }
 
   @Nonnull
-  public StringBuilder getData ()
+  private StringBuilder _getModifiable ()
   {
-    return m_aSB;
+    if (m_aData instanceof StringBuilder)
+      return (StringBuilder) m_aData;
+    final StringBuilder ret = new StringBuilder (m_aData.length () + 16).append (m_aData);
+    m_aData = ret;
+    return ret;
+  }
+
+  @Nonnull
+  public CharSequence getData ()
+  {
+    return m_aData;
   }
 
   public void setData (@Nullable final CharSequence aData)
   {
-    m_aSB.setLength (0);
-    m_aSB.append (aData);
+    // Same as appending to an empty StringBuilder
+    m_aData = String.valueOf (aData);
   }
 
   public void appendData (@Nullable final CharSequence sData)
   {
-    m_aSB.append (sData);
+    _getModifiable ().append (sData);
   }
 
   public void appendData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
-    m_aSB.append (aChars, nOfs, nLen);
+    _getModifiable ().append (aChars, nOfs, nLen);
   }
 
   public void appendData (final char cChar)
   {
-    m_aSB.append (cChar);
+    _getModifiable ().append (cChar);
   }
 
   public void prependData (@Nullable final CharSequence sData)
   {
-    m_aSB.insert (0, sData);
+    _getModifiable ().insert (0, sData);
   }
 
   public void prependData (@Nonnull final char [] aChars, @Nonnegative final int nOfs, @Nonnegative final int nLen)
   {
-    m_aSB.insert (0, aChars, nOfs, nLen);
+    _getModifiable ().insert (0, aChars, nOfs, nLen);
   }
 
   public void prependData (final char cChar)
   {
-    m_aSB.insert (0, cChar);
+    _getModifiable ().insert (0, cChar);
   }
 
   @Nonnull
   public MicroDataAware getClone ()
   {
-    return new MicroDataAware (m_aSB);
+    return new MicroDataAware (m_aData);
+  }
+
+  private static boolean _isEqualContent (@Nonnull final CharSequence aCS1, @Nonnull final CharSequence aCS2)
+  {
+    if (aCS1 instanceof String)
+      return ((String) aCS1).contentEquals (aCS2);
+    if (aCS2 instanceof String)
+      return ((String) aCS2).contentEquals (aCS1);
+    return EqualsHelper.equals (aCS1, aCS2);
   }
 
   @Override
@@ -106,18 +129,18 @@ final class MicroDataAware implements IMicroDataAware, ICloneable <MicroDataAwar
     if (o == null || !getClass ().equals (o.getClass ()))
       return false;
     final MicroDataAware rhs = (MicroDataAware) o;
-    return EqualsHelper.equals (m_aSB, rhs.m_aSB);
+    return _isEqualContent (m_aData, rhs.m_aData);
   }
 
   @Override
   public int hashCode ()
   {
-    return new HashCodeGenerator (this).append (m_aSB).getHashCode ();
+    return new HashCodeGenerator (this).append (m_aData.toString ()).getHashCode ();
   }
 
   @Override
   public String toString ()
   {
-    return new ToStringGenerator (this).append ("data", m_aSB).getToString ();
+    return new ToStringGenerator (this).append ("data", m_aData).getToString ();
   }
 }
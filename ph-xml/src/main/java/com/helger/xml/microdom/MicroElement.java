@@ -16,6 +16,7 @@
  */
 package com.helger.xml.microdom;
 
+import java.util.Arrays;
 import java.util.function.BiConsumer;
 import java.util.function.Consumer;
 import java.util.function.Function;
@@ -33,6 +34,7 @@ import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.collection.impl.CommonsArrayList;
 import com.helger.commons.collection.impl.CommonsLinkedHashMap;
+import com.helger.commons.collection.impl.CommonsLinkedHashSet;
 import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.collection.impl.ICommonsOrderedMap;
 import com.helger.commons.collection.impl.ICommonsOrderedSet;
@@ -56,10 +58,17 @@ import com.helger.xml.CXMLRegEx;
 public final class MicroElement extends AbstractMicroNodeWithChildren implements IMicroElement
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (MicroElement.class);
+  private static final int DEFAULT_ATTRIBUTE_CAPACITY = 4;
 
   private String m_sNamespaceURI;
   private final String m_sTagName;
-  private ICommonsOrderedMap <IMicroQName, MicroAttribute> m_aAttrs;
+  /**
+   * The attributes in insertion order. Only the first {@link #m_nAttrCount}
+   * entries are used. May be <code>null</code>. A plain array is used instead
+   * of a map, because most elements only have very few attributes.
+   */
+  private MicroAttribute [] m_aAttrs;
+  private int m_nAttrCount = 0;
 
   public MicroElement (@Nonnull @Nonempty final String sTagName)
   {
@@ -110,18 +119,30 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 
   public boolean hasAttributes ()
   {
-    return m_aAttrs != null && m_aAttrs.isNotEmpty ();
+    return m_nAttrCount > 0;
   }
 
   public boolean hasNoAttributes ()
   {
-    return m_aAttrs == null || m_aAttrs.isEmpty ();
+    return m_nAttrCount == 0;
   }
 
   @Nonnegative
   public int getAttributeCount ()
   {
-    return m_aAttrs == null ? 0 : m_aAttrs.size ();
+    return m_nAttrCount;
+  }
+
+  private int _getAttributeIndex (@Nonnull final IMicroQName aQName)
+  {
+    for (int i = 0; i < m_nAttrCount; ++i)
+    {
+      final IMicroQName aCurQName = m_aAttrs[i].getAttributeQName ();
+      // Identity check first - helps with interned names
+      if (aCurQName == aQName || aCurQName.equals (aQName))
+        return i;
+    }
+    return -1;
   }
 
   @Nullable
@@ -130,7 +151,10 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return m_aAttrs.copyOfValues ();
+    final ICommonsList <MicroAttribute> ret = new CommonsArrayList<> (m_nAttrCount);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      ret.add (m_aAttrs[i]);
+    return ret;
   }
 
   @Nullable
@@ -139,9 +163,10 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return new CommonsLinkedHashMap<> (m_aAttrs.values (),
-                                       IMicroAttribute::getAttributeQName,
-                                       IMicroAttribute::getAttributeValue);
+    final ICommonsOrderedMap <IMicroQName, String> ret = new CommonsLinkedHashMap<> (m_nAttrCount);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      ret.put (m_aAttrs[i].getAttributeQName (), m_aAttrs[i].getAttributeValue ());
+    return ret;
   }
 
   @Nullable
@@ -150,33 +175,43 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   {
     if (hasNoAttributes ())
       return null;
-    return m_aAttrs.copyOfKeySet ();
+    final ICommonsOrderedSet <IMicroQName> ret = new CommonsLinkedHashSet<> (m_nAttrCount);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      ret.add (m_aAttrs[i].getAttributeQName ());
+    return ret;
   }
 
   public void forAllAttributes (@Nonnull final Consumer <? super IMicroAttribute> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (aConsumer);
+    for (int i = 0; i < m_nAttrCount; ++i)
+      aConsumer.accept (m_aAttrs[i]);
   }
 
   public void forAllAttributes (@Nonnull final BiConsumer <? super IMicroQName, ? super String> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (a -> aConsumer.accept (a.getAttributeQName (), a.getAttributeValue ()));
+    for (int i = 0; i < m_nAttrCount; ++i)
+    {
+      final MicroAttribute aAttr = m_aAttrs[i];
+      aConsumer.accept (aAttr.getAttributeQName (), aAttr.getAttributeValue ());
+    }
   }
 
   public void forAllAttributes (@Nonnull final ITriConsumer <? super String, ? super String, ? super String> aConsumer)
   {
-    if (m_aAttrs != null)
-      m_aAttrs.forEachValue (x -> aConsumer.accept (x.getNamespaceURI (),
-                                                    x.getAttributeName (),
-                                                    x.getAttributeValue ()));
+    for (int i = 0; i < m_nAttrCount; ++i)
+    {
+      final MicroAttribute aAttr = m_aAttrs[i];
+      aConsumer.accept (aAttr.getNamespaceURI (), aAttr.getAttributeName (), aAttr.getAttributeValue ());
+    }
   }
 
   @Nullable
   public MicroAttribute getAttributeObj (@Nullable final IMicroQName aQName)
   {
-    return aQName == null || m_aAttrs == null ? null : m_aAttrs.get (aQName);
+    if (aQName == null)
+      return null;
+    final int nIndex = _getAttributeIndex (aQName);
+    return nIndex < 0 ? null : m_aAttrs[nIndex];
   }
 
   @Nullable
@@ -201,15 +236,26 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
 
   public boolean hasAttribute (@Nullable final IMicroQName aAttrName)
   {
-    return m_aAttrs != null && aAttrName != null && m_aAttrs.containsKey (aAttrName);
+    return aAttrName != null && _getAttributeIndex (aAttrName) >= 0;
   }
 
   @Nonnull
   public EChange removeAttribute (@Nullable final IMicroQName aAttrName)
   {
-    if (m_aAttrs == null || aAttrName == null)
+    if (aAttrName == null)
       return EChange.UNCHANGED;
-    return m_aAttrs.removeObject (aAttrName);
+    final int nIndex = _getAttributeIndex (aAttrName);
+    if (nIndex < 0)
+      return EChange.UNCHANGED;
+
+    // Keep the order of the remaining attributes
+    final int nMoved = m_nAttrCount - nIndex - 1;
+    if (nMoved > 0)
+      System.arraycopy (m_aAttrs, nIndex + 1, m_aAttrs, nIndex, nMoved);
+    m_aAttrs[--m_nAttrCount] = null;
+    if (m_nAttrCount == 0)
+      m_aAttrs = null;
+    return EChange.CHANGED;
   }
 
   @Nonnull
@@ -218,9 +264,22 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     ValueEnforcer.notNull (aAttrName, "AttrName");
     if (sAttrValue != null)
     {
-      if (m_aAttrs == null)
-        m_aAttrs = new CommonsLinkedHashMap<> ();
-      m_aAttrs.put (aAttrName, new MicroAttribute (aAttrName, sAttrValue));
+      final MicroAttribute aAttr = new MicroAttribute (aAttrName, sAttrValue);
+      final int nIndex = _getAttributeIndex (aAttrName);
+      if (nIndex >= 0)
+      {
+        // Overwrite existing attribute at the same position
+        m_aAttrs[nIndex] = aAttr;
+      }
+      else
+      {
+        if (m_aAttrs == null)
+          m_aAttrs = new MicroAttribute [DEFAULT_ATTRIBUTE_CAPACITY];
+        else
+          if (m_nAttrCount == m_aAttrs.length)
+            m_aAttrs = Arrays.copyOf (m_aAttrs, m_nAttrCount * 2);
+        m_aAttrs[m_nAttrCount++] = aAttr;
+      }
     }
     else
       removeAttribute (aAttrName);
@@ -230,9 +289,11 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
   @Nonnull
   public EChange removeAllAttributes ()
   {
-    if (m_aAttrs == null)
+    if (m_nAttrCount == 0)
       return EChange.UNCHANGED;
-    return m_aAttrs.removeAll ();
+    m_aAttrs = null;
+    m_nAttrCount = 0;
+    return EChange.CHANGED;
   }
 
   @Nullable
@@ -374,8 +435,11 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     final MicroElement ret = new MicroElement (m_sNamespaceURI, m_sTagName);
 
     // Copy attributes
-    if (m_aAttrs != null)
-      ret.m_aAttrs = new CommonsLinkedHashMap<> (m_aAttrs);
+    if (m_nAttrCount > 0)
+    {
+      ret.m_aAttrs = Arrays.copyOf (m_aAttrs, m_nAttrCount);
+      ret.m_nAttrCount = m_nAttrCount;
+    }
 
     // Deep clone all child nodes
     forAllChildren (aChildNode -> ret.appendChild (aChildNode.getClone ()));
@@ -392,7 +456,35 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     final MicroElement rhs = (MicroElement) o;
     return EqualsHelper.equals (m_sNamespaceURI, rhs.m_sNamespaceURI) &&
            m_sTagName.equals (rhs.m_sTagName) &&
-           EqualsHelper.equals (m_aAttrs, rhs.m_aAttrs);
+           _isEqualAttributes (rhs);
+  }
+
+  private boolean _isEqualAttributes (@Nonnull final MicroElement rhs)
+  {
+    if (m_nAttrCount != rhs.m_nAttrCount)
+      return false;
+    // Same semantics as the previously used map: the order does not matter
+    for (int i = 0; i < m_nAttrCount; ++i)
+    {
+      final MicroAttribute aAttr = m_aAttrs[i];
+      if (!aAttr.equals (rhs.getAttributeObj (aAttr.getAttributeQName ())))
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Reduce the memory footprint of this element by trimming the attribute
+   * storage and the child list to their current sizes.
+   *
+   * @since 9.1.0
+   */
+  @Override
+  public void trimToSize ()
+  {
+    super.trimToSize ();
+    if (m_aAttrs != null && m_aAttrs.length != m_nAttrCount)
+      m_aAttrs = Arrays.copyOf (m_aAttrs, m_nAttrCount);
   }
 
   @Override
@@ -401,7 +493,7 @@ public final class MicroElement extends AbstractMicroNodeWithChildren implements
     return ToStringGenerator.getDerived (super.toString ())
                             .appendIfNotNull ("namespace", m_sNamespaceURI)
                             .append ("tagname", m_sTagName)
-                            .appendIfNotNull ("attrs", m_aAttrs)
+                            .appendIfNotNull ("attrs", getAllAttributeObjs ())
                             .getToString ();
   }
 }
@@ -23,22 +23,38 @@ import java.net.URI;
 import java.net.URL;
 import java.nio.ByteBuffer;
 import java.nio.file.Path;
+import java.util.Collection;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
+import java.util.function.Consumer;
 
 import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 import javax.annotation.WillClose;
-import javax.annotation.concurrent.Immutable;
+import javax.annotation.concurrent.GuardedBy;
+import javax.annotation.concurrent.ThreadSafe;
 
 import org.xml.sax.EntityResolver;
 import org.xml.sax.InputSource;
 import org.xml.sax.ext.EntityResolver2;
 
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.annotation.ReturnsMutableCopy;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.concurrent.SimpleReadWriteLock;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.state.ESuccess;
 import com.helger.xml.EXMLParserFeature;
 import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.sax.InputSourceFactory;
 import com.helger.xml.serialize.read.ISAXReaderSettings;
 import com.helger.xml.serialize.read.SAXReader;
@@ -49,15 +65,49 @@ import com.helger.xml.serialize.read.SAXReaderSettings;
  *
  * @author Philip Helger
  */
-@Immutable
+@ThreadSafe
 public final class MicroReader
 {
+  private static final SimpleReadWriteLock s_aRWLock = new SimpleReadWriteLock ();
+  @GuardedBy ("s_aRWLock")
+  private static boolean s_bDefaultUseCompactTree = false;
+
   @PresentForCodeCoverage
   private static final MicroReader s_aInstance = new MicroReader ();
 
   private MicroReader ()
   {}
 
+  /**
+   * @return <code>true</code> if the <code>read...</code> methods create a
+   *         memory efficient document, <code>false</code> if not. Default is
+   *         <code>false</code>.
+   * @since 9.1.0
+   */
+  public static boolean isDefaultUseCompactTree ()
+  {
+    return s_aRWLock.readLocked ( () -> s_bDefaultUseCompactTree);
+  }
+
+  /**
+   * Define whether the <code>read...</code> methods should create a memory
+   * efficient document (interned attribute names, shared whitespace texts and
+   * trimmed node storage). The created document uses the same node
+   * implementations in both cases.
+   *
+   * @param bDefaultUseCompactTree
+   *        <code>true</code> to create a memory efficient document,
+   *        <code>false</code> to use the default behaviour.
+   * @since 9.1.0
+   * @see MicroSAXHandler#isCompact()
+   */
+  public static void setDefaultUseCompactTree (final boolean bDefaultUseCompactTree)
+  {
+    s_aRWLock.writeLocked ( () -> {
+      s_bDefaultUseCompactTree = bDefaultUseCompactTree;
+    });
+  }
+
   @Nullable
   public static IMicroDocument readMicroXML (@WillClose @Nullable final InputSource aInputSource)
   {
@@ -84,7 +134,22 @@ public final class MicroReader
       return null;
 
     final EntityResolver aEntityResolver = aSettings == null ? null : aSettings.getEntityResolver ();
-    final MicroSAXHandler aMicroHandler = new MicroSAXHandler (false, aEntityResolver, true);
+    final MicroSAXHandler aMicroHandler = new MicroSAXHandler (false,
+                                                              aEntityResolver,
+                                                              true,
+                                                              isDefaultUseCompactTree ());
+    final SAXReaderSettings aRealSettings = _createSettings (aMicroHandler, aSettings);
+
+    if (SAXReader.readXMLSAX (aInputSource, aRealSettings).isFailure ())
+      return null;
+    return aMicroHandler.getDocument ();
+  }
+
+  @Nonnull
+  private static SAXReaderSettings _createSettings (@Nonnull final MicroSAXHandler aMicroHandler,
+                                                    @Nullable final ISAXReaderSettings aSettings)
+  {
+    final EntityResolver aEntityResolver = aSettings == null ? null : aSettings.getEntityResolver ();
 
     // Copy and modify settings
     final SAXReaderSettings aRealSettings = SAXReaderSettings.createCloneOnDemand (aSettings);
@@ -102,10 +167,7 @@ public final class MicroReader
       // Ensure to use the new aEntityResolver2 APIs if available
       aRealSettings.setFeatureValue (EXMLParserFeature.USE_ENTITY_RESOLVER2, true);
     }
-
-    if (SAXReader.readXMLSAX (aInputSource, aRealSettings).isFailure ())
-      return null;
-    return aMicroHandler.getDocument ();
+    return aRealSettings;
   }
 
   @Nullable
@@ -362,4 +424,165 @@ public final class MicroReader
 
     return readMicroXML (InputSourceFactory.create (aXML), aSettings);
   }
+
+  /**
+   * Read the passed input source element by element. Each element matching the
+   * provided element path is passed to the consumer as soon as it was read
+   * completely and is discarded afterwards, so that the memory consumption
+   * does not depend on the size of the document.
+   *
+   * @param aInputSource
+   *        The input source to use. May be <code>null</code> in which case
+   *        {@link ESuccess#FAILURE} is directly returned.
+   * @param sElementPath
+   *        The path of the elements to be passed to the consumer like
+   *        <code>/export/item</code>. <code>*</code> matches any element name.
+   *        May neither be <code>null</code> nor empty.
+   * @param aFragmentConsumer
+   *        The consumer for each matching element. Exceptions thrown by the
+   *        consumer stop reading and are propagated. May not be
+   *        <code>null</code>.
+   * @param aSettings
+   *        The settings to use. If <code>null</code> the default settings will
+   *        be used.
+   * @return {@link ESuccess#FAILURE} if either the input source is
+   *         <code>null</code> or if the input was invalid XML.
+   * @since 9.1.0
+   * @see MicroStreamingSAXHandler
+   */
+  @Nonnull
+  public static ESuccess readMicroXMLFragments (@WillClose @Nullable final InputSource aInputSource,
+                                                @Nonnull @Nonempty final String sElementPath,
+                                                @Nonnull final Consumer <? super IMicroElement> aFragmentConsumer,
+                                                @Nullable final ISAXReaderSettings aSettings)
+  {
+    if (aInputSource == null)
+      return ESuccess.FAILURE;
+
+    final EntityResolver aEntityResolver = aSettings == null ? null : aSettings.getEntityResolver ();
+    final MicroStreamingSAXHandler aMicroHandler = new MicroStreamingSAXHandler (sElementPath,
+                                                                                aEntityResolver,
+                                                                                aFragmentConsumer);
+    final SAXReaderSettings aRealSettings = _createSettings (aMicroHandler, aSettings);
+
+    final ESuccess eSuccess = SAXReader.readXMLSAX (aInputSource, aRealSettings);
+    if (eSuccess.isFailure ())
+    {
+      // The SAX reader swallows all exceptions
+      final RuntimeException ex = aMicroHandler.getConsumerException ();
+      if (ex != null)
+        throw ex;
+    }
+    return eSuccess;
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXMLFragments (@WillClose @Nullable final InputSource aInputSource,
+                                                @Nonnull @Nonempty final String sElementPath,
+                                                @Nonnull final Consumer <? super IMicroElement> aFragmentConsumer)
+  {
+    return readMicroXMLFragments (aInputSource, sElementPath, aFragmentConsumer, (ISAXReaderSettings) null);
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXMLFragments (@Nullable final File aFile,
+                                                @Nonnull @Nonempty final String sElementPath,
+                                                @Nonnull final Consumer <? super IMicroElement> aFragmentConsumer)
+  {
+    if (aFile == null)
+      return ESuccess.FAILURE;
+
+    return readMicroXMLFragments (InputSourceFactory.create (aFile), sElementPath, aFragmentConsumer);
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXMLFragments (@Nullable final Path aPath,
+                                                @Nonnull @Nonempty final String sElementPath,
+                                                @Nonnull final Consumer <? super IMicroElement> aFragmentConsumer)
+  {
+    if (aPath == null)
+      return ESuccess.FAILURE;
+
+    return readMicroXMLFragments (InputSourceFactory.create (aPath), sElementPath, aFragmentConsumer);
+  }
+
+  @Nonnull
+  public static ESuccess readMicroXMLFragments (@Nullable final IHasInputStream aISP,
+                                                @Nonnull @Nonempty final String sElementPath,
+                                                @Nonnull final Consumer <? super IMicroElement> aFragmentConsumer)
+  {
+    if (aISP == null)
+      return ESuccess.FAILURE;
+
+    return readMicroXMLFragments (InputSourceFactory.create (aISP), sElementPath, aFragmentConsumer);
+  }
+
+  /**
+   * Read all passed resources in parallel using the common fork/join pool.
+   *
+   * @param aResources
+   *        The resources to read. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings to use for all resources. Must be usable from multiple
+   *        threads at once. If <code>null</code> the default settings will be
+   *        used.
+   * @return The read documents in the order of the resources. An entry is
+   *         <code>null</code> if the respective resource could not be read.
+   *         Never <code>null</code>.
+   * @since 9.1.0
+   * @see #readMicroXMLParallel(Collection, ISAXReaderSettings, Executor)
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsList <IMicroDocument> readMicroXMLParallel (@Nonnull final Collection <? extends IReadableResource> aResources,
+                                                                    @Nullable final ISAXReaderSettings aSettings)
+  {
+    return readMicroXMLParallel (aResources, aSettings, ForkJoinPool.commonPool ());
+  }
+
+  /**
+   * Read all passed resources in parallel. Each resource is read with a
+   * separate parser from the {@link SAXReader#getParserProvider() parser
+   * provider}.
+   *
+   * @param aResources
+   *        The resources to read. May not be <code>null</code>.
+   * @param aSettings
+   *        The settings to use for all resources. Must be usable from multiple
+   *        threads at once. If <code>null</code> the default settings will be
+   *        used.
+   * @param aExecutor
+   *        The executor to read the resources. May not be <code>null</code>.
+   * @return The read documents in the order of the resources. An entry is
+   *         <code>null</code> if the respective resource could not be read.
+   *         Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  @ReturnsMutableCopy
+  public static ICommonsList <IMicroDocument> readMicroXMLParallel (@Nonnull final Collection <? extends IReadableResource> aResources,
+                                                                    @Nullable final ISAXReaderSettings aSettings,
+                                                                    @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aResources, "Resources");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    final ICommonsList <CompletableFuture <IMicroDocument>> aFutures = new CommonsArrayList <> (aResources.size ());
+    for (final IReadableResource aRes : aResources)
+      aFutures.add (CompletableFuture.supplyAsync ( () -> readMicroXML (aRes, aSettings), aExecutor));
+
+    final ICommonsList <IMicroDocument> ret = new CommonsArrayList <> (aFutures.size ());
+    for (final CompletableFuture <IMicroDocument> aFuture : aFutures)
+      try
+      {
+        ret.add (aFuture.join ());
+      }
+      catch (final CompletionException ex)
+      {
+        if (ex.getCause () instanceof RuntimeException)
+          throw (RuntimeException) ex.getCause ();
+        throw ex;
+      }
+    return ret;
+  }
 }
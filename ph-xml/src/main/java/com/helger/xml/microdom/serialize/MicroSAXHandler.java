@@ -40,18 +40,23 @@ import org.xml.sax.ext.Locator2;
 
 import com.helger.commons.CGlobal;
 import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.error.level.EErrorLevel;
 import com.helger.commons.error.level.IErrorLevel;
 import com.helger.commons.location.SimpleLocation;
 import com.helger.commons.string.StringHelper;
+import com.helger.xml.microdom.AbstractMicroNodeWithChildren;
 import com.helger.xml.microdom.IMicroCDATA;
 import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.microdom.IMicroDocumentType;
 import com.helger.xml.microdom.IMicroElement;
 import com.helger.xml.microdom.IMicroNode;
+import com.helger.xml.microdom.IMicroQName;
 import com.helger.xml.microdom.IMicroText;
 import com.helger.xml.microdom.MicroDocument;
 import com.helger.xml.microdom.MicroDocumentType;
+import com.helger.xml.microdom.MicroQName;
 import com.helger.xml.sax.AbstractSAXErrorHandler;
 
 /**
@@ -62,6 +67,10 @@ import com.helger.xml.sax.AbstractSAXErrorHandler;
 public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHandler, ErrorHandler, LexicalHandler
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (MicroSAXHandler.class);
+  /** The maximum length of whitespace-only texts to be shared */
+  private static final int MAX_SHARED_WHITESPACE_LENGTH = 256;
+  /** The maximum number of different whitespace-only texts to be shared */
+  private static final int MAX_SHARED_WHITESPACE_COUNT = 1024;
 
   private IMicroDocument m_aDoc;
   private IMicroDocumentType m_aDocType;
@@ -73,6 +82,11 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   private final EntityResolver m_aEntityResolver;
   private final EntityResolver2 m_aEntityResolver2;
   private final boolean m_bTrackPosition;
+  private final boolean m_bCompact;
+  // Compact mode only: namespace URI to local name to QName
+  private final ICommonsMap <String, ICommonsMap <String, IMicroQName>> m_aQNames;
+  // Compact mode only: shared whitespace-only texts
+  private final ICommonsMap <String, String> m_aWhitespaces;
   private Locator m_aLocator;
   private String m_sSourceXMLVersion;
   private String m_sSourceXMLEncoding;
@@ -80,11 +94,114 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   public MicroSAXHandler (final boolean bSaveIgnorableWhitespaces,
                           @Nullable final EntityResolver aEntityResolver,
                           final boolean bTrackPosition)
+  {
+    this (bSaveIgnorableWhitespaces, aEntityResolver, bTrackPosition, false);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param bSaveIgnorableWhitespaces
+   *        <code>true</code> to keep ignorable whitespaces.
+   * @param aEntityResolver
+   *        The entity resolver to be used. May be <code>null</code>.
+   * @param bTrackPosition
+   *        <code>true</code> to track the position in the source.
+   * @param bCompact
+   *        <code>true</code> to create a memory efficient document: all
+   *        attribute names are interned per document, whitespace-only texts
+   *        share the same string and all internal node storage is trimmed
+   *        after an element was read. The created nodes are the regular ones.
+   * @since 9.1.0
+   */
+  public MicroSAXHandler (final boolean bSaveIgnorableWhitespaces,
+                          @Nullable final EntityResolver aEntityResolver,
+                          final boolean bTrackPosition,
+                          final boolean bCompact)
   {
     m_bSaveIgnorableWhitespaces = bSaveIgnorableWhitespaces;
     m_aEntityResolver = aEntityResolver;
     m_aEntityResolver2 = aEntityResolver instanceof EntityResolver2 ? (EntityResolver2) aEntityResolver : null;
     m_bTrackPosition = bTrackPosition;
+    m_bCompact = bCompact;
+    m_aQNames = bCompact ? new CommonsHashMap <> () : null;
+    m_aWhitespaces = bCompact ? new CommonsHashMap <> () : null;
+  }
+
+  /**
+   * @return <code>true</code> if a memory efficient document is created,
+   *         <code>false</code> if not.
+   * @since 9.1.0
+   */
+  public final boolean isCompact ()
+  {
+    return m_bCompact;
+  }
+
+  @Nonnull
+  private IMicroQName _getInternedQName (@Nullable final String sNamespaceURI, @Nonnull final String sName)
+  {
+    final String sRealNamespaceURI = StringHelper.getNotNull (sNamespaceURI);
+    return m_aQNames.computeIfAbsent (sRealNamespaceURI, k -> new CommonsHashMap <> ())
+                    .computeIfAbsent (sName, k -> new MicroQName (sRealNamespaceURI, k));
+  }
+
+  private static boolean _isWhitespaceOnly (@Nonnull final char [] aChars,
+                                            @Nonnegative final int nStart,
+                                            @Nonnegative final int nLength)
+  {
+    for (int i = 0; i < nLength; ++i)
+    {
+      final char c = aChars[nStart + i];
+      if (c != ' ' && c != '\t' && c != '\n' && c != '\r')
+        return false;
+    }
+    return true;
+  }
+
+  /**
+   * Get the shared string for a whitespace-only text.
+   *
+   * @return <code>null</code> if not in compact mode or if the text cannot be
+   *         shared.
+   */
+  @Nullable
+  private String _getSharedWhitespace (@Nonnull final char [] aChars,
+                                       @Nonnegative final int nStart,
+                                       @Nonnegative final int nLength)
+  {
+    if (!m_bCompact || nLength > MAX_SHARED_WHITESPACE_LENGTH || !_isWhitespaceOnly (aChars, nStart, nLength))
+      return null;
+
+    final String sText = new String (aChars, nStart, nLength);
+    final String sShared = m_aWhitespaces.get (sText);
+    if (sShared != null)
+      return sShared;
+    if (m_aWhitespaces.size () < MAX_SHARED_WHITESPACE_COUNT)
+      m_aWhitespaces.put (sText, sText);
+    return sText;
+  }
+
+  private void _appendText (@Nonnull final char [] aChars,
+                            @Nonnegative final int nStart,
+                            @Nonnegative final int nLength,
+                            final boolean bIgnorableWhitespace)
+  {
+    final String sShared = _getSharedWhitespace (aChars, nStart, nLength);
+    if (bIgnorableWhitespace)
+    {
+      if (sShared != null)
+        m_aParent.appendIgnorableWhitespaceText (sShared);
+      else
+        m_aParent.appendIgnorableWhitespaceText (aChars, nStart, nLength);
+    }
+    else
+    {
+      if (sShared != null)
+        m_aParent.appendText (sShared);
+      else
+        m_aParent.appendText (aChars, nStart, nLength);
+    }
   }
 
   private void _createParentDocument ()
@@ -130,6 +247,9 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   public void endDocument ()
   {
     _updatePosition ("endDocument");
+
+    if (m_bCompact && m_aDoc instanceof AbstractMicroNodeWithChildren)
+      ((AbstractMicroNodeWithChildren) m_aDoc).trimToSize ();
   }
 
   public void startDTD (final String sName, final String sPublicId, final String sSystemId) throws SAXException
@@ -175,7 +295,12 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
         // Ignore the "xmlns" attributes, as the SAX handler passes the correct
         // namespace URIs
         if (!sAttrName.startsWith (XMLConstants.XMLNS_ATTRIBUTE))
-          aElement.setAttribute (sAttrNamespaceURI, sAttrName, sAttrValue);
+        {
+          if (m_bCompact)
+            aElement.setAttribute (_getInternedQName (sAttrNamespaceURI, sAttrName), sAttrValue);
+          else
+            aElement.setAttribute (sAttrNamespaceURI, sAttrName, sAttrValue);
+        }
       }
     }
 
@@ -186,6 +311,10 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
   {
     _updatePosition ("endElement");
 
+    // The element is complete - release all unused memory
+    if (m_bCompact && m_aParent instanceof AbstractMicroNodeWithChildren)
+      ((AbstractMicroNodeWithChildren) m_aParent).trimToSize ();
+
     // Go one level up in the stack
     m_aParent = m_aParent.getParent ();
   }
@@ -233,13 +362,13 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
         else
         {
           // Add to parent
-          m_aParent.appendText (aChars, nStart, nLength);
+          _appendText (aChars, nStart, nLength, false);
         }
       }
       else
       {
         // Add to parent
-        m_aParent.appendText (aChars, nStart, nLength);
+        _appendText (aChars, nStart, nLength, false);
       }
     }
   }
@@ -277,10 +406,10 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
           aLastText.appendData (aChars, nStart, nLength);
         }
         else
-          m_aParent.appendIgnorableWhitespaceText (aChars, nStart, nLength);
+          _appendText (aChars, nStart, nLength, true);
       }
       else
-        m_aParent.appendIgnorableWhitespaceText (aChars, nStart, nLength);
+        _appendText (aChars, nStart, nLength, true);
     }
   }
 
@@ -422,6 +551,17 @@ public class MicroSAXHandler implements EntityResolver2, DTDHandler, ContentHand
     s_aLogger.error (_getMsg (EErrorLevel.FATAL_ERROR, ex));
   }
 
+  /**
+   * @return The node to which the next read node will be appended. May be
+   *         <code>null</code> if no document start event came in.
+   * @since 9.1.0
+   */
+  @Nullable
+  protected final IMicroNode getCurrentParent ()
+  {
+    return m_aParent;
+  }
+
   /**
    * @return The created and filled micro document. May be <code>null</code> if
    *         no document start event came in.
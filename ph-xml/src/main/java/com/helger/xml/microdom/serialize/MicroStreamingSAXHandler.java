@@ -0,0 +1,237 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.serialize;
+
+import java.util.function.Consumer;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.NotThreadSafe;
+
+import org.xml.sax.Attributes;
+import org.xml.sax.EntityResolver;
+import org.xml.sax.SAXException;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.string.StringHelper;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroNode;
+
+/**
+ * A special {@link MicroSAXHandler} that does not build the whole document.
+ * Instead each element matching the provided element path is passed to a
+ * consumer as soon as it is complete and is afterwards discarded. Only the
+ * elements on the path (the ancestors of the matching elements, including
+ * their attributes) are kept in the resulting document - all other elements
+ * and all texts, comments etc. outside of matching elements are skipped. This
+ * allows processing arbitrarily large XML documents with constant memory.
+ * <p>
+ * The element path is a simple absolute path of local element names separated
+ * by slashes like <code>/export/item</code>. <code>*</code> matches any
+ * element name. Namespace URIs are not considered.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ */
+@NotThreadSafe
+public class MicroStreamingSAXHandler extends MicroSAXHandler
+{
+  /** The wildcard path part that matches any element name */
+  public static final String PATH_WILDCARD = "*";
+
+  private final String [] m_aPath;
+  private final Consumer <? super IMicroElement> m_aFragmentConsumer;
+  // Number of currently open elements matching the path prefix
+  private int m_nPathDepth = 0;
+  // Number of currently open elements inside a matching element (incl. itself)
+  private int m_nFragmentDepth = 0;
+  // Number of currently open elements that are skipped
+  private int m_nSkipDepth = 0;
+  private int m_nFragmentCount = 0;
+  private RuntimeException m_aConsumerException;
+
+  public MicroStreamingSAXHandler (@Nonnull @Nonempty final String sElementPath,
+                                   @Nonnull final Consumer <? super IMicroElement> aFragmentConsumer)
+  {
+    this (sElementPath, null, aFragmentConsumer);
+  }
+
+  /**
+   * Constructor
+   *
+   * @param sElementPath
+   *        The element path like <code>/export/item</code>. May neither be
+   *        <code>null</code> nor empty.
+   * @param aEntityResolver
+   *        The entity resolver to be used. May be <code>null</code>.
+   * @param aFragmentConsumer
+   *        The consumer that is invoked for each complete element matching the
+   *        path. The passed element is already detached from its parent. May
+   *        not be <code>null</code>.
+   */
+  public MicroStreamingSAXHandler (@Nonnull @Nonempty final String sElementPath,
+                                   @Nullable final EntityResolver aEntityResolver,
+                                   @Nonnull final Consumer <? super IMicroElement> aFragmentConsumer)
+  {
+    super (false, aEntityResolver, false);
+    ValueEnforcer.notEmpty (sElementPath, "ElementPath");
+    ValueEnforcer.notNull (aFragmentConsumer, "FragmentConsumer");
+    m_aPath = StringHelper.getExploded ('/', sElementPath)
+                          .getAll (StringHelper::hasText)
+                          .toArray (new String [0]);
+    ValueEnforcer.isTrue (m_aPath.length > 0, () -> "ElementPath '" + sElementPath + "' contains no element name");
+    m_aFragmentConsumer = aFragmentConsumer;
+  }
+
+  private boolean _isInFragment ()
+  {
+    return m_nFragmentDepth > 0;
+  }
+
+  @Override
+  public void startElement (@Nullable final String sNamespaceURI,
+                            @Nonnull final String sLocalName,
+                            @Nullable final String sQName,
+                            @Nullable final Attributes aAttributes)
+  {
+    if (_isInFragment ())
+    {
+      super.startElement (sNamespaceURI, sLocalName, sQName, aAttributes);
+      m_nFragmentDepth++;
+    }
+    else
+      if (m_nSkipDepth > 0)
+        m_nSkipDepth++;
+      else
+      {
+        final String sPathPart = m_aPath[m_nPathDepth];
+        if (sPathPart.equals (PATH_WILDCARD) || sPathPart.equals (sLocalName))
+        {
+          super.startElement (sNamespaceURI, sLocalName, sQName, aAttributes);
+          if (m_nPathDepth == m_aPath.length - 1)
+            m_nFragmentDepth = 1;
+          else
+            m_nPathDepth++;
+        }
+        else
+          m_nSkipDepth = 1;
+      }
+  }
+
+  @Override
+  public void endElement (final String sNamespaceURI, final String sLocalName, final String sQName)
+  {
+    if (_isInFragment ())
+    {
+      super.endElement (sNamespaceURI, sLocalName, sQName);
+      m_nFragmentDepth--;
+      if (m_nFragmentDepth == 0)
+      {
+        // A matching element is complete - it is the last child, because
+        // everything else outside of fragments is skipped
+        final IMicroNode aFragment = getCurrentParent ().getLastChild ();
+        aFragment.detachFromParent ();
+        m_nFragmentCount++;
+        try
+        {
+          m_aFragmentConsumer.accept ((IMicroElement) aFragment);
+        }
+        catch (final RuntimeException ex)
+        {
+          // Remember to propagate it from the reader
+          m_aConsumerException = ex;
+          throw ex;
+        }
+      }
+    }
+    else
+      if (m_nSkipDepth > 0)
+        m_nSkipDepth--;
+      else
+      {
+        super.endElement (sNamespaceURI, sLocalName, sQName);
+        m_nPathDepth--;
+      }
+  }
+
+  @Override
+  public void processingInstruction (final String sTarget, final String sData)
+  {
+    if (_isInFragment ())
+      super.processingInstruction (sTarget, sData);
+  }
+
+  @Override
+  public void characters (@Nonnull final char [] aChars, @Nonnegative final int nStart, @Nonnegative final int nLength)
+  {
+    if (_isInFragment ())
+      super.characters (aChars, nStart, nLength);
+  }
+
+  @Override
+  public void comment (@Nonnull final char [] aChars,
+                       @Nonnegative final int nStart,
+                       @Nonnegative final int nLength) throws SAXException
+  {
+    if (_isInFragment ())
+      super.comment (aChars, nStart, nLength);
+  }
+
+  @Override
+  public void ignorableWhitespace (@Nonnull final char [] aChars,
+                                   @Nonnegative final int nStart,
+                                   @Nonnegative final int nLength)
+  {
+    if (_isInFragment ())
+      super.ignorableWhitespace (aChars, nStart, nLength);
+  }
+
+  @Override
+  public void startCDATA () throws SAXException
+  {
+    if (_isInFragment ())
+      super.startCDATA ();
+  }
+
+  @Override
+  public void endCDATA () throws SAXException
+  {
+    if (_isInFragment ())
+      super.endCDATA ();
+  }
+
+  /**
+   * @return The number of elements passed to the consumer so far. Always &ge;
+   *         0.
+   */
+  @Nonnegative
+  public final int getFragmentCount ()
+  {
+    return m_nFragmentCount;
+  }
+
+  /**
+   * @return The first exception thrown by the consumer or <code>null</code>.
+   */
+  @Nullable
+  public final RuntimeException getConsumerException ()
+  {
+    return m_aConsumerException;
+  }
+}
@@ -16,10 +16,26 @@
  */
 package com.helger.xml.schema;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
 import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 
+import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
+import javax.annotation.OverridingMethodsMustInvokeSuper;
+import javax.annotation.concurrent.GuardedBy;
 import javax.annotation.concurrent.ThreadSafe;
 import javax.xml.transform.Source;
 import javax.xml.validation.Schema;
@@ -31,41 +47,299 @@ import org.xml.sax.ErrorHandler;
 import org.xml.sax.SAXException;
 
 import com.helger.commons.ValueEnforcer;
+import com.helger.commons.annotation.ELockType;
+import com.helger.commons.annotation.MustBeLocked;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.cache.Cache;
 import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.CommonsHashMap;
+import com.helger.commons.collection.impl.CommonsHashSet;
 import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.commons.collection.impl.ICommonsMap;
+import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.concurrent.SimpleLock;
+import com.helger.commons.functional.ISupplier;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.state.EChange;
+import com.helger.commons.statistics.IMutableStatisticsHandlerKeyedTimer;
+import com.helger.commons.statistics.IStatisticsHandlerKeyedTimer;
+import com.helger.commons.statistics.StatisticsManager;
+import com.helger.commons.string.StringHelper;
 import com.helger.commons.string.ToStringGenerator;
+import com.helger.commons.timing.StopWatch;
 import com.helger.xml.transform.TransformSourceFactory;
 
 /**
  * Base class for caching abstract {@link Schema} objects. A {@link Schema} is
  * immutable and can therefore safely be used in multi-threaded environments.
+ * <p>
+ * Compiled schemas are stored by the content of the resources (see
+ * {@link #getContentKey(Collection)}), so that equal resources share the same
+ * {@link Schema} even if the resource objects are not equal. Schemas are
+ * compiled outside of the cache lock, so that the compilation of a large
+ * schema set does not block the retrieval of other schemas. If more than
+ * {@link #getMaxSize()} schemas are compiled, the least recently used ones are
+ * evicted, unless they are pinned via {@link #pinSchema(Collection)}.
  *
  * @author Philip Helger
  */
 @ThreadSafe
 public class SchemaCache extends Cache <ICommonsList <? extends IReadableResource>, Schema>
 {
+  /** The maximum number of compiled schemas to keep */
+  public static final int DEFAULT_MAX_SIZE = 500;
+
+  /**
+   * Contains the compiled schemas by content key. It is the value provider of
+   * the underlying cache that maps the resource lists to the schemas.
+   */
+  @ThreadSafe
+  private static final class SchemaStore
+  {
+    private final String m_sSchemaTypeName;
+    private final SchemaFactory m_aSchemaFactory;
+    private final ISupplier <? extends SchemaFactory> m_aSchemaFactoryProvider;
+    private final IMutableStatisticsHandlerKeyedTimer m_aCompileStats;
+    private final SimpleLock m_aLock = new SimpleLock ();
+    // Access order for LRU eviction
+    @GuardedBy ("m_aLock")
+    private final Map <String, Schema> m_aSchemas = new LinkedHashMap <> (16, 0.75f, true);
+    @GuardedBy ("m_aLock")
+    private final ICommonsMap <String, CompletableFuture <Schema>> m_aInCompilation = new CommonsHashMap <> ();
+    @GuardedBy ("m_aLock")
+    private final ICommonsSet <String> m_aPinnedKeys = new CommonsHashSet <> ();
+
+    SchemaStore (@Nonnull final String sSchemaTypeName,
+                 @Nonnull final SchemaFactory aSchemaFactory,
+                 @Nullable final ISupplier <? extends SchemaFactory> aSchemaFactoryProvider)
+    {
+      m_sSchemaTypeName = ValueEnforcer.notNull (sSchemaTypeName, "SchemaTypeName");
+      m_aSchemaFactory = ValueEnforcer.notNull (aSchemaFactory, "SchemaFactory");
+      m_aSchemaFactoryProvider = aSchemaFactoryProvider;
+      m_aCompileStats = StatisticsManager.getKeyedTimerHandler (STATISTICS_PREFIX + _getCacheName (sSchemaTypeName) + "$compile");
+    }
+
+    @Nonnull
+    private Schema _compile (@Nonnull final ICommonsList <? extends IReadableResource> aResources)
+    {
+      final StopWatch aSW = StopWatch.createdStarted ();
+      final Schema ret;
+      if (m_aSchemaFactoryProvider != null)
+      {
+        // SchemaFactory is not thread-safe - use a separate one
+        final SchemaFactory aSchemaFactory = m_aSchemaFactoryProvider.get ();
+        aSchemaFactory.setErrorHandler (m_aSchemaFactory.getErrorHandler ());
+        aSchemaFactory.setResourceResolver (m_aSchemaFactory.getResourceResolver ());
+        ret = createSchema (aSchemaFactory, m_sSchemaTypeName, aResources);
+      }
+      else
+        synchronized (m_aSchemaFactory)
+        {
+          ret = createSchema (m_aSchemaFactory, m_sSchemaTypeName, aResources);
+        }
+      m_aCompileStats.addTime (getStatisticsKey (aResources), aSW.stopAndGetMillis ());
+      return ret;
+    }
+
+    @MustBeLocked (ELockType.WRITE)
+    private void _evict ()
+    {
+      if (m_aSchemas.size () > DEFAULT_MAX_SIZE)
+      {
+        // Least recently used first
+        final Iterator <String> it = m_aSchemas.keySet ().iterator ();
+        while (m_aSchemas.size () > DEFAULT_MAX_SIZE && it.hasNext ())
+          if (!m_aPinnedKeys.contains (it.next ()))
+            it.remove ();
+      }
+    }
+
+    @Nonnull
+    Schema getSchema (@Nonnull final String sKey, @Nonnull final ICommonsList <? extends IReadableResource> aResources)
+    {
+      final CompletableFuture <Schema> aNewFuture = new CompletableFuture <> ();
+      final Object aExisting = m_aLock.locked ( () -> {
+        final Schema aSchema = m_aSchemas.get (sKey);
+        if (aSchema != null)
+          return aSchema;
+        // Compile each content only once
+        return m_aInCompilation.putIfAbsent (sKey, aNewFuture);
+      });
+      if (aExisting instanceof Schema)
+        return (Schema) aExisting;
+
+      @SuppressWarnings ("unchecked")
+      final CompletableFuture <Schema> aFuture = (CompletableFuture <Schema>) aExisting;
+      if (aFuture == null)
+      {
+        // Compile outside of any lock
+        final Schema ret;
+        try
+        {
+          ret = _compile (aResources);
+        }
+        catch (final RuntimeException ex)
+        {
+          m_aLock.locked ( () -> {
+            m_aInCompilation.remove (sKey);
+          });
+          aNewFuture.completeExceptionally (ex);
+          throw ex;
+        }
+        m_aLock.locked ( () -> {
+          m_aSchemas.put (sKey, ret);
+          m_aInCompilation.remove (sKey);
+          _evict ();
+        });
+        aNewFuture.complete (ret);
+        return ret;
+      }
+
+      // Wait for the compilation in another thread
+      try
+      {
+        return aFuture.join ();
+      }
+      catch (final CompletionException ex)
+      {
+        if (ex.getCause () instanceof RuntimeException)
+          throw (RuntimeException) ex.getCause ();
+        throw ex;
+      }
+    }
+
+    @Nonnull
+    EChange remove (@Nonnull final String sKey)
+    {
+      return m_aLock.locked ( () -> EChange.valueOf (m_aSchemas.remove (sKey) != null));
+    }
+
+    @Nonnull
+    EChange clear ()
+    {
+      return m_aLock.locked ( () -> {
+        if (m_aSchemas.isEmpty ())
+          return EChange.UNCHANGED;
+        m_aSchemas.clear ();
+        return EChange.CHANGED;
+      });
+    }
+
+    @Nonnull
+    EChange pin (@Nonnull final String sKey, final boolean bPin)
+    {
+      return m_aLock.locked ( () -> EChange.valueOf (bPin ? m_aPinnedKeys.add (sKey) : m_aPinnedKeys.remove (sKey)));
+    }
+
+    boolean isPinned (@Nonnull final String sKey)
+    {
+      return m_aLock.locked ( () -> m_aPinnedKeys.contains (sKey));
+    }
+
+    @Nonnegative
+    int getCompiledSchemaCount ()
+    {
+      return m_aLock.locked ( () -> m_aSchemas.size ());
+    }
+
+    @Nonnull
+    IStatisticsHandlerKeyedTimer getCompileStatistics ()
+    {
+      return m_aCompileStats;
+    }
+  }
+
   private final String m_sSchemaTypeName;
   private final SchemaFactory m_aSchemaFactory;
+  private final SchemaStore m_aStore;
 
+  /**
+   * Constructor. All schemas are compiled with the provided
+   * {@link SchemaFactory}, so only one schema can be compiled at a time.
+   *
+   * @param sSchemaTypeName
+   *        The schema type name. May not be <code>null</code>.
+   * @param aSchemaFactory
+   *        The schema factory to use. May not be <code>null</code>.
+   * @param aErrorHandler
+   *        The error handler to use. May be <code>null</code>.
+   * @param aResourceResolver
+   *        The resource resolver to use. May be <code>null</code>.
+   */
   public SchemaCache (@Nonnull final String sSchemaTypeName,
                       @Nonnull final SchemaFactory aSchemaFactory,
                       @Nullable final ErrorHandler aErrorHandler,
                       @Nullable final LSResourceResolver aResourceResolver)
   {
-    super (aKey -> createSchema (aSchemaFactory, sSchemaTypeName, aKey),
-           500,
-           SchemaCache.class.getName () + "$" + sSchemaTypeName);
-    ValueEnforcer.notNull (sSchemaTypeName, "SchemaTypeName");
-    ValueEnforcer.notNull (aSchemaFactory, "SchemaFactory");
+    this (sSchemaTypeName,
+          new SchemaStore (sSchemaTypeName, aSchemaFactory, null),
+          aSchemaFactory,
+          aErrorHandler,
+          aResourceResolver);
+  }
+
+  /**
+   * Constructor. Each schema is compiled with a new {@link SchemaFactory} from
+   * the provided supplier, so that multiple schemas can be compiled in
+   * parallel. The error handler and the resource resolver must therefore be
+   * thread-safe. All features and properties must be set by the supplier, as
+   * changes to {@link #getSchemaFactory()} are not applied to the created
+   * factories.
+   *
+   * @param sSchemaTypeName
+   *        The schema type name. May not be <code>null</code>.
+   * @param aSchemaFactoryProvider
+   *        The supplier for new schema factories. May not be <code>null</code>.
+   * @param aErrorHandler
+   *        The error handler to use. May be <code>null</code>.
+   * @param aResourceResolver
+   *        The resource resolver to use. May be <code>null</code>.
+   * @since 9.1.0
+   */
+  public SchemaCache (@Nonnull final String sSchemaTypeName,
+                      @Nonnull final ISupplier <? extends SchemaFactory> aSchemaFactoryProvider,
+                      @Nullable final ErrorHandler aErrorHandler,
+                      @Nullable final LSResourceResolver aResourceResolver)
+  {
+    this (sSchemaTypeName,
+          ValueEnforcer.notNull (aSchemaFactoryProvider, "SchemaFactoryProvider").get (),
+          aSchemaFactoryProvider,
+          aErrorHandler,
+          aResourceResolver);
+  }
+
+  private SchemaCache (@Nonnull final String sSchemaTypeName,
+                       @Nonnull final SchemaFactory aSchemaFactory,
+                       @Nonnull final ISupplier <? extends SchemaFactory> aSchemaFactoryProvider,
+                       @Nullable final ErrorHandler aErrorHandler,
+                       @Nullable final LSResourceResolver aResourceResolver)
+  {
+    this (sSchemaTypeName,
+          new SchemaStore (sSchemaTypeName, aSchemaFactory, aSchemaFactoryProvider),
+          aSchemaFactory,
+          aErrorHandler,
+          aResourceResolver);
+  }
+
+  private SchemaCache (@Nonnull final String sSchemaTypeName,
+                       @Nonnull final SchemaStore aStore,
+                       @Nonnull final SchemaFactory aSchemaFactory,
+                       @Nullable final ErrorHandler aErrorHandler,
+                       @Nullable final LSResourceResolver aResourceResolver)
+  {
+    super (aKey -> aStore.getSchema (getContentKey (aKey), aKey), DEFAULT_MAX_SIZE, _getCacheName (sSchemaTypeName));
     m_sSchemaTypeName = sSchemaTypeName;
     m_aSchemaFactory = aSchemaFactory;
     m_aSchemaFactory.setErrorHandler (aErrorHandler);
     m_aSchemaFactory.setResourceResolver (aResourceResolver);
+    m_aStore = aStore;
+  }
+
+  @Nonnull
+  @Nonempty
+  private static String _getCacheName (@Nonnull final String sSchemaTypeName)
+  {
+    return SchemaCache.class.getName () + "$" + sSchemaTypeName;
   }
 
   @Nonnull
@@ -74,6 +348,12 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
     return m_sSchemaTypeName;
   }
 
+  /**
+   * @return The schema factory passed in the constructor, or the first one
+   *         created by the supplier passed in the constructor. In the latter
+   *         case it is only used as a template for the error handler and the
+   *         resource resolver. Never <code>null</code>.
+   */
   @Nonnull
   public SchemaFactory getSchemaFactory ()
   {
@@ -121,6 +401,105 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
     }
   }
 
+  /**
+   * Get the key under which the compiled schema of the provided resources is
+   * stored. It is the SHA-256 hash of the resource IDs and the resource
+   * contents. The resource IDs are part of the key, because relative imports
+   * and includes are resolved against them. Imported or included resources
+   * are not part of the key.
+   *
+   * @param aResources
+   *        The resources to build the key from. May neither be
+   *        <code>null</code> nor empty.
+   * @return The hex encoded key. Never <code>null</code>.
+   * @throws IllegalArgumentException
+   *         If a resource cannot be read
+   * @since 9.1.0
+   */
+  @Nonnull
+  @Nonempty
+  public static String getContentKey (@Nonnull @Nonempty final Collection <? extends IReadableResource> aResources)
+  {
+    ValueEnforcer.notEmptyNoNullValue (aResources, "Resources");
+
+    final MessageDigest aMD;
+    try
+    {
+      aMD = MessageDigest.getInstance ("SHA-256");
+    }
+    catch (final NoSuchAlgorithmException ex)
+    {
+      throw new IllegalStateException ("SHA-256 is not supported", ex);
+    }
+
+    final byte [] aBuffer = new byte [8192];
+    for (final IReadableResource aResource : aResources)
+    {
+      aMD.update (aResource.getResourceID ().getBytes (StandardCharsets.UTF_8));
+      aMD.update ((byte) 0);
+      try (final InputStream aIS = aResource.getInputStream ())
+      {
+        if (aIS == null)
+          throw new IllegalArgumentException ("Failed to open " + aResource);
+        long nTotal = 0;
+        int nRead;
+        while ((nRead = aIS.read (aBuffer)) > 0)
+        {
+          aMD.update (aBuffer, 0, nRead);
+          nTotal += nRead;
+        }
+        // Separate the content from the next resource
+        for (int i = 0; i < 8; ++i)
+          aMD.update ((byte) (nTotal >>> (i * 8)));
+      }
+      catch (final IOException ex)
+      {
+        throw new IllegalArgumentException ("Failed to read " + aResource, new UncheckedIOException (ex));
+      }
+    }
+    return StringHelper.getHexEncoded (aMD.digest ());
+  }
+
+  /**
+   * Get the key under which the compile time of the provided resources is
+   * stored in the compile statistics.
+   *
+   * @param aResources
+   *        The resources to build the key from. May not be <code>null</code>.
+   * @return The comma separated resource IDs. Never <code>null</code>.
+   * @see #getCompileStatistics()
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static String getStatisticsKey (@Nonnull final Collection <? extends IReadableResource> aResources)
+  {
+    return StringHelper.getImplodedMapped (", ", aResources, IReadableResource::getResourceID);
+  }
+
+  /**
+   * Get the {@link Schema} from the cache or compile it. The compilation
+   * happens outside of the cache lock.
+   *
+   * @param aKey
+   *        The resources of the schema. May neither be <code>null</code> nor
+   *        empty.
+   * @return The cached or newly compiled schema. Never <code>null</code>.
+   */
+  @Override
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public Schema getFromCache (@Nonnull final ICommonsList <? extends IReadableResource> aKey)
+  {
+    if (getFromCacheNoStats (aKey) == null)
+    {
+      // Compile before the write lock of the cache is acquired, so that other
+      // schemas can be retrieved in the meantime
+      final Schema aSchema = m_aStore.getSchema (getContentKey (aKey), aKey);
+      return getFromCache (aKey, x -> aSchema);
+    }
+    return super.getFromCache (aKey);
+  }
+
   /**
    * Get a cached {@link Schema} from a single resource.
    *
@@ -253,6 +632,150 @@ public class SchemaCache extends Cache <ICommonsList <? extends IReadableResourc
     return removeFromCache (new CommonsArrayList <> (aKey));
   }
 
+  @Override
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange removeFromCache (@Nonnull final ICommonsList <? extends IReadableResource> aKey)
+  {
+    EChange ret = super.removeFromCache (aKey);
+    try
+    {
+      ret = ret.or (m_aStore.remove (getContentKey (aKey)));
+    }
+    catch (final IllegalArgumentException ex)
+    {
+      // Resource cannot be read anymore - nothing to remove
+    }
+    return ret;
+  }
+
+  /**
+   * Remove all schemas from the cache, including the pinned ones. The pin
+   * state itself is retained.
+   */
+  @Override
+  @Nonnull
+  @OverridingMethodsMustInvokeSuper
+  public EChange clearCache ()
+  {
+    return super.clearCache ().or (m_aStore.clear ());
+  }
+
+  /**
+   * Pin the schema of the provided resources, so that it is never evicted
+   * because the cache is full. The schema does not need to be compiled yet.
+   *
+   * @param aResources
+   *        The resources of the schema. May neither be <code>null</code> nor
+   *        empty.
+   * @return {@link EChange}
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final EChange pinSchema (@Nonnull @Nonempty final Collection <? extends IReadableResource> aResources)
+  {
+    return m_aStore.pin (getContentKey (aResources), true);
+  }
+
+  /**
+   * Unpin the schema of the provided resources, so that it may be evicted
+   * again.
+   *
+   * @param aResources
+   *        The resources of the schema. May neither be <code>null</code> nor
+   *        empty.
+   * @return {@link EChange}
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final EChange unpinSchema (@Nonnull @Nonempty final Collection <? extends IReadableResource> aResources)
+  {
+    return m_aStore.pin (getContentKey (aResources), false);
+  }
+
+  /**
+   * @param aResources
+   *        The resources of the schema. May neither be <code>null</code> nor
+   *        empty.
+   * @return <code>true</code> if the schema of the provided resources is
+   *         pinned.
+   * @since 9.1.0
+   */
+  public final boolean isPinnedSchema (@Nonnull @Nonempty final Collection <? extends IReadableResource> aResources)
+  {
+    return m_aStore.isPinned (getContentKey (aResources));
+  }
+
+  /**
+   * @return The number of distinct compiled schemas currently kept. Always
+   *         &ge; 0.
+   * @since 9.1.0
+   */
+  @Nonnegative
+  public final int getCompiledSchemaCount ()
+  {
+    return m_aStore.getCompiledSchemaCount ();
+  }
+
+  /**
+   * @return The compile time statistics in milliseconds per schema. The keys
+   *         are created by {@link #getStatisticsKey(Collection)}. Never
+   *         <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final IStatisticsHandlerKeyedTimer getCompileStatistics ()
+  {
+    return m_aStore.getCompileStatistics ();
+  }
+
+  /**
+   * Compile all provided schemas in parallel using the common fork/join pool,
+   * e.g. at application startup.
+   *
+   * @param aSchemas
+   *        The resources of each schema to compile. May not be
+   *        <code>null</code>.
+   * @return A future that is completed after all schemas were compiled. It is
+   *         completed exceptionally if at least one schema could not be
+   *         compiled. Never <code>null</code>.
+   * @see #warmUp(Collection, Executor)
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final CompletableFuture <Void> warmUp (@Nonnull final Collection <? extends Collection <? extends IReadableResource>> aSchemas)
+  {
+    return warmUp (aSchemas, ForkJoinPool.commonPool ());
+  }
+
+  /**
+   * Compile all provided schemas in parallel, e.g. at application startup.
+   * Schemas are only compiled in parallel, if this cache was created with a
+   * schema factory supplier.
+   *
+   * @param aSchemas
+   *        The resources of each schema to compile. May not be
+   *        <code>null</code>.
+   * @param aExecutor
+   *        The executor to compile the schemas. May not be <code>null</code>.
+   * @return A future that is completed after all schemas were compiled. It is
+   *         completed exceptionally if at least one schema could not be
+   *         compiled. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public final CompletableFuture <Void> warmUp (@Nonnull final Collection <? extends Collection <? extends IReadableResource>> aSchemas,
+                                                @Nonnull final Executor aExecutor)
+  {
+    ValueEnforcer.notNull (aSchemas, "Schemas");
+    ValueEnforcer.notNull (aExecutor, "Executor");
+
+    final ICommonsList <CompletableFuture <Schema>> aFutures = new CommonsArrayList <> (aSchemas.size ());
+    for (final Collection <? extends IReadableResource> aResources : aSchemas)
+      aFutures.add (CompletableFuture.supplyAsync ( () -> getSchema (aResources), aExecutor));
+    return CompletableFuture.allOf (aFutures.toArray (new CompletableFuture [aFutures.size ()]));
+  }
+
   @Override
   public String toString ()
   {
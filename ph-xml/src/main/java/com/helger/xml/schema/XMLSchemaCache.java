@@ -30,6 +30,7 @@ import com.helger.commons.annotation.Singleton;
 import com.helger.commons.collection.impl.CommonsHashMap;
 import com.helger.commons.collection.impl.ICommonsMap;
 import com.helger.commons.concurrent.SimpleReadWriteLock;
+import com.helger.commons.functional.ISupplier;
 import com.helger.commons.lang.IHasClassLoader;
 import com.helger.commons.state.EChange;
 import com.helger.xml.ls.SimpleLSResourceResolver;
@@ -91,6 +92,31 @@ public class XMLSchemaCache extends SchemaCache
     super ("XSD", aSchemaFactory, aErrorHandler, aResourceResolver);
   }
 
+  /**
+   * Constructor. Each schema is compiled with a new {@link SchemaFactory} from
+   * the provided supplier, so that multiple schemas can be compiled in
+   * parallel. All features and properties must therefore be set in the
+   * supplier.
+   *
+   * @param aSchemaFactoryProvider
+   *        The supplier for new schema factories, e.g.
+   *        <code>XMLSchemaCache::createXSDSchemaFactory</code>. May not be
+   *        <code>null</code>.
+   * @param aErrorHandler
+   *        The error handler to use. Must be thread-safe. May be
+   *        <code>null</code>.
+   * @param aResourceResolver
+   *        The resource resolver to use. Must be thread-safe. May be
+   *        <code>null</code>.
+   * @since 9.1.0
+   */
+  public XMLSchemaCache (@Nonnull final ISupplier <? extends SchemaFactory> aSchemaFactoryProvider,
+                         @Nullable final ErrorHandler aErrorHandler,
+                         @Nullable final LSResourceResolver aResourceResolver)
+  {
+    super ("XSD", aSchemaFactoryProvider, aErrorHandler, aResourceResolver);
+  }
+
   public static boolean isInstantiated ()
   {
     return s_bDefaultInstantiated;
@@ -41,7 +41,6 @@ import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
-import com.helger.commons.pool.ObjectPool;
 import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
 import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
 import com.helger.commons.statistics.StatisticsManager;
@@ -65,9 +64,11 @@ public final class DOMReader
   private static final IMutableStatisticsHandlerCounter s_aDomErrorCounterHdl = StatisticsManager.getCounterHandler (DOMReader.class.getName () +
                                                                                                                      "$DOMERRORS");
 
-  // In practice no more than 5 readers are required (even 3 would be enough)
-  private static final ObjectPool <DocumentBuilder> s_aDOMPool = new ObjectPool <> (5,
-                                                                                    () -> XMLFactory.createDocumentBuilder ());
+  /** The default maximum number of pooled document builders */
+  public static final int DEFAULT_MAX_POOL_SIZE = SAXReader.DEFAULT_MAX_POOL_SIZE;
+
+  private static volatile XMLParserProvider <DocumentBuilder> s_aParserProvider = createParserProvider (EXMLParserProvisioning.POOL,
+                                                                                                       DEFAULT_MAX_POOL_SIZE);
 
   @PresentForCodeCoverage
   private static final DOMReader s_aInstance = new DOMReader ();
@@ -77,7 +78,65 @@ public final class DOMReader
 
   public static void reinitialize ()
   {
-    s_aDOMPool.clearUnusedItems ();
+    s_aParserProvider.clearUnused ();
+  }
+
+  private static boolean _resetParser (@Nonnull final DocumentBuilder aDocumentBuilder)
+  {
+    // Remove the references to the last parse run - both are set again by the
+    // settings before the next parse run
+    aDocumentBuilder.setEntityResolver (null);
+    aDocumentBuilder.setErrorHandler (null);
+    return true;
+  }
+
+  /**
+   * Create a new document builder provider.
+   *
+   * @param eProvisioning
+   *        The provisioning to use. May not be <code>null</code>.
+   * @param nMaxPoolSize
+   *        The maximum number of document builders. Only used for
+   *        {@link EXMLParserProvisioning#POOL} where it must be &gt; 0.
+   * @return The new provider. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static XMLParserProvider <DocumentBuilder> createParserProvider (@Nonnull final EXMLParserProvisioning eProvisioning,
+                                                                         @Nonnegative final int nMaxPoolSize)
+  {
+    return XMLParserProvider.create (eProvisioning,
+                                     nMaxPoolSize,
+                                     XMLFactory::createDocumentBuilder,
+                                     DOMReader::_resetParser);
+  }
+
+  /**
+   * @return The provider for the document builders that are used if the
+   *         settings don't require a new parser. Use it to query the usage
+   *         statistics. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static XMLParserProvider <DocumentBuilder> getParserProvider ()
+  {
+    return s_aParserProvider;
+  }
+
+  /**
+   * Set the provider for the document builders that are used if the settings
+   * don't require a new parser. By default a pool with
+   * {@link #DEFAULT_MAX_POOL_SIZE} document builders is used.
+   *
+   * @param aParserProvider
+   *        The provider to use. May not be <code>null</code>.
+   * @since 9.1.0
+   * @see #createParserProvider(EXMLParserProvisioning, int)
+   */
+  public static void setParserProvider (@Nonnull final XMLParserProvider <DocumentBuilder> aParserProvider)
+  {
+    ValueEnforcer.notNull (aParserProvider, "ParserProvider");
+    s_aParserProvider = aParserProvider;
   }
 
   @Nullable
@@ -306,7 +365,7 @@ public final class DOMReader
     {
       final StopWatch aSW = StopWatch.createdStarted ();
       DocumentBuilder aDocumentBuilder;
-      boolean bFromPool = false;
+      XMLParserProvider <DocumentBuilder> aProvider = null;
       if (aSettings.requiresNewXMLParser ())
       {
         // We need to create a new DocumentBuilderFactory
@@ -320,9 +379,9 @@ public final class DOMReader
       }
       else
       {
-        // Use one from the pool
-        aDocumentBuilder = s_aDOMPool.borrowObject ();
-        bFromPool = true;
+        // Use a reusable one
+        aProvider = s_aParserProvider;
+        aDocumentBuilder = aProvider.borrow ();
       }
 
       try
@@ -358,10 +417,10 @@ public final class DOMReader
       }
       finally
       {
-        if (bFromPool)
+        if (aProvider != null)
         {
-          // Return to the pool
-          s_aDOMPool.returnObject (aDocumentBuilder);
+          // Return for reuse
+          aProvider.release (aDocumentBuilder);
         }
       }
     }
@@ -0,0 +1,67 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.read;
+
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+import com.helger.commons.annotation.Nonempty;
+import com.helger.commons.id.IHasID;
+import com.helger.commons.lang.EnumHelper;
+
+/**
+ * Determines how XML parser instances are provided for reading.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ * @see XMLParserProvider
+ */
+public enum EXMLParserProvisioning implements IHasID <String>
+{
+  /** Create a new parser for each read operation */
+  NEW_INSTANCE ("new"),
+  /**
+   * Reuse one parser per thread. Best throughput for a fixed number of threads,
+   * but each thread keeps its parser until it ends.
+   */
+  THREAD_LOCAL ("threadlocal"),
+  /**
+   * Share a pool of parsers with a maximum size between all threads. Threads
+   * wait if all parsers are in use.
+   */
+  POOL ("pool");
+
+  private final String m_sID;
+
+  private EXMLParserProvisioning (@Nonnull @Nonempty final String sID)
+  {
+    m_sID = sID;
+  }
+
+  @Nonnull
+  @Nonempty
+  public String getID ()
+  {
+    return m_sID;
+  }
+
+  @Nullable
+  public static EXMLParserProvisioning getFromIDOrNull (@Nullable final String sID)
+  {
+    return EnumHelper.getFromIDOrNull (EXMLParserProvisioning.class, sID);
+  }
+}
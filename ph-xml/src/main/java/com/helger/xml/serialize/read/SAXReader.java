@@ -37,13 +37,12 @@ import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.IReadableResource;
 import com.helger.commons.io.stream.StreamHelper;
-import com.helger.commons.pool.IMutableObjectPool;
-import com.helger.commons.pool.ObjectPool;
 import com.helger.commons.state.ESuccess;
 import com.helger.commons.statistics.IMutableStatisticsHandlerCounter;
 import com.helger.commons.statistics.IMutableStatisticsHandlerTimer;
 import com.helger.commons.statistics.StatisticsManager;
 import com.helger.commons.timing.StopWatch;
+import com.helger.xml.EXMLParserProperty;
 import com.helger.xml.sax.InputSourceFactory;
 
 /**
@@ -60,9 +59,11 @@ public final class SAXReader
   private static final IMutableStatisticsHandlerCounter s_aSaxErrorCounterHdl = StatisticsManager.getCounterHandler (SAXReader.class.getName () +
                                                                                                                      "$error");
 
-  // In practice no more than 5 readers are required (even 3 would be enough)
-  private static final IMutableObjectPool <org.xml.sax.XMLReader> s_aSAXPool = new ObjectPool <> (5,
-                                                                                                  new SAXReaderFactory ());
+  /** The default maximum number of pooled SAX readers */
+  public static final int DEFAULT_MAX_POOL_SIZE = Math.max (5, 2 * Runtime.getRuntime ().availableProcessors ());
+
+  private static volatile XMLParserProvider <org.xml.sax.XMLReader> s_aParserProvider = createParserProvider (EXMLParserProvisioning.POOL,
+                                                                                                              DEFAULT_MAX_POOL_SIZE);
 
   @PresentForCodeCoverage
   private static final SAXReader s_aInstance = new SAXReader ();
@@ -70,6 +71,78 @@ public final class SAXReader
   private SAXReader ()
   {}
 
+  /**
+   * Remove all references to the last parsed document from the SAX reader, so
+   * that it can be reused.
+   *
+   * @param aParser
+   *        The parser to reset. May not be <code>null</code>.
+   * @return <code>true</code> if the parser can be reused.
+   */
+  private static boolean _resetParser (@Nonnull final org.xml.sax.XMLReader aParser)
+  {
+    aParser.setContentHandler (null);
+    aParser.setDTDHandler (null);
+    aParser.setEntityResolver (null);
+    aParser.setErrorHandler (null);
+    for (final EXMLParserProperty eProperty : SAXReaderSettings.REUSABLE_PROPERTIES)
+      try
+      {
+        aParser.setProperty (eProperty.getName (), null);
+      }
+      catch (final SAXException ex)
+      {
+        // Not supported by this parser - so it cannot be set either
+      }
+    return true;
+  }
+
+  /**
+   * Create a new SAX reader provider.
+   *
+   * @param eProvisioning
+   *        The provisioning to use. May not be <code>null</code>.
+   * @param nMaxPoolSize
+   *        The maximum number of SAX readers. Only used for
+   *        {@link EXMLParserProvisioning#POOL} where it must be &gt; 0.
+   * @return The new provider. Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static XMLParserProvider <org.xml.sax.XMLReader> createParserProvider (@Nonnull final EXMLParserProvisioning eProvisioning,
+                                                                               @Nonnegative final int nMaxPoolSize)
+  {
+    return XMLParserProvider.create (eProvisioning, nMaxPoolSize, new SAXReaderFactory (), SAXReader::_resetParser);
+  }
+
+  /**
+   * @return The provider for the SAX readers that are used if the settings
+   *         don't require a new parser. Use it to query the usage statistics.
+   *         Never <code>null</code>.
+   * @since 9.1.0
+   */
+  @Nonnull
+  public static XMLParserProvider <org.xml.sax.XMLReader> getParserProvider ()
+  {
+    return s_aParserProvider;
+  }
+
+  /**
+   * Set the provider for the SAX readers that are used if the settings don't
+   * require a new parser. By default a pool with
+   * {@link #DEFAULT_MAX_POOL_SIZE} readers is used.
+   *
+   * @param aParserProvider
+   *        The provider to use. May not be <code>null</code>.
+   * @since 9.1.0
+   * @see #createParserProvider(EXMLParserProvisioning, int)
+   */
+  public static void setParserProvider (@Nonnull final XMLParserProvider <org.xml.sax.XMLReader> aParserProvider)
+  {
+    ValueEnforcer.notNull (aParserProvider, "ParserProvider");
+    s_aParserProvider = aParserProvider;
+  }
+
   @Nonnull
   public static ESuccess readXMLSAX (@Nonnull final File aFile, @Nonnull final ISAXReaderSettings aSettings)
   {
@@ -205,7 +278,7 @@ public final class SAXReader
 
     try
     {
-      boolean bFromPool = false;
+      XMLParserProvider <org.xml.sax.XMLReader> aProvider = null;
       org.xml.sax.XMLReader aParser;
       if (aSettings.requiresNewXMLParser ())
       {
@@ -213,9 +286,9 @@ public final class SAXReader
       }
       else
       {
-        // use parser from pool
-        aParser = s_aSAXPool.borrowObject ();
-        bFromPool = true;
+        // use a reusable parser
+        aProvider = s_aParserProvider;
+        aParser = aProvider.borrow ();
       }
 
       try
@@ -235,10 +308,10 @@ public final class SAXReader
       }
       finally
       {
-        if (bFromPool)
+        if (aProvider != null)
         {
-          // Return parser to pool
-          s_aSAXPool.returnObject (aParser);
+          // Return parser for reuse
+          aProvider.release (aParser);
         }
       }
     }
@@ -301,12 +301,7 @@ public final class SAXReaderDefaultSettings
       if (s_bDefaultRequiresNewXMLParserExplicitly)
         return true;
 
-      if (!s_aDefaultProperties.isEmpty () || !s_aDefaultFeatures.isEmpty ())
-        return true;
-
-      // Special case for JDK > 1.7.0_45 because of maximum entity expansion
-      // See http://docs.oracle.com/javase/tutorial/jaxp/limits/limits.html
-      return s_aDefaultEntityResolver != null;
+      return SAXReaderSettings.containsNonReusableSetting (s_aDefaultProperties.keySet (), s_aDefaultFeatures);
     });
   }
 
@@ -16,8 +16,11 @@
  */
 package com.helger.xml.serialize.read;
 
+import java.util.Collections;
+import java.util.EnumSet;
 import java.util.Locale;
 import java.util.Map;
+import java.util.Set;
 
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -55,6 +58,13 @@ public class SAXReaderSettings implements ISAXReaderSettings, ICloneable <SAXRea
 {
   private static final Logger s_aLogger = LoggerFactory.getLogger (SAXReaderSettings.class);
 
+  /**
+   * The handler properties that are reset when a reused parser is released -
+   * setting them does not require a new parser.
+   */
+  static final Set <EXMLParserProperty> REUSABLE_PROPERTIES = Collections.unmodifiableSet (EnumSet.of (EXMLParserProperty.SAX_DECLARATION_HANDLER,
+                                                                                                      EXMLParserProperty.SAX_LEXICAL_HANDLER));
+
   private EntityResolver m_aEntityResolver;
   private DTDHandler m_aDTDHandler;
   private ContentHandler m_aContentHandler;
@@ -318,12 +328,29 @@ public class SAXReaderSettings implements ISAXReaderSettings, ICloneable <SAXRea
     if (m_bRequiresNewXMLParserExplicitly)
       return true;
 
-    if (!m_aProperties.isEmpty () || !m_aFeatures.isEmpty ())
-      return true;
+    return containsNonReusableSetting (m_aProperties.keySet (), m_aFeatures);
+  }
 
-    // Special case for JDK > 1.7.0_45 because of maximum entity expansion
-    // See http://docs.oracle.com/javase/tutorial/jaxp/limits/limits.html
-    return m_aEntityResolver != null;
+  /**
+   * Check if a reused parser can be used for the provided settings. The
+   * entity resolver does not matter, as since JDK 1.8 the entity expansion
+   * limits are reset for each parse run (JDK-8028111).
+   *
+   * @param aProperties
+   *        The properties to be set. May not be <code>null</code>.
+   * @param aFeatures
+   *        The features to be set. May not be <code>null</code>.
+   * @return <code>true</code> if a new parser is required.
+   */
+  static boolean containsNonReusableSetting (@Nonnull final Set <EXMLParserProperty> aProperties,
+                                             @Nonnull final Map <EXMLParserFeature, Boolean> aFeatures)
+  {
+    if (!aFeatures.isEmpty ())
+      return true;
+    for (final EXMLParserProperty eProperty : aProperties)
+      if (!REUSABLE_PROPERTIES.contains (eProperty))
+        return true;
+    return false;
   }
 
   @Nonnull
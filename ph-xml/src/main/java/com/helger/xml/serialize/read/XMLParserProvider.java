@@ -0,0 +1,421 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.read;
+
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.Set;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.annotation.Nonnegative;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import javax.annotation.concurrent.ThreadSafe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import com.helger.commons.ValueEnforcer;
+import com.helger.commons.functional.IPredicate;
+import com.helger.commons.functional.ISupplier;
+import com.helger.commons.pool.ObjectPool;
+import com.helger.commons.string.ToStringGenerator;
+
+/**
+ * Provides XML parser instances (like SAX <code>XMLReader</code> or
+ * <code>DocumentBuilder</code>) according to an
+ * {@link EXMLParserProvisioning}. Each borrowed parser must be released after
+ * usage. Upon release the parser is reset via the provided reset function, so
+ * that it does not keep references to the last read document. Parsers that
+ * cannot be reset are discarded.
+ *
+ * @author Philip Helger
+ * @since 9.1.0
+ * @param <T>
+ *        The parser type
+ */
+@ThreadSafe
+public final class XMLParserProvider <T>
+{
+  private static final class ThreadEntry <T>
+  {
+    private T m_aParser;
+    private boolean m_bInUse;
+  }
+
+  private static final Logger s_aLogger = LoggerFactory.getLogger (XMLParserProvider.class);
+
+  private final EXMLParserProvisioning m_eProvisioning;
+  private final ISupplier <? extends T> m_aFactory;
+  private final IPredicate <? super T> m_aResetter;
+  private final int m_nMaxPoolSize;
+  // POOL only
+  private final ObjectPool <T> m_aPool;
+  // POOL only: parsers created outside of the pool
+  private final Set <T> m_aUnpooled;
+  // THREAD_LOCAL only
+  private final ThreadLocal <ThreadEntry <T>> m_aThreadEntry;
+
+  private final LongAdder m_aBorrowCount = new LongAdder ();
+  private final LongAdder m_aCreatedCount = new LongAdder ();
+  private final LongAdder m_aDiscardedCount = new LongAdder ();
+  private final LongAdder m_aContendedCount = new LongAdder ();
+  private final LongAdder m_aBorrowWaitNanos = new LongAdder ();
+
+  private XMLParserProvider (@Nonnull final EXMLParserProvisioning eProvisioning,
+                             @Nonnegative final int nMaxPoolSize,
+                             @Nonnull final ISupplier <? extends T> aFactory,
+                             @Nullable final IPredicate <? super T> aResetter)
+  {
+    ValueEnforcer.notNull (eProvisioning, "Provisioning");
+    ValueEnforcer.notNull (aFactory, "Factory");
+    m_eProvisioning = eProvisioning;
+    m_aFactory = aFactory;
+    m_aResetter = aResetter;
+    m_nMaxPoolSize = nMaxPoolSize;
+    if (eProvisioning == EXMLParserProvisioning.POOL)
+    {
+      ValueEnforcer.isGT0 (nMaxPoolSize, "MaxPoolSize");
+      m_aPool = new ObjectPool <T> (nMaxPoolSize, this::_create);
+      m_aPool.setValidateOnBorrow (false).setValidateOnReturn (false);
+      m_aPool.setDestroyer (x -> m_aDiscardedCount.increment ());
+      m_aUnpooled = Collections.synchronizedSet (Collections.newSetFromMap (new IdentityHashMap <> ()));
+    }
+    else
+    {
+      m_aPool = null;
+      m_aUnpooled = null;
+    }
+    m_aThreadEntry = eProvisioning == EXMLParserProvisioning.THREAD_LOCAL ? ThreadLocal.withInitial (ThreadEntry::new)
+                                                                           : null;
+  }
+
+  @Nonnull
+  private T _create ()
+  {
+    final T ret = m_aFactory.get ();
+    if (ret == null)
+      throw new IllegalStateException ("The factory created a null parser");
+    m_aCreatedCount.increment ();
+    return ret;
+  }
+
+  private boolean _reset (@Nonnull final T aParser)
+  {
+    if (m_aResetter == null)
+      return true;
+    try
+    {
+      return m_aResetter.test (aParser);
+    }
+    catch (final RuntimeException ex)
+    {
+      s_aLogger.warn ("Failed to reset XML parser " + aParser, ex);
+      return false;
+    }
+  }
+
+  /**
+   * @return The provisioning used. Never <code>null</code>.
+   */
+  @Nonnull
+  public EXMLParserProvisioning getProvisioning ()
+  {
+    return m_eProvisioning;
+  }
+
+  /**
+   * @return The maximum number of parsers in the pool. Only relevant for
+   *         {@link EXMLParserProvisioning#POOL}, 0 otherwise.
+   */
+  @Nonnegative
+  public int getMaxPoolSize ()
+  {
+    return m_aPool == null ? 0 : m_nMaxPoolSize;
+  }
+
+  /**
+   * Get a parser. It must be released via {@link #release(Object)} after
+   * usage, ideally in a <code>finally</code> block.
+   *
+   * @return The parser to use. Never <code>null</code>.
+   */
+  @Nonnull
+  public T borrow ()
+  {
+    m_aBorrowCount.increment ();
+    switch (m_eProvisioning)
+    {
+      case THREAD_LOCAL:
+      {
+        final ThreadEntry <T> aEntry = m_aThreadEntry.get ();
+        if (aEntry.m_bInUse)
+        {
+          // Nested usage in the same thread (e.g. from within a handler)
+          m_aContendedCount.increment ();
+          return _create ();
+        }
+        if (aEntry.m_aParser == null)
+          aEntry.m_aParser = _create ();
+        aEntry.m_bInUse = true;
+        return aEntry.m_aParser;
+      }
+      case POOL:
+      {
+        if (m_aPool.getIdleCount () == 0 && m_aPool.getTotalCount () >= m_nMaxPoolSize)
+          m_aContendedCount.increment ();
+        final long nStart = System.nanoTime ();
+        final T ret = m_aPool.borrowObject ();
+        m_aBorrowWaitNanos.add (System.nanoTime () - nStart);
+        if (ret != null)
+          return ret;
+        // Interrupted while waiting
+        final T aUnpooled = _create ();
+        m_aUnpooled.add (aUnpooled);
+        return aUnpooled;
+      }
+      default:
+        return _create ();
+    }
+  }
+
+  /**
+   * Release a parser previously obtained by {@link #borrow()}.
+   *
+   * @param aParser
+   *        The parser to be released. May not be <code>null</code>.
+   */
+  public void release (@Nonnull final T aParser)
+  {
+    ValueEnforcer.notNull (aParser, "Parser");
+    switch (m_eProvisioning)
+    {
+      case THREAD_LOCAL:
+      {
+        final ThreadEntry <T> aEntry = m_aThreadEntry.get ();
+        if (aEntry.m_aParser == aParser)
+        {
+          aEntry.m_bInUse = false;
+          if (!_reset (aParser))
+          {
+            aEntry.m_aParser = null;
+            m_aDiscardedCount.increment ();
+          }
+        }
+        break;
+      }
+      case POOL:
+        // Parsers created outside of the pool are simply dropped
+        if (!m_aUnpooled.remove (aParser))
+        {
+          // Reset before the parser is visible to other threads
+          if (_reset (aParser))
+            m_aPool.returnObject (aParser);
+          else
+            m_aPool.invalidateObject (aParser);
+        }
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * Discard all parsers that are currently not in use. For
+   * {@link EXMLParserProvisioning#THREAD_LOCAL} only the parser of the calling
+   * thread can be discarded.
+   */
+  public void clearUnused ()
+  {
+    switch (m_eProvisioning)
+    {
+      case THREAD_LOCAL:
+      {
+        final ThreadEntry <T> aEntry = m_aThreadEntry.get ();
+        if (!aEntry.m_bInUse && aEntry.m_aParser != null)
+        {
+          aEntry.m_aParser = null;
+          m_aDiscardedCount.increment ();
+        }
+        break;
+      }
+      case POOL:
+        m_aPool.clearUnusedItems ();
+        break;
+      default:
+        break;
+    }
+  }
+
+  /**
+   * @return The number of {@link #borrow()} calls. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getBorrowCount ()
+  {
+    return m_aBorrowCount.sum ();
+  }
+
+  /**
+   * @return The number of parsers created. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getCreatedCount ()
+  {
+    return m_aCreatedCount.sum ();
+  }
+
+  /**
+   * @return The number of parsers discarded, because they could not be reset or
+   *         because they were cleared. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getDiscardedCount ()
+  {
+    return m_aDiscardedCount.sum ();
+  }
+
+  /**
+   * @return The number of borrow operations that could not use an idle parser
+   *         immediately: for {@link EXMLParserProvisioning#POOL} the pool was
+   *         exhausted, for {@link EXMLParserProvisioning#THREAD_LOCAL} the
+   *         parser of the thread was already in use. Always &ge; 0.
+   */
+  @Nonnegative
+  public long getContendedCount ()
+  {
+    return m_aContendedCount.sum ();
+  }
+
+  /**
+   * @return The total time in nanoseconds spent in borrowing parsers from the
+   *         pool. Only relevant for {@link EXMLParserProvisioning#POOL}. Always
+   *         &ge; 0.
+   */
+  @Nonnegative
+  public long getBorrowWaitNanos ()
+  {
+    return m_aBorrowWaitNanos.sum ();
+  }
+
+  /**
+   * @return The number of threads currently waiting for a parser. Only
+   *         relevant for {@link EXMLParserProvisioning#POOL}. Always &ge; 0.
+   */
+  @Nonnegative
+  public int getWaitingCount ()
+  {
+    return m_aPool == null ? 0 : m_aPool.getWaitingCount ();
+  }
+
+  @Override
+  public String toString ()
+  {
+    return new ToStringGenerator (this).append ("Provisioning", m_eProvisioning)
+                                       .append ("MaxPoolSize", getMaxPoolSize ())
+                                       .append ("BorrowCount", getBorrowCount ())
+                                       .append ("CreatedCount", getCreatedCount ())
+                                       .append ("DiscardedCount", getDiscardedCount ())
+                                       .append ("ContendedCount", getContendedCount ())
+                                       .getToString ();
+  }
+
+  /**
+   * Create a provider that creates a new parser for each borrow operation.
+   *
+   * @param aFactory
+   *        The parser factory. May not be <code>null</code>.
+   * @return The new provider. Never <code>null</code>.
+   * @param <T>
+   *        The parser type
+   */
+  @Nonnull
+  public static <T> XMLParserProvider <T> createNewInstance (@Nonnull final ISupplier <? extends T> aFactory)
+  {
+    return new XMLParserProvider <> (EXMLParserProvisioning.NEW_INSTANCE, 0, aFactory, null);
+  }
+
+  /**
+   * Create a provider that reuses one parser per thread.
+   *
+   * @param aFactory
+   *        The parser factory. May not be <code>null</code>.
+   * @param aResetter
+   *        The function that resets a parser after usage. Must return
+   *        <code>false</code> if the parser cannot be reused. May be
+   *        <code>null</code>.
+   * @return The new provider. Never <code>null</code>.
+   * @param <T>
+   *        The parser type
+   */
+  @Nonnull
+  public static <T> XMLParserProvider <T> createThreadLocal (@Nonnull final ISupplier <? extends T> aFactory,
+                                                             @Nullable final IPredicate <? super T> aResetter)
+  {
+    return new XMLParserProvider <> (EXMLParserProvisioning.THREAD_LOCAL, 0, aFactory, aResetter);
+  }
+
+  /**
+   * Create a provider that shares a pool of parsers between all threads.
+   *
+   * @param nMaxPoolSize
+   *        The maximum number of parsers. Must be &gt; 0.
+   * @param aFactory
+   *        The parser factory. May not be <code>null</code>.
+   * @param aResetter
+   *        The function that resets a parser after usage. Must return
+   *        <code>false</code> if the parser cannot be reused. May be
+   *        <code>null</code>.
+   * @return The new provider. Never <code>null</code>.
+   * @param <T>
+   *        The parser type
+   */
+  @Nonnull
+  public static <T> XMLParserProvider <T> createPool (@Nonnegative final int nMaxPoolSize,
+                                                      @Nonnull final ISupplier <? extends T> aFactory,
+                                                      @Nullable final IPredicate <? super T> aResetter)
+  {
+    return new XMLParserProvider <> (EXMLParserProvisioning.POOL, nMaxPoolSize, aFactory, aResetter);
+  }
+
+  /**
+   * Create a provider for the provided provisioning.
+   *
+   * @param eProvisioning
+   *        The provisioning to use. May not be <code>null</code>.
+   * @param nMaxPoolSize
+   *        The maximum number of parsers. Only used for
+   *        {@link EXMLParserProvisioning#POOL} where it must be &gt; 0.
+   * @param aFactory
+   *        The parser factory. May not be <code>null</code>.
+   * @param aResetter
+   *        The function that resets a parser after usage. Must return
+   *        <code>false</code> if the parser cannot be reused. May be
+   *        <code>null</code>.
+   * @return The new provider. Never <code>null</code>.
+   * @param <T>
+   *        The parser type
+   */
+  @Nonnull
+  public static <T> XMLParserProvider <T> create (@Nonnull final EXMLParserProvisioning eProvisioning,
+                                                  @Nonnegative final int nMaxPoolSize,
+                                                  @Nonnull final ISupplier <? extends T> aFactory,
+                                                  @Nullable final IPredicate <? super T> aResetter)
+  {
+    return new XMLParserProvider <> (eProvisioning, nMaxPoolSize, aFactory, aResetter);
+  }
+}
@@ -18,20 +18,22 @@ package com.helger.xml.serialize.write;
 
 import java.io.IOException;
 import java.io.Writer;
+import java.nio.CharBuffer;
 import java.util.Set;
+import java.util.concurrent.atomic.AtomicReferenceArray;
 
 import javax.annotation.Nonnegative;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
-import com.helger.commons.CGlobal;
 import com.helger.commons.ValueEnforcer;
 import com.helger.commons.annotation.Nonempty;
 import com.helger.commons.annotation.PresentForCodeCoverage;
 import com.helger.commons.annotation.ReturnsMutableCopy;
 import com.helger.commons.annotation.ReturnsMutableObject;
 import com.helger.commons.collection.ArrayHelper;
-import com.helger.commons.collection.impl.ICommonsSet;
+import com.helger.commons.io.stream.NonBlockingCharArrayWriter;
+import com.helger.commons.mutable.MutableInt;
 import com.helger.commons.string.StringHelper;
 import com.helger.xml.EXMLVersion;
 
@@ -317,6 +319,16 @@ public final class XMLMaskHelper
   private static final char [] [] MASK_TEXT_HTML_DQ_REPLACE = new char [MASK_TEXT_HTML_DQ.length] [];
   private static final char [] [] MASK_TEXT_HTML_SQ_REPLACE = new char [MASK_TEXT_HTML_SQ.length] [];
 
+  // Lookup table flag for invalid characters
+  private static final int FLAG_INVALID = 0x80;
+  // Lookup table mask for the 1-based index into the replacement map
+  private static final int MASK_REPLACEMENT = 0x7f;
+  private static final int CHAR_COUNT = Character.MAX_VALUE + 1;
+  private static final int CHAR_MODE_COUNT = EXMLCharMode.values ().length;
+  // Lazily created 64K lookup tables per XML version and char mode
+  private static final AtomicReferenceArray <byte []> s_aLookupTables = new AtomicReferenceArray <> (EXMLSerializeVersion.values ().length *
+                                                                                                      CHAR_MODE_COUNT);
+
   /**
    * Get the entity reference for the specified character. This returns e.g.
    * &amp;lt; for '&lt;' etc. This method has special handling for &lt;, &gt;,
@@ -555,16 +567,81 @@ public final class XMLMaskHelper
     return ret;
   }
 
+  private static boolean _isInvalidChar (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                         @Nonnull final EXMLCharMode eXMLCharMode,
+                                         final char c)
+  {
+    switch (eXMLCharMode)
+    {
+      case ELEMENT_NAME:
+      case ATTRIBUTE_NAME:
+        return XMLCharHelper.isInvalidXMLNameChar (eXMLVersion, c);
+      case ATTRIBUTE_VALUE_DOUBLE_QUOTES:
+      case ATTRIBUTE_VALUE_SINGLE_QUOTES:
+        return XMLCharHelper.isInvalidXMLAttributeValueChar (eXMLVersion, c);
+      case TEXT:
+        return XMLCharHelper.isInvalidXMLTextChar (eXMLVersion, c);
+      case CDATA:
+        return XMLCharHelper.isInvalidXMLCDATAChar (eXMLVersion, c);
+      default:
+        throw new IllegalArgumentException ("Unsupported XML character mode " + eXMLCharMode + "!");
+    }
+  }
+
   @Nonnull
-  @ReturnsMutableCopy
-  private static char [] [] _createEmptyReplacement (@Nonnull final char [] aSrcMap)
+  private static byte [] _createLookupTable (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                             @Nonnull final EXMLCharMode eXMLCharMode)
   {
-    final char [] [] ret = new char [aSrcMap.length] [];
-    for (int i = 0; i < aSrcMap.length; ++i)
-      ret[i] = ArrayHelper.EMPTY_CHAR_ARRAY;
+    final byte [] ret = new byte [CHAR_COUNT];
+    for (int i = 0; i < CHAR_COUNT; ++i)
+      if (_isInvalidChar (eXMLVersion, eXMLCharMode, (char) i))
+        ret[i] = (byte) FLAG_INVALID;
+
+    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
+    if (aSrcMap != null)
+    {
+      if (aSrcMap.length > MASK_REPLACEMENT)
+        throw new IllegalStateException ("Too many replacements for " + eXMLVersion + " and " + eXMLCharMode);
+      for (int i = 0; i < aSrcMap.length; ++i)
+        ret[aSrcMap[i]] |= (byte) (i + 1);
+    }
     return ret;
   }
 
+  /**
+   * Get the lookup table for the provided XML version and character mode. It
+   * contains an entry for every char: 0 if the char can be written as is,
+   * {@link #FLAG_INVALID} if it is an invalid char and the 1-based index into
+   * the replacement map in the lower bits.
+   */
+  @Nonnull
+  @ReturnsMutableObject ("internal use only")
+  private static byte [] _getLookupTable (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                          @Nonnull final EXMLCharMode eXMLCharMode)
+  {
+    final int nIndex = eXMLVersion.ordinal () * CHAR_MODE_COUNT + eXMLCharMode.ordinal ();
+    byte [] ret = s_aLookupTables.get (nIndex);
+    if (ret == null)
+    {
+      // Created only once per combination
+      ret = _createLookupTable (eXMLVersion, eXMLCharMode);
+      if (!s_aLookupTables.compareAndSet (nIndex, null, ret))
+        ret = s_aLookupTables.get (nIndex);
+    }
+    return ret;
+  }
+
+  private static boolean _isNameMode (@Nonnull final EXMLCharMode eXMLCharMode)
+  {
+    return eXMLCharMode == EXMLCharMode.ELEMENT_NAME || eXMLCharMode == EXMLCharMode.ATTRIBUTE_NAME;
+  }
+
+  private static int _getNameStartFlags (@Nonnull final EXMLSerializeVersion eXMLVersion, final char c)
+  {
+    // Names have no replacements
+    return XMLCharHelper.isInvalidXMLNameStartChar (eXMLVersion, c) ? FLAG_INVALID : 0;
+  }
+
   @Nonnull
   public static char [] getMaskedXMLText (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                           @Nonnull final EXMLCharMode eXMLCharMode,
@@ -574,35 +651,16 @@ public final class XMLMaskHelper
     if (StringHelper.hasNoText (s))
       return ArrayHelper.EMPTY_CHAR_ARRAY;
 
-    char [] aChars = s.toCharArray ();
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired ())
+    final NonBlockingCharArrayWriter aWriter = new NonBlockingCharArrayWriter (s.length () + 16);
+    try
     {
-      if (XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars))
-      {
-        final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                              eXMLCharMode,
-                                                                                              aChars);
-        eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-        if (eIncorrectCharHandling.isReplaceWithNothing ())
-        {
-          final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
-          final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-          aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-        }
-      }
+      maskXMLTextTo (eXMLVersion, eXMLCharMode, eIncorrectCharHandling, s, aWriter);
     }
-
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
+    catch (final IOException ex)
     {
-      // Nothing to replace
-      return aChars;
+      throw new IllegalStateException ("Failed to write to in-memory writer", ex);
     }
-    final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-    return StringHelper.replaceMultiple (aChars, aSrcMap, aDstMap);
+    return aWriter.toCharArray ();
   }
 
   @Nonnegative
@@ -617,6 +675,93 @@ public final class XMLMaskHelper
                                    s);
   }
 
+  /**
+   * Callback for the chars found by
+   * {@link #_scan(EXMLSerializeVersion, EXMLCharMode, EXMLIncorrectCharacterHandling, CharSequence, int, int, IMaskCallback)}.
+   *
+   * @param <EX>
+   *        The exception type that may be thrown
+   */
+  @FunctionalInterface
+  private interface IMaskCallback <EX extends Exception>
+  {
+    /**
+     * Called for each char that is replaced or removed.
+     *
+     * @param nRunStart
+     *        The index of the first char after the previous replaced or removed
+     *        char. All chars from there up to the current index are unchanged.
+     * @param nIndex
+     *        The index of the replaced or removed char.
+     * @param aReplacement
+     *        The replacement or <code>null</code> if the char is removed.
+     * @throws EX
+     *         In case of an error
+     */
+    void onMaskedChar (int nRunStart, int nIndex, @Nullable char [] aReplacement) throws EX;
+  }
+
+  /**
+   * Scan the passed text once and invoke the callback for all chars that must
+   * be replaced or removed. Invalid chars are reported to the incorrect
+   * character handling at most once.
+   *
+   * @return The index of the first char after the last replaced or removed
+   *         char. All chars from there up to the end are unchanged.
+   */
+  private static <EX extends Exception> int _scan (@Nonnull final EXMLSerializeVersion eXMLVersion,
+                                                   @Nonnull final EXMLCharMode eXMLCharMode,
+                                                   @Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
+                                                   @Nonnull final CharSequence aText,
+                                                   @Nonnegative final int nOfs,
+                                                   @Nonnegative final int nLen,
+                                                   @Nonnull final IMaskCallback <EX> aCallback) throws EX
+  {
+    final byte [] aTable = _getLookupTable (eXMLVersion, eXMLCharMode);
+    final char [] [] aReplaceMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
+    final boolean bTestInvalid = eIncorrectCharHandling.isTestRequired ();
+    final boolean bIsName = _isNameMode (eXMLCharMode);
+    final int nEnd = nOfs + nLen;
+    boolean bNotified = false;
+    int nRunStart = nOfs;
+    for (int i = nOfs; i < nEnd; ++i)
+    {
+      final char c = aText.charAt (i);
+      final int nFlags = i == nOfs && bIsName ? _getNameStartFlags (eXMLVersion, c) : aTable[c] & 0xff;
+      if (nFlags == 0)
+        continue;
+
+      if ((nFlags & FLAG_INVALID) != 0 && bTestInvalid)
+      {
+        if (!bNotified)
+        {
+          // Here we can convert, because this part should not be called very
+          // often
+          final String sText = aText.subSequence (nOfs, nEnd).toString ();
+          eIncorrectCharHandling.notifyOnInvalidXMLCharacter (sText,
+                                                              XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
+                                                                                                   eXMLCharMode,
+                                                                                                   sText));
+          bNotified = true;
+        }
+        if (eIncorrectCharHandling.isReplaceWithNothing ())
+        {
+          aCallback.onMaskedChar (nRunStart, i, null);
+          nRunStart = i + 1;
+          continue;
+        }
+      }
+
+      final int nReplacement = nFlags & MASK_REPLACEMENT;
+      if (nReplacement != 0)
+      {
+        aCallback.onMaskedChar (nRunStart, i, aReplaceMap[nReplacement - 1]);
+        nRunStart = i + 1;
+      }
+    }
+    return nRunStart;
+  }
+
   @Nonnegative
   public static int getMaskedXMLTextLength (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                             @Nonnull final EXMLCharMode eXMLCharMode,
@@ -626,46 +771,87 @@ public final class XMLMaskHelper
     if (StringHelper.hasNoText (s))
       return 0;
 
-    char [] aChars = s.toCharArray ();
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired () &&
-        XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars))
-    {
-      final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                            eXMLCharMode,
-                                                                                            aChars);
-      eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-      if (eIncorrectCharHandling.isReplaceWithNothing ())
-      {
-        final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
-        final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-        aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-      }
-    }
-
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
-    {
-      // Nothing to replace
-      return aChars.length;
-    }
-    final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-    final int nResLen = StringHelper.getReplaceMultipleResultLength (aChars, aSrcMap, aDstMap);
-    return nResLen == CGlobal.ILLEGAL_UINT ? aChars.length : nResLen;
+    final MutableInt aLength = new MutableInt (s.length ());
+    _scan (eXMLVersion,
+           eXMLCharMode,
+           eIncorrectCharHandling,
+           s,
+           0,
+           s.length (),
+           (IMaskCallback <RuntimeException>) (nRunStart, nIndex, aReplacement) -> aLength.inc (aReplacement == null ? -1
+                                                                                                                   : aReplacement.length -
+                                                                                                                     1));
+    return aLength.intValue ();
   }
 
+  /**
+   * Write the masked version of the passed text to the passed writer. The text
+   * is scanned exactly once and all the parts that don't need masking are
+   * written directly from the source string.
+   *
+   * @param eXMLVersion
+   *        XML version to use. May not be <code>null</code>.
+   * @param eXMLCharMode
+   *        The char mode to use. May not be <code>null</code>.
+   * @param eIncorrectCharHandling
+   *        The incorrect character handling to use. May not be
+   *        <code>null</code>.
+   * @param s
+   *        The text to be masked. May be <code>null</code>.
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         in case writing fails
+   */
   public static void maskXMLTextTo (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                     @Nonnull final EXMLCharMode eXMLCharMode,
                                     @Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
                                     @Nullable final String s,
                                     @Nonnull final Writer aWriter) throws IOException
   {
-    if (StringHelper.hasText (s))
-      maskXMLTextTo (eXMLVersion, eXMLCharMode, eIncorrectCharHandling, s.toCharArray (), 0, s.length (), aWriter);
+    if (StringHelper.hasNoText (s))
+      return;
+
+    final int nLen = s.length ();
+    final int nRunStart = _scan (eXMLVersion,
+                                 eXMLCharMode,
+                                 eIncorrectCharHandling,
+                                 s,
+                                 0,
+                                 nLen,
+                                 (IMaskCallback <IOException>) (nStart, nIndex, aReplacement) -> {
+                                   if (nIndex > nStart)
+                                     aWriter.write (s, nStart, nIndex - nStart);
+                                   if (aReplacement != null)
+                                     aWriter.write (aReplacement);
+                                 });
+    if (nRunStart < nLen)
+      aWriter.write (s, nRunStart, nLen - nRunStart);
   }
 
+  /**
+   * Write the masked version of the passed text to the passed writer. The text
+   * is scanned exactly once and all the parts that don't need masking are
+   * written directly from the source array.
+   *
+   * @param eXMLVersion
+   *        XML version to use. May not be <code>null</code>.
+   * @param eXMLCharMode
+   *        The char mode to use. May not be <code>null</code>.
+   * @param eIncorrectCharHandling
+   *        The incorrect character handling to use. May not be
+   *        <code>null</code>.
+   * @param aText
+   *        The source array. May not be <code>null</code>.
+   * @param nOfs
+   *        Offset into the source array. Must be &ge; 0.
+   * @param nLen
+   *        Number of chars to use. Must be &ge; 0.
+   * @param aWriter
+   *        The writer to write to. May not be <code>null</code>.
+   * @throws IOException
+   *         in case writing fails
+   */
   public static void maskXMLTextTo (@Nonnull final EXMLSerializeVersion eXMLVersion,
                                     @Nonnull final EXMLCharMode eXMLCharMode,
                                     @Nonnull final EXMLIncorrectCharacterHandling eIncorrectCharHandling,
@@ -677,52 +863,20 @@ public final class XMLMaskHelper
     if (nLen == 0)
       return;
 
-    char [] aChars = aText;
-    int nRealOfs = nOfs;
-    int nRealLen = nLen;
-
-    // 1. do incorrect character handling
-    if (eIncorrectCharHandling.isTestRequired ())
-    {
-      if (XMLCharHelper.containsInvalidXMLChar (eXMLVersion, eXMLCharMode, aChars, nRealOfs, nRealLen))
-      {
-        final ICommonsSet <Character> aAllInvalidChars = XMLCharHelper.getAllInvalidXMLChars (eXMLVersion,
-                                                                                              eXMLCharMode,
-                                                                                              aChars,
-                                                                                              nRealOfs,
-                                                                                              nRealLen);
-        // Here we can convert, because this part should not be called very
-        // often
-        final String s = new String (aText, nRealOfs, nRealLen);
-        eIncorrectCharHandling.notifyOnInvalidXMLCharacter (s, aAllInvalidChars);
-        if (eIncorrectCharHandling.isReplaceWithNothing ())
-        {
-          final char [] aSrcMap = getAsCharArray (aAllInvalidChars);
-          final char [] [] aDstMap = _createEmptyReplacement (aSrcMap);
-
-          aChars = StringHelper.replaceMultiple (s, aSrcMap, aDstMap);
-          nRealOfs = 0;
-          nRealLen = aChars.length;
-          if (nRealLen == 0)
-          {
-            // Nothing left after replacement
-            return;
-          }
-        }
-      }
-    }
-
-    // 2. perform entity replacements if necessary
-    final char [] aSrcMap = _findSourceMap (eXMLVersion, eXMLCharMode);
-    if (aSrcMap == null)
-    {
-      // Nothing to replace
-      aWriter.write (aChars, nRealOfs, nRealLen);
-    }
-    else
-    {
-      final char [] [] aDstMap = _findReplaceMap (eXMLVersion, eXMLCharMode);
-      StringHelper.replaceMultipleTo (aChars, nRealOfs, nRealLen, aSrcMap, aDstMap, aWriter);
-    }
+    final int nEnd = nOfs + nLen;
+    final int nRunStart = _scan (eXMLVersion,
+                                 eXMLCharMode,
+                                 eIncorrectCharHandling,
+                                 CharBuffer.wrap (aText),
+                                 nOfs,
+                                 nLen,
+                                 (IMaskCallback <IOException>) (nStart, nIndex, aReplacement) -> {
+                                   if (nIndex > nStart)
+                                     aWriter.write (aText, nStart, nIndex - nStart);
+                                   if (aReplacement != null)
+                                     aWriter.write (aReplacement);
+                                 });
+    if (nRunStart < nEnd)
+      aWriter.write (aText, nRunStart, nEnd - nRunStart);
   }
 }
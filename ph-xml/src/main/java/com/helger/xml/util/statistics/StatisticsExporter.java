@@ -41,6 +41,8 @@ public final class StatisticsExporter
   public static final String ATTR_HITS = "hits";
   /** Attribute name for XML export */
   public static final String ATTR_MISSES = "misses";
+  /** Attribute name for XML export */
+  public static final String ATTR_EVICTIONS = "evictions";
   /** Element name for XML export */
   public static final String ELEMENT_TIMER = "timer";
   /** Element name for XML export */
@@ -64,7 +64,8 @@ public class StatisticsVisitorCallbackToXML implements IStatisticsVisitorCallbac
              .setAttribute (StatisticsExporter.ATTR_NAME, sName)
              .setAttribute (StatisticsExporter.ATTR_INVOCATIONCOUNT, aHandler.getInvocationCount ())
              .setAttribute (StatisticsExporter.ATTR_HITS, aHandler.getHits ())
-             .setAttribute (StatisticsExporter.ATTR_MISSES, aHandler.getMisses ());
+             .setAttribute (StatisticsExporter.ATTR_MISSES, aHandler.getMisses ())
+             .setAttribute (StatisticsExporter.ATTR_EVICTIONS, aHandler.getEvictions ());
   }
 
   @Override
@@ -19,6 +19,7 @@ package com.helger.xml.microdom.serialize;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 
 import java.io.InputStream;
@@ -31,16 +32,21 @@ import javax.xml.XMLConstants;
 import org.junit.Test;
 import org.xml.sax.InputSource;
 
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.io.IHasInputStream;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.resource.inmemory.ReadableResourceString;
 import com.helger.commons.io.stream.NonBlockingByteArrayInputStream;
 import com.helger.commons.io.stream.NonBlockingByteArrayOutputStream;
 import com.helger.commons.io.stream.NonBlockingStringReader;
 import com.helger.commons.io.streamprovider.StringInputStreamProvider;
 import com.helger.commons.system.ENewLineMode;
+import com.helger.xml.microdom.IMicroAttribute;
 import com.helger.xml.microdom.IMicroDocument;
 import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.microdom.IMicroText;
 import com.helger.xml.namespace.MapBasedNamespaceContext;
 import com.helger.xml.sax.EmptyEntityResolver;
 import com.helger.xml.sax.InputSourceFactory;
@@ -415,4 +421,73 @@ public final class MicroReaderTest
     // Ensure they are written as well
     assertEquals (s, MicroWriter.getNodeAsString (aDoc, new XMLWriterSettings ().setIndent (EXMLSerializeIndent.NONE)));
   }
+
+  @Test
+  public void testCompactTree ()
+  {
+    final String s = "<?xml version=\"1.0\" encoding=\"UTF-8\"?>" +
+                     "<root>\n" +
+                     INDENT +
+                     "<a x=\"1\" y=\"2\" z=\"3\">text</a>\n" +
+                     INDENT +
+                     "<a x=\"4\" y=\"5\"/>\n" +
+                     "</root>";
+    final IMicroDocument aDoc = MicroReader.readMicroXML (s);
+    assertNotNull (aDoc);
+
+    final IMicroDocument aCompactDoc;
+    MicroReader.setDefaultUseCompactTree (true);
+    try
+    {
+      aCompactDoc = MicroReader.readMicroXML (s);
+    }
+    finally
+    {
+      MicroReader.setDefaultUseCompactTree (false);
+    }
+    assertNotNull (aCompactDoc);
+    assertTrue (aDoc.isEqualContent (aCompactDoc));
+    assertTrue (aCompactDoc.isEqualContent (aDoc));
+    assertEquals (MicroWriter.getNodeAsString (aDoc), MicroWriter.getNodeAsString (aCompactDoc));
+
+    // Attribute names are shared
+    final IMicroElement eRoot = aCompactDoc.getDocumentElement ();
+    final IMicroElement eA1 = eRoot.getFirstChildElement ("a");
+    final IMicroElement eA2 = eRoot.getAllChildElements ("a").getLast ();
+    assertSame (eA1.getAttributeObj ("x").getAttributeQName (), eA2.getAttributeObj ("x").getAttributeQName ());
+
+    // Whitespace texts are shared
+    assertSame (((IMicroText) eRoot.getFirstChild ()).getData (),
+                ((IMicroText) eRoot.getAllChildren ().get (2)).getData ());
+
+    // Modifying the compact tree works as usual
+    eA1.removeAttribute ("y");
+    assertEquals ("[x, z]", eA1.getAllAttributeObjs ().getAllMapped (IMicroAttribute::getAttributeName).toString ());
+    eA1.setAttribute ("x", "9");
+    assertEquals ("9", eA1.getAttributeValue ("x"));
+    assertEquals (2, eA1.getAttributeCount ());
+    eA1.appendText ("more");
+    assertEquals ("textmore", eA1.getTextContent ());
+    ((IMicroText) eRoot.getFirstChild ()).appendData ("  ");
+    assertEquals ("\n" + INDENT, ((IMicroText) eRoot.getAllChildren ().get (2)).getData ().toString ());
+  }
+
+  @Test
+  public void testReadParallel ()
+  {
+    final ICommonsList <IReadableResource> aResources = new CommonsArrayList <> ();
+    for (int i = 0; i < 20; ++i)
+      aResources.add (new ReadableResourceString ("<root><v>" + i + "</v></root>", StandardCharsets.UTF_8));
+    aResources.add (new ReadableResourceString ("<root>", StandardCharsets.UTF_8));
+
+    final ISAXReaderSettings aSettings = new SAXReaderSettings ().setErrorHandler (new LoggingSAXErrorHandler ());
+    final ICommonsList <IMicroDocument> aDocs = MicroReader.readMicroXMLParallel (aResources, aSettings);
+    assertEquals (aResources.size (), aDocs.size ());
+    for (int i = 0; i < 20; ++i)
+      assertEquals (Integer.toString (i), aDocs.get (i).getDocumentElement ().getFirstChildElement ().getTextContent ());
+    // Invalid XML
+    assertNull (aDocs.getLast ());
+
+    assertTrue (MicroReader.readMicroXMLParallel (new CommonsArrayList <> (), null).isEmpty ());
+  }
 }
@@ -0,0 +1,117 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.microdom.serialize;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertTrue;
+import static org.junit.Assert.fail;
+
+import org.junit.Test;
+
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
+import com.helger.xml.microdom.IMicroElement;
+import com.helger.xml.sax.InputSourceFactory;
+import com.helger.xml.serialize.read.SAXReader;
+import com.helger.xml.serialize.read.SAXReaderSettings;
+import com.helger.xml.serialize.write.EXMLSerializeIndent;
+import com.helger.xml.serialize.write.XMLWriterSettings;
+
+/**
+ * Test class for class {@link MicroStreamingSAXHandler}.
+ *
+ * @author Philip Helger
+ */
+public final class MicroStreamingSAXHandlerTest
+{
+  private static final String XML = "<?xml version=\"1.0\"?>" +
+                                    "<export version=\"2\">\n" +
+                                    "  <header><item id=\"no\"/></header>\n" +
+                                    "  <item id=\"1\"><name>a</name><!-- c --><![CDATA[<x>]]></item>\n" +
+                                    "  text\n" +
+                                    "  <item id=\"2\"><item id=\"nested\"/></item>\n" +
+                                    "  <other/>\n" +
+                                    "</export>";
+
+  @Test
+  public void testBasic ()
+  {
+    final ICommonsList <IMicroElement> aItems = new CommonsArrayList <> ();
+    assertTrue (MicroReader.readMicroXMLFragments (InputSourceFactory.create (XML), "/export/item", aItems::add)
+                           .isSuccess ());
+    assertEquals (2, aItems.size ());
+
+    final IMicroElement e1 = aItems.get (0);
+    assertNull (e1.getParent ());
+    assertEquals ("1", e1.getAttributeValue ("id"));
+    assertEquals ("<item id=\"1\"><name>a</name><!-- c --><![CDATA[<x>]]></item>",
+                  MicroWriter.getNodeAsString (e1, new XMLWriterSettings ().setIndent (EXMLSerializeIndent.NONE)));
+
+    final IMicroElement e2 = aItems.get (1);
+    assertEquals ("2", e2.getAttributeValue ("id"));
+    assertEquals (1, e2.getChildElementCount ());
+  }
+
+  @Test
+  public void testDocument ()
+  {
+    final ICommonsList <String> aIDs = new CommonsArrayList <> ();
+    final MicroStreamingSAXHandler aHandler = new MicroStreamingSAXHandler ("*/*",
+                                                                            e -> aIDs.add (e.getTagName () +
+                                                                                           e.getAttributeValue ("id")));
+    final SAXReaderSettings aSettings = new SAXReaderSettings ();
+    aSettings.setContentHandler (aHandler).setLexicalHandler (aHandler).setErrorHandler (aHandler);
+    assertTrue (SAXReader.readXMLSAX (XML, aSettings).isSuccess ());
+    assertEquals ("[headernull, item1, item2, othernull]", aIDs.toString ());
+    assertEquals (4, aHandler.getFragmentCount ());
+
+    // Only the document element with its attributes is left
+    assertNotNull (aHandler.getDocument ());
+    final IMicroElement eRoot = aHandler.getDocument ().getDocumentElement ();
+    assertEquals ("2", eRoot.getAttributeValue ("version"));
+    assertEquals (0, eRoot.getChildCount ());
+  }
+
+  @Test
+  public void testConsumerException ()
+  {
+    final RuntimeException ex = new IllegalStateException ("stop");
+    try
+    {
+      MicroReader.readMicroXMLFragments (InputSourceFactory.create (XML), "/export/item", e -> {
+        throw ex;
+      });
+      fail ();
+    }
+    catch (final IllegalStateException ex2)
+    {
+      assertSame (ex, ex2);
+    }
+  }
+
+  @Test
+  public void testNoMatch ()
+  {
+    final ICommonsList <IMicroElement> aItems = new CommonsArrayList <> ();
+    assertTrue (MicroReader.readMicroXMLFragments (InputSourceFactory.create (XML), "/import/item", aItems::add)
+                           .isSuccess ());
+    assertTrue (aItems.isEmpty ());
+  }
+}
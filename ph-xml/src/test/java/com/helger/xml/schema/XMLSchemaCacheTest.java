@@ -18,21 +18,31 @@ package com.helger.xml.schema;
 
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotEquals;
 import static org.junit.Assert.assertNotNull;
 import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.assertTrue;
 import static org.junit.Assert.fail;
 
+import java.util.concurrent.CompletionException;
+
 import javax.xml.validation.Schema;
 
 import org.junit.Test;
 
 import com.helger.commons.annotation.PresentForCodeCoverage;
+import com.helger.commons.collection.impl.CommonsArrayList;
+import com.helger.commons.collection.impl.ICommonsList;
 import com.helger.commons.io.resource.ClassPathResource;
 import com.helger.commons.io.resource.IReadableResource;
+import com.helger.commons.io.resource.inmemory.ReadableResourceByteArray;
+import com.helger.commons.io.stream.StreamHelper;
+import com.helger.commons.statistics.IStatisticsHandlerKeyedTimer;
 import com.helger.xml.ls.CollectingLSResourceResolver;
 import com.helger.xml.ls.LSResourceData;
 import com.helger.xml.ls.LoggingLSResourceResolver;
+import com.helger.xml.ls.SimpleLSResourceResolver;
 import com.helger.xml.sax.LoggingSAXErrorHandler;
 
 import edu.umd.cs.findbugs.annotations.SuppressFBWarnings;
@@ -153,4 +163,65 @@ public final class XMLSchemaCacheTest
     catch (final IllegalArgumentException ex)
     {}
   }
+
+  @Test
+  public void testContentKeyAndWarmUp ()
+  {
+    final XMLSchemaCache sc = new XMLSchemaCache (XMLSchemaCache::createXSDSchemaFactory,
+                                                  new LoggingSAXErrorHandler (),
+                                                  new SimpleLSResourceResolver ());
+    final ClassPathResource aRes1 = new ClassPathResource ("xml/schema1.xsd");
+    final ClassPathResource aRes2 = new ClassPathResource ("xml/schema2.xsd");
+    final ICommonsList <IReadableResource> aSchema1 = new CommonsArrayList <> (aRes1);
+    final ICommonsList <IReadableResource> aSchema2 = new CommonsArrayList <> (aRes2);
+
+    // Pin before compilation
+    assertTrue (sc.pinSchema (aSchema1).isChanged ());
+    assertFalse (sc.pinSchema (aSchema1).isChanged ());
+    assertTrue (sc.isPinnedSchema (aSchema1));
+    assertFalse (sc.isPinnedSchema (aSchema2));
+
+    // Statistics are shared between all XSD caches
+    final IStatisticsHandlerKeyedTimer aStats = sc.getCompileStatistics ();
+    final int nCompiled1 = Math.max (aStats.getInvocationCount (XMLSchemaCache.getStatisticsKey (aSchema1)), 0);
+    final int nCompiled2 = Math.max (aStats.getInvocationCount (XMLSchemaCache.getStatisticsKey (aSchema2)), 0);
+
+    sc.warmUp (new CommonsArrayList <> (aSchema1, aSchema2)).join ();
+    assertEquals (2, sc.getCompiledSchemaCount ());
+    assertEquals (nCompiled1 + 1, aStats.getInvocationCount (XMLSchemaCache.getStatisticsKey (aSchema1)));
+    assertEquals (nCompiled2 + 1, aStats.getInvocationCount (XMLSchemaCache.getStatisticsKey (aSchema2)));
+
+    // Same content but different resource objects
+    final Schema aSchema = sc.getSchema (aRes1);
+    final byte [] aBytes = StreamHelper.getAllBytes (aRes1);
+    assertSame (aSchema, sc.getSchema (new ReadableResourceByteArray (aRes1.getResourceID (), aBytes)));
+    assertSame (aSchema, sc.getSchema (new ReadableResourceByteArray (aRes1.getResourceID (), aBytes)));
+    assertEquals (XMLSchemaCache.getContentKey (aSchema1),
+                  XMLSchemaCache.getContentKey (new CommonsArrayList <> (new ReadableResourceByteArray (aRes1.getResourceID (),
+                                                                                                       aBytes))));
+    // Different resource ID
+    assertNotEquals (XMLSchemaCache.getContentKey (aSchema1),
+                     XMLSchemaCache.getContentKey (new CommonsArrayList <> (new ReadableResourceByteArray (aBytes))));
+    assertEquals (2, sc.getCompiledSchemaCount ());
+    assertEquals (nCompiled1 + 1, aStats.getInvocationCount (XMLSchemaCache.getStatisticsKey (aSchema1)));
+
+    // Clearing retains the pin state
+    assertTrue (sc.clearCache ().isChanged ());
+    assertEquals (0, sc.getCompiledSchemaCount ());
+    assertTrue (sc.isPinnedSchema (aSchema1));
+    assertTrue (sc.unpinSchema (aSchema1).isChanged ());
+    assertFalse (sc.isPinnedSchema (aSchema1));
+
+    // Not a schema
+    try
+    {
+      sc.warmUp (new CommonsArrayList <> (aSchema1, new CommonsArrayList <> (new ClassPathResource ("test1.txt"))))
+        .join ();
+      fail ();
+    }
+    catch (final CompletionException ex)
+    {
+      assertTrue (ex.getCause () instanceof IllegalArgumentException);
+    }
+  }
 }
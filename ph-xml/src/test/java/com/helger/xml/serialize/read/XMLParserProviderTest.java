@@ -0,0 +1,245 @@
+/**
+ * Copyright (C) 2014-2018 Philip Helger (www.helger.com)
+ * philip[at]helger[dot]com
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *         http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+package com.helger.xml.serialize.read;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertNotNull;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertSame;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+import org.xml.sax.XMLReader;
+
+import com.helger.commons.concurrent.ExecutorServiceHelper;
+import com.helger.commons.mutable.MutableInt;
+import com.helger.xml.microdom.IMicroDocument;
+import com.helger.xml.microdom.serialize.MicroReader;
+import com.helger.xml.microdom.serialize.MicroWriter;
+
+/**
+ * Test class for class {@link XMLParserProvider}.
+ *
+ * @author Philip Helger
+ */
+public final class XMLParserProviderTest
+{
+  @Test
+  public void testNewInstance ()
+  {
+    final AtomicInteger aCounter = new AtomicInteger ();
+    final XMLParserProvider <MutableInt> aProvider = XMLParserProvider.createNewInstance ( () -> new MutableInt (aCounter.incrementAndGet ()));
+    assertSame (EXMLParserProvisioning.NEW_INSTANCE, aProvider.getProvisioning ());
+    assertEquals (0, aProvider.getMaxPoolSize ());
+
+    final MutableInt a1 = aProvider.borrow ();
+    aProvider.release (a1);
+    final MutableInt a2 = aProvider.borrow ();
+    aProvider.release (a2);
+    assertNotSame (a1, a2);
+    assertEquals (2, aProvider.getBorrowCount ());
+    assertEquals (2, aProvider.getCreatedCount ());
+    assertEquals (0, aProvider.getDiscardedCount ());
+  }
+
+  @Test
+  public void testThreadLocal ()
+  {
+    final XMLParserProvider <MutableInt> aProvider = XMLParserProvider.createThreadLocal (() -> new MutableInt (0),
+                                                                                          x -> x.intValue () >= 0);
+    assertSame (EXMLParserProvisioning.THREAD_LOCAL, aProvider.getProvisioning ());
+
+    final MutableInt a1 = aProvider.borrow ();
+    aProvider.release (a1);
+    final MutableInt a2 = aProvider.borrow ();
+    assertSame (a1, a2);
+
+    // Nested usage in the same thread
+    final MutableInt a3 = aProvider.borrow ();
+    assertNotSame (a2, a3);
+    aProvider.release (a3);
+    assertEquals (1, aProvider.getContendedCount ());
+
+    // Cannot be reset
+    a2.set (-1);
+    aProvider.release (a2);
+    assertEquals (1, aProvider.getDiscardedCount ());
+    final MutableInt a4 = aProvider.borrow ();
+    assertNotSame (a2, a4);
+    aProvider.release (a4);
+
+    aProvider.clearUnused ();
+    assertEquals (2, aProvider.getDiscardedCount ());
+    assertEquals (4, aProvider.getBorrowCount ());
+    assertEquals (3, aProvider.getCreatedCount ());
+  }
+
+  @Test
+  public void testThreadLocalDifferentThreads () throws InterruptedException
+  {
+    final XMLParserProvider <MutableInt> aProvider = XMLParserProvider.createThreadLocal (() -> new MutableInt (0), null);
+    final MutableInt a1 = aProvider.borrow ();
+    final MutableInt [] aOther = new MutableInt [1];
+    final Thread t = new Thread ( () -> {
+      aOther[0] = aProvider.borrow ();
+      aProvider.release (aOther[0]);
+    });
+    t.start ();
+    t.join ();
+    aProvider.release (a1);
+    assertNotNull (aOther[0]);
+    assertNotSame (a1, aOther[0]);
+    assertEquals (0, aProvider.getContendedCount ());
+    assertEquals (2, aProvider.getCreatedCount ());
+  }
+
+  @Test
+  public void testPool () throws InterruptedException
+  {
+    final XMLParserProvider <MutableInt> aProvider = XMLParserProvider.createPool (1,
+                                                                                   () -> new MutableInt (0),
+                                                                                   x -> x.intValue () >= 0);
+    assertSame (EXMLParserProvisioning.POOL, aProvider.getProvisioning ());
+    assertEquals (1, aProvider.getMaxPoolSize ());
+
+    final MutableInt a1 = aProvider.borrow ();
+    aProvider.release (a1);
+    final MutableInt a2 = aProvider.borrow ();
+    assertSame (a1, a2);
+
+    // Pool is exhausted - wait for the release in another thread
+    final MutableInt [] aOther = new MutableInt [1];
+    final Thread t = new Thread ( () -> {
+      aOther[0] = aProvider.borrow ();
+      aProvider.release (aOther[0]);
+    });
+    t.start ();
+    while (aProvider.getWaitingCount () == 0 && t.isAlive ())
+      Thread.sleep (5);
+    aProvider.release (a2);
+    t.join ();
+    assertSame (a1, aOther[0]);
+    assertEquals (1, aProvider.getContendedCount ());
+    assertEquals (0, aProvider.getWaitingCount ());
+
+    // Cannot be reset
+    final MutableInt a3 = aProvider.borrow ();
+    a3.set (-1);
+    aProvider.release (a3);
+    assertEquals (1, aProvider.getDiscardedCount ());
+    final MutableInt a4 = aProvider.borrow ();
+    assertNotSame (a3, a4);
+    aProvider.release (a4);
+
+    assertEquals (5, aProvider.getBorrowCount ());
+    assertEquals (2, aProvider.getCreatedCount ());
+  }
+
+  @Test
+  public void testCreate ()
+  {
+    for (final EXMLParserProvisioning e : EXMLParserProvisioning.values ())
+    {
+      final XMLParserProvider <MutableInt> aProvider = XMLParserProvider.create (e, 2, () -> new MutableInt (0), null);
+      assertSame (e, aProvider.getProvisioning ());
+      final MutableInt a = aProvider.borrow ();
+      assertNotNull (a);
+      aProvider.release (a);
+      assertSame (e, EXMLParserProvisioning.getFromIDOrNull (e.getID ()));
+    }
+  }
+
+  @Test
+  public void testConcurrentReset ()
+  {
+    for (final EXMLParserProvisioning e : new EXMLParserProvisioning [] { EXMLParserProvisioning.THREAD_LOCAL,
+                                                                          EXMLParserProvisioning.POOL })
+    {
+      // The resetter clears the parser
+      final XMLParserProvider <MutableInt> aProvider = XMLParserProvider.create (e, 2, () -> new MutableInt (0), x -> {
+        Thread.yield ();
+        x.set (0);
+        return true;
+      });
+      final AtomicInteger aErrors = new AtomicInteger (0);
+      final ExecutorService aES = Executors.newFixedThreadPool (8);
+      for (int i = 0; i < 8; ++i)
+      {
+        final int nThreadID = i + 1;
+        aES.submit ( () -> {
+          for (int j = 0; j < 2000; ++j)
+          {
+            final MutableInt aParser = aProvider.borrow ();
+            // Must be reset
+            if (aParser.intValue () != 0)
+              aErrors.incrementAndGet ();
+            aParser.set (nThreadID);
+            Thread.yield ();
+            // Nobody else may modify the parser while it is borrowed
+            if (aParser.intValue () != nThreadID)
+              aErrors.incrementAndGet ();
+            aProvider.release (aParser);
+          }
+        });
+      }
+      ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+      assertEquals (e.getID (), 0, aErrors.get ());
+      assertEquals (e.getID (), 0, aProvider.getDiscardedCount ());
+    }
+  }
+
+  @Test
+  public void testConcurrentMicroReader ()
+  {
+    final StringBuilder aSB = new StringBuilder ("<?xml version=\"1.0\"?><!DOCTYPE root><root>");
+    for (int i = 0; i < 200; ++i)
+      aSB.append ("<item id=\"").append (i).append ("\"><!-- c --><![CDATA[x]]>text ").append (i).append ("</item>");
+    aSB.append ("</root>");
+    final String sXML = aSB.toString ();
+    final String sExpected = MicroWriter.getNodeAsString (MicroReader.readMicroXML (sXML));
+    assertNotNull (sExpected);
+
+    final XMLParserProvider <XMLReader> aOld = SAXReader.getParserProvider ();
+    try
+    {
+      for (final EXMLParserProvisioning e : EXMLParserProvisioning.values ())
+      {
+        SAXReader.setParserProvider (SAXReader.createParserProvider (e, 2));
+        final AtomicInteger aErrors = new AtomicInteger (0);
+        final ExecutorService aES = Executors.newFixedThreadPool (16);
+        for (int i = 0; i < 16; ++i)
+          aES.submit ( () -> {
+            for (int j = 0; j < 200; ++j)
+            {
+              final IMicroDocument aDoc = MicroReader.readMicroXML (sXML);
+              if (aDoc == null || !sExpected.equals (MicroWriter.getNodeAsString (aDoc)))
+                aErrors.incrementAndGet ();
+            }
+          });
+        ExecutorServiceHelper.shutdownAndWaitUntilAllTasksAreFinished (aES);
+        assertEquals (e.getID (), 0, aErrors.get ());
+      }
+    }
+    finally
+    {
+      SAXReader.setParserProvider (aOld);
+    }
+  }
+}
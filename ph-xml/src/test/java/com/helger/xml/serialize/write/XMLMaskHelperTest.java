@@ -20,9 +20,12 @@ import static org.junit.Assert.assertArrayEquals;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.fail;
 
+import java.io.IOException;
+
 import org.junit.Test;
 
 import com.helger.commons.collection.ArrayHelper;
+import com.helger.commons.io.stream.NonBlockingStringWriter;
 
 /**
  * Test class for class {@link XMLMaskHelper}.
@@ -276,4 +279,42 @@ public final class XMLMaskHelperTest
                                                         EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
                                                         "1 & \u0001"));
   }
+
+  @Test
+  public void testAllVariantsConsistent () throws IOException
+  {
+    // All chars of the first 2 planes plus surrogates and non-characters
+    final StringBuilder aSB = new StringBuilder ();
+    for (char c = 0; c < 0x2100; ++c)
+      aSB.append (c);
+    aSB.append ("\ud800\udc00\ufffe\uffff");
+    final String sAll = aSB.toString ();
+    final char [] aPadded = ("xy" + sAll + "z").toCharArray ();
+
+    for (final EXMLSerializeVersion eVersion : EXMLSerializeVersion.values ())
+      for (final EXMLCharMode eMode : EXMLCharMode.values ())
+        for (final EXMLIncorrectCharacterHandling eHandling : new EXMLIncorrectCharacterHandling [] { EXMLIncorrectCharacterHandling.WRITE_TO_FILE_NO_LOG,
+                                                                                                      EXMLIncorrectCharacterHandling.DO_NOT_WRITE_NO_LOG })
+        {
+          final String sMasked = new String (XMLMaskHelper.getMaskedXMLText (eVersion, eMode, eHandling, sAll));
+          assertEquals (sMasked.length (), XMLMaskHelper.getMaskedXMLTextLength (eVersion, eMode, eHandling, sAll));
+
+          final NonBlockingStringWriter aSW = new NonBlockingStringWriter ();
+          XMLMaskHelper.maskXMLTextTo (eVersion, eMode, eHandling, aPadded, 2, sAll.length (), aSW);
+          assertEquals (sMasked, aSW.getAsString ());
+
+          // Unchanged text must not be modified
+          assertEquals ("abc", new String (XMLMaskHelper.getMaskedXMLText (eVersion, eMode, eHandling, "abc")));
+        }
+
+    // Special handling of the first char of names
+    assertEquals ("a1", new String (XMLMaskHelper.getMaskedXMLText (EXMLSerializeVersion.XML_10,
+                                                                    EXMLCharMode.ELEMENT_NAME,
+                                                                    EXMLIncorrectCharacterHandling.DO_NOT_WRITE_NO_LOG,
+                                                                    "1a1")));
+    assertEquals ("a1", new String (XMLMaskHelper.getMaskedXMLText (EXMLSerializeVersion.XML_10,
+                                                                    EXMLCharMode.ELEMENT_NAME,
+                                                                    EXMLIncorrectCharacterHandling.DO_NOT_WRITE_NO_LOG,
+                                                                    "a1")));
+  }
 }